@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+
+# Compares throughput of measurement ingestion through HTTP Basic authenticated /api/measurements and device key
+# authenticated /api/ingest/measurements. Pin application to known cores so that results can be reported per core:
+#
+#   taskset -c 0,1 java -jar target/iot-device-manager.jar
+#   SERVER_CORES=2 ./benchmark/ingestion_auth_benchmark.sh
+#
+# Requires curl, jq and wrk. Load generator is pinned to cores given in CLIENT_CPUS, which must not overlap server's.
+
+set -euo pipefail
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+API_USER=${API_USER:-test-user}
+API_PASSWORD=${API_PASSWORD:-default-password}
+SERVER_CORES=${SERVER_CORES:-1}
+CLIENT_CPUS=${CLIENT_CPUS:-2,3}
+THREADS=${THREADS:-2}
+CONNECTIONS=${CONNECTIONS:-64}
+DURATION=${DURATION:-30s}
+WARMUP=${WARMUP:-10s}
+
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+# Device used by both runs
+DEVICE=$(curl -sf -u "$API_USER:$API_PASSWORD" -H "Content-Type: application/json" \
+    -d "{\"name\": \"benchmark-$(date +%s)\"}" "$BASE_URL/api/devices")
+DEVICE_ID=$(echo "$DEVICE" | jq -r '.collection.items[0].data[] | select(.name == "id") | .value')
+DEVICE_KEY=$(echo "$DEVICE" | jq -r '.collection.items[0].data[] | select(.name == "authenticationKey") | .value')
+BASIC_AUTH=$(printf "%s:%s" "$API_USER" "$API_PASSWORD" | base64)
+
+cat > "$WORK_DIR/basic.lua" <<LUA
+wrk.method = "POST"
+wrk.headers["Content-Type"] = "application/json"
+wrk.headers["Authorization"] = "Basic $BASIC_AUTH"
+wrk.body = '{"deviceId": $DEVICE_ID, "content": {"temperature": 21.5}}'
+LUA
+
+cat > "$WORK_DIR/device-key.lua" <<LUA
+wrk.method = "POST"
+wrk.headers["Content-Type"] = "application/json"
+wrk.headers["X-Authentication-Key"] = "$DEVICE_KEY"
+wrk.body = '{"content": {"temperature": 21.5}}'
+LUA
+
+run() {
+    local name=$1 script=$2 path=$3
+
+    taskset -c "$CLIENT_CPUS" wrk -t"$THREADS" -c"$CONNECTIONS" -d"$WARMUP" -s "$script" "$BASE_URL$path" > /dev/null
+    local requests_per_second
+    requests_per_second=$(taskset -c "$CLIENT_CPUS" wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" -s "$script" \
+        "$BASE_URL$path" | awk '/Requests\/sec/ { print $2 }')
+
+    printf "%-12s %12s req/s %12.1f req/s per core\n" "$name" "$requests_per_second" \
+        "$(echo "$requests_per_second / $SERVER_CORES" | bc -l)"
+}
+
+run "basic-auth" "$WORK_DIR/basic.lua" "/api/measurements"
+run "device-key" "$WORK_DIR/device-key.lua" "/api/ingest/measurements"
+
+curl -sf -u "$API_USER:$API_PASSWORD" -X DELETE "$BASE_URL/api/devices/$DEVICE_ID" > /dev/null
@@ -0,0 +1,86 @@
+#!/usr/bin/env bash
+
+# Compares bytes on the wire and server CPU time per reading of JSON, CBOR and MessagePack request bodies on
+# /api/ingest/measurements and /api/ingest/measurements/batch. CPU time is read from /proc of the application process,
+# so benchmark must run on the same host as the application:
+#
+#   java -jar target/iot-device-manager.jar &
+#   SERVER_PID=$! ./benchmark/ingestion_format_benchmark.sh
+#
+# Requires curl, jq and wrk. Load generator is pinned to cores given in CLIENT_CPUS, which must not overlap server's.
+
+set -euo pipefail
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+API_USER=${API_USER:-test-user}
+API_PASSWORD=${API_PASSWORD:-default-password}
+SERVER_PID=${SERVER_PID:?SERVER_PID of the application is required}
+CLIENT_CPUS=${CLIENT_CPUS:-2,3}
+THREADS=${THREADS:-2}
+CONNECTIONS=${CONNECTIONS:-64}
+DURATION=${DURATION:-30s}
+WARMUP=${WARMUP:-10s}
+BATCH_SIZE=100
+
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+DEVICE=$(curl -sf -u "$API_USER:$API_PASSWORD" -H "Content-Type: application/json" \
+    -d "{\"name\": \"benchmark-$(date +%s)\"}" "$BASE_URL/api/devices")
+DEVICE_ID=$(echo "$DEVICE" | jq -r '.collection.items[0].data[] | select(.name == "id") | .value')
+DEVICE_KEY=$(echo "$DEVICE" | jq -r '.collection.items[0].data[] | select(.name == "authenticationKey") | .value')
+
+# Same reading {"content": {"temperature": 21.5}} in each format. CBOR uses half precision float, MessagePack single.
+printf '{"content":{"temperature":21.5}}' > "$WORK_DIR/reading.json"
+printf '\xa1\x67content\xa1\x6btemperature\xf9\x4d\x60' > "$WORK_DIR/reading.cbor"
+printf '\x81\xa7content\x81\xabtemperature\xca\x41\xac\x00\x00' > "$WORK_DIR/reading.msgpack"
+
+# Batches are arrays of BATCH_SIZE readings
+{ printf '['; for i in $(seq 2 $BATCH_SIZE); do cat "$WORK_DIR/reading.json"; printf ','; done
+    cat "$WORK_DIR/reading.json"; printf ']'; } > "$WORK_DIR/batch.json"
+{ printf '\x98\x64'; for i in $(seq $BATCH_SIZE); do cat "$WORK_DIR/reading.cbor"; done; } > "$WORK_DIR/batch.cbor"
+{ printf '\xdc\x00\x64'; for i in $(seq $BATCH_SIZE); do cat "$WORK_DIR/reading.msgpack"; done; } > "$WORK_DIR/batch.msgpack"
+
+write_script() {
+    local body=$1 content_type=$2
+
+    cat > "$body.lua" <<LUA
+local file = io.open("$body", "rb")
+wrk.method = "POST"
+wrk.headers["Content-Type"] = "$content_type"
+wrk.headers["X-Authentication-Key"] = "$DEVICE_KEY"
+wrk.body = file:read("*all")
+file:close()
+LUA
+}
+
+cpu_ticks() {
+    # utime and stime of the application process
+    awk '{ print $14 + $15 }' "/proc/$SERVER_PID/stat"
+}
+
+run() {
+    local name=$1 body=$2 content_type=$3 path=$4 readings_per_request=$5
+
+    write_script "$body" "$content_type"
+    taskset -c "$CLIENT_CPUS" wrk -t"$THREADS" -c"$CONNECTIONS" -d"$WARMUP" -s "$body.lua" "$BASE_URL$path" > /dev/null
+
+    local ticks_before ticks_after requests
+    ticks_before=$(cpu_ticks)
+    requests=$(taskset -c "$CLIENT_CPUS" wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" -s "$body.lua" \
+        "$BASE_URL$path" | awk '/requests in/ { print $1 }')
+    ticks_after=$(cpu_ticks)
+
+    printf "%-16s %8.1f bytes/reading %10.1f us CPU/reading\n" "$name" \
+        "$(echo "$(stat -c %s "$body") / $readings_per_request" | bc -l)" \
+        "$(echo "($ticks_after - $ticks_before) * 1000000 / $(getconf CLK_TCK) / ($requests * $readings_per_request)" | bc -l)"
+}
+
+run "json"          "$WORK_DIR/reading.json"    "application/json"    "/api/ingest/measurements" 1
+run "cbor"          "$WORK_DIR/reading.cbor"    "application/cbor"    "/api/ingest/measurements" 1
+run "msgpack"       "$WORK_DIR/reading.msgpack" "application/msgpack" "/api/ingest/measurements" 1
+run "json-batch"    "$WORK_DIR/batch.json"      "application/json"    "/api/ingest/measurements/batch" $BATCH_SIZE
+run "cbor-batch"    "$WORK_DIR/batch.cbor"      "application/cbor"    "/api/ingest/measurements/batch" $BATCH_SIZE
+run "msgpack-batch" "$WORK_DIR/batch.msgpack"   "application/msgpack" "/api/ingest/measurements/batch" $BATCH_SIZE
+
+curl -sf -u "$API_USER:$API_PASSWORD" -X DELETE "$BASE_URL/api/devices/$DEVICE_ID" > /dev/null
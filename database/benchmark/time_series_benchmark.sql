@@ -0,0 +1,159 @@
+/***** TIME-SERIES INDEX BENCHMARK *****/
+
+/*
+ * Measures latency of the queries built by get_measurements / get_locations before and after
+ * migration V001 against a generated dataset. Uses its own database. Run as root from this directory:
+ *
+ *   cd database/benchmark && mysql -u root -p < time_series_benchmark.sql
+ *
+ * Dataset size is controlled with @benchmark_devices and @benchmark_rows below.
+ */
+
+SET @benchmark_devices = 1000;
+SET @benchmark_rows = 5000000;
+SET @benchmark_repeat = 20;
+
+DROP DATABASE IF EXISTS benchmarkiotdevicemanager;
+CREATE DATABASE benchmarkiotdevicemanager;
+USE benchmarkiotdevicemanager;
+
+/* Tables as they were before V001 */
+CREATE TABLE device (
+    id INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    name VARCHAR(50) UNIQUE NOT NULL
+);
+
+CREATE TABLE location (
+    id INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    device_id INT NOT NULL,
+    latitude DECIMAL(6,3) NOT NULL,
+    longitude DECIMAL(6,3) NOT NULL,
+    time DATETIME NOT NULL,
+    FOREIGN KEY (device_id) REFERENCES device(id) ON DELETE CASCADE
+);
+
+CREATE TABLE measurement (
+    id INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    device_id INT NOT NULL,
+    content JSON NOT NULL,
+    time DATETIME NOT NULL,
+    FOREIGN KEY (device_id) REFERENCES device(id) ON DELETE CASCADE
+);
+
+CREATE TABLE benchmark_result (
+    phase VARCHAR(10) NOT NULL,
+    label VARCHAR(50) NOT NULL,
+    matched_rows INT NOT NULL,
+    avg_ms DECIMAL(12,3) NOT NULL,
+    PRIMARY KEY (phase, label)
+);
+
+/* Every device reports every @benchmark_devices * 10 seconds, starting from 2018-01-01 */
+DROP PROCEDURE IF EXISTS benchmark_generate;
+DELIMITER $$
+CREATE PROCEDURE benchmark_generate (
+    IN p_devices INT,
+    IN p_rows INT)
+BEGIN
+    DECLARE v_batch INT DEFAULT 100000;
+    DECLARE v_offset INT DEFAULT 0;
+
+    SET SESSION cte_max_recursion_depth = 1000000;
+
+    INSERT INTO device (name)
+    WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < p_devices)
+    SELECT CONCAT('benchmark-device-', n) FROM seq;
+
+    WHILE v_offset < p_rows DO
+        INSERT INTO measurement (device_id, content, time)
+        WITH RECURSIVE seq (n) AS (SELECT v_offset UNION ALL SELECT n + 1 FROM seq WHERE n < LEAST(v_offset + v_batch, p_rows) - 1)
+        SELECT 1 + (n MOD p_devices), JSON_OBJECT('temperature', 20 + (n MOD 15)), '2018-01-01' + INTERVAL n * 10 SECOND
+        FROM seq;
+
+        INSERT INTO location (device_id, latitude, longitude, time)
+        WITH RECURSIVE seq (n) AS (SELECT v_offset UNION ALL SELECT n + 1 FROM seq WHERE n < LEAST(v_offset + v_batch, p_rows) - 1)
+        SELECT 1 + (n MOD p_devices), 60 + (n MOD 1000) / 1000, 25 + (n MOD 1000) / 1000, '2018-01-01' + INTERVAL n * 10 SECOND
+        FROM seq;
+
+        SET v_offset = v_offset + v_batch;
+    END WHILE;
+
+    ANALYZE TABLE measurement, location;
+END
+$$
+DELIMITER ;
+
+/* Run query p_repeat times and store average latency. Rows are counted so result sets are not sent to client */
+DROP PROCEDURE IF EXISTS benchmark_query;
+DELIMITER $$
+CREATE PROCEDURE benchmark_query (
+    IN p_phase VARCHAR(10),
+    IN p_label VARCHAR(50),
+    IN p_query TEXT,
+    IN p_repeat INT)
+BEGIN
+    DECLARE v_i INT DEFAULT 0;
+    DECLARE v_start DATETIME(6);
+
+    SET @query = CONCAT('SELECT COUNT(*) INTO @matched_rows FROM (', p_query, ') AS q');
+    PREPARE stmt FROM @query;
+
+    /* Warm up buffer pool */
+    EXECUTE stmt;
+
+    SET v_start = NOW(6);
+    WHILE v_i < p_repeat DO
+        EXECUTE stmt;
+        SET v_i = v_i + 1;
+    END WHILE;
+
+    INSERT INTO benchmark_result (phase, label, matched_rows, avg_ms)
+    VALUES (p_phase, p_label, @matched_rows, TIMESTAMPDIFF(MICROSECOND, v_start, NOW(6)) / p_repeat / 1000);
+
+    DEALLOCATE PREPARE stmt;
+END
+$$
+DELIMITER ;
+
+/* Same WHERE clauses get_measurements and get_locations build, plus latest readings of a device */
+DROP PROCEDURE IF EXISTS benchmark_run;
+DELIMITER $$
+CREATE PROCEDURE benchmark_run (
+    IN p_phase VARCHAR(10),
+    IN p_repeat INT)
+BEGIN
+    CALL benchmark_query(p_phase, 'measurement device + 1 day range',
+        'SELECT id, device_id, content, time FROM measurement WHERE 1=1 AND device_id="42" AND time >= "2018-01-10 00:00:00" AND time <= "2018-01-11 00:00:00"', p_repeat);
+    CALL benchmark_query(p_phase, 'measurement device + exact time',
+        'SELECT id, device_id, content, time FROM measurement WHERE 1=1 AND device_id="42" AND time = "2018-01-10 00:00:00"', p_repeat);
+    CALL benchmark_query(p_phase, 'measurement 1 hour range',
+        'SELECT id, device_id, content, time FROM measurement WHERE 1=1 AND time >= "2018-01-10 00:00:00" AND time <= "2018-01-10 01:00:00"', p_repeat);
+    CALL benchmark_query(p_phase, 'measurement latest 100 of device',
+        'SELECT id, device_id, content, time FROM measurement WHERE device_id = 42 ORDER BY time DESC, id DESC LIMIT 100', p_repeat);
+    CALL benchmark_query(p_phase, 'location device + 1 day range',
+        'SELECT id, device_id, longitude, latitude, time FROM location WHERE 1=1 AND device_id="42" AND time >= "2018-01-10 00:00:00" AND time <= "2018-01-11 00:00:00"', p_repeat);
+    CALL benchmark_query(p_phase, 'location 1 hour range',
+        'SELECT id, device_id, longitude, latitude, time FROM location WHERE 1=1 AND time >= "2018-01-10 00:00:00" AND time <= "2018-01-10 01:00:00"', p_repeat);
+END
+$$
+DELIMITER ;
+
+CALL benchmark_generate(@benchmark_devices, @benchmark_rows);
+CALL benchmark_run('before', @benchmark_repeat);
+
+source ../migrations/migration_utils.sql
+source ../migrations/V001__time_series_indexes.sql
+ANALYZE TABLE measurement, location;
+
+CALL benchmark_run('after', @benchmark_repeat);
+
+SELECT
+    b.label,
+    b.matched_rows,
+    b.avg_ms AS before_ms,
+    a.avg_ms AS after_ms,
+    ROUND(b.avg_ms / NULLIF(a.avg_ms, 0), 1) AS speedup
+FROM benchmark_result b
+JOIN benchmark_result a ON a.label = b.label AND a.phase = 'after'
+WHERE b.phase = 'before'
+ORDER BY b.label;
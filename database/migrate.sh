@@ -0,0 +1,41 @@
+#!/bin/sh
+# Apply pending migrations from migrations/ directory in version order.
+# Each migration is recorded in schema_migration table and applied only once.
+# Migrations marked as offline block writes while applied and are refused unless --offline is given.
+#
+# Usage: ./migrate.sh [--offline] <database> [mysql client options]
+# Example: ./migrate.sh iotdevicemanager -h mysql-idm -u root -p<root-password>
+
+set -e
+
+OFFLINE=0
+if [ "$1" = "--offline" ]; then
+    OFFLINE=1
+    shift
+fi
+
+if [ -z "$1" ]; then
+    echo "Usage: $0 [--offline] <database> [mysql client options]"
+    exit 1
+fi
+
+DATABASE=$1
+shift
+MIGRATIONS_DIR=$(dirname "$0")/migrations
+
+mysql "$@" "$DATABASE" < "$MIGRATIONS_DIR/migration_utils.sql"
+
+for migration in $(ls "$MIGRATIONS_DIR"/V*__*.sql | sort); do
+    version=$(basename "$migration" | sed 's/^V0*\([0-9][0-9]*\)__.*$/\1/')
+    applied=$(mysql "$@" -N -s "$DATABASE" -e "SELECT COUNT(*) FROM schema_migration WHERE version = $version")
+
+    if [ "$applied" = "0" ] && [ "$OFFLINE" = "0" ] && grep -q '^/\* OFFLINE' "$migration"; then
+        echo "Stopping at $(basename "$migration"), it blocks writes and must be applied with --offline during maintenance window"
+        exit 1
+    elif [ "$applied" = "0" ]; then
+        echo "Applying $(basename "$migration")"
+        mysql "$@" "$DATABASE" < "$migration"
+    else
+        echo "Skipping $(basename "$migration"), already applied"
+    fi
+done
@@ -0,0 +1,18 @@
+/***** V001: Time-series indexes for measurement and location *****/
+
+/*
+ * (device_id, time) serves device filters with time ranges, exact times and ordering by time.
+ * (time) serves time filters without device. InnoDB appends primary key id to every secondary index.
+ * Location index also covers latitude and longitude so location queries are answered from the index only.
+ */
+CALL migration_add_index('measurement', 'measurement_device_id_time', 'device_id, time');
+CALL migration_add_index('measurement', 'measurement_time', 'time');
+CALL migration_add_index('location', 'location_device_id_time', 'device_id, time, latitude, longitude');
+CALL migration_add_index('location', 'location_time', 'time');
+
+/* Implicit foreign key indexes are redundant now that device_id leads the composite indexes */
+CALL migration_drop_index('measurement', 'device_id');
+CALL migration_drop_index('location', 'device_id');
+
+INSERT IGNORE INTO schema_migration (version, description, applied_at)
+VALUES (1, 'Time-series indexes for measurement and location', NOW());
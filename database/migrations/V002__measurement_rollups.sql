@@ -0,0 +1,32 @@
+/***** V002: Rollups of numeric measurement content fields *****/
+
+/*
+ * Count, sum, minimum and maximum of each numeric top-level content field per device, field and time bucket.
+ * resolution_seconds is 60 for per-minute and 3600 for per-hour rollups, time is start of the bucket.
+ * Rows are maintained by the application and rebuilt from measurements with rebuild_measurement_rollups.
+ */
+CREATE TABLE IF NOT EXISTS measurement_rollup (
+    device_id INT NOT NULL,
+    field VARCHAR(255) NOT NULL,
+    resolution_seconds INT NOT NULL,
+    time DATETIME NOT NULL,
+    value_count BIGINT NOT NULL,
+    value_sum DOUBLE NOT NULL,
+    value_min DOUBLE NOT NULL,
+    value_max DOUBLE NOT NULL,
+    PRIMARY KEY (device_id, field, resolution_seconds, time),
+    INDEX measurement_rollup_time (resolution_seconds, time),
+    FOREIGN KEY (device_id) REFERENCES device(id) ON DELETE CASCADE
+);
+
+/*
+ * Time up to which rollups are complete, kept in single row. Backfill on startup continues from it instead of rebuilding
+ * rollups of all measurements. NULL requires rebuild of all rollups.
+ */
+CREATE TABLE IF NOT EXISTS measurement_rollup_watermark (
+    id TINYINT PRIMARY KEY NOT NULL,
+    complete_until DATETIME NULL
+);
+
+INSERT IGNORE INTO schema_migration (version, description, applied_at)
+VALUES (2, 'Rollups of numeric measurement content fields', NOW());
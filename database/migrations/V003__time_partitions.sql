@@ -0,0 +1,56 @@
+/***** V003: Monthly time partitions for measurement and location *****/
+
+/* OFFLINE: tables are copied into partitions and writes to them are blocked meanwhile, apply with migrate.sh --offline */
+
+/*
+ * Partitioned tables cannot have foreign keys. Device references of measurement and location are checked and cascaded
+ * by triggers instead. Error raised on missing device matches the one raised by foreign key.
+ */
+DROP TRIGGER IF EXISTS measurement_insert;
+DELIMITER $$
+CREATE TRIGGER measurement_insert
+    BEFORE INSERT ON measurement
+    FOR EACH ROW
+BEGIN
+    /* Shared lock keeps device from being deleted until insert commits, as foreign key check does */
+    IF NOT EXISTS (SELECT 1 FROM device WHERE id = NEW.device_id LOCK IN SHARE MODE) THEN
+        SIGNAL SQLSTATE '23000' SET MYSQL_ERRNO = 1452, MESSAGE_TEXT =
+            'Cannot add or update a child row: a foreign key constraint fails (`measurement`, FOREIGN KEY (`device_id`) REFERENCES `device` (`id`))';
+    END IF;
+END$$
+DELIMITER ;
+
+DROP TRIGGER IF EXISTS location_insert;
+DELIMITER $$
+CREATE TRIGGER location_insert
+    BEFORE INSERT ON location
+    FOR EACH ROW
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM device WHERE id = NEW.device_id LOCK IN SHARE MODE) THEN
+        SIGNAL SQLSTATE '23000' SET MYSQL_ERRNO = 1452, MESSAGE_TEXT =
+            'Cannot add or update a child row: a foreign key constraint fails (`location`, FOREIGN KEY (`device_id`) REFERENCES `device` (`id`))';
+    END IF;
+END$$
+DELIMITER ;
+
+DROP TRIGGER IF EXISTS device_delete;
+DELIMITER $$
+CREATE TRIGGER device_delete
+    BEFORE DELETE ON device
+    FOR EACH ROW
+BEGIN
+    /* Services delete device's rows in chunks before device, so only rows written meanwhile are left here */
+    DELETE FROM measurement WHERE device_id = OLD.id;
+    DELETE FROM location WHERE device_id = OLD.id;
+END$$
+DELIMITER ;
+
+CALL migration_drop_foreign_key('measurement', 'device_id');
+CALL migration_drop_foreign_key('location', 'device_id');
+
+/* Primary key becomes (id, time). Existing rows are copied into partitions, run during maintenance window */
+CALL migration_partition_by_month('measurement', 3);
+CALL migration_partition_by_month('location', 3);
+
+INSERT IGNORE INTO schema_migration (version, description, applied_at)
+VALUES (3, 'Monthly time partitions for measurement and location', NOW());
@@ -0,0 +1,53 @@
+/***** V004: Geohash of location updates *****/
+
+/*
+ * Partitioned tables cannot have spatial indexes, so locations are indexed by geohash instead. Geohash of 7 characters
+ * is a cell of about 150 x 150 meters and locations inside an area are found by prefixes of the cells covering it.
+ */
+CALL migration_add_column('location', 'geohash', 'CHAR(7) NULL');
+
+/* Same device check as V003, geohash is calculated from coordinates of inserted row */
+DROP TRIGGER IF EXISTS location_insert;
+DELIMITER $$
+CREATE TRIGGER location_insert
+    BEFORE INSERT ON location
+    FOR EACH ROW
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM device WHERE id = NEW.device_id LOCK IN SHARE MODE) THEN
+        SIGNAL SQLSTATE '23000' SET MYSQL_ERRNO = 1452, MESSAGE_TEXT =
+            'Cannot add or update a child row: a foreign key constraint fails (`location`, FOREIGN KEY (`device_id`) REFERENCES `device` (`id`))';
+    END IF;
+
+    SET NEW.geohash = ST_GeoHash(NEW.longitude, NEW.latitude, 7);
+END$$
+DELIMITER ;
+
+/* Existing rows are updated in chunks of id range, each committed separately to keep locks and undo log small */
+DROP PROCEDURE IF EXISTS migration_backfill_location_geohash;
+DELIMITER $$
+CREATE PROCEDURE migration_backfill_location_geohash (
+    IN p_chunk_size INT)
+BEGIN
+    DECLARE v_id INT;
+    DECLARE v_max_id INT;
+
+    SELECT IFNULL(MIN(id), 0), IFNULL(MAX(id), -1) INTO v_id, v_max_id FROM location;
+
+    WHILE v_id <= v_max_id DO
+        UPDATE location SET geohash = ST_GeoHash(longitude, latitude, 7)
+        WHERE id >= v_id AND id < v_id + p_chunk_size AND geohash IS NULL;
+        COMMIT;
+
+        SET v_id = v_id + p_chunk_size;
+    END WHILE;
+END
+$$
+DELIMITER ;
+
+CALL migration_backfill_location_geohash(10000);
+DROP PROCEDURE migration_backfill_location_geohash;
+
+CALL migration_add_index('location', 'location_geohash', 'geohash');
+
+INSERT IGNORE INTO schema_migration (version, description, applied_at)
+VALUES (4, 'Geohash of location updates', NOW());
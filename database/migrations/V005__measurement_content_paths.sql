@@ -0,0 +1,14 @@
+/***** V005: Indexed measurement content paths *****/
+
+/*
+ * Top-level measurement content fields used as filters. Each registered path is materialized into virtual generated
+ * column content_<name> of measurement table, indexed together with time. Columns are added by
+ * add_measurement_content_path procedure when path is registered.
+ */
+CREATE TABLE IF NOT EXISTS measurement_content_path (
+    name VARCHAR(40) PRIMARY KEY NOT NULL,
+    type VARCHAR(10) NOT NULL
+);
+
+INSERT IGNORE INTO schema_migration (version, description, applied_at)
+VALUES (5, 'Indexed measurement content paths', NOW());
@@ -0,0 +1,144 @@
+/***** MIGRATION UTILITIES *****/
+
+/* Applied migration versions. Used by migrate.sh to skip already applied migrations */
+CREATE TABLE IF NOT EXISTS schema_migration (
+    version INT PRIMARY KEY NOT NULL,
+    description VARCHAR(100) NOT NULL,
+    applied_at DATETIME NOT NULL
+);
+
+/* Add index using online DDL. Reads and writes continue while index is built. Skipped if index exists */
+DROP PROCEDURE IF EXISTS migration_add_index;
+DELIMITER $$
+CREATE PROCEDURE migration_add_index (
+    IN p_table VARCHAR(64),
+    IN p_index VARCHAR(64),
+    IN p_columns VARCHAR(255))
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM information_schema.statistics
+        WHERE table_schema = DATABASE() AND table_name = p_table AND index_name = p_index) THEN
+
+        SET @query = CONCAT('ALTER TABLE ', p_table, ' ADD INDEX ', p_index, ' (', p_columns, '), ALGORITHM=INPLACE, LOCK=NONE');
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+END
+$$
+DELIMITER ;
+
+/* Drop index using online DDL. Skipped if index does not exist */
+DROP PROCEDURE IF EXISTS migration_drop_index;
+DELIMITER $$
+CREATE PROCEDURE migration_drop_index (
+    IN p_table VARCHAR(64),
+    IN p_index VARCHAR(64))
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.statistics
+        WHERE table_schema = DATABASE() AND table_name = p_table AND index_name = p_index) THEN
+
+        SET @query = CONCAT('ALTER TABLE ', p_table, ' DROP INDEX ', p_index, ', ALGORITHM=INPLACE, LOCK=NONE');
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+END
+$$
+DELIMITER ;
+
+/* Drop foreign key of given column. Skipped if column has no foreign key */
+DROP PROCEDURE IF EXISTS migration_drop_foreign_key;
+DELIMITER $$
+CREATE PROCEDURE migration_drop_foreign_key (
+    IN p_table VARCHAR(64),
+    IN p_column VARCHAR(64))
+BEGIN
+    DECLARE v_constraint VARCHAR(64);
+
+    SELECT constraint_name INTO v_constraint
+    FROM information_schema.key_column_usage
+    WHERE table_schema = DATABASE() AND table_name = p_table AND column_name = p_column
+    AND referenced_table_name IS NOT NULL
+    LIMIT 1;
+
+    IF v_constraint IS NOT NULL THEN
+        SET @query = CONCAT('ALTER TABLE ', p_table, ' DROP FOREIGN KEY ', v_constraint);
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+END
+$$
+DELIMITER ;
+
+/*
+ * Partition table by month of time column. First partition starts from month of the oldest row, p_future holds rows
+ * after given count of months ahead. Primary key must contain partitioning column. Table is copied, writes are
+ * blocked meanwhile. Skipped if table is partitioned.
+ */
+DROP PROCEDURE IF EXISTS migration_partition_by_month;
+DELIMITER $$
+CREATE PROCEDURE migration_partition_by_month (
+    IN p_table VARCHAR(64),
+    IN p_months_ahead INT)
+BEGIN
+    DECLARE v_bound DATE;
+    DECLARE v_target_bound DATE DEFAULT DATE_FORMAT(NOW(), '%Y-%m-01') + INTERVAL p_months_ahead + 1 MONTH;
+    DECLARE v_partitions TEXT DEFAULT '';
+
+    IF NOT EXISTS (
+        SELECT 1 FROM information_schema.partitions
+        WHERE table_schema = DATABASE() AND table_name = p_table AND partition_name IS NOT NULL) THEN
+
+        SET @min_time = NULL;
+        SET @query = CONCAT('SELECT MIN(time) INTO @min_time FROM ', p_table);
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+
+        SET v_bound = LEAST(DATE_FORMAT(IFNULL(@min_time, NOW()), '%Y-%m-01'), DATE_FORMAT(NOW(), '%Y-%m-01'));
+
+        WHILE v_bound < v_target_bound DO
+            SET v_partitions = CONCAT(v_partitions, 'PARTITION p', DATE_FORMAT(v_bound, '%Y%m'),
+                " VALUES LESS THAN ('", v_bound + INTERVAL 1 MONTH, "'), ");
+            SET v_bound = v_bound + INTERVAL 1 MONTH;
+        END WHILE;
+
+        SET @query = CONCAT('ALTER TABLE ', p_table, ' DROP PRIMARY KEY, ADD PRIMARY KEY (id, time)',
+            ' PARTITION BY RANGE COLUMNS(time) (', v_partitions, 'PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+END
+$$
+DELIMITER ;
+
+/* Add column to the end of table. Nullable columns are added instantly without copying rows. Skipped if column exists */
+DROP PROCEDURE IF EXISTS migration_add_column;
+DELIMITER $$
+CREATE PROCEDURE migration_add_column (
+    IN p_table VARCHAR(64),
+    IN p_column VARCHAR(64),
+    IN p_definition VARCHAR(255))
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM information_schema.columns
+        WHERE table_schema = DATABASE() AND table_name = p_table AND column_name = p_column) THEN
+
+        SET @query = CONCAT('ALTER TABLE ', p_table, ' ADD COLUMN ', p_column, ' ', p_definition);
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+END
+$$
+DELIMITER ;
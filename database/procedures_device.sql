@@ -163,7 +163,33 @@ END
 $$
 DELIMITER ;
 
+DROP PROCEDURE IF EXISTS get_device_ids;
+DELIMITER $$
+CREATE PROCEDURE get_device_ids (
+    IN f_ids JSON)
+BEGIN
+    /* Return which of the IDs in given JSON array exist. Used to validate batches with single query */
+    SELECT d.id
+    FROM device d
+    JOIN JSON_TABLE(f_ids, '$[*]' COLUMNS (id INT PATH '$')) AS ids ON ids.id = d.id;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_device_authentication_keys;
+DELIMITER $$
+CREATE PROCEDURE get_device_authentication_keys ()
+BEGIN
+    /* ID and key of every device. Used to build authentication key index without reading other columns */
+    SELECT id, authentication_key
+    FROM device;
+END
+$$
+DELIMITER ;
+
 GRANT EXECUTE ON PROCEDURE get_devices TO 'iot-device-manager-client'@'%';
 GRANT EXECUTE ON PROCEDURE add_device TO 'iot-device-manager-client'@'%';
 GRANT EXECUTE ON PROCEDURE delete_device TO 'iot-device-manager-client'@'%';
 GRANT EXECUTE ON PROCEDURE update_device TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_device_ids TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_device_authentication_keys TO 'iot-device-manager-client'@'%';
@@ -1,32 +1,224 @@
 /***** LOCATION *****/
 
+DROP PROCEDURE IF EXISTS location_area_condition;
+DELIMITER $$
+CREATE PROCEDURE location_area_condition (
+    IN p_alias VARCHAR(10),
+    IN f_min_latitude DOUBLE,
+    IN f_min_longitude DOUBLE,
+    IN f_max_latitude DOUBLE,
+    IN f_max_longitude DOUBLE,
+    IN f_geohash_prefixes VARCHAR(1000),
+    IN f_near_latitude DOUBLE,
+    IN f_near_longitude DOUBLE,
+    IN f_radius DOUBLE,
+    OUT p_condition TEXT)
+BEGIN
+    /*
+     * Where clause conditions of area filters shared by location queries. Geohash prefixes of cells covering the
+     * bounding box use location_geohash index, coordinates remove rows of the cells outside the box.
+     * Prefixes are concatenated into query, so anything but comma separated geohashes is ignored.
+     */
+    DECLARE v_prefixes VARCHAR(1000) DEFAULT f_geohash_prefixes;
+    DECLARE v_prefix_condition TEXT DEFAULT '';
+
+    SET p_condition = '';
+
+    IF f_min_latitude IS NOT NULL AND f_min_longitude IS NOT NULL
+        AND f_max_latitude IS NOT NULL AND f_max_longitude IS NOT NULL THEN
+        SET p_condition = CONCAT(p_condition,
+            ' AND ', p_alias, 'latitude BETWEEN ', f_min_latitude, ' AND ', f_max_latitude,
+            ' AND ', p_alias, 'longitude BETWEEN ', f_min_longitude, ' AND ', f_max_longitude);
+    END IF;
+
+    IF v_prefixes REGEXP '^[0-9b-hjkmnp-z]{1,7}(,[0-9b-hjkmnp-z]{1,7})*$' THEN
+        WHILE v_prefixes != '' DO
+            SET v_prefix_condition = CONCAT(v_prefix_condition, IF(v_prefix_condition = '', '', ' OR '),
+                p_alias, 'geohash LIKE "', SUBSTRING_INDEX(v_prefixes, ',', 1), '%"');
+            SET v_prefixes = IF(LOCATE(',', v_prefixes) = 0, '', SUBSTRING(v_prefixes, LOCATE(',', v_prefixes) + 1));
+        END WHILE;
+
+        SET p_condition = CONCAT(p_condition, ' AND (', v_prefix_condition, ')');
+    END IF;
+
+    IF f_near_latitude IS NOT NULL AND f_near_longitude IS NOT NULL AND f_radius IS NOT NULL THEN
+        SET p_condition = CONCAT(p_condition,
+            ' AND ST_Distance_Sphere(POINT(', p_alias, 'longitude, ', p_alias, 'latitude), POINT(',
+            f_near_longitude, ', ', f_near_latitude, ')) <= ', f_radius);
+    END IF;
+END
+$$
+DELIMITER ;
+
 DROP PROCEDURE IF EXISTS get_locations;
 DELIMITER $$
 CREATE PROCEDURE get_locations (
     IN f_device_id INT,
     IN f_exact_time DATETIME,
     IN f_start_time DATETIME,
-    IN f_end_time DATETIME)
+    IN f_end_time DATETIME,
+    IN f_cursor_time DATETIME,
+    IN f_cursor_id INT,
+    IN f_descending BOOLEAN,
+    IN f_limit INT,
+    IN f_min_latitude DOUBLE,
+    IN f_min_longitude DOUBLE,
+    IN f_max_latitude DOUBLE,
+    IN f_max_longitude DOUBLE,
+    IN f_geohash_prefixes VARCHAR(1000),
+    IN f_near_latitude DOUBLE,
+    IN f_near_longitude DOUBLE,
+    IN f_radius DOUBLE)
 BEGIN
     SET @query = "SELECT id, device_id, longitude, latitude, time FROM location";
     SET @where_clause = " WHERE 1=1";
+    SET @order_clause = " ORDER BY time ASC, id ASC";
+    SET @limit_clause = "";
 
     IF f_device_id IS NOT NULL THEN
         SET @where_clause = CONCAT(@where_clause, ' AND device_id="', f_device_id, '"');
     END IF;
 
+    /* Typed time literals let MySQL prune partitions outside the time range */
+    IF f_exact_time IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND time = TIMESTAMP("', f_exact_time, '")');
+    ELSE
+        IF f_start_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_start_time, '")');
+        END IF;
+
+        IF f_end_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_end_time, '")');
+        END IF;
+    END IF;
+
+    CALL location_area_condition('', f_min_latitude, f_min_longitude, f_max_latitude, f_max_longitude,
+        f_geohash_prefixes, f_near_latitude, f_near_longitude, f_radius, @area_condition);
+    SET @where_clause = CONCAT(@where_clause, @area_condition);
+
+    /* Keyset pagination: continue after (time, id) of previous page's last row. Range on time keeps index usable */
+    IF f_cursor_time IS NOT NULL AND f_cursor_id IS NOT NULL THEN
+        IF f_descending THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_cursor_time,
+                '") AND (time < TIMESTAMP("', f_cursor_time, '") OR id < ', f_cursor_id, ')');
+        ELSE
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_cursor_time,
+                '") AND (time > TIMESTAMP("', f_cursor_time, '") OR id > ', f_cursor_id, ')');
+        END IF;
+    END IF;
+
+    IF f_descending THEN
+        SET @order_clause = " ORDER BY time DESC, id DESC";
+    END IF;
+
+    IF f_limit IS NOT NULL THEN
+        SET @limit_clause = CONCAT(' LIMIT ', f_limit);
+    END IF;
+
+    SET @query = CONCAT(@query, @where_clause, @order_clause, @limit_clause);
+
+    PREPARE stmt FROM @query;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_device_group_locations;
+DELIMITER $$
+CREATE PROCEDURE get_device_group_locations (
+    IN f_device_group_id INT,
+    IN f_exact_time DATETIME,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME,
+    IN f_cursor_time DATETIME,
+    IN f_cursor_id INT,
+    IN f_descending BOOLEAN,
+    IN f_limit INT,
+    IN f_min_latitude DOUBLE,
+    IN f_min_longitude DOUBLE,
+    IN f_max_latitude DOUBLE,
+    IN f_max_longitude DOUBLE,
+    IN f_geohash_prefixes VARCHAR(1000),
+    IN f_near_latitude DOUBLE,
+    IN f_near_longitude DOUBLE,
+    IN f_radius DOUBLE)
+BEGIN
+    /*
+     * Same filters and keyset pagination as get_locations, for all devices of the group in one query.
+     * Devices are found using device_group_id index and their rows using (device_id, time) index.
+     */
+    SET @query = "SELECT l.id, l.device_id, l.longitude, l.latitude, l.time FROM location l JOIN device d ON d.id = l.device_id";
+    SET @where_clause = CONCAT(" WHERE d.device_group_id = ", IFNULL(f_device_group_id, "NULL"));
+    SET @order_clause = " ORDER BY l.time ASC, l.id ASC";
+    SET @limit_clause = "";
+
     IF f_exact_time IS NOT NULL THEN
-        SET @where_clause = CONCAT(@where_clause, ' AND time = "', f_exact_time, '"');
+        SET @where_clause = CONCAT(@where_clause, ' AND l.time = TIMESTAMP("', f_exact_time, '")');
     ELSE
         IF f_start_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time >= "', f_start_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND l.time >= TIMESTAMP("', f_start_time, '")');
         END IF;
 
         IF f_end_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time <= "', f_end_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND l.time <= TIMESTAMP("', f_end_time, '")');
         END IF;
     END IF;
 
+    CALL location_area_condition('l.', f_min_latitude, f_min_longitude, f_max_latitude, f_max_longitude,
+        f_geohash_prefixes, f_near_latitude, f_near_longitude, f_radius, @area_condition);
+    SET @where_clause = CONCAT(@where_clause, @area_condition);
+
+    IF f_cursor_time IS NOT NULL AND f_cursor_id IS NOT NULL THEN
+        IF f_descending THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND l.time <= TIMESTAMP("', f_cursor_time,
+                '") AND (l.time < TIMESTAMP("', f_cursor_time, '") OR l.id < ', f_cursor_id, ')');
+        ELSE
+            SET @where_clause = CONCAT(@where_clause, ' AND l.time >= TIMESTAMP("', f_cursor_time,
+                '") AND (l.time > TIMESTAMP("', f_cursor_time, '") OR l.id > ', f_cursor_id, ')');
+        END IF;
+    END IF;
+
+    IF f_descending THEN
+        SET @order_clause = " ORDER BY l.time DESC, l.id DESC";
+    END IF;
+
+    IF f_limit IS NOT NULL THEN
+        SET @limit_clause = CONCAT(' LIMIT ', f_limit);
+    END IF;
+
+    SET @query = CONCAT(@query, @where_clause, @order_clause, @limit_clause);
+
+    PREPARE stmt FROM @query;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_latest_locations;
+DELIMITER $$
+CREATE PROCEDURE get_latest_locations (
+    IN f_device_id INT,
+    IN f_device_group_id INT)
+BEGIN
+    /*
+     * Latest location update of each matching device. Devices without locations are left out.
+     * Lateral subquery reads (device_id, time) index backwards and stops at the first row of each device.
+     */
+    SET @query = CONCAT("SELECT l.id, l.device_id, l.longitude, l.latitude, l.time FROM device d CROSS JOIN LATERAL (",
+        "SELECT id, device_id, longitude, latitude, time FROM location WHERE device_id = d.id ORDER BY time DESC, id DESC LIMIT 1",
+        ") AS l");
+    SET @where_clause = " WHERE 1=1";
+
+    IF f_device_id IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND d.id = ', f_device_id);
+    END IF;
+
+    IF f_device_group_id IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND d.device_group_id = ', f_device_group_id);
+    END IF;
+
     SET @query = CONCAT(@query, @where_clause);
 
     PREPARE stmt FROM @query;
@@ -44,11 +236,8 @@ CREATE PROCEDURE add_location (
     IN p_longitude DECIMAL(6,3),
     IN p_time DATETIME)
 BEGIN
-    SET @time = p_time;
-
-    IF @time IS NULL THEN
-        SET @time = NOW();
-    END IF;
+    /* Local variable keeps DATETIME type in result set, unlike user variables */
+    DECLARE v_time DATETIME DEFAULT IFNULL(p_time, NOW());
 
     INSERT INTO location(
         device_id,
@@ -60,10 +249,40 @@ BEGIN
         p_device_id,
         p_latitude,
         p_longitude,
-        @time
+        v_time
     );
 
-    CALL get_locations(p_device_id, @time, NULL, NULL);
+    /* Return inserted row without reading the table */
+    SELECT LAST_INSERT_ID() AS id, p_device_id AS device_id, p_longitude AS longitude, p_latitude AS latitude, v_time AS time;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS add_locations;
+DELIMITER $$
+CREATE PROCEDURE add_locations (
+    IN p_locations JSON)
+BEGIN
+    /* Single multi-row insert for JSON array of {deviceId, latitude, longitude, time} objects. Missing time uses current time */
+    INSERT INTO location(
+        device_id,
+        latitude,
+        longitude,
+        time
+    )
+    SELECT
+        l.device_id,
+        l.latitude,
+        l.longitude,
+        IFNULL(l.time, NOW())
+    FROM JSON_TABLE(p_locations, '$[*]' COLUMNS (
+        device_id INT PATH '$.deviceId',
+        latitude DECIMAL(6,3) PATH '$.latitude',
+        longitude DECIMAL(6,3) PATH '$.longitude',
+        time DATETIME PATH '$.time'
+    )) AS l;
+
+    SELECT ROW_COUNT();
 END
 $$
 DELIMITER ;
@@ -86,16 +305,16 @@ BEGIN
     END IF;
 
     IF f_exact_time IS NOT NULL THEN
-        SET @where_clause = CONCAT(@where_clause, ' AND time = "', f_exact_time, '"');
+        SET @where_clause = CONCAT(@where_clause, ' AND time = TIMESTAMP("', f_exact_time, '")');
         SET @params_ok = 1;
     ELSE
         IF f_start_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time >= "', f_start_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_start_time, '")');
             SET @params_ok = 1;
         END IF;
 
         IF f_end_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time <= "', f_end_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_end_time, '")');
             SET @params_ok = 1;
         END IF;
     END IF;
@@ -113,6 +332,172 @@ END
 $$
 DELIMITER ;
 
+DROP PROCEDURE IF EXISTS delete_locations_chunk;
+DELIMITER $$
+CREATE PROCEDURE delete_locations_chunk (
+    IN f_device_id INT,
+    IN f_exact_time DATETIME,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME,
+    IN p_limit INT)
+BEGIN
+    /* Same filters as delete_locations, deletes at most p_limit rows and returns count of deleted rows */
+    SET @query = "DELETE FROM location";
+    SET @where_clause = " WHERE 1=1";
+    SET @params_ok = NULL;
+
+    IF f_device_id IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND device_id="', f_device_id, '"');
+        SET @params_ok = 1;
+    END IF;
+
+    IF f_exact_time IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND time = TIMESTAMP("', f_exact_time, '")');
+        SET @params_ok = 1;
+    ELSE
+        IF f_start_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_start_time, '")');
+            SET @params_ok = 1;
+        END IF;
+
+        IF f_end_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_end_time, '")');
+            SET @params_ok = 1;
+        END IF;
+    END IF;
+
+    SET @query = CONCAT(@query, @where_clause, ' LIMIT ', p_limit);
+    SET @deleted = 0;
+
+    IF @params_ok IS NOT NULL THEN
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        SET @deleted = ROW_COUNT();
+        DEALLOCATE PREPARE stmt;
+    END IF;
+
+    SELECT @deleted;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS delete_device_group_locations;
+DELIMITER $$
+CREATE PROCEDURE delete_device_group_locations (
+    IN f_device_group_id INT,
+    IN f_exact_time DATETIME,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME,
+    IN p_limit INT)
+BEGIN
+    /*
+     * Deletes at most p_limit rows of all devices in the group and returns count of deleted rows.
+     * Multiple-table DELETE cannot be limited, so group's devices are selected by subquery, which runs as semijoin.
+     */
+    SET @query = CONCAT("DELETE FROM location WHERE device_id IN (SELECT id FROM device WHERE device_group_id = ",
+        IFNULL(f_device_group_id, "NULL"), ")");
+
+    IF f_exact_time IS NOT NULL THEN
+        SET @query = CONCAT(@query, ' AND time = TIMESTAMP("', f_exact_time, '")');
+    ELSE
+        IF f_start_time IS NOT NULL THEN
+            SET @query = CONCAT(@query, ' AND time >= TIMESTAMP("', f_start_time, '")');
+        END IF;
+
+        IF f_end_time IS NOT NULL THEN
+            SET @query = CONCAT(@query, ' AND time <= TIMESTAMP("', f_end_time, '")');
+        END IF;
+    END IF;
+
+    SET @query = CONCAT(@query, ' LIMIT ', p_limit);
+
+    PREPARE stmt FROM @query;
+    EXECUTE stmt;
+    SET @deleted = ROW_COUNT();
+    DEALLOCATE PREPARE stmt;
+
+    SELECT @deleted;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS purge_locations;
+DELIMITER $$
+CREATE PROCEDURE purge_locations (
+    IN f_device_id INT,
+    IN f_before DATETIME,
+    IN p_limit INT)
+BEGIN
+    /* Bounded delete keeps locks and undo log small. Caller repeats until less than p_limit rows are deleted */
+    DELETE FROM location
+    WHERE device_id = f_device_id AND time < f_before
+    ORDER BY time
+    LIMIT p_limit;
+
+    SELECT ROW_COUNT();
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_location_time_range;
+DELIMITER $$
+CREATE PROCEDURE get_location_time_range (
+    IN f_device_id INT,
+    IN f_device_group_id INT)
+BEGIN
+    /*
+     * Both ends are read from location_device_id_time index of each filtered device, or from location_time index
+     * when neither filter is given
+     */
+    IF f_device_id IS NOT NULL THEN
+        SELECT MIN(time) AS start_time, MAX(time) AS end_time FROM location WHERE device_id = f_device_id;
+    ELSEIF f_device_group_id IS NOT NULL THEN
+        SELECT MIN(device_range.start_time) AS start_time, MAX(device_range.end_time) AS end_time
+        FROM (
+            SELECT
+                (SELECT MIN(time) FROM location WHERE device_id = d.id) AS start_time,
+                (SELECT MAX(time) FROM location WHERE device_id = d.id) AS end_time
+            FROM device d
+            WHERE d.device_group_id = f_device_group_id
+        ) device_range;
+    ELSE
+        SELECT MIN(time) AS start_time, MAX(time) AS end_time FROM location;
+    END IF;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS add_location_partitions;
+DELIMITER $$
+CREATE PROCEDURE add_location_partitions (
+    IN p_months_ahead INT)
+BEGIN
+    /* Runs with definer's privileges, client is allowed to execute procedures only */
+    CALL partition_add_months('location', p_months_ahead);
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS drop_location_partitions;
+DELIMITER $$
+CREATE PROCEDURE drop_location_partitions (
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME)
+BEGIN
+    CALL partition_drop_range('location', f_start_time, f_end_time);
+END
+$$
+DELIMITER ;
+
 GRANT EXECUTE ON PROCEDURE get_locations TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_device_group_locations TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_latest_locations TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_location_time_range TO 'iot-device-manager-client'@'%';
 GRANT EXECUTE ON PROCEDURE add_location TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE add_locations TO 'iot-device-manager-client'@'%';
 GRANT EXECUTE ON PROCEDURE delete_locations TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE add_location_partitions TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE drop_location_partitions TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE purge_locations TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE delete_locations_chunk TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE delete_device_group_locations TO 'iot-device-manager-client'@'%';
@@ -1,32 +1,203 @@
 /***** MEASUREMENT *****/
 
+DROP PROCEDURE IF EXISTS measurement_content_condition;
+DELIMITER $$
+CREATE PROCEDURE measurement_content_condition (
+    IN p_alias VARCHAR(10),
+    IN f_content_filters JSON,
+    OUT p_condition TEXT)
+BEGIN
+    /*
+     * Where clause conditions of content filters shared by measurement queries. Filters are JSON array of
+     * {path, operator, value} objects. Registered paths are compared using their indexed generated column, other paths
+     * are extracted from content of each row. Paths and operators are concatenated into query, so filter with anything
+     * else than top-level field name and comparison operator matches no rows.
+     */
+    DECLARE v_index INT DEFAULT 0;
+    DECLARE v_path VARCHAR(255);
+    DECLARE v_operator VARCHAR(10);
+    DECLARE v_value JSON;
+    DECLARE v_type VARCHAR(10);
+    DECLARE v_literal TEXT;
+
+    SET p_condition = '';
+
+    WHILE v_index < IFNULL(JSON_LENGTH(f_content_filters), 0) DO
+        SET v_path = JSON_UNQUOTE(JSON_EXTRACT(f_content_filters, CONCAT('$[', v_index, '].path')));
+        SET v_operator = JSON_UNQUOTE(JSON_EXTRACT(f_content_filters, CONCAT('$[', v_index, '].operator')));
+        SET v_value = JSON_EXTRACT(f_content_filters, CONCAT('$[', v_index, '].value'));
+        SET v_type = IF(JSON_TYPE(v_value) IN ('INTEGER', 'UNSIGNED INTEGER', 'DECIMAL', 'DOUBLE'), 'number', 'string');
+        SET v_literal = IF(v_type = 'number', JSON_UNQUOTE(v_value), QUOTE(JSON_UNQUOTE(v_value)));
+
+        IF v_path IS NULL OR v_value IS NULL OR NOT v_path REGEXP '^[A-Za-z_][A-Za-z0-9_]{0,47}$'
+            OR v_operator IS NULL OR v_operator NOT IN ('=', '!=', '<', '<=', '>', '>=') THEN
+            SET p_condition = CONCAT(p_condition, ' AND FALSE');
+        ELSEIF EXISTS (SELECT 1 FROM measurement_content_path WHERE name = v_path AND type = v_type) THEN
+            SET p_condition = CONCAT(p_condition, ' AND ', p_alias, 'content_', v_path, ' ', v_operator, ' ', v_literal);
+        ELSE
+            SET p_condition = CONCAT(p_condition, ' AND JSON_VALUE(', p_alias, 'content, "$.', v_path, '" RETURNING ',
+                IF(v_type = 'number', 'DOUBLE', 'CHAR(255)'), ' NULL ON ERROR) ', v_operator, ' ', v_literal);
+        END IF;
+
+        SET v_index = v_index + 1;
+    END WHILE;
+END
+$$
+DELIMITER ;
+
 DROP PROCEDURE IF EXISTS get_measurements;
 DELIMITER $$
 CREATE PROCEDURE get_measurements (
     IN f_device_id INT,
     IN f_exact_time DATETIME,
     IN f_start_time DATETIME,
-    IN f_end_time DATETIME)
+    IN f_end_time DATETIME,
+    IN f_cursor_time DATETIME,
+    IN f_cursor_id INT,
+    IN f_descending BOOLEAN,
+    IN f_limit INT,
+    IN f_content_filters JSON)
 BEGIN
     SET @query = "SELECT id, device_id, content, time FROM measurement";
     SET @where_clause = " WHERE 1=1";
+    SET @order_clause = " ORDER BY time ASC, id ASC";
+    SET @limit_clause = "";
 
     IF f_device_id IS NOT NULL THEN
         SET @where_clause = CONCAT(@where_clause, ' AND device_id="', f_device_id, '"');
     END IF;
 
+    /* Typed time literals let MySQL prune partitions outside the time range */
     IF f_exact_time IS NOT NULL THEN
-        SET @where_clause = CONCAT(@where_clause, ' AND time = "', f_exact_time, '"');
+        SET @where_clause = CONCAT(@where_clause, ' AND time = TIMESTAMP("', f_exact_time, '")');
     ELSE
         IF f_start_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time >= "', f_start_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_start_time, '")');
         END IF;
 
         IF f_end_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time <= "', f_end_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_end_time, '")');
+        END IF;
+    END IF;
+
+    CALL measurement_content_condition('', f_content_filters, @content_condition);
+    SET @where_clause = CONCAT(@where_clause, @content_condition);
+
+    /* Keyset pagination: continue after (time, id) of previous page's last row. Range on time keeps index usable */
+    IF f_cursor_time IS NOT NULL AND f_cursor_id IS NOT NULL THEN
+        IF f_descending THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_cursor_time,
+                '") AND (time < TIMESTAMP("', f_cursor_time, '") OR id < ', f_cursor_id, ')');
+        ELSE
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_cursor_time,
+                '") AND (time > TIMESTAMP("', f_cursor_time, '") OR id > ', f_cursor_id, ')');
         END IF;
     END IF;
 
+    IF f_descending THEN
+        SET @order_clause = " ORDER BY time DESC, id DESC";
+    END IF;
+
+    IF f_limit IS NOT NULL THEN
+        SET @limit_clause = CONCAT(' LIMIT ', f_limit);
+    END IF;
+
+    SET @query = CONCAT(@query, @where_clause, @order_clause, @limit_clause);
+
+    PREPARE stmt FROM @query;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_device_group_measurements;
+DELIMITER $$
+CREATE PROCEDURE get_device_group_measurements (
+    IN f_device_group_id INT,
+    IN f_exact_time DATETIME,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME,
+    IN f_cursor_time DATETIME,
+    IN f_cursor_id INT,
+    IN f_descending BOOLEAN,
+    IN f_limit INT,
+    IN f_content_filters JSON)
+BEGIN
+    /*
+     * Same filters and keyset pagination as get_measurements, for all devices of the group in one query.
+     * Devices are found using device_group_id index and their rows using (device_id, time) index.
+     */
+    SET @query = "SELECT m.id, m.device_id, m.content, m.time FROM measurement m JOIN device d ON d.id = m.device_id";
+    SET @where_clause = CONCAT(" WHERE d.device_group_id = ", IFNULL(f_device_group_id, "NULL"));
+    SET @order_clause = " ORDER BY m.time ASC, m.id ASC";
+    SET @limit_clause = "";
+
+    IF f_exact_time IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND m.time = TIMESTAMP("', f_exact_time, '")');
+    ELSE
+        IF f_start_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND m.time >= TIMESTAMP("', f_start_time, '")');
+        END IF;
+
+        IF f_end_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND m.time <= TIMESTAMP("', f_end_time, '")');
+        END IF;
+    END IF;
+
+    CALL measurement_content_condition('m.', f_content_filters, @content_condition);
+    SET @where_clause = CONCAT(@where_clause, @content_condition);
+
+    IF f_cursor_time IS NOT NULL AND f_cursor_id IS NOT NULL THEN
+        IF f_descending THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND m.time <= TIMESTAMP("', f_cursor_time,
+                '") AND (m.time < TIMESTAMP("', f_cursor_time, '") OR m.id < ', f_cursor_id, ')');
+        ELSE
+            SET @where_clause = CONCAT(@where_clause, ' AND m.time >= TIMESTAMP("', f_cursor_time,
+                '") AND (m.time > TIMESTAMP("', f_cursor_time, '") OR m.id > ', f_cursor_id, ')');
+        END IF;
+    END IF;
+
+    IF f_descending THEN
+        SET @order_clause = " ORDER BY m.time DESC, m.id DESC";
+    END IF;
+
+    IF f_limit IS NOT NULL THEN
+        SET @limit_clause = CONCAT(' LIMIT ', f_limit);
+    END IF;
+
+    SET @query = CONCAT(@query, @where_clause, @order_clause, @limit_clause);
+
+    PREPARE stmt FROM @query;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_latest_measurements;
+DELIMITER $$
+CREATE PROCEDURE get_latest_measurements (
+    IN f_device_id INT,
+    IN f_device_group_id INT)
+BEGIN
+    /*
+     * Latest measurement of each matching device. Devices without measurements are left out.
+     * Lateral subquery reads (device_id, time) index backwards and stops at the first row of each device.
+     */
+    SET @query = CONCAT("SELECT m.id, m.device_id, m.content, m.time FROM device d CROSS JOIN LATERAL (",
+        "SELECT id, device_id, content, time FROM measurement WHERE device_id = d.id ORDER BY time DESC, id DESC LIMIT 1",
+        ") AS m");
+    SET @where_clause = " WHERE 1=1";
+
+    IF f_device_id IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND d.id = ', f_device_id);
+    END IF;
+
+    IF f_device_group_id IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND d.device_group_id = ', f_device_group_id);
+    END IF;
+
     SET @query = CONCAT(@query, @where_clause);
 
     PREPARE stmt FROM @query;
@@ -43,11 +214,8 @@ CREATE PROCEDURE add_measurement (
     IN p_content JSON,
     IN p_time DATETIME)
 BEGIN
-    SET @time = p_time;
-
-    IF @time IS NULL THEN
-        SET @time = NOW();
-    END IF;
+    /* Local variable keeps DATETIME type in result set, unlike user variables */
+    DECLARE v_time DATETIME DEFAULT IFNULL(p_time, NOW());
 
     INSERT INTO measurement(
         device_id,
@@ -57,10 +225,37 @@ BEGIN
     VALUES(
         p_device_id,
         p_content,
-        @time
+        v_time
     );
 
-    CALL get_measurements(p_device_id, @time, NULL, NULL);
+    /* Return inserted row without reading the table */
+    SELECT LAST_INSERT_ID() AS id, p_device_id AS device_id, p_content AS content, v_time AS time;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS add_measurements;
+DELIMITER $$
+CREATE PROCEDURE add_measurements (
+    IN p_measurements JSON)
+BEGIN
+    /* Single multi-row insert for JSON array of {deviceId, content, time} objects. Missing time uses current time */
+    INSERT INTO measurement(
+        device_id,
+        content,
+        time
+    )
+    SELECT
+        m.device_id,
+        m.content,
+        IFNULL(m.time, NOW())
+    FROM JSON_TABLE(p_measurements, '$[*]' COLUMNS (
+        device_id INT PATH '$.deviceId',
+        content JSON PATH '$.content',
+        time DATETIME PATH '$.time'
+    )) AS m;
+
+    SELECT ROW_COUNT();
 END
 $$
 DELIMITER ;
@@ -83,16 +278,16 @@ BEGIN
     END IF;
 
     IF f_exact_time IS NOT NULL THEN
-        SET @where_clause = CONCAT(@where_clause, ' AND time = "', f_exact_time, '"');
+        SET @where_clause = CONCAT(@where_clause, ' AND time = TIMESTAMP("', f_exact_time, '")');
         SET @params_ok = 1;
     ELSE
         IF f_start_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time >= "', f_start_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_start_time, '")');
             SET @params_ok = 1;
         END IF;
 
         IF f_end_time IS NOT NULL THEN
-            SET @where_clause = CONCAT(@where_clause, ' AND time <= "', f_end_time, '"');
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_end_time, '")');
             SET @params_ok = 1;
         END IF;
     END IF;
@@ -110,6 +305,514 @@ END
 $$
 DELIMITER ;
 
+DROP PROCEDURE IF EXISTS delete_measurements_chunk;
+DELIMITER $$
+CREATE PROCEDURE delete_measurements_chunk (
+    IN f_device_id INT,
+    IN f_exact_time DATETIME,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME,
+    IN p_limit INT)
+BEGIN
+    /* Same filters as delete_measurements, deletes at most p_limit rows and returns count of deleted rows */
+    SET @query = "DELETE FROM measurement";
+    SET @where_clause = " WHERE 1=1";
+    SET @params_ok = NULL;
+
+    IF f_device_id IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND device_id="', f_device_id, '"');
+        SET @params_ok = 1;
+    END IF;
+
+    IF f_exact_time IS NOT NULL THEN
+        SET @where_clause = CONCAT(@where_clause, ' AND time = TIMESTAMP("', f_exact_time, '")');
+        SET @params_ok = 1;
+    ELSE
+        IF f_start_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time >= TIMESTAMP("', f_start_time, '")');
+            SET @params_ok = 1;
+        END IF;
+
+        IF f_end_time IS NOT NULL THEN
+            SET @where_clause = CONCAT(@where_clause, ' AND time <= TIMESTAMP("', f_end_time, '")');
+            SET @params_ok = 1;
+        END IF;
+    END IF;
+
+    SET @query = CONCAT(@query, @where_clause, ' LIMIT ', p_limit);
+    SET @deleted = 0;
+
+    IF @params_ok IS NOT NULL THEN
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        SET @deleted = ROW_COUNT();
+        DEALLOCATE PREPARE stmt;
+    END IF;
+
+    SELECT @deleted;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS delete_device_group_measurements;
+DELIMITER $$
+CREATE PROCEDURE delete_device_group_measurements (
+    IN f_device_group_id INT,
+    IN f_exact_time DATETIME,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME,
+    IN p_limit INT)
+BEGIN
+    /*
+     * Deletes at most p_limit rows of all devices in the group and returns count of deleted rows.
+     * Multiple-table DELETE cannot be limited, so group's devices are selected by subquery, which runs as semijoin.
+     */
+    SET @query = CONCAT("DELETE FROM measurement WHERE device_id IN (SELECT id FROM device WHERE device_group_id = ",
+        IFNULL(f_device_group_id, "NULL"), ")");
+
+    IF f_exact_time IS NOT NULL THEN
+        SET @query = CONCAT(@query, ' AND time = TIMESTAMP("', f_exact_time, '")');
+    ELSE
+        IF f_start_time IS NOT NULL THEN
+            SET @query = CONCAT(@query, ' AND time >= TIMESTAMP("', f_start_time, '")');
+        END IF;
+
+        IF f_end_time IS NOT NULL THEN
+            SET @query = CONCAT(@query, ' AND time <= TIMESTAMP("', f_end_time, '")');
+        END IF;
+    END IF;
+
+    SET @query = CONCAT(@query, ' LIMIT ', p_limit);
+
+    PREPARE stmt FROM @query;
+    EXECUTE stmt;
+    SET @deleted = ROW_COUNT();
+    DEALLOCATE PREPARE stmt;
+
+    SELECT @deleted;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_measurement_aggregates;
+DELIMITER $$
+CREATE PROCEDURE get_measurement_aggregates (
+    IN f_device_id INT,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME,
+    IN p_field VARCHAR(255),
+    IN p_bucket_seconds INT,
+    IN p_resolution_seconds INT,
+    IN p_rollup_lag_seconds INT,
+    IN p_limit INT)
+BEGIN
+    /* Path is used as value instead of being concatenated into query. Nested fields are separated with dots */
+    DECLARE v_path VARCHAR(257) DEFAULT CONCAT('$.', p_field);
+    DECLARE v_epoch DATETIME DEFAULT TIMESTAMP('1970-01-01 00:00:00');
+    DECLARE v_start_time DATETIME DEFAULT IFNULL(f_start_time, '1000-01-01 00:00:00');
+    DECLARE v_end_time DATETIME DEFAULT IFNULL(f_end_time, '9999-12-31 23:59:59');
+    DECLARE v_rollup_start DATETIME DEFAULT NULL;
+    DECLARE v_rollup_end DATETIME DEFAULT NULL;
+
+    /*
+     * Rollups of given resolution are read for whole rollup buckets inside requested range. Partial buckets at both
+     * ends and the latest rows, which may not be rolled up yet, are read from measurements. Without resolution
+     * everything is read from measurements.
+     */
+    IF p_resolution_seconds IS NOT NULL THEN
+        SET v_rollup_start = DATE_ADD(v_epoch, INTERVAL
+            CEIL(TIMESTAMPDIFF(SECOND, v_epoch, v_start_time) / p_resolution_seconds) * p_resolution_seconds SECOND);
+        SET v_rollup_end = NOW() - INTERVAL p_rollup_lag_seconds SECOND;
+        IF f_end_time IS NOT NULL THEN
+            /* End time is inclusive */
+            SET v_rollup_end = LEAST(v_rollup_end, f_end_time + INTERVAL 1 SECOND);
+        END IF;
+        SET v_rollup_end = DATE_ADD(v_epoch, INTERVAL
+            FLOOR(TIMESTAMPDIFF(SECOND, v_epoch, v_rollup_end) / p_resolution_seconds) * p_resolution_seconds SECOND);
+
+        IF v_rollup_end <= v_rollup_start THEN
+            SET v_rollup_start = NULL;
+            SET v_rollup_end = NULL;
+        END IF;
+    END IF;
+
+    /*
+     * Device and time range are served by measurement_device_id_time index. Buckets are counted from epoch without
+     * time zone conversion so that every bucket has equal length. Non-numeric and missing values are skipped.
+     */
+    SELECT
+        DATE_ADD(v_epoch, INTERVAL b.bucket * p_bucket_seconds SECOND) AS time,
+        SUM(b.value_count) AS value_count,
+        SUM(b.value_sum) AS value_sum,
+        SUM(b.value_sum) / SUM(b.value_count) AS value_avg,
+        MIN(b.value_min) AS value_min,
+        MAX(b.value_max) AS value_max
+    FROM (
+        SELECT
+            v.bucket,
+            1 AS value_count,
+            v.value + 0E0 AS value_sum,
+            v.value + 0E0 AS value_min,
+            v.value + 0E0 AS value_max
+        FROM (
+            SELECT
+                FLOOR(TIMESTAMPDIFF(SECOND, v_epoch, time) / p_bucket_seconds) AS bucket,
+                JSON_EXTRACT(content, v_path) AS value
+            FROM measurement
+            WHERE device_id = f_device_id
+                AND time >= v_start_time
+                AND time <= v_end_time
+                AND (v_rollup_start IS NULL OR time < v_rollup_start OR time >= v_rollup_end)
+        ) AS v
+        WHERE JSON_TYPE(v.value) IN ('INTEGER', 'UNSIGNED INTEGER', 'DECIMAL', 'DOUBLE')
+
+        UNION ALL
+
+        SELECT
+            FLOOR(TIMESTAMPDIFF(SECOND, v_epoch, time) / p_bucket_seconds) AS bucket,
+            value_count,
+            value_sum,
+            value_min,
+            value_max
+        FROM measurement_rollup
+        WHERE device_id = f_device_id
+            AND field = p_field
+            AND resolution_seconds = p_resolution_seconds
+            AND time >= v_rollup_start
+            AND time < v_rollup_end
+    ) AS b
+    GROUP BY b.bucket
+    ORDER BY b.bucket
+    LIMIT p_limit;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS add_measurement_rollups;
+DELIMITER $$
+CREATE PROCEDURE add_measurement_rollups (
+    IN p_rollups JSON)
+BEGIN
+    /*
+     * Add JSON array of per-minute {deviceId, field, time, count, sum, min, max} objects to minute and hour rollups.
+     * Existing rows are combined with added values. Rollups of removed devices are skipped.
+     */
+    INSERT INTO measurement_rollup (device_id, field, resolution_seconds, time, value_count, value_sum, value_min, value_max)
+    SELECT r.device_id, r.field, 60, r.time, r.value_count, r.value_sum, r.value_min, r.value_max
+    FROM JSON_TABLE(p_rollups, '$[*]' COLUMNS (
+        device_id INT PATH '$.deviceId',
+        field VARCHAR(255) PATH '$.field',
+        time DATETIME PATH '$.time',
+        value_count BIGINT PATH '$.count',
+        value_sum DOUBLE PATH '$.sum',
+        value_min DOUBLE PATH '$.min',
+        value_max DOUBLE PATH '$.max'
+    )) AS r
+    JOIN device ON device.id = r.device_id
+    ON DUPLICATE KEY UPDATE
+        value_count = value_count + VALUES(value_count),
+        value_sum = value_sum + VALUES(value_sum),
+        value_min = LEAST(value_min, VALUES(value_min)),
+        value_max = GREATEST(value_max, VALUES(value_max));
+
+    INSERT INTO measurement_rollup (device_id, field, resolution_seconds, time, value_count, value_sum, value_min, value_max)
+    SELECT r.device_id, r.field, 3600, r.time - INTERVAL MINUTE(r.time) MINUTE,
+        SUM(r.value_count), SUM(r.value_sum), MIN(r.value_min), MAX(r.value_max)
+    FROM JSON_TABLE(p_rollups, '$[*]' COLUMNS (
+        device_id INT PATH '$.deviceId',
+        field VARCHAR(255) PATH '$.field',
+        time DATETIME PATH '$.time',
+        value_count BIGINT PATH '$.count',
+        value_sum DOUBLE PATH '$.sum',
+        value_min DOUBLE PATH '$.min',
+        value_max DOUBLE PATH '$.max'
+    )) AS r
+    JOIN device ON device.id = r.device_id
+    GROUP BY r.device_id, r.field, r.time - INTERVAL MINUTE(r.time) MINUTE
+    ON DUPLICATE KEY UPDATE
+        value_count = value_count + VALUES(value_count),
+        value_sum = value_sum + VALUES(value_sum),
+        value_min = LEAST(value_min, VALUES(value_min)),
+        value_max = GREATEST(value_max, VALUES(value_max));
+
+    SELECT JSON_LENGTH(p_rollups);
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS rebuild_measurement_rollups;
+DELIMITER $$
+CREATE PROCEDURE rebuild_measurement_rollups (
+    IN f_device_id INT,
+    IN f_device_group_id INT,
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME)
+BEGIN
+    /*
+     * Replace minute rollups of [f_start_time, f_end_time) with values computed from measurements and hour rollups of
+     * the hours overlapping the range with values computed from minute rollups. Times must be whole minutes. Used for
+     * backfilling existing measurements and after measurements are deleted. Rollups of all devices are rebuilt when
+     * neither device nor device group is given.
+     */
+    DECLARE v_start_time DATETIME DEFAULT IFNULL(f_start_time, '1000-01-01 00:00:00');
+    DECLARE v_end_time DATETIME DEFAULT IFNULL(f_end_time, '9999-12-31 23:00:00');
+    DECLARE v_hour_start_time DATETIME;
+    DECLARE v_hour_end_time DATETIME;
+
+    SET v_hour_start_time = v_start_time - INTERVAL MINUTE(v_start_time) MINUTE;
+    SET v_hour_end_time = IF(MINUTE(v_end_time) = 0, v_end_time,
+        v_end_time - INTERVAL MINUTE(v_end_time) MINUTE + INTERVAL 1 HOUR);
+
+    DELETE FROM measurement_rollup
+    WHERE (f_device_id IS NULL OR device_id = f_device_id)
+        AND (f_device_group_id IS NULL
+            OR device_id IN (SELECT id FROM device WHERE device_group_id = f_device_group_id))
+        AND resolution_seconds = 60
+        AND time >= v_start_time
+        AND time < v_end_time;
+
+    DELETE FROM measurement_rollup
+    WHERE (f_device_id IS NULL OR device_id = f_device_id)
+        AND (f_device_group_id IS NULL
+            OR device_id IN (SELECT id FROM device WHERE device_group_id = f_device_group_id))
+        AND resolution_seconds = 3600
+        AND time >= v_hour_start_time
+        AND time < v_hour_end_time;
+
+    /* Only top-level fields with plain names are rolled up, matching fields accepted by aggregation */
+    INSERT INTO measurement_rollup (device_id, field, resolution_seconds, time, value_count, value_sum, value_min, value_max)
+    SELECT v.device_id, v.field, 60, v.time, COUNT(*), SUM(v.value + 0E0), MIN(v.value + 0E0), MAX(v.value + 0E0)
+    FROM (
+        SELECT
+            m.device_id,
+            k.field,
+            m.time - INTERVAL SECOND(m.time) SECOND AS time,
+            JSON_EXTRACT(m.content, CONCAT('$.', k.field)) AS value
+        FROM measurement AS m,
+            JSON_TABLE(JSON_KEYS(m.content), '$[*]' COLUMNS (field VARCHAR(255) PATH '$')) AS k
+        WHERE (f_device_id IS NULL OR m.device_id = f_device_id)
+            AND (f_device_group_id IS NULL
+                OR m.device_id IN (SELECT id FROM device WHERE device_group_id = f_device_group_id))
+            AND m.time >= v_start_time
+            AND m.time < v_end_time
+            AND k.field REGEXP '^[A-Za-z_][A-Za-z0-9_]*$'
+    ) AS v
+    WHERE JSON_TYPE(v.value) IN ('INTEGER', 'UNSIGNED INTEGER', 'DECIMAL', 'DOUBLE')
+    GROUP BY v.device_id, v.field, v.time;
+
+    INSERT INTO measurement_rollup (device_id, field, resolution_seconds, time, value_count, value_sum, value_min, value_max)
+    SELECT device_id, field, 3600, time - INTERVAL MINUTE(time) MINUTE,
+        SUM(value_count), SUM(value_sum), MIN(value_min), MAX(value_max)
+    FROM measurement_rollup
+    WHERE (f_device_id IS NULL OR device_id = f_device_id)
+        AND (f_device_group_id IS NULL
+            OR device_id IN (SELECT id FROM device WHERE device_group_id = f_device_group_id))
+        AND resolution_seconds = 60
+        AND time >= v_hour_start_time
+        AND time < v_hour_end_time
+    GROUP BY device_id, field, time - INTERVAL MINUTE(time) MINUTE;
+
+    SELECT ROW_COUNT();
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_measurement_rollup_time_range;
+DELIMITER $$
+CREATE PROCEDURE get_measurement_rollup_time_range (
+    IN f_device_id INT,
+    IN f_device_group_id INT)
+BEGIN
+    /*
+     * Range covered by hour rollups, which contains every minute rollup. End is exclusive. Read from
+     * measurement_rollup_time index when neither filter is given.
+     */
+    SELECT MIN(time) AS start_time, MAX(time) + INTERVAL 1 HOUR AS end_time
+    FROM measurement_rollup
+    WHERE (f_device_id IS NULL OR device_id = f_device_id)
+        AND (f_device_group_id IS NULL
+            OR device_id IN (SELECT id FROM device WHERE device_group_id = f_device_group_id))
+        AND resolution_seconds = 3600;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_measurement_rollup_watermark;
+DELIMITER $$
+CREATE PROCEDURE get_measurement_rollup_watermark ()
+BEGIN
+    SELECT complete_until FROM measurement_rollup_watermark WHERE id = 1;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS update_measurement_rollup_watermark;
+DELIMITER $$
+CREATE PROCEDURE update_measurement_rollup_watermark (
+    IN p_complete_until DATETIME)
+BEGIN
+    INSERT INTO measurement_rollup_watermark (id, complete_until) VALUES (1, p_complete_until)
+    ON DUPLICATE KEY UPDATE complete_until = p_complete_until;
+
+    SELECT ROW_COUNT();
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_measurement_time_range;
+DELIMITER $$
+CREATE PROCEDURE get_measurement_time_range (
+    IN f_device_id INT,
+    IN f_device_group_id INT)
+BEGIN
+    /*
+     * Both ends are read from measurement_device_id_time index of each filtered device, or from measurement_time index
+     * when neither filter is given
+     */
+    IF f_device_id IS NOT NULL THEN
+        SELECT MIN(time) AS start_time, MAX(time) AS end_time FROM measurement WHERE device_id = f_device_id;
+    ELSEIF f_device_group_id IS NOT NULL THEN
+        SELECT MIN(device_range.start_time) AS start_time, MAX(device_range.end_time) AS end_time
+        FROM (
+            SELECT
+                (SELECT MIN(time) FROM measurement WHERE device_id = d.id) AS start_time,
+                (SELECT MAX(time) FROM measurement WHERE device_id = d.id) AS end_time
+            FROM device d
+            WHERE d.device_group_id = f_device_group_id
+        ) device_range;
+    ELSE
+        SELECT MIN(time) AS start_time, MAX(time) AS end_time FROM measurement;
+    END IF;
+END
+$$
+DELIMITER ;
+
+
+DROP PROCEDURE IF EXISTS purge_measurements;
+DELIMITER $$
+CREATE PROCEDURE purge_measurements (
+    IN f_device_id INT,
+    IN f_before DATETIME,
+    IN p_limit INT)
+BEGIN
+    /* Bounded delete keeps locks and undo log small. Caller repeats until less than p_limit rows are deleted */
+    DELETE FROM measurement
+    WHERE device_id = f_device_id AND time < f_before
+    ORDER BY time
+    LIMIT p_limit;
+
+    SELECT ROW_COUNT();
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS add_measurement_partitions;
+DELIMITER $$
+CREATE PROCEDURE add_measurement_partitions (
+    IN p_months_ahead INT)
+BEGIN
+    /* Runs with definer's privileges, client is allowed to execute procedures only */
+    CALL partition_add_months('measurement', p_months_ahead);
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS drop_measurement_partitions;
+DELIMITER $$
+CREATE PROCEDURE drop_measurement_partitions (
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME)
+BEGIN
+    CALL partition_drop_range('measurement', f_start_time, f_end_time);
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS get_measurement_content_paths;
+DELIMITER $$
+CREATE PROCEDURE get_measurement_content_paths (
+    IN f_name VARCHAR(40))
+BEGIN
+    SELECT name, type FROM measurement_content_path WHERE f_name IS NULL OR name = f_name ORDER BY name;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS add_measurement_content_path;
+DELIMITER $$
+CREATE PROCEDURE add_measurement_content_path (
+    IN p_name VARCHAR(40),
+    IN p_type VARCHAR(10))
+BEGIN
+    /*
+     * Materialize top-level content field into virtual generated column and index it using online DDL. Values which
+     * are missing or of other type are NULL. Runs with definer's privileges, client is allowed to execute procedures only.
+     * Returns whether path was registered. Registered path with other type is left unchanged. Names are limited to 40
+     * characters, so that index names stay within 64 characters.
+     */
+    SET @added = NULL;
+
+    IF p_name REGEXP '^[A-Za-z_][A-Za-z0-9_]{0,39}$' AND p_type IN ('number', 'string')
+        AND NOT EXISTS (SELECT 1 FROM measurement_content_path WHERE name = p_name AND type != p_type) THEN
+
+        CALL migration_add_column('measurement', CONCAT('content_', p_name), CONCAT(
+            IF(p_type = 'number', 'DOUBLE', 'VARCHAR(255)'),
+            ' GENERATED ALWAYS AS (JSON_VALUE(content, "$.', p_name, '" RETURNING ',
+            IF(p_type = 'number', 'DOUBLE', 'CHAR(255)'), ' NULL ON ERROR)) VIRTUAL'));
+        CALL migration_add_index('measurement', CONCAT('measurement_content_', p_name),
+            CONCAT('content_', p_name, ', time'));
+
+        INSERT IGNORE INTO measurement_content_path (name, type) VALUES (p_name, p_type);
+        SET @added = 1;
+    END IF;
+
+    SELECT (@added IS NOT NULL);
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS delete_measurement_content_path;
+DELIMITER $$
+CREATE PROCEDURE delete_measurement_content_path (
+    IN f_name VARCHAR(40))
+BEGIN
+    SET @deleted = NULL;
+
+    IF EXISTS (SELECT 1 FROM measurement_content_path WHERE name = f_name) THEN
+        CALL migration_drop_index('measurement', CONCAT('measurement_content_', f_name));
+
+        SET @query = CONCAT('ALTER TABLE measurement DROP COLUMN content_', f_name);
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+
+        DELETE FROM measurement_content_path WHERE name = f_name;
+        SET @deleted = 1;
+    END IF;
+
+    SELECT (@deleted IS NOT NULL);
+END
+$$
+DELIMITER ;
+
 GRANT EXECUTE ON PROCEDURE get_measurements TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_device_group_measurements TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_latest_measurements TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_measurement_aggregates TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE add_measurement_rollups TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE rebuild_measurement_rollups TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_measurement_rollup_time_range TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_measurement_rollup_watermark TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE update_measurement_rollup_watermark TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_measurement_time_range TO 'iot-device-manager-client'@'%';
 GRANT EXECUTE ON PROCEDURE add_measurement TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE add_measurements TO 'iot-device-manager-client'@'%';
 GRANT EXECUTE ON PROCEDURE delete_measurements TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE add_measurement_partitions TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE drop_measurement_partitions TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE purge_measurements TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE delete_measurements_chunk TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE delete_device_group_measurements TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE get_measurement_content_paths TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE add_measurement_content_path TO 'iot-device-manager-client'@'%';
+GRANT EXECUTE ON PROCEDURE delete_measurement_content_path TO 'iot-device-manager-client'@'%';
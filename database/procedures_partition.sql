@@ -0,0 +1,92 @@
+/***** PARTITION *****/
+
+/*
+ * Maintenance of monthly RANGE COLUMNS(time) partitions of measurement and location tables, see migration V003.
+ * Partition pYYYYMM holds rows of month YYYY-MM, first partition also holds all older rows. p_future holds rows after
+ * the last monthly partition. Not granted to client, called by table specific procedures.
+ */
+
+DROP PROCEDURE IF EXISTS partition_add_months;
+DELIMITER $$
+CREATE PROCEDURE partition_add_months (
+    IN p_table VARCHAR(64),
+    IN p_months_ahead INT)
+BEGIN
+    DECLARE v_bound DATE;
+    DECLARE v_target_bound DATE DEFAULT DATE_FORMAT(NOW(), '%Y-%m-01') + INTERVAL p_months_ahead + 1 MONTH;
+    DECLARE v_partitions TEXT DEFAULT '';
+    DECLARE v_count INT DEFAULT 0;
+
+    IF EXISTS (
+        SELECT 1 FROM information_schema.partitions
+        WHERE table_schema = DATABASE() AND table_name = p_table AND partition_name = 'p_future') THEN
+
+        /* Description of RANGE COLUMNS partition is quoted literal. Without monthly partitions start from this month */
+        SELECT IFNULL(MAX(CAST(TRIM(BOTH "'" FROM partition_description) AS DATE)), DATE_FORMAT(NOW(), '%Y-%m-01'))
+        INTO v_bound
+        FROM information_schema.partitions
+        WHERE table_schema = DATABASE() AND table_name = p_table AND partition_description <> 'MAXVALUE';
+
+        WHILE v_bound < v_target_bound DO
+            SET v_partitions = CONCAT(v_partitions, 'PARTITION p', DATE_FORMAT(v_bound, '%Y%m'),
+                " VALUES LESS THAN ('", v_bound + INTERVAL 1 MONTH, "'), ");
+            SET v_bound = v_bound + INTERVAL 1 MONTH;
+            SET v_count = v_count + 1;
+        END WHILE;
+    END IF;
+
+    /* p_future is empty when partitions are created ahead of time, so reorganizing it does not copy rows */
+    IF v_count > 0 THEN
+        SET @query = CONCAT('ALTER TABLE ', p_table, ' REORGANIZE PARTITION p_future INTO (', v_partitions,
+            'PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+
+    SELECT v_count;
+END
+$$
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS partition_drop_range;
+DELIMITER $$
+CREATE PROCEDURE partition_drop_range (
+    IN p_table VARCHAR(64),
+    IN f_start_time DATETIME,
+    IN f_end_time DATETIME)
+BEGIN
+    DECLARE v_partitions TEXT;
+    DECLARE v_count INT;
+
+    /*
+     * Drop monthly partitions whose every possible row is within [f_start_time, f_end_time]. Lower bound of partition
+     * is upper bound of previous one, so first partition is dropped only without start time. p_future is never dropped.
+     */
+    SELECT GROUP_CONCAT(p.partition_name ORDER BY p.partition_ordinal_position), COUNT(*)
+    INTO v_partitions, v_count
+    FROM (
+        SELECT
+            partition_name,
+            partition_ordinal_position,
+            CAST(TRIM(BOTH "'" FROM partition_description) AS DATETIME) AS upper_bound,
+            CAST(TRIM(BOTH "'" FROM LAG(partition_description) OVER (ORDER BY partition_ordinal_position)) AS DATETIME) AS lower_bound
+        FROM information_schema.partitions
+        WHERE table_schema = DATABASE() AND table_name = p_table AND partition_description <> 'MAXVALUE'
+    ) AS p
+    WHERE p.upper_bound <= f_end_time + INTERVAL 1 SECOND
+    AND (f_start_time IS NULL OR p.lower_bound >= f_start_time);
+
+    IF v_count > 0 THEN
+        SET @query = CONCAT('ALTER TABLE ', p_table, ' DROP PARTITION ', v_partitions);
+
+        PREPARE stmt FROM @query;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+
+    SELECT v_count;
+END
+$$
+DELIMITER ;
@@ -2,20 +2,34 @@ source /home/create_databases.sql
 
 USE iotdevicemanager;
 source /home/create_tables_triggers_user.sql
+source /home/migrations/migration_utils.sql
+source /home/migrations/V001__time_series_indexes.sql
+source /home/migrations/V002__measurement_rollups.sql
+source /home/migrations/V003__time_partitions.sql
+source /home/migrations/V004__location_geohash.sql
+source /home/migrations/V005__measurement_content_paths.sql
 source /home/procedures_configuration.sql
 source /home/procedures_device_group.sql
 source /home/procedures_device_icon.sql
 source /home/procedures_device.sql
 source /home/procedures_device_type.sql
+source /home/procedures_partition.sql
 source /home/procedures_location.sql
 source /home/procedures_measurement.sql
 
 USE testiotdevicemanager;
 source /home/create_tables_triggers_user.sql
+source /home/migrations/migration_utils.sql
+source /home/migrations/V001__time_series_indexes.sql
+source /home/migrations/V002__measurement_rollups.sql
+source /home/migrations/V003__time_partitions.sql
+source /home/migrations/V004__location_geohash.sql
+source /home/migrations/V005__measurement_content_paths.sql
 source /home/procedures_configuration.sql
 source /home/procedures_device_group.sql
 source /home/procedures_device_icon.sql
 source /home/procedures_device.sql
 source /home/procedures_device_type.sql
+source /home/procedures_partition.sql
 source /home/procedures_location.sql
 source /home/procedures_measurement.sql
\ No newline at end of file
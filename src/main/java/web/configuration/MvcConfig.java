@@ -1,9 +1,19 @@
 package web.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import web.converter.BinaryFormats;
+import web.converter.StreamingCollectionHttpMessageConverter;
+import web.converter.StreamingExportHttpMessageConverter;
+
+import java.util.List;
 
 @Configuration
 public class MvcConfig extends WebMvcConfigurerAdapter {
@@ -28,4 +38,25 @@ public class MvcConfig extends WebMvcConfigurerAdapter {
                 .addResourceHandler("/resources/templates/**")
                 .addResourceLocations("/resources/templates/");
     }
-}
\ No newline at end of file
+
+    @Bean
+    public FilterRegistrationBean requestDecompressionFilter(
+        @Value("${request.decompression.max-bytes}") Long maxInflatedBytes) {
+        // Gzip compressed request bodies are accepted on every API endpoint, including device ingestion
+        FilterRegistrationBean registration = new FilterRegistrationBean(new RequestDecompressionFilter(maxInflatedBytes));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        return registration;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Streamed collections are written item by item instead of converting whole payload to String
+        converters.add(0, new StreamingCollectionHttpMessageConverter());
+        converters.add(0, new StreamingExportHttpMessageConverter());
+
+        converters.add(BinaryFormats.cborConverter());
+        converters.add(BinaryFormats.msgpackConverter());
+    }
+}
@@ -0,0 +1,400 @@
+package web.configuration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses request bodies sent with Content-Encoding: gzip, e.g. batches of gateways. Body is inflated while it is
+ * read, so controllers and message converters see plain body. Inflated size is limited to protect against highly
+ * compressed bodies, reading past the limit fails and request is answered as invalid body.
+ */
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+    private static final String GZIP = "gzip";
+    private static final List<String> HIDDEN_HEADERS = Arrays.asList(
+        HttpHeaders.CONTENT_ENCODING.toLowerCase(), HttpHeaders.CONTENT_LENGTH.toLowerCase());
+
+    private final Long maxInflatedBytes;
+
+    public RequestDecompressionFilter(Long maxInflatedBytes) {
+        this.maxInflatedBytes = maxInflatedBytes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+
+        if(contentEncoding != null && GZIP.equalsIgnoreCase(contentEncoding.trim())) {
+            filterChain.doFilter(new DecompressedRequest(request), response);
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Request whose body is inflated. Encoding and length headers of compressed body are hidden.
+     */
+    private class DecompressedRequest extends HttpServletRequestWrapper {
+        private ServletInputStream inputStream;
+        private BufferedReader reader;
+
+        DecompressedRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if(reader != null) {
+                throw new IllegalStateException("getReader() has already been called for this request");
+            }
+
+            if(inputStream == null) {
+                inputStream = new InflatingInputStream(super.getInputStream());
+            }
+
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if(reader == null) {
+                String encoding = getCharacterEncoding();
+                reader = new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8.name() : encoding));
+            }
+
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames());
+            names.removeIf(this::isHidden);
+
+            return Collections.enumeration(names);
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            return isHidden(name) ? -1 : super.getIntHeader(name);
+        }
+
+        private boolean isHidden(String name) {
+            return name != null && HIDDEN_HEADERS.contains(name.toLowerCase());
+        }
+    }
+
+    /**
+     * Inflated body. Fails when more than {@link #maxInflatedBytes} are read. Compressed body is read only when inflated
+     * bytes are needed, so body can be read blocking or with read listener of the wrapped request. Single gzip member is
+     * read, data after its trailer is ignored.
+     */
+    private class InflatingInputStream extends ServletInputStream {
+        private static final int BUFFER_SIZE = 8192;
+        private static final int HEADER_LENGTH = 10;
+        private static final int TRAILER_LENGTH = 8;
+        private static final int FLAG_HEADER_CRC = 2;
+        private static final int FLAG_EXTRA = 4;
+        private static final int FLAG_NAME = 8;
+        private static final int FLAG_COMMENT = 16;
+
+        private final ServletInputStream body;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private final byte[] input = new byte[BUFFER_SIZE];
+        private final byte[] inflated = new byte[BUFFER_SIZE];
+        // Header or trailer bytes read so far
+        private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        // End of bytes in input given to inflater
+        private int inputEnd;
+        private int inflatedOffset;
+        private int inflatedLength;
+        private long inflatedBytes;
+        private boolean headerRead;
+        private boolean finished;
+        private ReadListener readListener;
+        private IOException error;
+
+        InflatingInputStream(ServletInputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] value = new byte[1];
+
+            return read(value, 0, 1) < 0 ? -1 : value[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(length == 0) {
+                return 0;
+            }
+
+            if(inflatedLength == 0) {
+                fill(readListener == null);
+            }
+
+            if(inflatedLength == 0) {
+                if(finished) {
+                    return -1;
+                }
+
+                throw new IllegalStateException("Request body is not ready to be read");
+            }
+
+            int count = Math.min(length, inflatedLength);
+            System.arraycopy(inflated, inflatedOffset, buffer, offset, count);
+            inflatedOffset += count;
+            inflatedLength -= count;
+            inflatedBytes += count;
+
+            if(inflatedBytes > maxInflatedBytes) {
+                throw new IOException(String.format("Decompressed request body exceeds %d bytes", maxInflatedBytes));
+            }
+
+            return count;
+        }
+
+        /**
+         * Inflate until inflated bytes are available or body is finished. Without blocking, compressed body is read
+         * only while wrapped stream is ready.
+         */
+        private void fill(boolean blocking) throws IOException {
+            if(error != null) {
+                throw error;
+            }
+
+            try {
+                while(inflatedLength == 0 && !finished) {
+                    if(headerRead && !inflater.finished() && !inflater.needsInput()) {
+                        inflate();
+                        continue;
+                    }
+
+                    if(!blocking && (body.isFinished() || !body.isReady())) {
+                        return;
+                    }
+
+                    int count = body.read(input);
+                    if(count < 0) {
+                        throw new EOFException("Unexpected end of compressed request body");
+                    }
+
+                    accept(input, 0, count);
+                }
+            } catch(IOException e) {
+                error = e;
+                throw e;
+            }
+        }
+
+        private void inflate() throws IOException {
+            try {
+                inflatedOffset = 0;
+                inflatedLength = inflater.inflate(inflated);
+            } catch(DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+
+            if(inflatedLength == 0 && inflater.needsDictionary()) {
+                throw new ZipException("Compressed request body is invalid");
+            }
+
+            crc.update(inflated, 0, inflatedLength);
+
+            if(inflater.finished()) {
+                int remaining = inflater.getRemaining();
+                accept(input, inputEnd - remaining, remaining);
+            }
+        }
+
+        /**
+         * Pass compressed bytes to header, inflater or trailer depending on position in body
+         */
+        private void accept(byte[] bytes, int offset, int length) throws IOException {
+            if(!headerRead) {
+                frame.write(bytes, offset, length);
+                byte[] header = frame.toByteArray();
+                int headerLength = getHeaderLength(header);
+
+                if(headerLength >= 0) {
+                    headerRead = true;
+                    frame.reset();
+                    inputEnd = header.length - headerLength;
+                    System.arraycopy(header, headerLength, input, 0, inputEnd);
+                    inflater.setInput(input, 0, inputEnd);
+                }
+            } else if(!inflater.finished()) {
+                inputEnd = offset + length;
+                inflater.setInput(bytes, offset, length);
+            } else {
+                frame.write(bytes, offset, Math.min(length, TRAILER_LENGTH - frame.size()));
+
+                if(frame.size() == TRAILER_LENGTH) {
+                    byte[] trailer = frame.toByteArray();
+
+                    if(readInt(trailer, 0) != crc.getValue() || readInt(trailer, 4) != (inflater.getBytesWritten() & 0xffffffffL)) {
+                        throw new ZipException("Compressed request body is corrupt");
+                    }
+
+                    finished = true;
+                    inflater.end();
+                }
+            }
+        }
+
+        /**
+         * Get length of gzip header
+         *
+         * @return
+         *      Length of header or -1 when header is not complete
+         */
+        private int getHeaderLength(byte[] header) throws ZipException {
+            if(header.length < HEADER_LENGTH) {
+                return -1;
+            }
+
+            if((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[2] != 8) {
+                throw new ZipException("Request body is not in gzip format");
+            }
+
+            int flags = header[3];
+            int length = HEADER_LENGTH;
+
+            if((flags & FLAG_EXTRA) != 0) {
+                if(header.length < length + 2) {
+                    return -1;
+                }
+
+                length += 2 + ((header[length] & 0xff) | (header[length + 1] & 0xff) << 8);
+            }
+
+            for(int flag : new int[] { FLAG_NAME, FLAG_COMMENT }) {
+                if((flags & flag) != 0) {
+                    while(length < header.length && header[length] != 0) {
+                        length++;
+                    }
+
+                    length++;
+                }
+            }
+
+            if((flags & FLAG_HEADER_CRC) != 0) {
+                length += 2;
+            }
+
+            return length <= header.length ? length : -1;
+        }
+
+        private long readInt(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xffL) | (bytes[offset + 1] & 0xffL) << 8 | (bytes[offset + 2] & 0xffL) << 16
+                | (bytes[offset + 3] & 0xffL) << 24;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished && inflatedLength == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            if(readListener == null || inflatedLength > 0 || finished) {
+                return true;
+            }
+
+            try {
+                fill(false);
+            } catch(IOException e) {
+                // Failure is thrown by following read
+                return true;
+            }
+
+            return inflatedLength > 0 || finished;
+        }
+
+        /**
+         * Read listener is registered to wrapped stream. Compressed bytes are inflated when listener reads this stream.
+         */
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            this.readListener = readListener;
+
+            body.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    readListener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    // Bytes inflated from the end of body are read before listener is told body is read
+                    if(!isFinished()) {
+                        readListener.onDataAvailable();
+                    }
+
+                    if(isFinished()) {
+                        readListener.onAllDataRead();
+                    } else {
+                        readListener.onError(error != null ? error
+                            : new EOFException("Unexpected end of compressed request body"));
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    readListener.onError(throwable);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            body.close();
+        }
+    }
+}
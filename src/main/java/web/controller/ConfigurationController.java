@@ -34,14 +34,17 @@ public class ConfigurationController {
      *      Configuration ID used as filter
      * @param name
      *      Configuration name used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload
      */
     @RequestMapping(value = URI, method = RequestMethod.GET)
     public ResponseWrapper getConfigurations(
         @RequestParam(name="id", required = false) Integer id,
-        @Valid @Pattern(regexp = "[A-Za-z0-9_ .,-]{1,50}") @RequestParam(name="name", required = false) String name) {
-        return configurationService.getConfigurations(id, name);
+        @Valid @Pattern(regexp = "[A-Za-z0-9_ .,-]{1,50}") @RequestParam(name="name", required = false) String name,
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return configurationService.getConfigurations(id, name, ifNoneMatch);
     }
 
     /**
@@ -49,13 +52,16 @@ public class ConfigurationController {
      *
      * @param id
      *      Configuration ID used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload
      */
     @RequestMapping(value = ID_URI, method = RequestMethod.GET)
     public ResponseWrapper getConfigurationById(
-        @PathVariable Integer id) {
-        return configurationService.getConfigurations(id, null);
+        @PathVariable Integer id,
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return configurationService.getConfigurations(id, null, ifNoneMatch);
     }
 
     /**
@@ -8,10 +8,15 @@ import web.domain.entity.*;
 import web.domain.response.ResponseWrapper;
 import web.service.DeviceService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
 import java.util.Date;
+import java.util.List;
 
+import static web.converter.BinaryFormats.*;
+import static web.mapper.MapperUtils.readValues;
 import static web.validators.FilterValidator.validateErrors;
 
 @Validated
@@ -21,12 +26,17 @@ public class DeviceController {
 
     private static final String URI = "/devices";
     private static final String ID_URI = URI + "/{id}";
+    private static final String LATEST_URI = URI + "/latest";
     private static final String GROUP_URI = ID_URI + "/group";
     private static final String TYPE_URI = ID_URI + "/type";
     private static final String ICON_URI = ID_URI + "/icon";
     private static final String CONFIGURATION_URI = ID_URI + "/configuration";
     private static final String MEASUREMENTS_URI = ID_URI + "/measurements";
+    private static final String MEASUREMENTS_BATCH_URI = MEASUREMENTS_URI + "/batch";
+    private static final String MEASUREMENTS_AGGREGATE_URI = MEASUREMENTS_URI + "/aggregate";
+    private static final String MEASUREMENTS_LATEST_URI = MEASUREMENTS_URI + "/latest";
     private static final String LOCATIONS_URI = ID_URI + "/locations";
+    private static final String LOCATIONS_LATEST_URI = LOCATIONS_URI + "/latest";
     private final DeviceService deviceService;
 
     DeviceController(DeviceService deviceService) {
@@ -73,6 +83,19 @@ public class DeviceController {
         return deviceService.getDevices(id, null, null, null, null, null);
     }
 
+    /**
+     * Get latest measurement and location of each device
+     *
+     * @param groupId
+     *      Device group ID used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = LATEST_URI, method = RequestMethod.GET)
+    public ResponseWrapper getLatestValues(@RequestParam(name = "groupId", required = false) Integer groupId) {
+        return deviceService.getLatestValues(groupId);
+    }
+
     /**
      * Add device from request body to the database
      *
@@ -164,6 +187,19 @@ public class DeviceController {
         return deviceService.deleteDevice(id, null, null);
     }
 
+    /**
+     * Delete device matching given ID on background. Used with async=true for devices with large count of measurements
+     * and locations, which are deleted in small chunks before the device. Progress is reported by job given in
+     * Location header.
+     *
+     * @return
+     *      ResponseWrapper containing job
+     */
+    @RequestMapping(value = ID_URI, method = RequestMethod.DELETE, params = "async=true")
+    public ResponseWrapper deleteDeviceByIdAsync(@PathVariable Integer id) {
+        return deviceService.deleteDeviceAsync(id);
+    }
+
     /**
      * Get device's group
      *
@@ -417,6 +453,14 @@ public class DeviceController {
      *      Start time used as filter. Search measurement updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search measurement updates which occurred before this time.
+     * @param content
+     *      Filters of measurement content as path, operator and value, e.g. temperature>40. Repeat for multiple filters.
+     * @param limit
+     *      Maximum count of measurements returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order by time, asc or desc. Use desc with limit to get latest measurements.
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
@@ -425,8 +469,85 @@ public class DeviceController {
         @PathVariable Integer id,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
-        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
-        return deviceService.getDevicesMeasurements(id, exactTime, startTime, endTime);
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "content", required = false) List<String> content,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "order", required = false) String order,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+        return deviceService.getDevicesMeasurements(id, exactTime, startTime, endTime, content, limit, order, cursor);
+    }
+
+    /**
+     * Stream measurement updates matching given parameters. Used with stream=true for large results, which are written to
+     * response while being read from the database. Pagination is not applied.
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurement updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurement updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurement updates which occurred before this time.
+     * @param content
+     *      Filters of measurement content as path, operator and value, e.g. temperature>40. Repeat for multiple filters.
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_URI, method = RequestMethod.GET, params = "stream=true")
+    public ResponseWrapper streamDevicesMeasurements(
+        @PathVariable Integer id,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "content", required = false) List<String> content,
+        @RequestParam(value = "order", required = false) String order) {
+        return deviceService.streamDevicesMeasurements(id, exactTime, startTime, endTime, content, order);
+    }
+
+    /**
+     * Get numeric field of device's measurements aggregated into time buckets, e.g.
+     * field=temperature&bucket=5m&fn=avg,min,max,count
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param startTime
+     *      Start time used as filter. Aggregate measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Aggregate measurements which occurred before this time.
+     * @param field
+     *      Numeric field of measurement content. Nested fields are separated by dots.
+     * @param bucket
+     *      Length of time bucket, number followed by unit s, m, h or d
+     * @param functions
+     *      Comma separated aggregate functions: avg, min, max, sum, count. Average when not defined.
+     * @return
+     *      ResponseWrapper containing series of buckets or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_AGGREGATE_URI, method = RequestMethod.GET)
+    public ResponseWrapper getDevicesMeasurementAggregates(
+        @PathVariable Integer id,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "field", required = false) String field,
+        @RequestParam(value = "bucket", required = false) String bucket,
+        @RequestParam(value = "fn", required = false) String functions) {
+        return deviceService.getDevicesMeasurementAggregates(id, startTime, endTime, field, bucket, functions);
+    }
+
+    /**
+     * Get device's latest measurement
+     *
+     * @param id
+     *      Device ID used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_LATEST_URI, method = RequestMethod.GET)
+    public ResponseWrapper getDevicesLatestMeasurement(@PathVariable Integer id) {
+        return deviceService.getDevicesLatestMeasurement(id);
     }
 
     /**
@@ -449,6 +570,27 @@ public class DeviceController {
         return deviceService.addMeasurementForDevice(id, measurement);
     }
 
+    /**
+     * Add batch of measurements for device. Request body is either JSON array, newline delimited JSON or array or
+     * sequence of CBOR or MessagePack values.
+     *
+     * @param id
+     *      Device ID used for every measurement
+     * @param request
+     *      Request containing measurements in body
+     * @return
+     *      ResponseWrapper containing status of each measurement or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_BATCH_URI, method = RequestMethod.POST,
+        consumes = { "application/json", "application/x-ndjson", CBOR_CONTENT_TYPE, MSGPACK_CONTENT_TYPE,
+            X_MSGPACK_CONTENT_TYPE })
+    public ResponseWrapper addMeasurementBatchForDevice(
+        @PathVariable Integer id,
+        HttpServletRequest request) throws IOException {
+        return deviceService.addMeasurementsForDevice(id,
+            readValues(request.getInputStream(), request.getContentType(), Measurement.class));
+    }
+
     /**
      * Delete device's measurements
      *
@@ -472,6 +614,30 @@ public class DeviceController {
         return deviceService.deleteDevicesMeasurements(id, exactTime, startTime, endTime);
     }
 
+    /**
+     * Delete device's measurement updates on background. Used with async=true for large deletes, which are run in small
+     * chunks. Progress is reported by job given in Location header.
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurement updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurement updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurement updates which occurred before this time.
+     * @return
+     *      ResponseWrapper containing job or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_URI, method = RequestMethod.DELETE, params = "async=true")
+    public ResponseWrapper deleteDevicesMeasurementsAsync(
+        @PathVariable Integer id,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
+        return deviceService.deleteDevicesMeasurementsAsync(id, exactTime, startTime, endTime);
+    }
+
     /**
      * Get device's location updates
      *
@@ -483,6 +649,22 @@ public class DeviceController {
      *      Start time used as filter. Search location updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param simplify
+     *      Tolerance in meters. Location updates closer than tolerance to simplified trajectory are left out.
+     * @param maxPoints
+     *      Maximum count of location updates of each device. Least significant points are left out.
+     * @param limit
+     *      Maximum count of location updates returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order by time, asc or desc. Use desc with limit to get latest location updates.
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
@@ -491,8 +673,66 @@ public class DeviceController {
         @PathVariable Integer id,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
-        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
-        return deviceService.getDevicesLocations(id, exactTime, startTime, endTime);
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "near", required = false) String near,
+        @RequestParam(value = "radius", required = false) Double radius,
+        @RequestParam(value = "simplify", required = false) Double simplify,
+        @RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "order", required = false) String order,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+        return deviceService.getDevicesLocations(id, exactTime, startTime, endTime, bbox, near, radius, simplify,
+            maxPoints, limit, order, cursor);
+    }
+
+    /**
+     * Stream location updates matching given parameters. Used with stream=true for large results, which are written to
+     * response while being read from the database. Pagination is not applied.
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    @RequestMapping(value = LOCATIONS_URI, method = RequestMethod.GET, params = "stream=true")
+    public ResponseWrapper streamDevicesLocations(
+        @PathVariable Integer id,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "near", required = false) String near,
+        @RequestParam(value = "radius", required = false) Double radius,
+        @RequestParam(value = "order", required = false) String order) {
+        return deviceService.streamDevicesLocations(id, exactTime, startTime, endTime, bbox, near, radius, order);
+    }
+
+    /**
+     * Get device's latest location
+     *
+     * @param id
+     *      Device ID used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = LOCATIONS_LATEST_URI, method = RequestMethod.GET)
+    public ResponseWrapper getDevicesLatestLocation(@PathVariable Integer id) {
+        return deviceService.getDevicesLatestLocation(id);
     }
 
     /**
@@ -537,4 +777,28 @@ public class DeviceController {
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
         return deviceService.deleteDevicesLocations(id, exactTime, startTime, endTime);
     }
+
+    /**
+     * Delete device's location updates on background. Used with async=true for large deletes, which are run in small
+     * chunks. Progress is reported by job given in Location header.
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @return
+     *      ResponseWrapper containing job or errors
+     */
+    @RequestMapping(value = LOCATIONS_URI, method = RequestMethod.DELETE, params = "async=true")
+    public ResponseWrapper deleteDevicesLocationsAsync(
+        @PathVariable Integer id,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
+        return deviceService.deleteDevicesLocationsAsync(id, exactTime, startTime, endTime);
+    }
 }
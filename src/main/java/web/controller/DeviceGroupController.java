@@ -13,6 +13,7 @@ import javax.validation.Valid;
 import javax.validation.constraints.Pattern;
 
 import java.util.Date;
+import java.util.List;
 
 import static web.validators.FilterValidator.validateErrors;
 
@@ -39,14 +40,17 @@ public class DeviceGroupController {
      *      Device group ID used as filter
      * @param name
      *      Device group name used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload or errors
      */
     @RequestMapping(value = URI, method = RequestMethod.GET)
     public ResponseWrapper getDeviceGroups(
             @RequestParam(value = "id", required = false) Integer id,
-            @Valid @Pattern(regexp = "[A-Za-z0-9_ .,-]{1,50}") @RequestParam(value = "name", required = false) String name) {
-        return deviceGroupService.getDeviceGroups(id, name);
+            @Valid @Pattern(regexp = "[A-Za-z0-9_ .,-]{1,50}") @RequestParam(value = "name", required = false) String name,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return deviceGroupService.getDeviceGroups(id, name, ifNoneMatch);
     }
 
     /**
@@ -54,13 +58,16 @@ public class DeviceGroupController {
      *
      * @param id
      *      Device group ID used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload or errors
      */
     @RequestMapping(value = ID_URI, method = RequestMethod.GET)
     public ResponseWrapper getDeviceGroupById(
-            @PathVariable Integer id) {
-        return deviceGroupService.getDeviceGroups(id, null);
+            @PathVariable Integer id,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return deviceGroupService.getDeviceGroups(id, null, ifNoneMatch);
     }
 
     /**
@@ -205,6 +212,14 @@ public class DeviceGroupController {
      *      Start time used as filter. Search measurements which occurred after this time.
      * @param endTime
      *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content as path, operator and value, e.g. temperature>40. Repeat for multiple filters.
+     * @param limit
+     *      Maximum count of measurements returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
@@ -213,8 +228,43 @@ public class DeviceGroupController {
         @PathVariable Integer id,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
-        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
-        return deviceGroupService.getGroupsMeasurements(id, exactTime, startTime, endTime);
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "content", required = false) List<String> content,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "order", required = false) String order,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+        return deviceGroupService.getGroupsMeasurements(id, exactTime, startTime, endTime, content, limit,
+            order, cursor);
+    }
+
+    /**
+     * Stream group's measurements matching given parameters. Used with stream=true for large results, which are written to
+     * response while being read from the database. Pagination is not applied.
+     *
+     * @param id
+     *      Device group ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content as path, operator and value, e.g. temperature>40. Repeat for multiple filters.
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_URI, method = RequestMethod.GET, params = "stream=true")
+    public ResponseWrapper streamGroupsMeasurements(
+        @PathVariable Integer id,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "content", required = false) List<String> content,
+        @RequestParam(value = "order", required = false) String order) {
+        return deviceGroupService.streamGroupsMeasurements(id, exactTime, startTime, endTime, content, order);
     }
 
     /**
@@ -251,6 +301,22 @@ public class DeviceGroupController {
      *      Start time used as filter. Search location updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param simplify
+     *      Tolerance in meters. Location updates closer than tolerance to simplified trajectory are left out.
+     * @param maxPoints
+     *      Maximum count of location updates of each device. Least significant points are left out.
+     * @param limit
+     *      Maximum count of location updates returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
@@ -259,8 +325,53 @@ public class DeviceGroupController {
         @PathVariable Integer id,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
-        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
-        return deviceGroupService.getGroupsLocations(id, exactTime, startTime, endTime);
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "near", required = false) String near,
+        @RequestParam(value = "radius", required = false) Double radius,
+        @RequestParam(value = "simplify", required = false) Double simplify,
+        @RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "order", required = false) String order,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+        return deviceGroupService.getGroupsLocations(id, exactTime, startTime, endTime, bbox, near, radius, simplify,
+            maxPoints, limit, order, cursor);
+    }
+
+    /**
+     * Stream group's location updates matching given parameters. Used with stream=true for large results, which are written to
+     * response while being read from the database. Pagination is not applied.
+     *
+     * @param id
+     *      Device group ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    @RequestMapping(value = LOCATIONS_URI, method = RequestMethod.GET, params = "stream=true")
+    public ResponseWrapper streamGroupsLocations(
+        @PathVariable Integer id,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "near", required = false) String near,
+        @RequestParam(value = "radius", required = false) Double radius,
+        @RequestParam(value = "order", required = false) String order) {
+        return deviceGroupService.streamGroupsLocations(id, exactTime, startTime, endTime, bbox, near, radius, order);
     }
 
     /**
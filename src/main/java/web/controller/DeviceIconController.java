@@ -41,14 +41,17 @@ public class DeviceIconController {
      *      Device icon ID used as filter
      * @param name
      *      Device icon name used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload or errors
      */
     @RequestMapping(value = URI, method = RequestMethod.GET)
     public ResponseWrapper getDeviceIcons(
         @RequestParam(value = "id", required = false) Integer id,
-        @Valid @Pattern(regexp = "^[A-Za-z0-9-_]{1,25}.(png)$") @RequestParam(name="name", required = false) String name) {
-        return deviceIconService.getDeviceIcons(id, name);
+        @Valid @Pattern(regexp = "^[A-Za-z0-9-_]{1,25}.(png)$") @RequestParam(name="name", required = false) String name,
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return deviceIconService.getDeviceIcons(id, name, ifNoneMatch);
     }
 
     /**
@@ -56,12 +59,16 @@ public class DeviceIconController {
      *
      * @param id
      *      Device icon ID used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload or errors
      */
     @RequestMapping(value = ID_URI, method = RequestMethod.GET)
-    public ResponseWrapper getDeviceIconInformationById(@PathVariable Integer id) {
-        return deviceIconService.getDeviceIcons(id, null);
+    public ResponseWrapper getDeviceIconInformationById(
+        @PathVariable Integer id,
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return deviceIconService.getDeviceIcons(id, null, ifNoneMatch);
     }
 
     /**
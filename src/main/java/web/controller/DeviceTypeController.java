@@ -39,6 +39,8 @@ public class DeviceTypeController {
      *      Device type name used as filter
      * @param deviceIconId
      *      Device icon ID used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload or error
      */
@@ -46,8 +48,9 @@ public class DeviceTypeController {
     public ResponseWrapper getDeviceTypes(
         @RequestParam(value="id", required = false) Integer id,
         @Valid @Pattern(regexp = "[A-Za-z0-9_ .,-]{1,50}") @RequestParam(name="name", required = false) String name,
-        @RequestParam(value="deviceIconId", required = false) Integer deviceIconId) {
-        return deviceTypeService.getDeviceTypes(id, name, deviceIconId);
+        @RequestParam(value="deviceIconId", required = false) Integer deviceIconId,
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return deviceTypeService.getDeviceTypes(id, name, deviceIconId, ifNoneMatch);
     }
 
     /**
@@ -55,13 +58,16 @@ public class DeviceTypeController {
      *
      * @param id
      *      Device type ID used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
      * @return
      *      ResponseWrapper containing payload or error
      */
     @RequestMapping(value = ID_URI, method = RequestMethod.GET)
     public ResponseWrapper getDeviceTypeById(
-        @PathVariable Integer id) {
-        return deviceTypeService.getDeviceTypes(id, null, null);
+        @PathVariable Integer id,
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return deviceTypeService.getDeviceTypes(id, null, null, ifNoneMatch);
     }
 
     /**
@@ -13,6 +13,7 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import web.domain.response.ErrorCode;
 import web.domain.response.ResponseWrapper;
 import web.exception.ExceptionWrapper;
+import web.exception.TooManyRequestsException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.ConstraintViolation;
@@ -46,6 +47,18 @@ public class ExceptionController {
         return new ResponseWrapper(error.toCollection(href), httpHeaders,resolveHttpStatus(ex.getCode()));
     }
 
+    @ExceptionHandler({ TooManyRequestsException.class })
+    public ResponseWrapper tooManyRequestsHandler(TooManyRequestsException ex, HttpServletRequest request) throws Exception {
+        Error error = Error.create(ex.getTitle(), ex.getCodeAsString(), ex.getMessage());
+        URI href = new URI(request.getRequestURL().toString());
+
+        HttpHeaders retryHeaders = new HttpHeaders();
+        retryHeaders.putAll(httpHeaders);
+        retryHeaders.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+
+        return new ResponseWrapper(error.toCollection(href), retryHeaders, TOO_MANY_REQUESTS);
+    }
+
     @ExceptionHandler({MethodArgumentNotValidException.class, MethodArgumentTypeMismatchException.class,
         HttpMessageNotReadableException.class, MissingServletRequestParameterException.class, ConstraintViolationException.class })
     public ResponseWrapper invalidParameterHandling(Exception ex, HttpServletRequest request) throws Exception {
@@ -94,6 +107,10 @@ public class ExceptionController {
                 return NOT_FOUND;
             case PARAMETER_CONFLICT:
                 return CONFLICT;
+            case TOO_MANY_REQUESTS:
+                return TOO_MANY_REQUESTS;
+            case UNAUTHORIZED:
+                return UNAUTHORIZED;
             case INTERNAL_ERROR:
                 return INTERNAL_SERVER_ERROR;
             default:
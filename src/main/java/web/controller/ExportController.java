@@ -0,0 +1,100 @@
+package web.controller;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import web.domain.response.ResponseWrapper;
+import web.service.ExportService;
+
+import java.util.Date;
+import java.util.List;
+
+import static web.converter.StreamingExportHttpMessageConverter.CSV_CONTENT_TYPE;
+import static web.converter.StreamingExportHttpMessageConverter.NDJSON_CONTENT_TYPE;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final String MEASUREMENTS_URI = "/measurements";
+    private static final String LOCATIONS_URI = "/locations";
+    private final ExportService exportService;
+
+    ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Export measurements matching given parameters as CSV or NDJSON, chosen by Accept header. Rows are written to
+     * response while being read from the database. Response is gzip compressed when requested with Accept-Encoding.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param deviceGroupId
+     *      Device group ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed export or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_URI, method = RequestMethod.GET,
+        produces = { CSV_CONTENT_TYPE, NDJSON_CONTENT_TYPE })
+    public ResponseWrapper exportMeasurements(
+        @RequestParam(value = "deviceId", required = false) Integer deviceId,
+        @RequestParam(value = "deviceGroupId", required = false) Integer deviceGroupId,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "content", required = false) List<String> content,
+        @RequestParam(value = "order", required = false) String order) {
+        return exportService.exportMeasurements(deviceId, deviceGroupId, exactTime, startTime, endTime, content, order);
+    }
+
+    /**
+     * Export location updates matching given parameters as CSV or NDJSON, chosen by Accept header. Rows are written to
+     * response while being read from the database. Response is gzip compressed when requested with Accept-Encoding.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param deviceGroupId
+     *      Device group ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed export or errors
+     */
+    @RequestMapping(value = LOCATIONS_URI, method = RequestMethod.GET,
+        produces = { CSV_CONTENT_TYPE, NDJSON_CONTENT_TYPE })
+    public ResponseWrapper exportLocations(
+        @RequestParam(value = "deviceId", required = false) Integer deviceId,
+        @RequestParam(value = "deviceGroupId", required = false) Integer deviceGroupId,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "near", required = false) String near,
+        @RequestParam(value = "radius", required = false) Double radius,
+        @RequestParam(value = "order", required = false) String order) {
+        return exportService.exportLocations(deviceId, deviceGroupId, exactTime, startTime, endTime, bbox, near, radius,
+            order);
+    }
+}
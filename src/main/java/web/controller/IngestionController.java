@@ -0,0 +1,97 @@
+package web.controller;
+
+import org.springframework.validation.Errors;
+import org.springframework.web.bind.annotation.*;
+import web.domain.entity.Location;
+import web.domain.entity.Measurement;
+import web.domain.response.ResponseWrapper;
+import web.service.DeviceService;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.io.IOException;
+
+import static web.converter.BinaryFormats.*;
+import static web.mapper.MapperUtils.readValues;
+import static web.validators.FilterValidator.validateErrors;
+
+/**
+ * Ingestion endpoints for devices. Device is identified by its authentication key given in header instead of user
+ * credentials, and device ID of the request body is ignored. These paths bypass Spring Security, see WebSecurityConfig.
+ */
+@RestController
+@RequestMapping("/api/ingest")
+public class IngestionController {
+    private static final String MEASUREMENTS_URI = "/measurements";
+    private static final String MEASUREMENTS_BATCH_URI = MEASUREMENTS_URI + "/batch";
+    private static final String LOCATIONS_URI = "/locations";
+    private static final String CONTENT_TYPE = "application/vnd.collection+json; charset=utf-8";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    private static final String DEVICE_KEY_HEADER = "X-Authentication-Key";
+    private final DeviceService deviceService;
+
+    IngestionController(DeviceService deviceService) {
+        this.deviceService = deviceService;
+    }
+
+    /**
+     * Add measurement for device identified by authentication key
+     *
+     * @param authenticationKey
+     *      Device's authentication key
+     * @param measurement
+     *      Measurement to add
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_URI, method = RequestMethod.POST, produces = CONTENT_TYPE)
+    public ResponseWrapper addMeasurement(
+        @RequestHeader(value = DEVICE_KEY_HEADER, required = false) String authenticationKey,
+        @Valid @RequestBody Measurement measurement,
+        Errors errors) {
+        validateErrors(errors, "deviceId");
+
+        return deviceService.addMeasurementForDeviceKey(authenticationKey, measurement);
+    }
+
+    /**
+     * Add batch of measurements for device identified by authentication key. Request body is either JSON array,
+     * newline delimited JSON or array or sequence of CBOR or MessagePack values.
+     *
+     * @param authenticationKey
+     *      Device's authentication key
+     * @param request
+     *      Request containing measurements in body
+     * @return
+     *      ResponseWrapper containing status of each measurement or errors
+     */
+    @RequestMapping(value = MEASUREMENTS_BATCH_URI, method = RequestMethod.POST, produces = CONTENT_TYPE,
+        consumes = { "application/json", NDJSON_CONTENT_TYPE, CBOR_CONTENT_TYPE, MSGPACK_CONTENT_TYPE,
+            X_MSGPACK_CONTENT_TYPE })
+    public ResponseWrapper addMeasurements(
+        @RequestHeader(value = DEVICE_KEY_HEADER, required = false) String authenticationKey,
+        HttpServletRequest request) throws IOException {
+        return deviceService.addMeasurementsForDeviceKey(authenticationKey,
+            readValues(request.getInputStream(), request.getContentType(), Measurement.class));
+    }
+
+    /**
+     * Add location update for device identified by authentication key
+     *
+     * @param authenticationKey
+     *      Device's authentication key
+     * @param location
+     *      Location to add
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = LOCATIONS_URI, method = RequestMethod.POST, produces = CONTENT_TYPE)
+    public ResponseWrapper addLocation(
+        @RequestHeader(value = DEVICE_KEY_HEADER, required = false) String authenticationKey,
+        @Valid @RequestBody Location location,
+        Errors errors) {
+        validateErrors(errors, "deviceId");
+
+        return deviceService.addLocationForDeviceKey(authenticationKey, location);
+    }
+}
@@ -0,0 +1,31 @@
+package web.controller;
+
+import org.springframework.web.bind.annotation.*;
+import web.domain.response.ResponseWrapper;
+import web.service.JobService;
+
+@RestController
+@RequestMapping(value = "/api", produces = "application/vnd.collection+json; charset=utf-8")
+public class JobController {
+
+    private static final String URI = "/jobs";
+    private static final String ID_URI = URI + "/{id}";
+    private final JobService jobService;
+
+    JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Get status and progress of background job, e.g. asynchronous delete
+     *
+     * @param id
+     *      Job ID
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = ID_URI, method = RequestMethod.GET)
+    public ResponseWrapper getJob(@PathVariable String id) {
+        return jobService.getJob(id);
+    }
+}
@@ -17,6 +17,7 @@ import static web.validators.FilterValidator.validateErrors;
 public class LocationController {
 
     private static final String URI = "/locations";
+    private static final String CURRENT_URI = URI + "/current";
     private static final String CONTENT_TYPE = "application/vnd.collection+json; charset=utf-8";
     private final LocationService locationService;
 
@@ -35,6 +36,22 @@ public class LocationController {
      *      Start time used as filter. Search location updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param simplify
+     *      Tolerance in meters. Location updates closer than tolerance to simplified trajectory are left out.
+     * @param maxPoints
+     *      Maximum count of location updates of each device. Least significant points are left out.
+     * @param limit
+     *      Maximum count of location updates returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order by time, asc or desc. Use desc with limit to get latest location updates.
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
@@ -43,8 +60,74 @@ public class LocationController {
         @RequestParam(value = "deviceId", required = false) Integer deviceId,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
-        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
-        return locationService.getLocations(deviceId, exactTime, startTime, endTime);
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "near", required = false) String near,
+        @RequestParam(value = "radius", required = false) Double radius,
+        @RequestParam(value = "simplify", required = false) Double simplify,
+        @RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "order", required = false) String order,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+        return locationService.getLocations(deviceId, exactTime, startTime, endTime, bbox, near, radius, simplify,
+            maxPoints, limit, order, cursor);
+    }
+
+    /**
+     * Stream location updates matching given parameters. Used with stream=true for large results, which are written to
+     * response while being read from the database. Pagination is not applied.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    @RequestMapping(value = URI, method = RequestMethod.GET, params = "stream=true", produces = CONTENT_TYPE)
+    public ResponseWrapper streamLocations(
+        @RequestParam(value = "deviceId", required = false) Integer deviceId,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "bbox", required = false) String bbox,
+        @RequestParam(value = "near", required = false) String near,
+        @RequestParam(value = "radius", required = false) Double radius,
+        @RequestParam(value = "order", required = false) String order) {
+        return locationService.streamLocations(deviceId, exactTime, startTime, endTime, bbox, near, radius, order);
+    }
+
+    /**
+     * Get latest location of each device, e.g. for drawing one marker per device on a map. Supports conditional
+     * requests, unchanged locations are answered with 304 Not Modified.
+     *
+     * @param groupId
+     *      Device group ID used as filter
+     * @param typeId
+     *      Device type ID used as filter
+     * @param ifNoneMatch
+     *      ETag of previous response
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = CURRENT_URI, method = RequestMethod.GET, produces = CONTENT_TYPE)
+    public ResponseWrapper getCurrentLocations(
+        @RequestParam(value = "groupId", required = false) Integer groupId,
+        @RequestParam(value = "typeId", required = false) Integer typeId,
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return locationService.getCurrentLocations(groupId, typeId, ifNoneMatch);
     }
 
     /**
@@ -86,4 +169,28 @@ public class LocationController {
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
         return locationService.deleteLocations(deviceId, exactTime, startTime, endTime);
     }
+
+    /**
+     * Delete locations matching given parameters on background. Used with async=true for large deletes, which are
+     * run in small chunks. Progress is reported by job given in Location header.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Delete location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Delete location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Delete location updates which occurred before this time.
+     * @return
+     *      ResponseWrapper containing job or errors
+     */
+    @RequestMapping(value = URI, method = RequestMethod.DELETE, params = "async=true", produces = CONTENT_TYPE)
+    public ResponseWrapper deleteLocationsAsync(
+        @RequestParam(value = "deviceId", required = false) Integer deviceId,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
+        return locationService.deleteLocationsAsync(deviceId, exactTime, startTime, endTime);
+    }
 }
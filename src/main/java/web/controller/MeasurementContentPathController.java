@@ -0,0 +1,87 @@
+package web.controller;
+
+import org.springframework.validation.Errors;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import web.domain.entity.MeasurementContentPath;
+import web.domain.response.ResponseWrapper;
+import web.service.MeasurementContentPathService;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Pattern;
+
+import static web.validators.FilterValidator.validateErrors;
+
+@RestController
+@Validated
+@RequestMapping(value = "/api", produces = "application/vnd.collection+json; charset=utf-8")
+public class MeasurementContentPathController {
+
+    private static final String URI = "/measurements/content-paths";
+    private static final String NAME_URI = URI + "/{name}";
+    private final MeasurementContentPathService measurementContentPathService;
+
+    MeasurementContentPathController(MeasurementContentPathService measurementContentPathService) {
+        this.measurementContentPathService = measurementContentPathService;
+    }
+
+    /**
+     * Get registered measurement content paths matching given request parameters
+     *
+     * @param name
+     *      Content path name used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = URI, method = RequestMethod.GET)
+    public ResponseWrapper getContentPaths(
+        @Valid @Pattern(regexp = "[A-Za-z_][A-Za-z0-9_]{0,39}") @RequestParam(name = "name", required = false) String name) {
+        return measurementContentPathService.getContentPaths(name);
+    }
+
+    /**
+     * Get registered measurement content path matching given name
+     *
+     * @param name
+     *      Content path name used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = NAME_URI, method = RequestMethod.GET)
+    public ResponseWrapper getContentPathByName(
+        @Valid @Pattern(regexp = "[A-Za-z_][A-Za-z0-9_]{0,39}") @PathVariable String name) {
+        return measurementContentPathService.getContentPaths(name);
+    }
+
+    /**
+     * Register measurement content path. Column and index of the path are created on background. Progress is reported
+     * by job given in Location header.
+     *
+     * @param contentPath
+     *      Content path to add
+     * @return
+     *      ResponseWrapper containing job or errors
+     */
+    @RequestMapping(value = URI, method = RequestMethod.POST)
+    public ResponseWrapper addContentPath(
+        @Valid @RequestBody MeasurementContentPath contentPath,
+        Errors errors) {
+        validateErrors(errors);
+
+        return measurementContentPathService.addContentPath(contentPath);
+    }
+
+    /**
+     * Delete registered measurement content path matching given name
+     *
+     * @param name
+     *      Content path name used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    @RequestMapping(value = NAME_URI, method = RequestMethod.DELETE)
+    public ResponseWrapper deleteContentPath(
+        @Valid @Pattern(regexp = "[A-Za-z_][A-Za-z0-9_]{0,39}") @PathVariable String name) {
+        return measurementContentPathService.deleteContentPath(name);
+    }
+}
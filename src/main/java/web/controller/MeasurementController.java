@@ -7,16 +7,23 @@ import web.domain.entity.Measurement;
 import web.domain.response.ResponseWrapper;
 import web.service.MeasurementService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.Date;
+import java.util.List;
 
+import static web.converter.BinaryFormats.*;
+import static web.mapper.MapperUtils.readValues;
 import static web.validators.FilterValidator.validateErrors;
 
 @RestController
 @RequestMapping("/api")
 public class MeasurementController {
     private static final String URI = "/measurements";
+    private static final String BATCH_URI = URI + "/batch";
     private static final String CONTENT_TYPE = "application/vnd.collection+json; charset=utf-8";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
     private final MeasurementService measurementService;
 
     MeasurementController (MeasurementService measurementService) {
@@ -34,6 +41,14 @@ public class MeasurementController {
      *      Start time used as filter. Search measurements which occurred after this time.
      * @param endTime
      *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content as path, operator and value, e.g. temperature>40. Repeat for multiple filters.
+     * @param limit
+     *      Maximum count of measurements returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order by time, asc or desc. Use desc with limit to get latest measurements.
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
@@ -42,8 +57,42 @@ public class MeasurementController {
         @RequestParam(value = "deviceId", required = false) Integer deviceId,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
-        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
-        return measurementService.getMeasurements(deviceId, exactTime, startTime, endTime);
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "content", required = false) List<String> content,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "order", required = false) String order,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+        return measurementService.getMeasurements(deviceId, exactTime, startTime, endTime, content, limit, order, cursor);
+    }
+
+    /**
+     * Stream measurements matching given parameters. Used with stream=true for large results, which are written to
+     * response while being read from the database. Pagination is not applied.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content as path, operator and value, e.g. temperature>40. Repeat for multiple filters.
+     * @param order
+     *      Order by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    @RequestMapping(value = URI, method = RequestMethod.GET, params = "stream=true", produces = CONTENT_TYPE)
+    public ResponseWrapper streamMeasurements(
+        @RequestParam(value = "deviceId", required = false) Integer deviceId,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime,
+        @RequestParam(value = "content", required = false) List<String> content,
+        @RequestParam(value = "order", required = false) String order) {
+        return measurementService.streamMeasurements(deviceId, exactTime, startTime, endTime, content, order);
     }
 
     /**
@@ -63,6 +112,23 @@ public class MeasurementController {
         return measurementService.addMeasurement(measurement);
     }
 
+    /**
+     * Add batch of measurements to the database. Request body is either JSON array, newline delimited JSON or array or
+     * sequence of CBOR or MessagePack values.
+     *
+     * @param request
+     *      Request containing measurements in body
+     * @return
+     *      ResponseWrapper containing status of each measurement or errors
+     */
+    @RequestMapping(value = BATCH_URI, method = RequestMethod.POST, produces = CONTENT_TYPE,
+        consumes = { "application/json", NDJSON_CONTENT_TYPE, CBOR_CONTENT_TYPE, MSGPACK_CONTENT_TYPE,
+            X_MSGPACK_CONTENT_TYPE })
+    public ResponseWrapper addMeasurements(HttpServletRequest request) throws IOException {
+        return measurementService.addMeasurements(
+            readValues(request.getInputStream(), request.getContentType(), Measurement.class));
+    }
+
     /**
      * Delete measurements matching given parameters
      *
@@ -85,4 +151,28 @@ public class MeasurementController {
         @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
         return measurementService.deleteMeasurements(deviceId, exactTime, startTime, endTime);
     }
+
+    /**
+     * Delete measurements matching given parameters on background. Used with async=true for large deletes, which are
+     * run in small chunks. Progress is reported by job given in Location header.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Delete measurements which match timestamp
+     * @param startTime
+     *      Start time used as filter. Deletes updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Delete measurements which occurred before this time.
+     * @return
+     *      ResponseWrapper containing job or errors
+     */
+    @RequestMapping(value = URI, method = RequestMethod.DELETE, params = "async=true", produces = CONTENT_TYPE)
+    public ResponseWrapper deleteMeasurementsAsync(
+        @RequestParam(value = "deviceId", required = false) Integer deviceId,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "exactTime", required = false) Date exactTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "startTime", required = false) Date startTime,
+        @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") @RequestParam(value = "endTime", required = false) Date endTime) {
+        return measurementService.deleteMeasurementsAsync(deviceId, exactTime, startTime, endTime);
+    }
 }
@@ -0,0 +1,66 @@
+package web.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * Binary formats accepted as request body of measurements and locations. Binary bodies are decoded with streaming
+ * parser of the format straight into entities, using the same Jackson annotations as JSON bodies. Times may be given
+ * either as formatted string or as epoch milliseconds, which is shorter.
+ */
+public final class BinaryFormats {
+    public static final String CBOR_CONTENT_TYPE = "application/cbor";
+    public static final String MSGPACK_CONTENT_TYPE = "application/msgpack";
+    public static final String X_MSGPACK_CONTENT_TYPE = "application/x-msgpack";
+
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+    private static final ObjectMapper MSGPACK_MAPPER = new ObjectMapper(new MessagePackFactory());
+
+    private BinaryFormats() {
+        // Private constructor for static
+    }
+
+    /**
+     * Get mapper of binary format matching given content type
+     *
+     * @param contentType
+     *      Content-Type header of the request
+     * @return
+     *      Mapper of binary format or null when content type is not binary format
+     */
+    public static ObjectMapper getObjectMapper(String contentType) {
+        if(contentType == null) {
+            return null;
+        }
+
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+
+        if(MediaType.parseMediaType(CBOR_CONTENT_TYPE).includes(mediaType)) {
+            return CBOR_MAPPER;
+        }
+
+        if(MediaType.parseMediaType(MSGPACK_CONTENT_TYPE).includes(mediaType)
+            || MediaType.parseMediaType(X_MSGPACK_CONTENT_TYPE).includes(mediaType)) {
+            return MSGPACK_MAPPER;
+        }
+
+        return null;
+    }
+
+    /**
+     * Converter reading single measurement or location from CBOR body
+     */
+    public static BinaryHttpMessageConverter cborConverter() {
+        return new BinaryHttpMessageConverter(CBOR_MAPPER, MediaType.parseMediaType(CBOR_CONTENT_TYPE));
+    }
+
+    /**
+     * Converter reading single measurement or location from MessagePack body
+     */
+    public static BinaryHttpMessageConverter msgpackConverter() {
+        return new BinaryHttpMessageConverter(MSGPACK_MAPPER, MediaType.parseMediaType(MSGPACK_CONTENT_TYPE),
+            MediaType.parseMediaType(X_MSGPACK_CONTENT_TYPE));
+    }
+}
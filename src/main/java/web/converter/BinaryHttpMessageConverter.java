@@ -0,0 +1,35 @@
+package web.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import web.domain.entity.TimeSeriesEntity;
+
+import java.lang.reflect.Type;
+
+/**
+ * Reads measurements and locations from binary request bodies, see {@link BinaryFormats}. Responses are always written
+ * as application/vnd.collection+json, so converter is read only.
+ */
+public class BinaryHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    BinaryHttpMessageConverter(ObjectMapper objectMapper, MediaType... supportedMediaTypes) {
+        super(objectMapper, supportedMediaTypes);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return type instanceof Class && TimeSeriesEntity.class.isAssignableFrom((Class<?>) type)
+            && super.canRead(type, contextClass, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package web.converter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import web.domain.response.StreamingCollection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes {@link StreamingCollection} as application/vnd.collection+json. Items are written to response stream as soon
+ * as they are read, so memory usage does not depend on size of the collection. Content length is not known beforehand
+ * and response is sent using chunked transfer encoding.
+ */
+public class StreamingCollectionHttpMessageConverter extends AbstractHttpMessageConverter<StreamingCollection<?>> {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public StreamingCollectionHttpMessageConverter() {
+        super(StandardCharsets.UTF_8, new MediaType("application", "vnd.collection+json"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StreamingCollection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected StreamingCollection<?> readInternal(Class<? extends StreamingCollection<?>> clazz,
+                                                  HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("StreamingCollection is write only");
+    }
+
+    @Override
+    protected void writeInternal(StreamingCollection<?> collection, HttpOutputMessage outputMessage) throws IOException {
+        // Envelope is small, items are streamed separately
+        JsonNode envelope = objectMapper.readTree(collection.getEnvelope().toString()).path("collection");
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("collection");
+
+        Iterator<Map.Entry<String, JsonNode>> fields = envelope.fields();
+        while(fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+
+            if(!"items".equals(field.getKey())) {
+                generator.writeFieldName(field.getKey());
+                generator.writeTree(field.getValue());
+            }
+        }
+
+        generator.writeArrayFieldStart("items");
+        try {
+            collection.forEachItem(item -> {
+                try {
+                    generator.writeRawValue(item.toString());
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.close();
+    }
+}
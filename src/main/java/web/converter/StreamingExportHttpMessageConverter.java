@@ -0,0 +1,136 @@
+package web.converter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import web.domain.response.StreamingExport;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes {@link StreamingExport} as text/csv or application/x-ndjson. Each row is written to response stream as soon
+ * as it is read, so memory usage does not depend on size of the export. CSV values containing separators, quotes or
+ * line breaks are quoted. Nested values, e.g. measurement content, are written as JSON.
+ */
+public class StreamingExportHttpMessageConverter extends AbstractHttpMessageConverter<StreamingExport<?>> {
+
+    public static final String CSV_CONTENT_TYPE = "text/csv";
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    private static final MediaType CSV = MediaType.parseMediaType(CSV_CONTENT_TYPE);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public StreamingExportHttpMessageConverter() {
+        super(StandardCharsets.UTF_8, CSV, MediaType.parseMediaType(NDJSON_CONTENT_TYPE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StreamingExport.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected StreamingExport<?> readInternal(Class<? extends StreamingExport<?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("StreamingExport is write only");
+    }
+
+    @Override
+    protected void writeInternal(StreamingExport<?> export, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+
+        try {
+            if(contentType != null && CSV.includes(contentType)) {
+                writeCsv(export, outputMessage.getBody());
+            } else {
+                writeNdjson(export, outputMessage.getBody());
+            }
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeCsv(StreamingExport<?> export, OutputStream body) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+
+        writeCsvLine(writer, export.getColumns().toArray());
+        export.forEachRow(values -> {
+            try {
+                writeCsvLine(writer, values);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        writer.flush();
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) {
+                writer.write(',');
+            }
+
+            writer.write(toCsvValue(values[i]));
+        }
+
+        writer.write("\r\n");
+    }
+
+    private String toCsvValue(Object value) throws IOException {
+        if(value == null) {
+            return "";
+        }
+
+        String text;
+        if(value instanceof BigDecimal) {
+            text = ((BigDecimal) value).toPlainString();
+        } else if(value instanceof String || value instanceof Number) {
+            text = value.toString();
+        } else {
+            text = objectMapper.writeValueAsString(value);
+        }
+
+        if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private void writeNdjson(StreamingExport<?> export, OutputStream body) throws IOException {
+        List<String> columns = export.getColumns();
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(body, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Lines are separated by line breaks only
+        generator.setRootValueSeparator(null);
+
+        export.forEachRow(values -> {
+            try {
+                generator.writeStartObject();
+                for(int i = 0; i < values.length; i++) {
+                    generator.writeObjectField(columns.get(i), values[i]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        generator.close();
+    }
+}
@@ -0,0 +1,74 @@
+package web.domain.aggregation;
+
+import java.util.Date;
+
+/**
+ * Count, sum, minimum and maximum of single numeric content field of device's measurements during one minute
+ */
+public class MeasurementRollup {
+    private final Integer deviceId;
+    private final String field;
+    private final Date time;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param time
+     *      Start time of the minute
+     */
+    public MeasurementRollup(Integer deviceId, String field, Date time) {
+        this.deviceId = deviceId;
+        this.field = field;
+        this.time = time;
+    }
+
+    /**
+     * Add single value
+     */
+    public void add(double value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add values of another rollup of the same device, field and minute
+     */
+    public void merge(MeasurementRollup rollup) {
+        count += rollup.count;
+        sum += rollup.sum;
+        min = Math.min(min, rollup.min);
+        max = Math.max(max, rollup.max);
+    }
+
+    public Integer getDeviceId() {
+        return deviceId;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
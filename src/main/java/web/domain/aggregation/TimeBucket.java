@@ -0,0 +1,84 @@
+package web.domain.aggregation;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Aggregated values of single time bucket. Only buckets containing numeric values exist.
+ */
+public class TimeBucket {
+    private final Date time;
+    private final Long count;
+    private final Double sum;
+    private final Double avg;
+    private final Double min;
+    private final Double max;
+
+    /**
+     * @param time
+     *      Start time of the bucket
+     */
+    public TimeBucket(Date time, Long count, Double sum, Double avg, Double min, Double max) {
+        this.time = time;
+        this.count = count;
+        this.sum = sum;
+        this.avg = avg;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Merge buckets of consecutive time ranges. Bucket split between two ranges is combined into one.
+     *
+     * @param ranges
+     *      Buckets of each range ordered by time, ranges in ascending time order
+     * @return
+     *      Buckets of the whole range ordered by time
+     */
+    public static List<TimeBucket> merge(List<List<TimeBucket>> ranges) {
+        List<TimeBucket> buckets = new ArrayList<>();
+
+        ranges.forEach(range -> range.forEach(bucket -> {
+            int last = buckets.size() - 1;
+
+            if(last >= 0 && buckets.get(last).time.equals(bucket.time)) {
+                buckets.set(last, buckets.get(last).combine(bucket));
+            } else {
+                buckets.add(bucket);
+            }
+        }));
+
+        return buckets;
+    }
+
+    private TimeBucket combine(TimeBucket other) {
+        long combinedCount = count + other.count;
+        double combinedSum = sum + other.sum;
+
+        return new TimeBucket(time, combinedCount, combinedSum, combinedSum / combinedCount,
+            Math.min(min, other.min), Math.max(max, other.max));
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    /**
+     * Get value of given aggregate function
+     */
+    public Number getValue(TimeBucketAggregation.Function function) {
+        switch(function) {
+            case COUNT:
+                return count;
+            case SUM:
+                return sum;
+            case MIN:
+                return min;
+            case MAX:
+                return max;
+            default:
+                return avg;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package web.domain.aggregation;
+
+import web.domain.response.ErrorCode;
+import web.exception.ExceptionWrapper;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregation of numeric measurement content field into fixed length time buckets, e.g. 5 minute averages of
+ * temperature.
+ */
+public class TimeBucketAggregation {
+    // Nested fields are separated by dots, e.g. sensor.temperature. Field is used as JSON path in database.
+    private static final Pattern FIELD_PATTERN = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*$");
+    private static final Pattern BUCKET_PATTERN = Pattern.compile("^([1-9][0-9]{0,5})([smhd])$");
+    private static final int MAX_FIELD_LENGTH = 255;
+
+    public enum Function {
+        AVG, MIN, MAX, SUM, COUNT
+    }
+
+    private final String field;
+    private final Integer bucketSeconds;
+    private final Set<Function> functions;
+
+    private TimeBucketAggregation(String field, Integer bucketSeconds, Set<Function> functions) {
+        this.field = field;
+        this.bucketSeconds = bucketSeconds;
+        this.functions = functions;
+    }
+
+    /**
+     * Build aggregation from request parameters
+     *
+     * @param field
+     *      Numeric field of measurement content
+     * @param bucket
+     *      Length of time bucket, number followed by unit s, m, h or d, e.g. 5m
+     * @param functions
+     *      Comma separated aggregate functions: avg, min, max, sum, count. Average when null.
+     * @return
+     *      Aggregation matching given parameters
+     */
+    public static TimeBucketAggregation of(String field, String bucket, String functions) {
+        if(field == null || field.length() > MAX_FIELD_LENGTH || !FIELD_PATTERN.matcher(field).matches()) {
+            throw new ExceptionWrapper("Invalid aggregation", String.format("Invalid value (%s) for parameter field", field),
+                ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+
+        Matcher bucketMatcher = BUCKET_PATTERN.matcher(bucket == null ? "" : bucket);
+        if(!bucketMatcher.matches()) {
+            throw new ExceptionWrapper("Invalid aggregation", String.format("Invalid value (%s) for parameter bucket", bucket),
+                ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+
+        long bucketSeconds = parseUnit(bucketMatcher.group(2)).toSeconds(Long.parseLong(bucketMatcher.group(1)));
+        if(bucketSeconds > Integer.MAX_VALUE) {
+            throw new ExceptionWrapper("Invalid aggregation", String.format("Invalid value (%s) for parameter bucket", bucket),
+                ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+
+        return new TimeBucketAggregation(field, (int) bucketSeconds, parseFunctions(functions));
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Integer getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    /**
+     * Requested functions in request order
+     */
+    public Set<Function> getFunctions() {
+        return functions;
+    }
+
+    private static TimeUnit parseUnit(String unit) {
+        switch(unit) {
+            case "s":
+                return TimeUnit.SECONDS;
+            case "m":
+                return TimeUnit.MINUTES;
+            case "h":
+                return TimeUnit.HOURS;
+            default:
+                return TimeUnit.DAYS;
+        }
+    }
+
+    private static Set<Function> parseFunctions(String functions) {
+        if(functions == null || functions.trim().isEmpty()) {
+            return Collections.singleton(Function.AVG);
+        }
+
+        Set<Function> parsed = new LinkedHashSet<>();
+        for(String function : functions.split(",")) {
+            try {
+                parsed.add(Function.valueOf(function.trim().toUpperCase(Locale.ROOT)));
+            } catch(IllegalArgumentException e) {
+                throw new ExceptionWrapper("Invalid aggregation", String.format("Invalid value (%s) for parameter fn", function),
+                    ErrorCode.PARAMETER_VALIDATION_ERROR);
+            }
+        }
+
+        return Collections.unmodifiableSet(parsed);
+    }
+}
@@ -40,7 +40,13 @@ import javax.validation.constraints.Pattern;
             @StoredProcedureParameter(name = "f_id", type = Integer.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_name", type = String.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_authentication_key", type = String.class, mode = ParameterMode.IN)
-    })
+    }),
+    @NamedStoredProcedureQuery(name = "get_device_ids", procedureName = "get_device_ids",
+        parameters = {
+            // JSON array of IDs passed as String
+            @StoredProcedureParameter(name = "f_ids", type = String.class, mode = ParameterMode.IN)
+    }),
+    @NamedStoredProcedureQuery(name = "get_device_authentication_keys", procedureName = "get_device_authentication_keys")
 })
 
 @Entity
@@ -16,7 +16,45 @@ import java.util.Date;
             @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
-            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN)
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_descending", type = Boolean.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_limit", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_min_latitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_min_longitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_max_latitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_max_longitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_geohash_prefixes", type = String.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_near_latitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_near_longitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_radius", type = Double.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_device_group_locations", procedureName = "get_device_group_locations",
+        resultClasses = Location.class,
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_descending", type = Boolean.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_limit", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_min_latitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_min_longitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_max_latitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_max_longitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_geohash_prefixes", type = String.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_near_latitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_near_longitude", type = Double.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_radius", type = Double.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_latest_locations", procedureName = "get_latest_locations",
+        resultClasses = Location.class,
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN)
         }),
     @NamedStoredProcedureQuery(name = "add_location", procedureName = "add_location", resultClasses = Location.class,
         parameters = {
@@ -25,17 +63,58 @@ import java.util.Date;
             @StoredProcedureParameter(name = "p_longitude", type = BigDecimal.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "p_time", type = Date.class, mode = ParameterMode.IN)
         }),
+    @NamedStoredProcedureQuery(name = "add_locations", procedureName = "add_locations",
+        parameters = {
+            // JSON array inserted as String
+            @StoredProcedureParameter(name = "p_locations", type = String.class, mode = ParameterMode.IN)
+        }),
     @NamedStoredProcedureQuery(name = "delete_locations", procedureName = "delete_locations",
         parameters = {
             @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "delete_locations_chunk", procedureName = "delete_locations_chunk",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_limit", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "delete_device_group_locations", procedureName = "delete_device_group_locations",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_limit", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "purge_locations", procedureName = "purge_locations",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_before", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_limit", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_location_time_range", procedureName = "get_location_time_range",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "add_location_partitions", procedureName = "add_location_partitions",
+        parameters = {
+            @StoredProcedureParameter(name = "p_months_ahead", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "drop_location_partitions", procedureName = "drop_location_partitions",
+        parameters = {
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN)
         })
 })
 @Entity
 @Table(name = "location")
-public class Location {
+public class Location implements TimeSeriesEntity {
 
     @Id
     private Integer id;
@@ -52,6 +131,7 @@ public class Location {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
     private Date time;
 
+    @Override
     public Integer getId() {
         return id;
     }
@@ -84,6 +164,7 @@ public class Location {
         this.longitude = longitude;
     }
 
+    @Override
     public Date getTime() {
         return time;
     }
@@ -19,8 +19,75 @@ import java.util.HashMap;
             @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_descending", type = Boolean.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_limit", type = Integer.class, mode = ParameterMode.IN),
+            // JSON array of content filters as String
+            @StoredProcedureParameter(name = "f_content_filters", type = String.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_device_group_measurements", procedureName = "get_device_group_measurements",
+        resultClasses = Measurement.class,
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_cursor_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_descending", type = Boolean.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_limit", type = Integer.class, mode = ParameterMode.IN),
+            // JSON array of content filters as String
+            @StoredProcedureParameter(name = "f_content_filters", type = String.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_latest_measurements", procedureName = "get_latest_measurements",
+        resultClasses = Measurement.class,
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_measurement_aggregates", procedureName = "get_measurement_aggregates",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_field", type = String.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_bucket_seconds", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_resolution_seconds", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_rollup_lag_seconds", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_limit", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "add_measurement_rollups", procedureName = "add_measurement_rollups",
+        parameters = {
+            // JSON array inserted as String
+            @StoredProcedureParameter(name = "p_rollups", type = String.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "rebuild_measurement_rollups", procedureName = "rebuild_measurement_rollups",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN)
         }),
+    @NamedStoredProcedureQuery(name = "get_measurement_rollup_time_range",
+        procedureName = "get_measurement_rollup_time_range",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_measurement_rollup_watermark",
+        procedureName = "get_measurement_rollup_watermark"),
+    @NamedStoredProcedureQuery(name = "update_measurement_rollup_watermark",
+        procedureName = "update_measurement_rollup_watermark",
+        parameters = {
+            @StoredProcedureParameter(name = "p_complete_until", type = Date.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "get_measurement_time_range", procedureName = "get_measurement_time_range",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN)
+        }),
     @NamedStoredProcedureQuery(name = "add_measurement", procedureName = "add_measurement", resultClasses = Measurement.class,
         parameters = {
             @StoredProcedureParameter(name = "p_device_id", type = Integer.class, mode = ParameterMode.IN),
@@ -28,19 +95,55 @@ import java.util.HashMap;
             @StoredProcedureParameter(name = "p_content", type = String.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "p_time", type = Date.class, mode = ParameterMode.IN)
         }),
+    @NamedStoredProcedureQuery(name = "add_measurements", procedureName = "add_measurements",
+        parameters = {
+            // JSON array inserted as String
+            @StoredProcedureParameter(name = "p_measurements", type = String.class, mode = ParameterMode.IN)
+        }),
     @NamedStoredProcedureQuery(name = "delete_measurements", procedureName = "delete_measurements",
         parameters = {
             @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
             @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "delete_measurements_chunk", procedureName = "delete_measurements_chunk",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_limit", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "delete_device_group_measurements", procedureName = "delete_device_group_measurements",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_group_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_exact_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_limit", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "purge_measurements", procedureName = "purge_measurements",
+        parameters = {
+            @StoredProcedureParameter(name = "f_device_id", type = Integer.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_before", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_limit", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "add_measurement_partitions", procedureName = "add_measurement_partitions",
+        parameters = {
+            @StoredProcedureParameter(name = "p_months_ahead", type = Integer.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "drop_measurement_partitions", procedureName = "drop_measurement_partitions",
+        parameters = {
+            @StoredProcedureParameter(name = "f_start_time", type = Date.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "f_end_time", type = Date.class, mode = ParameterMode.IN)
         })
 })
 
 @Entity
 @Table(name = "measurement")
 @TypeDef(name = "json", typeClass = JsonStringType.class)
-public class Measurement {
+public class Measurement implements TimeSeriesEntity {
     @Id
     private Integer id;
 
@@ -55,6 +158,7 @@ public class Measurement {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
     private Date time;
 
+    @Override
     public Integer getId() {
         return id;
     }
@@ -79,6 +183,7 @@ public class Measurement {
         this.content = content;
     }
 
+    @Override
     public Date getTime() {
         return time;
     }
@@ -0,0 +1,51 @@
+package web.domain.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+@NamedStoredProcedureQueries({
+    @NamedStoredProcedureQuery(name = "get_measurement_content_paths", procedureName = "get_measurement_content_paths",
+        resultClasses = MeasurementContentPath.class,
+        parameters = {
+            @StoredProcedureParameter(name = "f_name", type = String.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "add_measurement_content_path", procedureName = "add_measurement_content_path",
+        parameters = {
+            @StoredProcedureParameter(name = "p_name", type = String.class, mode = ParameterMode.IN),
+            @StoredProcedureParameter(name = "p_type", type = String.class, mode = ParameterMode.IN)
+        }),
+    @NamedStoredProcedureQuery(name = "delete_measurement_content_path", procedureName = "delete_measurement_content_path",
+        parameters = {
+            @StoredProcedureParameter(name = "f_name", type = String.class, mode = ParameterMode.IN)
+        })
+})
+
+@Entity
+@Table(name = "measurement_content_path")
+public class MeasurementContentPath {
+    @Id
+    @NotNull
+    @Pattern(regexp = "[A-Za-z_][A-Za-z0-9_]{0,39}")
+    private String name;
+
+    @NotNull
+    @Pattern(regexp = "number|string")
+    private String type;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
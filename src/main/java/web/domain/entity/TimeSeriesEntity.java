@@ -0,0 +1,13 @@
+package web.domain.entity;
+
+import java.util.Date;
+
+/**
+ * Entity stored as time series. Rows are ordered and paginated by (time, id).
+ */
+public interface TimeSeriesEntity {
+
+    Integer getId();
+
+    Date getTime();
+}
@@ -0,0 +1,77 @@
+package web.domain.filter;
+
+import web.domain.response.ErrorCode;
+import web.exception.ExceptionWrapper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Comparison of top-level measurement content field, e.g. temperature>40. Values which are numbers are compared as
+ * numbers, other values as strings.
+ */
+public class ContentFilter {
+    private static final Pattern FILTER_PATTERN = Pattern.compile("([A-Za-z_][A-Za-z0-9_]{0,47})(>=|<=|!=|=|>|<)(.+)");
+
+    private final String path;
+    private final String operator;
+    private final Object value;
+
+    private ContentFilter(String path, String operator, Object value) {
+        this.path = path;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    /**
+     * Build filters from request parameters
+     *
+     * @param filters
+     *      Filters as path, operator and value, e.g. temperature>40 or status=ok
+     * @return
+     *      Filters matching given parameters or null when none given
+     */
+    public static List<ContentFilter> of(List<String> filters) {
+        if(filters == null || filters.isEmpty()) {
+            return null;
+        }
+
+        List<ContentFilter> contentFilters = new ArrayList<>();
+        for(String filter : filters) {
+            Matcher matcher = FILTER_PATTERN.matcher(filter == null ? "" : filter.trim());
+
+            if(!matcher.matches()) {
+                throw new ExceptionWrapper("Invalid content filter",
+                    String.format("Invalid value (%s) for parameter content", filter),
+                    ErrorCode.PARAMETER_VALIDATION_ERROR);
+            }
+
+            contentFilters.add(new ContentFilter(matcher.group(1), matcher.group(2), parseValue(matcher.group(3))));
+        }
+
+        return contentFilters;
+    }
+
+    private static Object parseValue(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch(NumberFormatException e) {
+            return value;
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+}
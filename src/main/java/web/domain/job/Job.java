@@ -0,0 +1,88 @@
+package web.domain.job;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job started by request. Job is kept in memory and reports its status and count of processed rows.
+ */
+public class Job {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final Date createdTime = new Date();
+    private final AtomicLong processedCount = new AtomicLong();
+    private volatile Status status = Status.QUEUED;
+    private volatile Date startedTime;
+    private volatile Date finishedTime;
+    private volatile String message;
+
+    /**
+     * @param type
+     *      Type of the job, e.g. delete-measurements
+     */
+    public Job(String type) {
+        this.type = type;
+    }
+
+    public void start() {
+        startedTime = new Date();
+        status = Status.RUNNING;
+    }
+
+    public void complete() {
+        finishedTime = new Date();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(String message) {
+        this.message = message;
+        finishedTime = new Date();
+        status = Status.FAILED;
+    }
+
+    public void addProcessedCount(long count) {
+        processedCount.addAndGet(count);
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getCreatedTime() {
+        return createdTime;
+    }
+
+    public Date getStartedTime() {
+        return startedTime;
+    }
+
+    public Date getFinishedTime() {
+        return finishedTime;
+    }
+
+    public Long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
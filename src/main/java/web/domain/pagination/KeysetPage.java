@@ -0,0 +1,131 @@
+package web.domain.pagination;
+
+import web.domain.entity.TimeSeriesEntity;
+import web.domain.response.ErrorCode;
+import web.exception.ExceptionWrapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keyset pagination of time series ordered by (time, id). Cursor is opaque to clients and points to the last row
+ * of previous page, so following pages are found using index range instead of OFFSET.
+ */
+public class KeysetPage {
+    private static final String CURSOR_SEPARATOR = ":";
+
+    private final Integer limit;
+    private final Boolean descending;
+    private final Date cursorTime;
+    private final Integer cursorId;
+
+    private KeysetPage(Integer limit, Boolean descending, Date cursorTime, Integer cursorId) {
+        this.limit = limit;
+        this.descending = descending;
+        this.cursorTime = cursorTime;
+        this.cursorId = cursorId;
+    }
+
+    /**
+     * Build page from request parameters
+     *
+     * @param limit
+     *      Requested page size. Maximum page size is used when null or larger than maximum.
+     * @param order
+     *      Order of rows by time, asc or desc. Ascending when null.
+     * @param cursor
+     *      Cursor of previous page. First page is returned when null.
+     * @param maxLimit
+     *      Server side maximum page size
+     * @return
+     *      Page matching given parameters
+     */
+    public static KeysetPage of(Integer limit, String order, String cursor, Integer maxLimit) {
+        if(limit != null && limit < 1) {
+            throw new ExceptionWrapper("Invalid pagination", "limit must be positive", ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+
+        if(order != null && !"asc".equalsIgnoreCase(order) && !"desc".equalsIgnoreCase(order)) {
+            throw new ExceptionWrapper("Invalid pagination", String.format("Invalid value (%s) for parameter order", order),
+                ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+
+        Integer pageLimit = limit == null ? maxLimit : Math.min(limit, maxLimit);
+        Boolean descending = "desc".equalsIgnoreCase(order);
+
+        if(cursor == null) {
+            return new KeysetPage(pageLimit, descending, null, null);
+        }
+
+        try {
+            String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(CURSOR_SEPARATOR);
+
+            return new KeysetPage(pageLimit, descending, new Date(Long.parseLong(keys[0])), Integer.parseInt(keys[1]));
+        } catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new ExceptionWrapper("Invalid pagination", "Invalid cursor", ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+    }
+
+    /**
+     * Single row page. Used for existence checks.
+     */
+    public static KeysetPage first() {
+        return new KeysetPage(1, false, null, null);
+    }
+
+    /**
+     * Count of rows to fetch. One extra row is fetched to find out whether next page exists.
+     */
+    public Integer getFetchSize() {
+        return limit + 1;
+    }
+
+    /**
+     * Get rows of this page from fetched rows
+     *
+     * @param rows
+     *      Rows fetched using {@link #getFetchSize()}
+     * @return
+     *      Rows without the extra row
+     */
+    public <T extends TimeSeriesEntity> List<T> getPageRows(List<T> rows) {
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /**
+     * Get cursor pointing to the next page
+     *
+     * @param rows
+     *      Rows fetched using {@link #getFetchSize()}
+     * @return
+     *      Cursor of next page or null when this is the last page
+     */
+    public <T extends TimeSeriesEntity> String getNextCursor(List<T> rows) {
+        if(rows.size() <= limit) {
+            return null;
+        }
+
+        T last = rows.get(limit - 1);
+        String keys = last.getTime().getTime() + CURSOR_SEPARATOR + last.getId();
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(keys.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public Boolean getDescending() {
+        return descending;
+    }
+
+    public Date getCursorTime() {
+        return cursorTime;
+    }
+
+    public Integer getCursorId() {
+        return cursorId;
+    }
+}
@@ -0,0 +1,59 @@
+package web.domain.response;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Status of single item in batch request. Allows clients to resend only failed items.
+ */
+public class BatchItemStatus {
+    private final Integer index;
+    private final Integer deviceId;
+    private final HttpStatus httpStatus;
+    private final ErrorCode errorCode;
+    private final String message;
+
+    private BatchItemStatus(Integer index, Integer deviceId, HttpStatus httpStatus, ErrorCode errorCode, String message) {
+        this.index = index;
+        this.deviceId = deviceId;
+        this.httpStatus = httpStatus;
+        this.errorCode = errorCode;
+        this.message = message;
+    }
+
+    public static BatchItemStatus created(Integer index, Integer deviceId) {
+        return new BatchItemStatus(index, deviceId, HttpStatus.CREATED, null, null);
+    }
+
+    public static BatchItemStatus accepted(Integer index, Integer deviceId) {
+        return new BatchItemStatus(index, deviceId, HttpStatus.ACCEPTED, null, null);
+    }
+
+    public static BatchItemStatus failed(Integer index, Integer deviceId, HttpStatus httpStatus, ErrorCode errorCode,
+                                         String message) {
+        return new BatchItemStatus(index, deviceId, httpStatus, errorCode, message);
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public Integer getDeviceId() {
+        return deviceId;
+    }
+
+    public HttpStatus getHttpStatus() {
+        return httpStatus;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSuccessful() {
+        return errorCode == null;
+    }
+}
@@ -5,7 +5,9 @@ public enum ErrorCode {
     PARAMETER_VALIDATION_ERROR("1001"),
     NO_ITEMS_FOUND("1002"),
     INTERNAL_ERROR("1003"),
-    PARAMETER_CONFLICT("1004");
+    PARAMETER_CONFLICT("1004"),
+    TOO_MANY_REQUESTS("1005"),
+    UNAUTHORIZED("1006");
 
     final String code;
 
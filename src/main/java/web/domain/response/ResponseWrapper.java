@@ -13,23 +13,33 @@ public class ResponseWrapper extends ResponseEntity {
     private HttpStatus httpStatus;
 
     public ResponseWrapper(Object payload) {
-        super(payload.toString(), HttpStatus.OK);
+        super(toBody(payload), HttpStatus.OK);
         this.payload = payload;
         this.httpStatus = HttpStatus.OK;
     }
 
     public ResponseWrapper(Object payload, HttpStatus httpStatus) {
-        super(payload.toString(), httpStatus);
+        super(toBody(payload), httpStatus);
         this.payload = payload;
         this.httpStatus = httpStatus;
     }
 
     public ResponseWrapper(Object payload, HttpHeaders httpHeaders, HttpStatus httpStatus) {
-        super(payload.toString(), httpHeaders, httpStatus);
+        super(toBody(payload), httpHeaders, httpStatus);
         this.payload = payload;
         this.httpStatus = httpStatus;
     }
 
+    /**
+     * Streamed collections and exports are passed as they are so that they are written by their own message converters.
+     * Other payloads are converted to String.
+     */
+    private static Object toBody(Object payload) {
+        return payload instanceof StreamingCollection || payload instanceof StreamingExport
+            ? payload
+            : payload.toString();
+    }
+
     public Object getPayload() {
         return payload;
     }
@@ -0,0 +1,45 @@
+package web.domain.response;
+
+import net.hamnaberg.json.Collection;
+import net.hamnaberg.json.Item;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Collection payload whose items are read and written one by one while response is being written.
+ * Envelope contains href, links, queries and template of the collection but no items.
+ */
+public class StreamingCollection<T> {
+    private final Collection envelope;
+    private final RowSource<T> rowSource;
+    private final Function<T, Item> itemMapper;
+
+    public StreamingCollection(Collection envelope, RowSource<T> rowSource, Function<T, Item> itemMapper) {
+        this.envelope = envelope;
+        this.rowSource = rowSource;
+        this.itemMapper = itemMapper;
+    }
+
+    public Collection getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * Read rows from source and pass each mapped item to given consumer. Rows are not kept in memory.
+     *
+     * @param itemConsumer
+     *      Consumer of mapped items
+     */
+    public void forEachItem(Consumer<Item> itemConsumer) {
+        rowSource.forEachRow(row -> itemConsumer.accept(itemMapper.apply(row)));
+    }
+
+    /**
+     * Source of rows, e.g. database cursor
+     */
+    @FunctionalInterface
+    public interface RowSource<T> {
+        void forEachRow(Consumer<T> rowConsumer);
+    }
+}
@@ -0,0 +1,40 @@
+package web.domain.response;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Export payload whose rows are read and written one by one while response is being written. Rows are written as CSV
+ * or newline delimited JSON depending on negotiated content type, without collection+json links and properties.
+ */
+public class StreamingExport<T> {
+    private final List<String> columns;
+    private final StreamingCollection.RowSource<T> rowSource;
+    private final Function<T, Object[]> rowMapper;
+
+    public StreamingExport(List<String> columns, StreamingCollection.RowSource<T> rowSource,
+                           Function<T, Object[]> rowMapper) {
+        this.columns = columns;
+        this.rowSource = rowSource;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Names of exported columns. Used as CSV header and as field names of JSON objects.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Read rows from source and pass values of each row to given consumer in order of columns. Rows are not kept in
+     * memory.
+     *
+     * @param valuesConsumer
+     *      Consumer of row values
+     */
+    public void forEachRow(Consumer<Object[]> valuesConsumer) {
+        rowSource.forEachRow(row -> valuesConsumer.accept(rowMapper.apply(row)));
+    }
+}
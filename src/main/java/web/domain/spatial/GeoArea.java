@@ -0,0 +1,268 @@
+package web.domain.spatial;
+
+import web.domain.response.ErrorCode;
+import web.exception.ExceptionWrapper;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Area used as filter of location updates. Area is either bounding box or circle around point. Circle is searched
+ * using its bounding box and exact distance. Geohash prefixes of the cells covering the bounding box let database use
+ * geohash index of location updates.
+ */
+public class GeoArea {
+    private static final String GEOHASH_ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int MAX_GEOHASH_PRECISION = 7;
+    private static final int MAX_GEOHASH_CELLS = 32;
+    private static final double METERS_PER_DEGREE = 111320;
+    private static final double BOUNDARY_MARGIN = 1e-9;
+
+    private final Double minLatitude;
+    private final Double minLongitude;
+    private final Double maxLatitude;
+    private final Double maxLongitude;
+    private final Double nearLatitude;
+    private final Double nearLongitude;
+    private final Double radius;
+    private final String geohashPrefixes;
+
+    private GeoArea(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                    Double nearLatitude, Double nearLongitude, Double radius) {
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.nearLatitude = nearLatitude;
+        this.nearLongitude = nearLongitude;
+        this.radius = radius;
+        this.geohashPrefixes = String.join(",", coveringGeohashes(minLatitude, minLongitude, maxLatitude, maxLongitude));
+    }
+
+    /**
+     * Build area from request parameters
+     *
+     * @param bbox
+     *      Bounding box as minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Center of circle as lat,lon. Requires radius.
+     * @param radius
+     *      Radius of circle in meters
+     * @return
+     *      Area matching given parameters or null when no area is given
+     */
+    public static GeoArea of(String bbox, String near, Double radius) {
+        if(bbox == null && near == null && radius == null) {
+            return null;
+        }
+
+        if(bbox != null && (near != null || radius != null)) {
+            throw invalidArea("Use either bbox or near and radius");
+        }
+
+        if(bbox != null) {
+            double[] box = parseCoordinates(bbox, 4, "bbox");
+            validateLatitude(box[0]);
+            validateLongitude(box[1]);
+            validateLatitude(box[2]);
+            validateLongitude(box[3]);
+
+            if(box[0] > box[2] || box[1] > box[3]) {
+                throw invalidArea("bbox minimum must not be greater than maximum");
+            }
+
+            return new GeoArea(box[0], box[1], box[2], box[3], null, null, null);
+        }
+
+        if(near == null || radius == null) {
+            throw invalidArea("near and radius must be given together");
+        }
+
+        if(!(radius > 0)) {
+            throw invalidArea("radius must be positive");
+        }
+
+        double[] point = parseCoordinates(near, 2, "near");
+        validateLatitude(point[0]);
+        validateLongitude(point[1]);
+
+        // Circle's bounding box. Longitude degrees shrink towards poles, box wrapping around 180th meridian is clamped
+        double latitudeDelta = radius / METERS_PER_DEGREE;
+        double cosine = Math.cos(Math.toRadians(point[0]));
+        double longitudeDelta = cosine < 1e-6 ? 180 : Math.min(180, latitudeDelta / cosine);
+
+        return new GeoArea(
+            Math.max(-90, point[0] - latitudeDelta),
+            Math.max(-180, point[1] - longitudeDelta),
+            Math.min(90, point[0] + latitudeDelta),
+            Math.min(180, point[1] + longitudeDelta),
+            point[0], point[1], radius);
+    }
+
+    /**
+     * Encode geohash of given point. Matches ST_GeoHash of MySQL.
+     *
+     * @param latitude
+     *      Latitude of the point
+     * @param longitude
+     *      Longitude of the point
+     * @param precision
+     *      Length of geohash
+     * @return
+     *      Geohash of the point
+     */
+    public static String encodeGeohash(double latitude, double longitude, int precision) {
+        double[] latitudeRange = {-90, 90};
+        double[] longitudeRange = {-180, 180};
+        StringBuilder geohash = new StringBuilder();
+        boolean even = true;
+        int bit = 0;
+        int character = 0;
+
+        while(geohash.length() < precision) {
+            double[] range = even ? longitudeRange : latitudeRange;
+            double value = even ? longitude : latitude;
+            double middle = (range[0] + range[1]) / 2;
+
+            character <<= 1;
+            if(value > middle) {
+                character |= 1;
+                range[0] = middle;
+            } else {
+                range[1] = middle;
+            }
+
+            even = !even;
+            if(++bit == 5) {
+                geohash.append(GEOHASH_ALPHABET.charAt(character));
+                bit = 0;
+                character = 0;
+            }
+        }
+
+        return geohash.toString();
+    }
+
+    /**
+     * Find geohashes of cells covering bounding box. Longest geohashes with at most {@link #MAX_GEOHASH_CELLS} cells
+     * are used, so that large boxes are searched using few short prefixes.
+     */
+    private static Set<String> coveringGeohashes(double minLatitude, double minLongitude, double maxLatitude,
+                                                 double maxLongitude) {
+        for(int precision = MAX_GEOHASH_PRECISION; precision > 1; precision--) {
+            Set<String> geohashes = coveringGeohashes(minLatitude, minLongitude, maxLatitude, maxLongitude, precision);
+
+            if(geohashes != null) {
+                return geohashes;
+            }
+        }
+
+        return coveringGeohashes(minLatitude, minLongitude, maxLatitude, maxLongitude, 1);
+    }
+
+    private static Set<String> coveringGeohashes(double minLatitude, double minLongitude, double maxLatitude,
+                                                 double maxLongitude, int precision) {
+        int bits = precision * 5;
+        int latitudeCells = 1 << (bits / 2);
+        int longitudeCells = 1 << (bits - bits / 2);
+        double cellHeight = 180.0 / latitudeCells;
+        double cellWidth = 360.0 / longitudeCells;
+
+        // Box is widened slightly, so that points on cell boundaries are covered by cells of both sides
+        int firstRow = cellIndex(minLatitude + 90 - BOUNDARY_MARGIN, cellHeight, latitudeCells);
+        int lastRow = cellIndex(maxLatitude + 90 + BOUNDARY_MARGIN, cellHeight, latitudeCells);
+        int firstColumn = cellIndex(minLongitude + 180 - BOUNDARY_MARGIN, cellWidth, longitudeCells);
+        int lastColumn = cellIndex(maxLongitude + 180 + BOUNDARY_MARGIN, cellWidth, longitudeCells);
+
+        if((long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1) > MAX_GEOHASH_CELLS && precision > 1) {
+            return null;
+        }
+
+        // Cells are encoded from their centers, which are never on cell boundaries
+        Set<String> geohashes = new TreeSet<>();
+        for(int row = firstRow; row <= lastRow; row++) {
+            for(int column = firstColumn; column <= lastColumn; column++) {
+                geohashes.add(encodeGeohash(
+                    -90 + (row + 0.5) * cellHeight,
+                    -180 + (column + 0.5) * cellWidth,
+                    precision));
+            }
+        }
+
+        return geohashes;
+    }
+
+    private static int cellIndex(double offset, double cellSize, int cellCount) {
+        return Math.max(0, Math.min(cellCount - 1, (int) Math.floor(offset / cellSize)));
+    }
+
+    private static double[] parseCoordinates(String value, int count, String parameter) {
+        String[] parts = value.split(",");
+
+        if(parts.length != count) {
+            throw invalidArea(String.format("Invalid value (%s) for parameter %s", value, parameter));
+        }
+
+        double[] coordinates = new double[count];
+        try {
+            for(int i = 0; i < count; i++) {
+                coordinates[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch(NumberFormatException e) {
+            throw invalidArea(String.format("Invalid value (%s) for parameter %s", value, parameter));
+        }
+
+        return coordinates;
+    }
+
+    private static void validateLatitude(double latitude) {
+        if(!(latitude >= -90 && latitude <= 90)) {
+            throw invalidArea(String.format("Invalid latitude (%s)", latitude));
+        }
+    }
+
+    private static void validateLongitude(double longitude) {
+        if(!(longitude >= -180 && longitude <= 180)) {
+            throw invalidArea(String.format("Invalid longitude (%s)", longitude));
+        }
+    }
+
+    private static ExceptionWrapper invalidArea(String message) {
+        return new ExceptionWrapper("Invalid area", message, ErrorCode.PARAMETER_VALIDATION_ERROR);
+    }
+
+    public Double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public Double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public Double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public Double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public Double getNearLatitude() {
+        return nearLatitude;
+    }
+
+    public Double getNearLongitude() {
+        return nearLongitude;
+    }
+
+    public Double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Comma separated geohashes of the cells covering bounding box of the area
+     */
+    public String getGeohashPrefixes() {
+        return geohashPrefixes;
+    }
+}
@@ -0,0 +1,281 @@
+package web.domain.spatial;
+
+import web.domain.entity.Location;
+import web.domain.response.ErrorCode;
+import web.exception.ExceptionWrapper;
+
+import java.util.*;
+
+/**
+ * Simplifies location histories of devices in single pass over time ordered location updates. Location updates of
+ * multiple devices may be interleaved, each device's trajectory is simplified separately.
+ * <p>
+ * Tolerance drops location updates which are within tolerance of the line between their neighbours using opening window:
+ * points are collected until one of them is further than tolerance from the line between the last kept point and
+ * the newest point. Maximum count of points keeps at most given count of location updates of each device using
+ * Visvalingam-Whyatt: point whose triangle with its neighbours has the smallest area is removed first. Memory use of
+ * each device is bounded by window size and maximum count of points. Total count of kept points is limited, so
+ * simplifying history of many devices fails instead of collecting unbounded result.
+ */
+public class TrajectorySimplifier {
+    private static final double METERS_PER_DEGREE = 111320;
+    // Bounds work per point of long straight trajectories
+    private static final int MAX_WINDOW_SIZE = 100;
+
+    private final Double tolerance;
+    private final int maxPoints;
+    private final int maxTotalPoints;
+    private final Map<Integer, Trajectory> trajectories = new HashMap<>();
+    private long sequence;
+    private int totalCount;
+
+    private TrajectorySimplifier(Double tolerance, int maxPoints, int maxTotalPoints) {
+        this.tolerance = tolerance;
+        this.maxPoints = maxPoints;
+        this.maxTotalPoints = maxTotalPoints;
+    }
+
+    /**
+     * Build simplifier from request parameters
+     *
+     * @param tolerance
+     *      Maximum distance in meters of dropped location updates from simplified trajectory
+     * @param maxPoints
+     *      Maximum count of location updates of each device. Maximum total count is used when not given or larger.
+     * @param maxTotalPoints
+     *      Maximum total count of location updates. Simplification fails when more location updates are kept.
+     * @return
+     *      Simplifier matching given parameters or null when neither tolerance nor maximum count is given
+     */
+    public static TrajectorySimplifier of(Double tolerance, Integer maxPoints, Integer maxTotalPoints) {
+        if(tolerance == null && maxPoints == null) {
+            return null;
+        }
+
+        if(tolerance != null && !(tolerance > 0)) {
+            throw new ExceptionWrapper("Invalid simplification", "simplify must be positive",
+                ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+
+        if(maxPoints != null && maxPoints < 2) {
+            throw new ExceptionWrapper("Invalid simplification", "maxPoints must be at least 2",
+                ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+
+        return new TrajectorySimplifier(tolerance,
+            maxPoints == null ? maxTotalPoints : Math.min(maxPoints, maxTotalPoints), maxTotalPoints);
+    }
+
+    /**
+     * Add next location update. Location updates of each device must be added in time order.
+     *
+     * @param location
+     *      Location update
+     */
+    public void add(Location location) {
+        trajectories.computeIfAbsent(location.getDeviceId(), deviceId -> new Trajectory())
+            .add(new Point(location, sequence++));
+    }
+
+    /**
+     * Finish simplification
+     *
+     * @return
+     *      Kept location updates in the order they were added
+     */
+    public List<Location> getLocations() {
+        List<Point> points = new ArrayList<>();
+        trajectories.values().forEach(trajectory -> trajectory.finish(points));
+        points.sort(Comparator.comparingLong(point -> point.sequence));
+
+        List<Location> locations = new ArrayList<>(points.size());
+        points.forEach(point -> locations.add(point.location));
+
+        return locations;
+    }
+
+    /**
+     * Trajectory of single device
+     */
+    private class Trajectory {
+        // Opening window
+        private Point anchor;
+        private Point last;
+        private final List<Point> window = new ArrayList<>();
+
+        // Kept points and their removal order by area
+        private Point first;
+        private Point tail;
+        private int count;
+        // Points whose area changed are queued again, outdated entries are skipped and compacted away
+        private final PriorityQueue<Removal> removals = new PriorityQueue<>(
+            Comparator.comparingDouble((Removal removal) -> removal.area)
+                .thenComparingLong(removal -> removal.point.sequence));
+
+        void add(Point point) {
+            if(tolerance == null) {
+                keep(point);
+                return;
+            }
+
+            if(anchor == null) {
+                anchor = point;
+                keep(point);
+                return;
+            }
+
+            if(last != null) {
+                window.add(last);
+
+                if(window.size() > MAX_WINDOW_SIZE || !isWithinTolerance(point)) {
+                    keep(last);
+                    anchor = last;
+                    window.clear();
+                }
+            }
+
+            last = point;
+        }
+
+        void finish(List<Point> points) {
+            if(last != null) {
+                keep(last);
+                last = null;
+            }
+
+            for(Point point = first; point != null; point = point.next) {
+                points.add(point);
+            }
+        }
+
+        private boolean isWithinTolerance(Point end) {
+            for(Point point : window) {
+                if(distanceToSegment(point, anchor, end) > tolerance) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void keep(Point point) {
+            if(first == null) {
+                first = point;
+            } else {
+                tail.next = point;
+                point.previous = tail;
+                updateArea(tail);
+            }
+
+            tail = point;
+            count++;
+
+            if(count > maxPoints) {
+                // Total count is unchanged when another point is removed
+                removeSmallest();
+            } else if(++totalCount > maxTotalPoints) {
+                throw new ExceptionWrapper("Invalid simplification", String.format(
+                    "Result exceeds %d location updates. Use smaller maxPoints, larger simplify or narrower filters.",
+                    maxTotalPoints), ErrorCode.PARAMETER_VALIDATION_ERROR);
+            }
+        }
+
+        private void removeSmallest() {
+            Removal removal = removals.poll();
+            while(removal.version != removal.point.version) {
+                removal = removals.poll();
+            }
+
+            Point removed = removal.point;
+            Point previous = removed.previous;
+            Point next = removed.next;
+
+            previous.next = next;
+            next.previous = previous;
+            count--;
+
+            // Areas never decrease, so neighbours are not removed before the points already removed around them
+            updateArea(previous, removed.area);
+            updateArea(next, removed.area);
+        }
+
+        private void updateArea(Point point) {
+            updateArea(point, 0);
+        }
+
+        private void updateArea(Point point, double minimum) {
+            if(point.previous == null || point.next == null) {
+                return;
+            }
+
+            point.area = Math.max(minimum, triangleArea(point.previous, point, point.next));
+            removals.add(new Removal(point, point.area, ++point.version));
+
+            // Each kept point has at most one current entry, so most entries are outdated once queue is twice as large
+            if(removals.size() > 2 * count) {
+                removals.removeIf(removal -> removal.version != removal.point.version);
+            }
+        }
+    }
+
+    /**
+     * Distance in meters from point to segment between start and end, using equirectangular projection around start
+     */
+    private static double distanceToSegment(Point point, Point start, Point end) {
+        double[] p = project(start, point);
+        double[] e = project(start, end);
+        double lengthSquared = e[0] * e[0] + e[1] * e[1];
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (p[0] * e[0] + p[1] * e[1]) / lengthSquared));
+
+        return Math.hypot(p[0] - t * e[0], p[1] - t * e[1]);
+    }
+
+    /**
+     * Area in square meters of triangle formed by given points, using equirectangular projection around the middle point
+     */
+    private static double triangleArea(Point previous, Point middle, Point next) {
+        double[] a = project(middle, previous);
+        double[] b = project(middle, next);
+
+        return Math.abs(a[0] * b[1] - a[1] * b[0]) / 2;
+    }
+
+    private static double[] project(Point origin, Point point) {
+        double cosine = Math.cos(Math.toRadians(origin.latitude));
+
+        return new double[] {
+            (point.longitude - origin.longitude) * cosine * METERS_PER_DEGREE,
+            (point.latitude - origin.latitude) * METERS_PER_DEGREE
+        };
+    }
+
+    private static class Point {
+        private final Location location;
+        private final long sequence;
+        private final double latitude;
+        private final double longitude;
+        private double area;
+        private int version;
+        private Point previous;
+        private Point next;
+
+        Point(Location location, long sequence) {
+            this.location = location;
+            this.sequence = sequence;
+            this.latitude = location.getLatitude().doubleValue();
+            this.longitude = location.getLongitude().doubleValue();
+        }
+    }
+
+    private static class Removal {
+        private final Point point;
+        private final double area;
+        private final int version;
+
+        Removal(Point point, double area, int version) {
+            this.point = point;
+            this.area = area;
+            this.version = version;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package web.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import javassist.NotFoundException;
 import org.hibernate.HibernateError;
 import org.hibernate.exception.ConstraintViolationException;
@@ -47,6 +49,11 @@ public class ExceptionHandlingUtils {
                     message = String.format("Constraint error on %s", parsedError);
                 }
             }
+        } else if(e instanceof RuntimeJsonMappingException || e.getCause() instanceof JsonProcessingException) {
+            // Thrown by streamed request bodies which are parsed only when consumed
+            message = "Request body missing or invalid";
+            errorCode = ErrorCode.PARAMETER_VALIDATION_ERROR;
+
         } else if(e instanceof DataAccessException || e instanceof HibernateError) {
             message = "Database error occurred";
 
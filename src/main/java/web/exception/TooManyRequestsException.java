@@ -0,0 +1,19 @@
+package web.exception;
+
+import web.domain.response.ErrorCode;
+
+/**
+ * Thrown when request cannot be accepted due to load. Client should retry after given delay.
+ */
+public class TooManyRequestsException extends ExceptionWrapper {
+    private Integer retryAfterSeconds;
+
+    public TooManyRequestsException(String title, String message, Integer retryAfterSeconds) {
+        super(title, message, ErrorCode.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Integer getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
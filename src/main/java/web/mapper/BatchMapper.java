@@ -0,0 +1,66 @@
+package web.mapper;
+
+import javaslang.control.Option;
+import net.hamnaberg.json.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import web.domain.response.BatchItemStatus;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static web.mapper.MapperUtils.buildHref;
+import static web.mapper.MapperUtils.getOptionalValue;
+
+public class BatchMapper {
+
+    private BatchMapper() {
+        // Private constructor for static
+    }
+
+    /**
+     * Map {@link java.util.Collection<BatchItemStatus>} to {@link net.hamnaberg.json.Collection}
+     *
+     * @param statuses
+     *      Statuses of batch items in request order
+     * @param resourceUri
+     *      URI of the resource items were added to
+     * @return
+     *      Collection containing status of each item
+     */
+    public static Collection mapToCollection(java.util.Collection<BatchItemStatus> statuses, String resourceUri) {
+        List<Item> items = new ArrayList<>();
+
+        statuses.forEach(status -> items.add(mapToItem(status, resourceUri)));
+
+        return Collection.create(
+            ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(),
+            Collections.emptyList(),
+            items,
+            Collections.emptyList(),
+            null,
+            null);
+    }
+
+    private static Item mapToItem(BatchItemStatus status, String resourceUri) {
+        URI href = buildHref(
+            ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(),
+            resourceUri,
+            null,
+            status.getDeviceId() == null ? "" : String.format("?deviceId=%d", status.getDeviceId()));
+
+        Value code = status.getErrorCode() == null ? Value.NULL : Value.of(status.getErrorCode().getCode());
+
+        List<Property> properties = Arrays.asList(
+            Property.value("index", Option.of("Index in request"), Value.of(status.getIndex())),
+            Property.value("deviceId", Option.of("Device ID"), getOptionalValue(status.getDeviceId())),
+            Property.value("status", Option.of("Status"), Value.of(status.getHttpStatus().value())),
+            Property.value("code", Option.of("Error code"), code),
+            Property.value("message", Option.of("Message"), getOptionalValue(status.getMessage()))
+        );
+
+        return Item.create(href, properties);
+    }
+}
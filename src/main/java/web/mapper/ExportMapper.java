@@ -0,0 +1,59 @@
+package web.mapper;
+
+import web.domain.entity.Location;
+import web.domain.entity.Measurement;
+import web.domain.response.StreamingCollection;
+import web.domain.response.StreamingExport;
+
+import java.util.Arrays;
+
+import static web.mapper.MapperUtils.formatTime;
+
+public class ExportMapper {
+
+    private ExportMapper() {
+        // Private constructor for static
+    }
+
+    /**
+     * Map measurements read from given source to {@link StreamingExport}. Content is exported as JSON.
+     *
+     * @param measurements
+     *      Source of measurements, e.g. database cursor
+     * @return
+     *      Export of measurements with columns id, deviceId, time and content
+     */
+    public static StreamingExport<Measurement> mapMeasurementsToExport(
+        StreamingCollection.RowSource<Measurement> measurements) {
+        return new StreamingExport<>(
+            Arrays.asList("id", "deviceId", "time", "content"),
+            measurements,
+            measurement -> new Object[] {
+                measurement.getId(),
+                measurement.getDeviceId(),
+                formatTime(measurement.getTime()),
+                measurement.getContent()
+            });
+    }
+
+    /**
+     * Map location updates read from given source to {@link StreamingExport}
+     *
+     * @param locations
+     *      Source of location updates, e.g. database cursor
+     * @return
+     *      Export of location updates with columns id, deviceId, time, latitude and longitude
+     */
+    public static StreamingExport<Location> mapLocationsToExport(StreamingCollection.RowSource<Location> locations) {
+        return new StreamingExport<>(
+            Arrays.asList("id", "deviceId", "time", "latitude", "longitude"),
+            locations,
+            location -> new Object[] {
+                location.getId(),
+                location.getDeviceId(),
+                formatTime(location.getTime()),
+                location.getLatitude(),
+                location.getLongitude()
+            });
+    }
+}
@@ -0,0 +1,79 @@
+package web.mapper;
+
+import javaslang.control.Option;
+import net.hamnaberg.json.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import web.domain.job.Job;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static web.mapper.MapperUtils.buildHref;
+import static web.mapper.MapperUtils.formatTime;
+import static web.mapper.MapperUtils.getOptionalValue;
+
+public class JobMapper {
+
+    private static final String JOBS_URI = "/api/jobs";
+
+    private JobMapper() {
+        // Private constructor for static
+    }
+
+    /**
+     * Map {@link Job} to {@link net.hamnaberg.json.Collection}
+     *
+     * @param job
+     *      Job to map
+     * @return
+     *      Collection containing status and progress of the job
+     */
+    public static Collection mapToCollection(Job job) {
+        URI baseUri = ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri();
+
+        return Collection.create(
+            baseUri,
+            Collections.emptyList(),
+            Collections.singletonList(mapToItem(baseUri, job)),
+            Collections.emptyList(),
+            null,
+            null);
+    }
+
+    /**
+     * Get headers pointing to the job resource
+     *
+     * @param job
+     *      Job to point to
+     * @return
+     *      Headers containing Location of the job
+     */
+    public static HttpHeaders getLocationHeaders(Job job) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setLocation(getHref(ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(), job));
+
+        return headers;
+    }
+
+    private static Item mapToItem(URI baseUri, Job job) {
+        List<Property> properties = Arrays.asList(
+            Property.value("id", Option.of("Job ID"), Value.of(job.getId())),
+            Property.value("type", Option.of("Type"), Value.of(job.getType())),
+            Property.value("status", Option.of("Status"), Value.of(job.getStatus().name())),
+            Property.value("processedCount", Option.of("Count of processed rows"), Value.of(job.getProcessedCount())),
+            Property.value("createdTime", Option.of("Created time"), Value.of(formatTime(job.getCreatedTime()))),
+            Property.value("startedTime", Option.of("Started time"), getOptionalValue(formatTime(job.getStartedTime()))),
+            Property.value("finishedTime", Option.of("Finished time"), getOptionalValue(formatTime(job.getFinishedTime()))),
+            Property.value("message", Option.of("Message"), getOptionalValue(job.getMessage()))
+        );
+
+        return Item.create(getHref(baseUri, job), properties);
+    }
+
+    private static URI getHref(URI baseUri, Job job) {
+        return buildHref(baseUri, JOBS_URI, null, String.format("/%s", job.getId()));
+    }
+}
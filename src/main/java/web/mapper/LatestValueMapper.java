@@ -0,0 +1,84 @@
+package web.mapper;
+
+import javaslang.control.Option;
+import net.hamnaberg.json.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import web.domain.entity.Device;
+import web.domain.entity.Location;
+import web.domain.entity.Measurement;
+import web.domain.response.ErrorCode;
+import web.exception.ExceptionWrapper;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static web.mapper.MapperUtils.*;
+
+public class LatestValueMapper {
+
+    private static final String DEVICES_URI = "/api/devices";
+
+    private LatestValueMapper() {
+        // Private constructor for static
+    }
+
+    /**
+     * Map latest measurement and location of each device to {@link net.hamnaberg.json.Collection}. Devices without
+     * measurements or locations are included with null values.
+     *
+     * @param devices
+     *      Devices to map
+     * @param measurements
+     *      Latest measurement by device ID
+     * @param locations
+     *      Latest location by device ID
+     * @return
+     *      Collection containing one item per device
+     */
+    public static Collection mapToCollection(java.util.Collection<Device> devices, Map<Integer, Measurement> measurements,
+                                             Map<Integer, Location> locations) {
+        List<Item> items = new ArrayList<>();
+        URI baseUri = ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri();
+
+        devices.forEach(device -> {
+            try {
+                items.add(mapToItem(baseUri, device, measurements.get(device.getId()), locations.get(device.getId())));
+            } catch(Exception e) {
+                throw new ExceptionWrapper("Internal error", "Latest value mapping failed", ErrorCode.INTERNAL_ERROR);
+            }
+        });
+
+        return Collection.create(
+            baseUri,
+            Collections.emptyList(),
+            items,
+            Collections.emptyList(),
+            null,
+            null);
+    }
+
+    private static Item mapToItem(URI baseUri, Device device, Measurement measurement, Location location) throws Exception {
+        URI href = buildHref(baseUri, DEVICES_URI, null, String.format("/%d", device.getId()));
+
+        List<Property> properties = Arrays.asList(
+            Property.value("deviceId", Option.of("Device ID"), Value.of(device.getId())),
+            Property.value("name", Option.of("Device name"), getOptionalValue(device.getName())),
+            Property.value("content", Option.of("Latest measurement content"),
+                measurement == null ? Value.NULL : getOptionalValue(measurement.getContent())),
+            Property.value("measurementTime", Option.of("Latest measurement timestamp"),
+                measurement == null ? Value.NULL : Value.of(formatTime(measurement.getTime()))),
+            Property.value("latitude", Option.of("Latest latitude"),
+                location == null ? Value.NULL : Value.of(location.getLatitude())),
+            Property.value("longitude", Option.of("Latest longitude"),
+                location == null ? Value.NULL : Value.of(location.getLongitude())),
+            Property.value("locationTime", Option.of("Latest location timestamp"),
+                location == null ? Value.NULL : Value.of(formatTime(location.getTime())))
+        );
+
+        return Item.create(href, properties);
+    }
+}
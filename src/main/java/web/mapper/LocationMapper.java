@@ -4,6 +4,7 @@ import javaslang.control.Option;
 import net.hamnaberg.json.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import web.domain.entity.Location;
+import web.domain.response.StreamingCollection;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -13,6 +14,7 @@ import java.util.List;
 
 import static web.mapper.MapperUtils.buildHref;
 import static web.mapper.MapperUtils.formatTime;
+import static web.mapper.MapperUtils.getNextLink;
 import static web.mapper.MapperUtils.getProfileLink;
 
 public class LocationMapper {
@@ -45,12 +47,30 @@ public class LocationMapper {
      *      Collection containing locations
      */
     public static Collection mapToCollection(java.util.Collection<Location> locations) {
+        return mapToCollection(locations, null);
+    }
+
+    /**
+     * Map page of {@link java.util.Collection<Location>} to {@link net.hamnaberg.json.Collection}
+     *
+     * @param locations
+     *      Collection of locations to map
+     * @param nextCursor
+     *      Cursor of next page. Next link is added when not null.
+     * @return
+     *      Collection containing locations
+     */
+    public static Collection mapToCollection(java.util.Collection<Location> locations, String nextCursor) {
         List<Item> items = new ArrayList<>();
         List<Link> links = new ArrayList<>();
 
         // Add profile link
         links.add(getProfileLink(locations));
 
+        if(nextCursor != null) {
+            links.add(getNextLink(nextCursor));
+        }
+
         locations.forEach(location -> {
             items.add(mapToItem(location));
 
@@ -69,6 +89,52 @@ public class LocationMapper {
             null);
     }
 
+    /**
+     * Map latest location of each device to compact {@link net.hamnaberg.json.Collection}. Items link to their devices,
+     * links, queries and template are left out to keep the response small.
+     *
+     * @param locations
+     *      Latest location of each device
+     * @return
+     *      Collection containing locations
+     */
+    public static Collection mapToCurrentCollection(java.util.Collection<Location> locations) {
+        URI baseUri = ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri();
+        List<Item> items = new ArrayList<>(locations.size());
+
+        locations.forEach(location -> items.add(Item.create(
+            buildHref(baseUri, DEVICES_URI, null, String.format("/%d", location.getDeviceId())),
+            Arrays.asList(
+                Property.value("deviceId", Option.of("Device ID"), Value.of(location.getDeviceId())),
+                Property.value("latitude", Option.of("Latitude"), Value.of(location.getLatitude())),
+                Property.value("longitude", Option.of("Longitude"), Value.of(location.getLongitude())),
+                Property.value("time", Option.of("Timestamp"), Value.of(formatTime(location.getTime())))
+            ))));
+
+        return Collection.create(baseUri, Collections.emptyList(), items, Collections.emptyList(), null, null);
+    }
+
+    /**
+     * Map {@link Location} rows of given source to {@link StreamingCollection}. Rows are mapped one by one while response
+     * is written.
+     *
+     * @param locations
+     *      Source of locations to map
+     * @return
+     *      Collection streaming locations
+     */
+    public static StreamingCollection<Location> mapToStreamingCollection(StreamingCollection.RowSource<Location> locations) {
+        Collection envelope = Collection.create(
+            ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(),
+            Collections.singletonList(getProfileLink(Location.class)),
+            Collections.emptyList(),
+            getQueries(),
+            getTemplate(),
+            null);
+
+        return new StreamingCollection<>(envelope, locations, LocationMapper::mapToItem);
+    }
+
     private static Item mapToItem(Location location) {
         URI href = buildHref(
             ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(),
@@ -112,7 +178,15 @@ public class LocationMapper {
                     Property.value("deviceId", Value.of("")),
                     Property.value("exactTime", Value.of("")),
                     Property.value("startTime", Value.of("")),
-                    Property.value("endTime", Value.of(""))
+                    Property.value("endTime", Value.of("")),
+                    Property.value("bbox", Value.of("")),
+                    Property.value("near", Value.of("")),
+                    Property.value("radius", Value.of("")),
+                    Property.value("simplify", Value.of("")),
+                    Property.value("maxPoints", Value.of("")),
+                    Property.value("limit", Value.of("")),
+                    Property.value("order", Value.of("")),
+                    Property.value("cursor", Value.of(""))
                 )
             )));
     }
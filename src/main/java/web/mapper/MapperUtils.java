@@ -5,17 +5,17 @@ import javaslang.control.Option;
 import net.hamnaberg.json.Link;
 import net.hamnaberg.json.Value;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import web.converter.BinaryFormats;
 import web.domain.entity.*;
 import web.domain.response.ErrorCode;
 import web.exception.ExceptionWrapper;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
-import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * Helper utilities for collection+json mappers
@@ -127,6 +127,46 @@ public class MapperUtils {
             .format(new Timestamp(time.getTime()));
     }
 
+    /**
+     * Get link to the next page of current request. Other request parameters are kept as they are.
+     *
+     * @param cursor
+     *      Cursor pointing to the next page
+     * @return
+     *      {@link Link} with rel next
+     */
+    public static Link getNextLink(String cursor) {
+        URI nextHref = ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("cursor", cursor)
+            .build()
+            .toUri();
+
+        return Link.create(nextHref, "next", Option.of("Next page"));
+    }
+
+    /**
+     * Read array or sequence of values lazily from given stream. Format of the values is selected by content type,
+     * binary formats of {@link BinaryFormats} are decoded with their own parsers. JSON array and newline delimited JSON
+     * are read otherwise.
+     *
+     * @param inputStream
+     *      Stream containing request body
+     * @param contentType
+     *      Content-Type header of the request
+     * @param valueType
+     *      Type of values
+     * @return
+     *      Iterator which parses values only when consumed
+     * @throws IOException
+     *      Exception thrown when stream cannot be read
+     */
+    public static <T> Iterator<T> readValues(InputStream inputStream, String contentType, Class<T> valueType)
+        throws IOException {
+        ObjectMapper binaryMapper = BinaryFormats.getObjectMapper(contentType);
+
+        return (binaryMapper == null ? objectMapper : binaryMapper).readerFor(valueType).readValues(inputStream);
+    }
+
     /**
      * Get application/collection+json profile Link for given resource. Maps resource into api-console url.
      *
@@ -136,35 +176,47 @@ public class MapperUtils {
      *      {@link Link} for given resource's profile
      */
     public static Link getProfileLink(Collection collection) {
-        // Base URL used by api-console. Profiles are under Types sub-page
-        final String profileHref = "/api-doc/index.html#/docs/";
-        String typeHrefPostfix = "";
-
         Optional resourceOpt = collection.stream().findFirst();
         if(!resourceOpt.isPresent()) {
             return null;
         }
 
-        Object resource = resourceOpt.get();
+        return getProfileLink(resourceOpt.get().getClass());
+    }
+
+    /**
+     * Get application/collection+json profile Link for given resource type. Used when items are not known beforehand.
+     *
+     * @param resourceClass
+     *      Class of API resource requiring profile link
+     * @return
+     *      {@link Link} for given resource's profile
+     */
+    public static Link getProfileLink(Class<?> resourceClass) {
+        // Base URL used by api-console. Profiles are under Types sub-page
+        final String profileHref = "/api-doc/index.html#/docs/";
+        String typeHrefPostfix = "";
 
-        if(resource instanceof Device) {
+        if(Device.class.isAssignableFrom(resourceClass)) {
             typeHrefPostfix = "types-0";
-        } else if(resource instanceof DeviceGroup) {
+        } else if(DeviceGroup.class.isAssignableFrom(resourceClass)) {
             typeHrefPostfix = "types-1";
-        } else if(resource instanceof DeviceIcon) {
+        } else if(DeviceIcon.class.isAssignableFrom(resourceClass)) {
             typeHrefPostfix = "types-2";
-        } else if(resource instanceof DeviceType) {
+        } else if(DeviceType.class.isAssignableFrom(resourceClass)) {
             typeHrefPostfix = "types-3";
-        } else if(resource instanceof Location) {
+        } else if(Location.class.isAssignableFrom(resourceClass)) {
             typeHrefPostfix = "types-4";
-        } else if(resource instanceof Measurement) {
+        } else if(Measurement.class.isAssignableFrom(resourceClass)) {
             typeHrefPostfix = "types-5";
-        } else if(resource instanceof Configuration) {
+        } else if(Configuration.class.isAssignableFrom(resourceClass)) {
             typeHrefPostfix = "types-6";
+        } else if(MeasurementContentPath.class.isAssignableFrom(resourceClass)) {
+            typeHrefPostfix = "types-7";
         } else {
             throw new ExceptionWrapper(
                 "Unknown entity",
-                String.format("getProfileLink encountered unknown entity: %s", resource.getClass().toString()),
+                String.format("getProfileLink encountered unknown entity: %s", resourceClass.toString()),
                 ErrorCode.INTERNAL_ERROR
             );
         }
@@ -0,0 +1,94 @@
+package web.mapper;
+
+import javaslang.control.Option;
+import net.hamnaberg.json.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import web.domain.entity.MeasurementContentPath;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static web.mapper.MapperUtils.buildHref;
+import static web.mapper.MapperUtils.getProfileLink;
+
+public class MeasurementContentPathMapper {
+    private static final String CONTENT_PATHS_URI = "/api/measurements/content-paths";
+
+    private MeasurementContentPathMapper() {
+        // Private constructor for static
+    }
+
+    /**
+     * Map {@link MeasurementContentPath} to {@link Collection}
+     *
+     * @param contentPath
+     *      Content path to map
+     * @return
+     *      Collection containing content path
+     */
+    public static Collection mapToCollection(MeasurementContentPath contentPath) {
+        return mapToCollection(Collections.singletonList(contentPath));
+    }
+
+    /**
+     * Map {@link java.util.Collection<MeasurementContentPath>} to {@link net.hamnaberg.json.Collection}
+     *
+     * @param contentPaths
+     *      Collection of content paths to map
+     * @return
+     *      Collection containing content paths
+     */
+    public static Collection mapToCollection(java.util.Collection<MeasurementContentPath> contentPaths) {
+        List<Item> items = new ArrayList<>();
+        List<Link> links = new ArrayList<>();
+
+        // Add profile link
+        links.add(getProfileLink(contentPaths));
+
+        contentPaths.forEach(contentPath -> items.add(mapToItem(contentPath)));
+
+        return Collection.create(
+            ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(),
+            links,
+            items,
+            getQueries(),
+            getTemplate(),
+            null);
+    }
+
+    private static Item mapToItem(MeasurementContentPath contentPath) {
+        URI href = buildHref(ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(), CONTENT_PATHS_URI,
+            null, String.format("/%s", contentPath.getName()));
+
+        List<Property> properties = Arrays.asList(
+            Property.value("name", Option.of("Content path name"), Value.of(contentPath.getName())),
+            Property.value("type", Option.of("Content path type"), Value.of(contentPath.getType()))
+        );
+
+        return Item.create(href, properties);
+    }
+
+    private static List<Query> getQueries() {
+        return Collections.singletonList((
+            Query.create(
+                buildHref(ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(), CONTENT_PATHS_URI),
+                "search",
+                Option.of("Search"),
+                Collections.singletonList(
+                    Property.value("name", Value.of(""))
+                )
+            )));
+    }
+
+    private static Template getTemplate() {
+        return Template.create(
+            Arrays.asList(
+                Property.value("name", Option.of("Top-level field of measurement content"), Option.of(Value.of(""))),
+                Property.value("type", Option.of("Type of the field, number or string"), Option.of(Value.of("")))
+            )
+        );
+    }
+}
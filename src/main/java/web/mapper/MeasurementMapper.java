@@ -5,6 +5,7 @@ import net.hamnaberg.json.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import web.domain.entity.Measurement;
 import web.domain.response.ErrorCode;
+import web.domain.response.StreamingCollection;
 import web.exception.ExceptionWrapper;
 
 import java.net.URI;
@@ -45,12 +46,30 @@ public class MeasurementMapper {
      *      Collection containing measurements
      */
     public static Collection mapToCollection(java.util.Collection<Measurement> measurements) {
+        return mapToCollection(measurements, null);
+    }
+
+    /**
+     * Map page of {@link java.util.Collection<Measurement>} to {@link net.hamnaberg.json.Collection}
+     *
+     * @param measurements
+     *      Collection of measurements to map
+     * @param nextCursor
+     *      Cursor of next page. Next link is added when not null.
+     * @return
+     *      Collection containing measurements
+     */
+    public static Collection mapToCollection(java.util.Collection<Measurement> measurements, String nextCursor) {
         List<Item> items = new ArrayList<>();
         List<Link> links = new ArrayList<>();
 
         // Add profile link
         links.add(getProfileLink(measurements));
 
+        if(nextCursor != null) {
+            links.add(getNextLink(nextCursor));
+        }
+
         measurements.forEach(measurement -> {
             try {
                 items.add(mapToItem(measurement));
@@ -73,6 +92,33 @@ public class MeasurementMapper {
             null);
     }
 
+    /**
+     * Map {@link Measurement} rows of given source to {@link StreamingCollection}. Rows are mapped one by one while response
+     * is written.
+     *
+     * @param measurements
+     *      Source of measurements to map
+     * @return
+     *      Collection streaming measurements
+     */
+    public static StreamingCollection<Measurement> mapToStreamingCollection(StreamingCollection.RowSource<Measurement> measurements) {
+        Collection envelope = Collection.create(
+            ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(),
+            Collections.singletonList(getProfileLink(Measurement.class)),
+            Collections.emptyList(),
+            getQueries(),
+            getTemplate(),
+            null);
+
+        return new StreamingCollection<>(envelope, measurements, measurement -> {
+                try {
+                    return mapToItem(measurement);
+                } catch(Exception e) {
+                    throw new ExceptionWrapper("Internal error", "Measurement mapping failed", ErrorCode.INTERNAL_ERROR);
+                }
+            });
+    }
+
     private static Item mapToItem(Measurement measurement) throws Exception {
         URI href = buildHref(
             ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri(),
@@ -116,7 +162,11 @@ public class MeasurementMapper {
                     Property.value("deviceId", Value.of("")),
                     Property.value("exactTime", Value.of("")),
                     Property.value("startTime", Value.of("")),
-                    Property.value("endTime", Value.of(""))
+                    Property.value("endTime", Value.of("")),
+                    Property.value("content", Value.of("")),
+                    Property.value("limit", Value.of("")),
+                    Property.value("order", Value.of("")),
+                    Property.value("cursor", Value.of(""))
                 )
             )));
     }
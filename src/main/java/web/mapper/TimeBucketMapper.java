@@ -0,0 +1,70 @@
+package web.mapper;
+
+import javaslang.control.Option;
+import net.hamnaberg.json.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import web.domain.aggregation.TimeBucket;
+import web.domain.aggregation.TimeBucketAggregation;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static web.mapper.MapperUtils.buildHref;
+import static web.mapper.MapperUtils.formatTime;
+
+public class TimeBucketMapper {
+
+    private static final String DEVICES_URI = "/api/devices";
+
+    private TimeBucketMapper() {
+        // Private constructor for static
+    }
+
+    /**
+     * Map {@link java.util.Collection<TimeBucket>} to {@link net.hamnaberg.json.Collection}. Each item contains start
+     * time of the bucket and values of requested functions only.
+     *
+     * @param deviceId
+     *      ID of device whose measurements were aggregated
+     * @param buckets
+     *      Buckets in ascending order by time
+     * @param aggregation
+     *      Aggregation containing requested functions
+     * @return
+     *      Collection containing series of buckets
+     */
+    public static Collection mapToCollection(Integer deviceId, java.util.Collection<TimeBucket> buckets,
+                                             TimeBucketAggregation aggregation) {
+        List<Item> items = new ArrayList<>();
+        URI baseUri = ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri();
+        URI deviceHref = buildHref(baseUri, DEVICES_URI, null, String.format("/%d", deviceId));
+
+        buckets.forEach(bucket -> items.add(mapToItem(deviceHref, bucket, aggregation)));
+
+        return Collection.create(
+            baseUri,
+            Collections.singletonList(Link.create(deviceHref, "device", Option.of("Device"))),
+            items,
+            Collections.emptyList(),
+            null,
+            null);
+    }
+
+    private static Item mapToItem(URI deviceHref, TimeBucket bucket, TimeBucketAggregation aggregation) {
+        List<Property> properties = new ArrayList<>();
+        properties.add(Property.value("time", Option.of("Bucket start time"), Value.of(formatTime(bucket.getTime()))));
+
+        aggregation.getFunctions().forEach(function -> {
+            Number value = bucket.getValue(function);
+            properties.add(Property.value(
+                function.name().toLowerCase(Locale.ROOT),
+                Option.of(aggregation.getField()),
+                value == null ? Value.NULL : Value.of(value)));
+        });
+
+        return Item.create(deviceHref, properties);
+    }
+}
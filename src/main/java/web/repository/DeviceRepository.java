@@ -3,6 +3,8 @@ package web.repository;
 import web.domain.entity.Device;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 public interface DeviceRepository {
 
@@ -67,4 +69,22 @@ public interface DeviceRepository {
      *          True when operation is successful. False when operation failed.
      */
     Boolean deleteDevice(Integer id, String name, String authenticationKey);
+
+    /**
+     * Get which of the given device IDs exist in the database. Used to validate batches with a single query.
+     *
+     * @param ids
+     *          Device IDs to check
+     * @return
+     *          Subset of given IDs matching existing devices
+     */
+    Set<Integer> getExistingDeviceIds(Collection<Integer> ids);
+
+    /**
+     * Get IDs of all devices by their authentication keys
+     *
+     * @return
+     *          Device IDs mapped by authentication key
+     */
+    Map<String, Integer> getDeviceIdsByAuthenticationKey();
 }
@@ -1,9 +1,14 @@
 package web.repository;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import web.domain.entity.Location;
+import web.domain.pagination.KeysetPage;
+import web.domain.spatial.GeoArea;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface LocationRepository {
     /**
@@ -22,6 +27,204 @@ public interface LocationRepository {
      */
     Collection<Location> getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime);
 
+    /**
+     * Get page of location updates matching given parameters ordered by time and id. Parameters are optional and ignored when
+     * null value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Location updates matching given parameters
+     */
+    List<Location> getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, KeysetPage page);
+
+    /**
+     * Get page of location updates matching given parameters and area ordered by time and id. Parameters are optional
+     * and ignored when null value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param area
+     *          Area used as filter. Search location updates inside the area.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Location updates matching given parameters
+     */
+    List<Location> getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, GeoArea area,
+                                KeysetPage page);
+
+    /**
+     * Read location updates matching given parameters row by row using forward-only database cursor. Rows are passed
+     * to consumer as soon as they are read and are not kept in memory. Parameters are optional and ignored when null
+     * value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param descending
+     *          Order location updates by time descending
+     * @param consumer
+     *          Consumer of location updates
+     */
+    void streamLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, Boolean descending,
+                         Consumer<Location> consumer);
+
+    /**
+     * Read location updates matching given parameters and area row by row using forward-only database cursor.
+     * Parameters are optional and ignored when null value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param area
+     *          Area used as filter. Search location updates inside the area.
+     * @param descending
+     *          Order location updates by time descending
+     * @param consumer
+     *          Consumer of location updates
+     */
+    void streamLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, GeoArea area,
+                         Boolean descending, Consumer<Location> consumer);
+
+    /**
+     * Get page of location updates of all devices in device group ordered by time and id. Rows of all devices are read with
+     * single query. Time parameters are optional and ignored when null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Location updates matching given parameters
+     */
+    List<Location> getDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                           KeysetPage page);
+
+    /**
+     * Get page of location updates of all devices in device group inside given area ordered by time and id. Time and
+     * area parameters are optional and ignored when null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param area
+     *          Area used as filter. Search location updates inside the area.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Location updates matching given parameters
+     */
+    List<Location> getDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                           GeoArea area, KeysetPage page);
+
+    /**
+     * Read location updates of all devices in device group row by row using forward-only database cursor. Rows are passed
+     * to consumer as soon as they are read and are not kept in memory. Time parameters are optional and ignored when
+     * null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param descending
+     *          Order location updates by time descending
+     * @param consumer
+     *          Consumer of location updates
+     */
+    void streamDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                    Boolean descending, Consumer<Location> consumer);
+
+    /**
+     * Read location updates of all devices in device group inside given area row by row using forward-only database
+     * cursor. Time and area parameters are optional and ignored when null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search location updates which occurred before this time.
+     * @param area
+     *          Area used as filter. Search location updates inside the area.
+     * @param descending
+     *          Order location updates by time descending
+     * @param consumer
+     *          Consumer of location updates
+     */
+    void streamDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                    GeoArea area, Boolean descending, Consumer<Location> consumer);
+
+    /**
+     * Get latest location update of each device matching given parameters. Parameters are optional and ignored when null value
+     * passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @return
+     *          Latest location update of each device. Devices without locations are left out.
+     */
+    List<Location> getLatestLocations(Integer deviceId, Integer deviceGroupId);
+
+    /**
+     * Get time of the first and last location update
+     *
+     * @param deviceId
+     *          Device ID used as filter. Ignored when null.
+     * @param deviceGroupId
+     *          Device group ID used as filter. Ignored when null.
+     * @return
+     *          Array of start and end time. Times are null when there are no matching location updates.
+     */
+    Date[] getLocationTimeRange(Integer deviceId, Integer deviceGroupId);
+
     /**
      * Add location to the database
      *
@@ -33,7 +236,18 @@ public interface LocationRepository {
     Location addLocation(Location location);
 
     /**
-     * Delete locations matching given parameters.
+     * Add multiple location updates to the database using single multi-row insert
+     *
+     * @param locations
+     *          Location updates to add. If time is not defined current time is used
+     * @return
+     *          Count of inserted rows
+     */
+    Integer addLocations(Collection<Location> locations) throws JsonProcessingException;
+
+    /**
+     * Delete locations matching given parameters. Outside of transaction, without device ID and exact time, monthly
+     * partitions within the time range are dropped first and only the remaining locations are deleted row by row.
      *
      * @param deviceId
      *          Device ID used as filter
@@ -46,4 +260,78 @@ public interface LocationRepository {
      * @return
      */
     Boolean deleteLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime);
+
+    /**
+     * Delete locations matching given parameters, at most given count of rows. Used to delete large sets in chunks.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Delete locations which match timestamp
+     * @param startTime
+     *          Start time used as filter. Delete locations which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Delete locations which occurred before this time.
+     * @param limit
+     *          Maximum count of deleted rows
+     * @return
+     *          Count of deleted rows. 0 when no parameters given.
+     */
+    Integer deleteLocationsChunk(Integer deviceId, Date exactTime, Date startTime, Date endTime, Integer limit);
+
+    /**
+     * Delete location updates of all devices in device group matching given parameters, at most given count of rows. Rows of all
+     * devices are deleted with single statement. Used to delete group's location updates in chunks.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Delete location updates which match timestamp
+     * @param startTime
+     *          Start time used as filter. Delete location updates which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Delete location updates which occurred before this time.
+     * @param limit
+     *          Maximum count of deleted rows
+     * @return
+     *          Count of deleted rows
+     */
+    Integer deleteDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime, Integer limit);
+
+    /**
+     * Delete oldest locations of device which occurred before given time. At most given count of rows is deleted.
+     *
+     * @param deviceId
+     *          Device ID
+     * @param before
+     *          Locations which occurred before this time are deleted
+     * @param limit
+     *          Maximum count of deleted rows
+     * @return
+     *          Count of deleted rows
+     */
+    Integer purgeLocations(Integer deviceId, Date before, Integer limit);
+
+    /**
+     * Create monthly partitions up to given count of months ahead of current month
+     *
+     * @param monthsAhead
+     *          Count of months after current month to create partitions for
+     * @return
+     *          Count of created partitions
+     */
+    Integer addLocationPartitions(Integer monthsAhead);
+
+    /**
+     * Drop monthly partitions which contain only location updates within given time range. Drop commits ongoing
+     * transaction.
+     *
+     * @param startTime
+     *          Start of time range. Partitions from the first one are dropped when null.
+     * @param endTime
+     *          End of time range, inclusive. No partitions are dropped when null.
+     * @return
+     *          Count of dropped partitions
+     */
+    Integer dropLocationPartitions(Date startTime, Date endTime);
 }
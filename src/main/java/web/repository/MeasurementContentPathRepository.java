@@ -0,0 +1,40 @@
+package web.repository;
+
+import web.domain.entity.MeasurementContentPath;
+
+import java.util.Collection;
+
+public interface MeasurementContentPathRepository {
+
+    /**
+     * Get registered measurement content paths. Parameters are optional and ignored when null value passed.
+     *
+     * @param name
+     *          Content path name used as filter
+     * @return
+     *          Content paths matching given parameters
+     */
+    Collection<MeasurementContentPath> getContentPaths(String name);
+
+    /**
+     * Register measurement content path. Path is materialized into indexed generated column of measurement table, so
+     * adding path to large table takes time.
+     *
+     * @param contentPath
+     *          Content path to add
+     * @return
+     *          True when path was added or was already registered with same type. False when path is registered with
+     *          another type.
+     */
+    Boolean addContentPath(MeasurementContentPath contentPath);
+
+    /**
+     * Delete registered measurement content path and its column and index
+     *
+     * @param name
+     *          Content path name used as filter
+     * @return
+     *          True when operation is successful. False when operation failed.
+     */
+    Boolean deleteContentPath(String name);
+}
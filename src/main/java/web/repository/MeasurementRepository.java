@@ -1,10 +1,17 @@
 package web.repository;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import web.domain.aggregation.MeasurementRollup;
+import web.domain.aggregation.TimeBucket;
+import web.domain.aggregation.TimeBucketAggregation;
 import web.domain.entity.Measurement;
+import web.domain.filter.ContentFilter;
+import web.domain.pagination.KeysetPage;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface MeasurementRepository {
     /**
@@ -23,6 +30,284 @@ public interface MeasurementRepository {
      */
     Collection<Measurement> getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime);
 
+    /**
+     * Get page of measurements matching given parameters ordered by time and id. Parameters are optional and ignored when
+     * null value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Measurements matching given parameters
+     */
+    List<Measurement> getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime, KeysetPage page);
+
+    /**
+     * Get page of measurements matching given parameters and content filters ordered by time and id. Parameters are
+     * optional and ignored when null value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param contentFilters
+     *          Filters of measurement content. Search measurements whose content matches all filters.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Measurements matching given parameters
+     */
+    List<Measurement> getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime,
+                                      List<ContentFilter> contentFilters, KeysetPage page);
+
+    /**
+     * Read measurements matching given parameters row by row using forward-only database cursor. Rows are passed to
+     * consumer as soon as they are read and are not kept in memory. Parameters are optional and ignored when null
+     * value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param descending
+     *          Order measurements by time descending
+     * @param consumer
+     *          Consumer of measurements
+     */
+    void streamMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime, Boolean descending,
+                            Consumer<Measurement> consumer);
+
+    /**
+     * Read measurements matching given parameters and content filters row by row using forward-only database cursor.
+     * Parameters are optional and ignored when null value passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param contentFilters
+     *          Filters of measurement content. Search measurements whose content matches all filters.
+     * @param descending
+     *          Order measurements by time descending
+     * @param consumer
+     *          Consumer of measurements
+     */
+    void streamMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime,
+                            List<ContentFilter> contentFilters, Boolean descending, Consumer<Measurement> consumer);
+
+    /**
+     * Get page of measurements of all devices in device group ordered by time and id. Rows of all devices are read with
+     * single query. Time parameters are optional and ignored when null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Measurements matching given parameters
+     */
+    List<Measurement> getDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                                 KeysetPage page);
+
+    /**
+     * Get page of measurements of all devices in device group matching content filters ordered by time and id.
+     * Parameters are optional and ignored when null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param contentFilters
+     *          Filters of measurement content. Search measurements whose content matches all filters.
+     * @param page
+     *          Order, cursor and size of page. Fetches one extra row to detect next page. All rows in ascending
+     *          order when null.
+     * @return
+     *          Measurements matching given parameters
+     */
+    List<Measurement> getDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                                 List<ContentFilter> contentFilters, KeysetPage page);
+
+    /**
+     * Read measurements of all devices in device group row by row using forward-only database cursor. Rows are passed
+     * to consumer as soon as they are read and are not kept in memory. Time parameters are optional and ignored when
+     * null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param descending
+     *          Order measurements by time descending
+     * @param consumer
+     *          Consumer of measurements
+     */
+    void streamDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                       Boolean descending, Consumer<Measurement> consumer);
+
+    /**
+     * Read measurements of all devices in device group matching content filters row by row using forward-only database
+     * cursor. Parameters are optional and ignored when null value passed.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Search measurements which occurred before this time.
+     * @param contentFilters
+     *          Filters of measurement content. Search measurements whose content matches all filters.
+     * @param descending
+     *          Order measurements by time descending
+     * @param consumer
+     *          Consumer of measurements
+     */
+    void streamDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                       List<ContentFilter> contentFilters, Boolean descending,
+                                       Consumer<Measurement> consumer);
+
+    /**
+     * Get latest measurement of each device matching given parameters. Parameters are optional and ignored when null value
+     * passed.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @return
+     *          Latest measurement of each device. Devices without measurements are left out.
+     */
+    List<Measurement> getLatestMeasurements(Integer deviceId, Integer deviceGroupId);
+
+    /**
+     * Aggregate numeric content field of device's measurements into time buckets. Aggregation is done by the database
+     * and only aggregated values are returned.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param startTime
+     *          Start time used as filter. Ignored when null.
+     * @param endTime
+     *          End time used as filter. Ignored when null.
+     * @param aggregation
+     *          Field and bucket length
+     * @param resolutionSeconds
+     *          Resolution of rollups used for whole rollup buckets inside time range. Bucket length must be multiple
+     *          of it. Only measurements are read when null.
+     * @param rollupLagSeconds
+     *          Age of the latest rows which are read from measurements because they may not be rolled up yet
+     * @param limit
+     *          Maximum count of buckets
+     * @return
+     *          Buckets containing numeric values, in ascending order by time
+     */
+    List<TimeBucket> getMeasurementAggregates(Integer deviceId, Date startTime, Date endTime,
+                                              TimeBucketAggregation aggregation, Integer resolutionSeconds,
+                                              Integer rollupLagSeconds, Integer limit);
+
+    /**
+     * Add per-minute rollups to minute and hour rollups. Values are combined with existing rollups.
+     *
+     * @param rollups
+     *          Rollups to add. Rollups of removed devices are skipped.
+     * @return
+     *          Count of added rollups
+     */
+    Integer addMeasurementRollups(Collection<MeasurementRollup> rollups) throws JsonProcessingException;
+
+    /**
+     * Replace rollups of given time range with values computed from measurements. Hour rollups of the hours
+     * overlapping the range are recomputed from minute rollups.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param deviceGroupId
+     *          Device group ID used as filter. Rollups of all devices are rebuilt when both filters are null.
+     * @param startTime
+     *          Start of time range, whole minute. Range starts from the first measurement when null.
+     * @param endTime
+     *          End of time range, whole minute, exclusive. Range ends at the last measurement when null.
+     */
+    void rebuildMeasurementRollups(Integer deviceId, Integer deviceGroupId, Date startTime, Date endTime);
+
+    /**
+     * Get time range covered by rollups
+     *
+     * @param deviceId
+     *          Device ID used as filter. Ignored when null.
+     * @param deviceGroupId
+     *          Device group ID used as filter. Ignored when null.
+     * @return
+     *          Array of start and exclusive end time, whole hours. Times are null when there are no matching rollups.
+     */
+    Date[] getMeasurementRollupTimeRange(Integer deviceId, Integer deviceGroupId);
+
+    /**
+     * Get time up to which rollups are complete
+     *
+     * @return
+     *          Watermark or null when rollups of all measurements must be rebuilt
+     */
+    Date getMeasurementRollupWatermark();
+
+    /**
+     * Store time up to which rollups are complete
+     *
+     * @param completeUntil
+     *          Watermark. Null requires rebuild of all rollups.
+     */
+    void updateMeasurementRollupWatermark(Date completeUntil);
+
+    /**
+     * Get time of the first and last measurement
+     *
+     * @param deviceId
+     *          Device ID used as filter. Ignored when null.
+     * @param deviceGroupId
+     *          Device group ID used as filter. Ignored when null.
+     * @return
+     *          Array of start and end time. Times are null when there are no matching measurements.
+     */
+    Date[] getMeasurementTimeRange(Integer deviceId, Integer deviceGroupId);
+
     /**
      * Add measurement to the database
      *
@@ -34,7 +319,18 @@ public interface MeasurementRepository {
     Measurement addMeasurement(Measurement measurement) throws JsonProcessingException;
 
     /**
-     * Delete measurements matching given parameters.
+     * Add multiple measurements to the database using single multi-row insert
+     *
+     * @param measurements
+     *          Measurements to add. If time is not defined current time is used
+     * @return
+     *          Count of inserted rows
+     */
+    Integer addMeasurements(Collection<Measurement> measurements) throws JsonProcessingException;
+
+    /**
+     * Delete measurements matching given parameters. Outside of transaction, without device ID and exact time, monthly
+     * partitions within the time range are dropped first and only the remaining measurements are deleted row by row.
      *
      * @param deviceId
      *          Device ID used as filter
@@ -47,4 +343,78 @@ public interface MeasurementRepository {
      * @return
      */
     Boolean deleteMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime);
+
+    /**
+     * Delete measurements matching given parameters, at most given count of rows. Used to delete large sets in chunks.
+     *
+     * @param deviceId
+     *          Device ID used as filter
+     * @param exactTime
+     *          Time used as filter. Delete measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Delete measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Delete measurements which occurred before this time.
+     * @param limit
+     *          Maximum count of deleted rows
+     * @return
+     *          Count of deleted rows. 0 when no parameters given.
+     */
+    Integer deleteMeasurementsChunk(Integer deviceId, Date exactTime, Date startTime, Date endTime, Integer limit);
+
+    /**
+     * Delete measurements of all devices in device group matching given parameters, at most given count of rows. Rows of all
+     * devices are deleted with single statement. Used to delete group's measurements in chunks.
+     *
+     * @param deviceGroupId
+     *          Device group ID used as filter
+     * @param exactTime
+     *          Time used as filter. Delete measurements which match timestamp
+     * @param startTime
+     *          Start time used as filter. Delete measurements which occurred after this time.
+     * @param endTime
+     *          End time used as filter. Delete measurements which occurred before this time.
+     * @param limit
+     *          Maximum count of deleted rows
+     * @return
+     *          Count of deleted rows
+     */
+    Integer deleteDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime, Integer limit);
+
+    /**
+     * Delete oldest measurements of device which occurred before given time. At most given count of rows is deleted.
+     *
+     * @param deviceId
+     *          Device ID
+     * @param before
+     *          Measurements which occurred before this time are deleted
+     * @param limit
+     *          Maximum count of deleted rows
+     * @return
+     *          Count of deleted rows
+     */
+    Integer purgeMeasurements(Integer deviceId, Date before, Integer limit);
+
+    /**
+     * Create monthly partitions up to given count of months ahead of current month
+     *
+     * @param monthsAhead
+     *          Count of months after current month to create partitions for
+     * @return
+     *          Count of created partitions
+     */
+    Integer addMeasurementPartitions(Integer monthsAhead);
+
+    /**
+     * Drop monthly partitions which contain only measurements within given time range. Drop commits ongoing
+     * transaction.
+     *
+     * @param startTime
+     *          Start of time range. Partitions from the first one are dropped when null.
+     * @param endTime
+     *          End of time range, inclusive. No partitions are dropped when null.
+     * @return
+     *          Count of dropped partitions
+     */
+    Integer dropMeasurementPartitions(Date startTime, Date endTime);
 }
@@ -8,7 +8,8 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.StoredProcedureQuery;
 import java.math.BigInteger;
-import java.util.Collection;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Repository
 public class DeviceRepositoryImpl implements DeviceRepository {
@@ -68,4 +69,35 @@ public class DeviceRepositoryImpl implements DeviceRepository {
 
         return BigInteger.ONE.equals(deleteDeviceQuery.getSingleResult());
     }
+
+    @Override
+    public Set<Integer> getExistingDeviceIds(Collection<Integer> ids) {
+        // Integers are safe to be joined into JSON array without escaping
+        String idsString = ids.stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining(",", "[", "]"));
+
+        StoredProcedureQuery getDeviceIdsQuery =
+            entityManager.createNamedStoredProcedureQuery("get_device_ids")
+                .setParameter("f_ids", idsString);
+
+        List<Number> existingIds = getDeviceIdsQuery.getResultList();
+
+        return existingIds.stream()
+            .map(Number::intValue)
+            .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Map<String, Integer> getDeviceIdsByAuthenticationKey() {
+        StoredProcedureQuery getDeviceAuthenticationKeysQuery =
+            entityManager.createNamedStoredProcedureQuery("get_device_authentication_keys");
+
+        List<Object[]> rows = getDeviceAuthenticationKeysQuery.getResultList();
+        Map<String, Integer> deviceIds = new HashMap<>(rows.size() * 2);
+
+        rows.forEach(row -> deviceIds.put((String) row[1], ((Number) row[0]).intValue()));
+
+        return deviceIds;
+    }
 }
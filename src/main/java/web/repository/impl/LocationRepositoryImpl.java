@@ -1,15 +1,32 @@
 package web.repository.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import web.domain.entity.Location;
+import web.domain.pagination.KeysetPage;
+import web.domain.spatial.GeoArea;
 import web.repository.LocationRepository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.StoredProcedureQuery;
 import java.math.BigInteger;
-import java.util.Collection;
-import java.util.Date;
+import java.sql.CallableStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static web.repository.impl.StreamingUtils.prepareStreamingCall;
+import static web.repository.impl.StreamingUtils.setAreaParameters;
+import static web.repository.impl.StreamingUtils.setTimeSeriesParameters;
+import static web.repository.impl.StreamingUtils.streamRows;
 
 @Repository
 public class LocationRepositoryImpl implements LocationRepository {
@@ -17,18 +34,119 @@ public class LocationRepositoryImpl implements LocationRepository {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
     @Override
     public Collection<Location> getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+        return getLocations(deviceId, exactTime, startTime, endTime, null);
+    }
+
+    @Override
+    public List<Location> getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, KeysetPage page) {
+        return getLocations(deviceId, exactTime, startTime, endTime, null, page);
+    }
+
+    @Override
+    public List<Location> getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, GeoArea area,
+                                       KeysetPage page) {
         StoredProcedureQuery getLocationsQuery =
-            entityManager.createNamedStoredProcedureQuery("get_locations")
+            withAreaParameters(entityManager.createNamedStoredProcedureQuery("get_locations"), area)
                 .setParameter("f_device_id", deviceId)
                 .setParameter("f_exact_time", exactTime)
                 .setParameter("f_start_time", startTime)
-                .setParameter("f_end_time", endTime);
+                .setParameter("f_end_time", endTime)
+                .setParameter("f_cursor_time", page == null ? null : page.getCursorTime())
+                .setParameter("f_cursor_id", page == null ? null : page.getCursorId())
+                .setParameter("f_descending", page == null ? Boolean.FALSE : page.getDescending())
+                .setParameter("f_limit", page == null ? null : page.getFetchSize());
 
         return getLocationsQuery.getResultList();
     }
 
+    @Override
+    public void streamLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, Boolean descending,
+                                Consumer<Location> consumer) {
+        streamLocations(deviceId, exactTime, startTime, endTime, null, descending, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, GeoArea area,
+                                Boolean descending, Consumer<Location> consumer) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (CallableStatement statement = prepareStreamingCall(connection, "get_locations", 16)) {
+                setTimeSeriesParameters(statement, deviceId, exactTime, startTime, endTime, descending);
+                setAreaParameters(statement, area);
+
+                streamRows(statement, this::mapToLocation, consumer);
+            }
+        });
+    }
+
+    @Override
+    public List<Location> getDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                                  KeysetPage page) {
+        return getDeviceGroupLocations(deviceGroupId, exactTime, startTime, endTime, null, page);
+    }
+
+    @Override
+    public List<Location> getDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                                  GeoArea area, KeysetPage page) {
+        StoredProcedureQuery getDeviceGroupLocationsQuery =
+            withAreaParameters(entityManager.createNamedStoredProcedureQuery("get_device_group_locations"), area)
+                .setParameter("f_device_group_id", deviceGroupId)
+                .setParameter("f_exact_time", exactTime)
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime)
+                .setParameter("f_cursor_time", page == null ? null : page.getCursorTime())
+                .setParameter("f_cursor_id", page == null ? null : page.getCursorId())
+                .setParameter("f_descending", page == null ? Boolean.FALSE : page.getDescending())
+                .setParameter("f_limit", page == null ? null : page.getFetchSize());
+
+        return getDeviceGroupLocationsQuery.getResultList();
+    }
+
+    @Override
+    public void streamDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                           Boolean descending, Consumer<Location> consumer) {
+        streamDeviceGroupLocations(deviceGroupId, exactTime, startTime, endTime, null, descending, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                           GeoArea area, Boolean descending, Consumer<Location> consumer) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (CallableStatement statement = prepareStreamingCall(connection, "get_device_group_locations", 16)) {
+                setTimeSeriesParameters(statement, deviceGroupId, exactTime, startTime, endTime, descending);
+                setAreaParameters(statement, area);
+
+                streamRows(statement, this::mapToLocation, consumer);
+            }
+        });
+    }
+
+    @Override
+    public List<Location> getLatestLocations(Integer deviceId, Integer deviceGroupId) {
+        StoredProcedureQuery getLatestLocationsQuery =
+            entityManager.createNamedStoredProcedureQuery("get_latest_locations")
+                .setParameter("f_device_id", deviceId)
+                .setParameter("f_device_group_id", deviceGroupId);
+
+        return getLatestLocationsQuery.getResultList();
+    }
+
+    @Override
+    public Date[] getLocationTimeRange(Integer deviceId, Integer deviceGroupId) {
+        Object[] row = (Object[]) entityManager.createNamedStoredProcedureQuery("get_location_time_range")
+            .setParameter("f_device_id", deviceId)
+            .setParameter("f_device_group_id", deviceGroupId)
+            .getSingleResult();
+
+        return new Date[] { (Date) row[0], (Date) row[1] };
+    }
+
     @Override
     public Location addLocation(Location location) {
         StoredProcedureQuery addLocationQuery =
@@ -38,11 +156,40 @@ public class LocationRepositoryImpl implements LocationRepository {
                 .setParameter("p_longitude", location.getLongitude())
                 .setParameter("p_time", location.getTime());
 
-        return (Location) addLocationQuery.getResultList().get(0);
+        // Procedure returns exactly one row built from inserted values
+        return (Location) addLocationQuery.getSingleResult();
+    }
+
+    @Override
+    public Integer addLocations(Collection<Location> locations) throws JsonProcessingException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for(Location location : locations) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("deviceId", location.getDeviceId());
+            row.put("latitude", location.getLatitude());
+            row.put("longitude", location.getLongitude());
+            row.put("time", location.getTime() == null ? null : timeFormat.format(location.getTime()));
+            rows.add(row);
+        }
+
+        // Whole batch is passed as single JSON array and inserted with one INSERT ... SELECT
+        StoredProcedureQuery addLocationsQuery =
+            entityManager.createNamedStoredProcedureQuery("add_locations")
+                .setParameter("p_locations", objectMapper.writeValueAsString(rows));
+
+        return ((Number) addLocationsQuery.getSingleResult()).intValue();
     }
 
     @Override
     public Boolean deleteLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+        // Dropping partitions commits implicitly, so inside transaction all rows are deleted one by one
+        if(deviceId == null && exactTime == null && endTime != null
+            && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            dropLocationPartitions(startTime, endTime);
+        }
+
         StoredProcedureQuery deleteLocationsQuery =
             entityManager.createNamedStoredProcedureQuery("delete_locations")
                 .setParameter("f_device_id", deviceId)
@@ -52,5 +199,84 @@ public class LocationRepositoryImpl implements LocationRepository {
 
         return BigInteger.ONE.equals(deleteLocationsQuery.getSingleResult());
     }
-}
 
+    @Override
+    public Integer deleteLocationsChunk(Integer deviceId, Date exactTime, Date startTime, Date endTime, Integer limit) {
+        StoredProcedureQuery deleteLocationsChunkQuery =
+            entityManager.createNamedStoredProcedureQuery("delete_locations_chunk")
+                .setParameter("f_device_id", deviceId)
+                .setParameter("f_exact_time", exactTime)
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime)
+                .setParameter("p_limit", limit);
+
+        return ((Number) deleteLocationsChunkQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer deleteDeviceGroupLocations(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                              Integer limit) {
+        StoredProcedureQuery deleteDeviceGroupLocationsQuery =
+            entityManager.createNamedStoredProcedureQuery("delete_device_group_locations")
+                .setParameter("f_device_group_id", deviceGroupId)
+                .setParameter("f_exact_time", exactTime)
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime)
+                .setParameter("p_limit", limit);
+
+        return ((Number) deleteDeviceGroupLocationsQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer purgeLocations(Integer deviceId, Date before, Integer limit) {
+        StoredProcedureQuery purgeLocationsQuery =
+            entityManager.createNamedStoredProcedureQuery("purge_locations")
+                .setParameter("f_device_id", deviceId)
+                .setParameter("f_before", before)
+                .setParameter("p_limit", limit);
+
+        return ((Number) purgeLocationsQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer addLocationPartitions(Integer monthsAhead) {
+        StoredProcedureQuery addLocationPartitionsQuery =
+            entityManager.createNamedStoredProcedureQuery("add_location_partitions")
+                .setParameter("p_months_ahead", monthsAhead);
+
+        return ((Number) addLocationPartitionsQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer dropLocationPartitions(Date startTime, Date endTime) {
+        StoredProcedureQuery dropLocationPartitionsQuery =
+            entityManager.createNamedStoredProcedureQuery("drop_location_partitions")
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime);
+
+        return ((Number) dropLocationPartitionsQuery.getSingleResult()).intValue();
+    }
+
+    private static StoredProcedureQuery withAreaParameters(StoredProcedureQuery query, GeoArea area) {
+        return query
+            .setParameter("f_min_latitude", area == null ? null : area.getMinLatitude())
+            .setParameter("f_min_longitude", area == null ? null : area.getMinLongitude())
+            .setParameter("f_max_latitude", area == null ? null : area.getMaxLatitude())
+            .setParameter("f_max_longitude", area == null ? null : area.getMaxLongitude())
+            .setParameter("f_geohash_prefixes", area == null ? null : area.getGeohashPrefixes())
+            .setParameter("f_near_latitude", area == null ? null : area.getNearLatitude())
+            .setParameter("f_near_longitude", area == null ? null : area.getNearLongitude())
+            .setParameter("f_radius", area == null ? null : area.getRadius());
+    }
+
+    private Location mapToLocation(ResultSet resultSet) throws SQLException {
+        Location location = new Location();
+        location.setId(resultSet.getInt("id"));
+        location.setDeviceId(resultSet.getInt("device_id"));
+        location.setLatitude(resultSet.getBigDecimal("latitude"));
+        location.setLongitude(resultSet.getBigDecimal("longitude"));
+        location.setTime(resultSet.getTimestamp("time"));
+
+        return location;
+    }
+}
@@ -0,0 +1,46 @@
+package web.repository.impl;
+
+import org.springframework.stereotype.Repository;
+import web.domain.entity.MeasurementContentPath;
+import web.repository.MeasurementContentPathRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.StoredProcedureQuery;
+import java.math.BigInteger;
+import java.util.Collection;
+
+@Repository
+public class MeasurementContentPathRepositoryImpl implements MeasurementContentPathRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Collection<MeasurementContentPath> getContentPaths(String name) {
+        StoredProcedureQuery getContentPathsQuery =
+            entityManager.createNamedStoredProcedureQuery("get_measurement_content_paths")
+                .setParameter("f_name", name);
+
+        return getContentPathsQuery.getResultList();
+    }
+
+    @Override
+    public Boolean addContentPath(MeasurementContentPath contentPath) {
+        StoredProcedureQuery addContentPathQuery =
+            entityManager.createNamedStoredProcedureQuery("add_measurement_content_path")
+                .setParameter("p_name", contentPath.getName())
+                .setParameter("p_type", contentPath.getType());
+
+        return BigInteger.ONE.equals(addContentPathQuery.getSingleResult());
+    }
+
+    @Override
+    public Boolean deleteContentPath(String name) {
+        StoredProcedureQuery deleteContentPathQuery =
+            entityManager.createNamedStoredProcedureQuery("delete_measurement_content_path")
+                .setParameter("f_name", name);
+
+        return BigInteger.ONE.equals(deleteContentPathQuery.getSingleResult());
+    }
+}
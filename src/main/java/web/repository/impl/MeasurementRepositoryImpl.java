@@ -2,18 +2,35 @@ package web.repository.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import web.domain.aggregation.MeasurementRollup;
+import web.domain.aggregation.TimeBucket;
+import web.domain.aggregation.TimeBucketAggregation;
 import web.domain.entity.Measurement;
+import web.domain.filter.ContentFilter;
+import web.domain.pagination.KeysetPage;
 import web.repository.MeasurementRepository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.StoredProcedureQuery;
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Collection;
-import java.util.Date;
+import java.sql.CallableStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static web.repository.impl.StreamingUtils.prepareStreamingCall;
+import static web.repository.impl.StreamingUtils.setTimeSeriesParameters;
+import static web.repository.impl.StreamingUtils.streamRows;
 
 @Repository
 public class MeasurementRepositoryImpl implements MeasurementRepository {
@@ -26,16 +43,210 @@ public class MeasurementRepositoryImpl implements MeasurementRepository {
 
     @Override
     public Collection<Measurement> getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+        return getMeasurements(deviceId, exactTime, startTime, endTime, null);
+    }
+
+    @Override
+    public List<Measurement> getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime, KeysetPage page) {
+        return getMeasurements(deviceId, exactTime, startTime, endTime, null, page);
+    }
+
+    @Override
+    public List<Measurement> getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime,
+                                             List<ContentFilter> contentFilters, KeysetPage page) {
         StoredProcedureQuery getMeasurementsQuery =
             entityManager.createNamedStoredProcedureQuery("get_measurements")
+                .setParameter("f_content_filters", toJson(contentFilters))
                 .setParameter("f_device_id", deviceId)
                 .setParameter("f_exact_time", exactTime)
                 .setParameter("f_start_time", startTime)
-                .setParameter("f_end_time", endTime);
+                .setParameter("f_end_time", endTime)
+                .setParameter("f_cursor_time", page == null ? null : page.getCursorTime())
+                .setParameter("f_cursor_id", page == null ? null : page.getCursorId())
+                .setParameter("f_descending", page == null ? Boolean.FALSE : page.getDescending())
+                .setParameter("f_limit", page == null ? null : page.getFetchSize());
 
         return getMeasurementsQuery.getResultList();
     }
 
+    @Override
+    public void streamMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime, Boolean descending,
+                                   Consumer<Measurement> consumer) {
+        streamMeasurements(deviceId, exactTime, startTime, endTime, null, descending, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime,
+                                   List<ContentFilter> contentFilters, Boolean descending,
+                                   Consumer<Measurement> consumer) {
+        String contentFiltersJson = toJson(contentFilters);
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (CallableStatement statement = prepareStreamingCall(connection, "get_measurements", 9)) {
+                setTimeSeriesParameters(statement, deviceId, exactTime, startTime, endTime, descending);
+                statement.setString(9, contentFiltersJson);
+
+                streamRows(statement, this::mapToMeasurement, consumer);
+            }
+        });
+    }
+
+    @Override
+    public List<Measurement> getDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                                        KeysetPage page) {
+        return getDeviceGroupMeasurements(deviceGroupId, exactTime, startTime, endTime, null, page);
+    }
+
+    @Override
+    public List<Measurement> getDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                                        List<ContentFilter> contentFilters, KeysetPage page) {
+        StoredProcedureQuery getDeviceGroupMeasurementsQuery =
+            entityManager.createNamedStoredProcedureQuery("get_device_group_measurements")
+                .setParameter("f_content_filters", toJson(contentFilters))
+                .setParameter("f_device_group_id", deviceGroupId)
+                .setParameter("f_exact_time", exactTime)
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime)
+                .setParameter("f_cursor_time", page == null ? null : page.getCursorTime())
+                .setParameter("f_cursor_id", page == null ? null : page.getCursorId())
+                .setParameter("f_descending", page == null ? Boolean.FALSE : page.getDescending())
+                .setParameter("f_limit", page == null ? null : page.getFetchSize());
+
+        return getDeviceGroupMeasurementsQuery.getResultList();
+    }
+
+    @Override
+    public void streamDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                              Boolean descending, Consumer<Measurement> consumer) {
+        streamDeviceGroupMeasurements(deviceGroupId, exactTime, startTime, endTime, null, descending, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                              List<ContentFilter> contentFilters, Boolean descending,
+                                              Consumer<Measurement> consumer) {
+        String contentFiltersJson = toJson(contentFilters);
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (CallableStatement statement = prepareStreamingCall(connection, "get_device_group_measurements", 9)) {
+                setTimeSeriesParameters(statement, deviceGroupId, exactTime, startTime, endTime, descending);
+                statement.setString(9, contentFiltersJson);
+
+                streamRows(statement, this::mapToMeasurement, consumer);
+            }
+        });
+    }
+
+    @Override
+    public List<Measurement> getLatestMeasurements(Integer deviceId, Integer deviceGroupId) {
+        StoredProcedureQuery getLatestMeasurementsQuery =
+            entityManager.createNamedStoredProcedureQuery("get_latest_measurements")
+                .setParameter("f_device_id", deviceId)
+                .setParameter("f_device_group_id", deviceGroupId);
+
+        return getLatestMeasurementsQuery.getResultList();
+    }
+
+    @Override
+    public List<TimeBucket> getMeasurementAggregates(Integer deviceId, Date startTime, Date endTime,
+                                                     TimeBucketAggregation aggregation, Integer resolutionSeconds,
+                                                     Integer rollupLagSeconds, Integer limit) {
+        StoredProcedureQuery getMeasurementAggregatesQuery =
+            entityManager.createNamedStoredProcedureQuery("get_measurement_aggregates")
+                .setParameter("f_device_id", deviceId)
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime)
+                .setParameter("p_field", aggregation.getField())
+                .setParameter("p_bucket_seconds", aggregation.getBucketSeconds())
+                .setParameter("p_resolution_seconds", resolutionSeconds)
+                .setParameter("p_rollup_lag_seconds", rollupLagSeconds)
+                .setParameter("p_limit", limit);
+
+        List<Object[]> rows = getMeasurementAggregatesQuery.getResultList();
+        List<TimeBucket> buckets = new ArrayList<>(rows.size());
+
+        rows.forEach(row -> buckets.add(new TimeBucket(
+            (Date) row[0],
+            ((Number) row[1]).longValue(),
+            toDouble(row[2]),
+            toDouble(row[3]),
+            toDouble(row[4]),
+            toDouble(row[5]))));
+
+        return buckets;
+    }
+
+    @Override
+    public Integer addMeasurementRollups(Collection<MeasurementRollup> rollups) throws JsonProcessingException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for(MeasurementRollup rollup : rollups) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("deviceId", rollup.getDeviceId());
+            row.put("field", rollup.getField());
+            row.put("time", timeFormat.format(rollup.getTime()));
+            row.put("count", rollup.getCount());
+            row.put("sum", rollup.getSum());
+            row.put("min", rollup.getMin());
+            row.put("max", rollup.getMax());
+            rows.add(row);
+        }
+
+        StoredProcedureQuery addMeasurementRollupsQuery =
+            entityManager.createNamedStoredProcedureQuery("add_measurement_rollups")
+                .setParameter("p_rollups", objectMapper.writeValueAsString(rows));
+
+        return ((Number) addMeasurementRollupsQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public void rebuildMeasurementRollups(Integer deviceId, Integer deviceGroupId, Date startTime, Date endTime) {
+        entityManager.createNamedStoredProcedureQuery("rebuild_measurement_rollups")
+            .setParameter("f_device_id", deviceId)
+            .setParameter("f_device_group_id", deviceGroupId)
+            .setParameter("f_start_time", startTime)
+            .setParameter("f_end_time", endTime)
+            .execute();
+    }
+
+    @Override
+    public Date[] getMeasurementRollupTimeRange(Integer deviceId, Integer deviceGroupId) {
+        Object[] row = (Object[]) entityManager.createNamedStoredProcedureQuery("get_measurement_rollup_time_range")
+            .setParameter("f_device_id", deviceId)
+            .setParameter("f_device_group_id", deviceGroupId)
+            .getSingleResult();
+
+        return new Date[] { (Date) row[0], (Date) row[1] };
+    }
+
+    @Override
+    public Date getMeasurementRollupWatermark() {
+        List<?> rows = entityManager.createNamedStoredProcedureQuery("get_measurement_rollup_watermark")
+            .getResultList();
+
+        return rows.isEmpty() ? null : (Date) rows.get(0);
+    }
+
+    @Override
+    public void updateMeasurementRollupWatermark(Date completeUntil) {
+        entityManager.createNamedStoredProcedureQuery("update_measurement_rollup_watermark")
+            .setParameter("p_complete_until", completeUntil)
+            .execute();
+    }
+
+    @Override
+    public Date[] getMeasurementTimeRange(Integer deviceId, Integer deviceGroupId) {
+        Object[] row = (Object[]) entityManager.createNamedStoredProcedureQuery("get_measurement_time_range")
+            .setParameter("f_device_id", deviceId)
+            .setParameter("f_device_group_id", deviceGroupId)
+            .getSingleResult();
+
+        return new Date[] { (Date) row[0], (Date) row[1] };
+    }
+
     @Override
     public Measurement addMeasurement(Measurement measurement) throws JsonProcessingException {
 
@@ -53,11 +264,44 @@ public class MeasurementRepositoryImpl implements MeasurementRepository {
                 .setParameter("p_content", contentString)
                 .setParameter("p_time", measurement.getTime());
 
-        return (Measurement) addMeasurementQuery.getResultList().get(0);
+        // Procedure returns exactly one row built from inserted values
+        return (Measurement) addMeasurementQuery.getSingleResult();
+    }
+
+    @Override
+    public Integer addMeasurements(Collection<Measurement> measurements) throws JsonProcessingException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for(Measurement measurement : measurements) {
+            // Prevent inserting "null" text into CONTENT caused by json-string conversion
+            if(null == measurement.getContent()) {
+                throw new DataIntegrityViolationException("measurement.content cannot be null");
+            }
+
+            Map<String, Object> row = new HashMap<>();
+            row.put("deviceId", measurement.getDeviceId());
+            row.put("content", measurement.getContent());
+            row.put("time", measurement.getTime() == null ? null : timeFormat.format(measurement.getTime()));
+            rows.add(row);
+        }
+
+        // Whole batch is passed as single JSON array and inserted with one INSERT ... SELECT
+        StoredProcedureQuery addMeasurementsQuery =
+            entityManager.createNamedStoredProcedureQuery("add_measurements")
+                .setParameter("p_measurements", objectMapper.writeValueAsString(rows));
+
+        return ((Number) addMeasurementsQuery.getSingleResult()).intValue();
     }
 
     @Override
     public Boolean deleteMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+        // Dropping partitions commits implicitly, so inside transaction all rows are deleted one by one
+        if(deviceId == null && exactTime == null && endTime != null
+            && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            dropMeasurementPartitions(startTime, endTime);
+        }
+
         StoredProcedureQuery deleteMeasurementsQuery =
             entityManager.createNamedStoredProcedureQuery("delete_measurements")
                 .setParameter("f_device_id", deviceId)
@@ -67,5 +311,89 @@ public class MeasurementRepositoryImpl implements MeasurementRepository {
 
         return BigInteger.ONE.equals(deleteMeasurementsQuery.getSingleResult());
     }
-}
 
+    @Override
+    public Integer deleteMeasurementsChunk(Integer deviceId, Date exactTime, Date startTime, Date endTime, Integer limit) {
+        StoredProcedureQuery deleteMeasurementsChunkQuery =
+            entityManager.createNamedStoredProcedureQuery("delete_measurements_chunk")
+                .setParameter("f_device_id", deviceId)
+                .setParameter("f_exact_time", exactTime)
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime)
+                .setParameter("p_limit", limit);
+
+        return ((Number) deleteMeasurementsChunkQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer deleteDeviceGroupMeasurements(Integer deviceGroupId, Date exactTime, Date startTime, Date endTime,
+                                                 Integer limit) {
+        StoredProcedureQuery deleteDeviceGroupMeasurementsQuery =
+            entityManager.createNamedStoredProcedureQuery("delete_device_group_measurements")
+                .setParameter("f_device_group_id", deviceGroupId)
+                .setParameter("f_exact_time", exactTime)
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime)
+                .setParameter("p_limit", limit);
+
+        return ((Number) deleteDeviceGroupMeasurementsQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer purgeMeasurements(Integer deviceId, Date before, Integer limit) {
+        StoredProcedureQuery purgeMeasurementsQuery =
+            entityManager.createNamedStoredProcedureQuery("purge_measurements")
+                .setParameter("f_device_id", deviceId)
+                .setParameter("f_before", before)
+                .setParameter("p_limit", limit);
+
+        return ((Number) purgeMeasurementsQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer addMeasurementPartitions(Integer monthsAhead) {
+        StoredProcedureQuery addMeasurementPartitionsQuery =
+            entityManager.createNamedStoredProcedureQuery("add_measurement_partitions")
+                .setParameter("p_months_ahead", monthsAhead);
+
+        return ((Number) addMeasurementPartitionsQuery.getSingleResult()).intValue();
+    }
+
+    @Override
+    public Integer dropMeasurementPartitions(Date startTime, Date endTime) {
+        StoredProcedureQuery dropMeasurementPartitionsQuery =
+            entityManager.createNamedStoredProcedureQuery("drop_measurement_partitions")
+                .setParameter("f_start_time", startTime)
+                .setParameter("f_end_time", endTime);
+
+        return ((Number) dropMeasurementPartitionsQuery.getSingleResult()).intValue();
+    }
+
+    private String toJson(List<ContentFilter> contentFilters) {
+        try {
+            return contentFilters == null ? null : objectMapper.writeValueAsString(contentFilters);
+        } catch(JsonProcessingException e) {
+            throw new IllegalArgumentException("Content filters cannot be converted to JSON", e);
+        }
+    }
+
+    private static Double toDouble(Object value) {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+
+    private Measurement mapToMeasurement(ResultSet resultSet) throws SQLException {
+        Measurement measurement = new Measurement();
+        measurement.setId(resultSet.getInt("id"));
+        measurement.setDeviceId(resultSet.getInt("device_id"));
+        measurement.setTime(resultSet.getTimestamp("time"));
+
+        String content = resultSet.getString("content");
+        try {
+            measurement.setContent(content == null ? null : objectMapper.readValue(content, HashMap.class));
+        } catch(IOException e) {
+            throw new SQLException("measurement.content is not valid JSON", e);
+        }
+
+        return measurement;
+    }
+}
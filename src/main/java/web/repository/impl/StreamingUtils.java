@@ -0,0 +1,145 @@
+package web.repository.impl;
+
+import web.domain.spatial.GeoArea;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Helper utilities for reading procedure results row by row
+ */
+class StreamingUtils {
+
+    // MySQL Connector/J streams rows one at a time instead of reading whole result set into memory
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private StreamingUtils() {
+        // Private constructor for static
+    }
+
+    /**
+     * Prepare forward-only, read-only call of given procedure with streamed result set
+     *
+     * @param connection
+     *      Connection used for the call
+     * @param procedureName
+     *      Name of the procedure
+     * @param parameterCount
+     *      Count of procedure's parameters
+     * @return
+     *      Prepared call
+     * @throws SQLException
+     *      Exception thrown when call cannot be prepared
+     */
+    static CallableStatement prepareStreamingCall(Connection connection, String procedureName, int parameterCount)
+        throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(parameterCount, "?"));
+
+        CallableStatement statement = connection.prepareCall(
+            String.format("{call %s(%s)}", procedureName, placeholders),
+            ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(STREAMING_FETCH_SIZE);
+
+        return statement;
+    }
+
+    /**
+     * Set filters of get_measurements and get_locations procedures, and their device group variants. Cursor and limit
+     * are not used when streaming.
+     *
+     * @param statement
+     *      Prepared call of the procedure
+     * @param deviceId
+     *      Device ID used as filter, or device group ID for device group variants
+     * @param exactTime
+     *      Time used as filter
+     * @param startTime
+     *      Start time used as filter
+     * @param endTime
+     *      End time used as filter
+     * @param descending
+     *      Order rows by time descending
+     * @throws SQLException
+     *      Exception thrown when parameters cannot be set
+     */
+    static void setTimeSeriesParameters(CallableStatement statement, Integer deviceId, Date exactTime, Date startTime,
+                                        Date endTime, Boolean descending) throws SQLException {
+        statement.setObject(1, deviceId, Types.INTEGER);
+        statement.setTimestamp(2, toTimestamp(exactTime));
+        statement.setTimestamp(3, toTimestamp(startTime));
+        statement.setTimestamp(4, toTimestamp(endTime));
+        statement.setNull(5, Types.TIMESTAMP);
+        statement.setNull(6, Types.INTEGER);
+        statement.setBoolean(7, Boolean.TRUE.equals(descending));
+        statement.setNull(8, Types.INTEGER);
+    }
+
+    /**
+     * Set area filters of get_locations and get_device_group_locations procedures, which follow the parameters set by
+     * {@link #setTimeSeriesParameters}
+     *
+     * @param statement
+     *      Prepared call of the procedure
+     * @param area
+     *      Area used as filter. Ignored when null.
+     * @throws SQLException
+     *      Exception thrown when parameters cannot be set
+     */
+    static void setAreaParameters(CallableStatement statement, GeoArea area) throws SQLException {
+        statement.setObject(9, area == null ? null : area.getMinLatitude(), Types.DOUBLE);
+        statement.setObject(10, area == null ? null : area.getMinLongitude(), Types.DOUBLE);
+        statement.setObject(11, area == null ? null : area.getMaxLatitude(), Types.DOUBLE);
+        statement.setObject(12, area == null ? null : area.getMaxLongitude(), Types.DOUBLE);
+        statement.setObject(13, area == null ? null : area.getGeohashPrefixes(), Types.VARCHAR);
+        statement.setObject(14, area == null ? null : area.getNearLatitude(), Types.DOUBLE);
+        statement.setObject(15, area == null ? null : area.getNearLongitude(), Types.DOUBLE);
+        statement.setObject(16, area == null ? null : area.getRadius(), Types.DOUBLE);
+    }
+
+    /**
+     * Execute prepared call and pass each row to consumer. Closing streamed result set reads its remaining rows, so
+     * query is cancelled when consumer fails, e.g. client has disconnected or scan has been cancelled.
+     *
+     * @param statement
+     *      Prepared call
+     * @param rowMapper
+     *      Mapper of the current row
+     * @param consumer
+     *      Consumer of rows
+     * @throws SQLException
+     *      Exception thrown when query fails
+     */
+    static <T> void streamRows(CallableStatement statement, RowMapper<T> rowMapper, Consumer<T> consumer)
+        throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            try {
+                while(resultSet.next()) {
+                    consumer.accept(rowMapper.map(resultSet));
+                }
+            } catch(RuntimeException e) {
+                statement.cancel();
+                throw e;
+            }
+        }
+    }
+
+    private static Timestamp toTimestamp(Date time) {
+        return time == null ? null : new Timestamp(time.getTime());
+    }
+
+    /**
+     * Mapper of single row of result set
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+}
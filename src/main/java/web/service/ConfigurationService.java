@@ -13,10 +13,12 @@ public interface ConfigurationService {
      *      Configuration ID used as filter
      * @param name
      *      Configuration name used as filter
+     * @param ifNoneMatch
+     *      ETag of client's copy. Not modified is returned when configurations have not changed.
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getConfigurations(Integer id, String name);
+    ResponseWrapper getConfigurations(Integer id, String name, String ifNoneMatch);
 
     /**
      * Add configuration to the database
@@ -5,6 +5,7 @@ import web.domain.entity.DeviceGroup;
 import web.domain.response.ResponseWrapper;
 
 import java.util.Date;
+import java.util.List;
 
 public interface DeviceGroupService {
 
@@ -15,10 +16,12 @@ public interface DeviceGroupService {
      *      Device group ID used as filter
      * @param name
      *      Device group name used as filter
+     * @param ifNoneMatch
+     *      ETag of client's copy. Not modified is returned when device groups have not changed.
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getDeviceGroups(Integer id, String name);
+    ResponseWrapper getDeviceGroups(Integer id, String name, String ifNoneMatch);
 
     /**
      * Add device group to the database
@@ -84,7 +87,7 @@ public interface DeviceGroupService {
     ResponseWrapper addDeviceToGroup(Integer id, Device device);
 
     /**
-     * Get group's measurements
+     * Get group's measurements ordered by time. Measurements of all devices in the group are read with single query.
      *
      * @param id
      *      Device group ID used as filter
@@ -94,10 +97,41 @@ public interface DeviceGroupService {
      *      Start time used as filter. Search measurements which occurred after this time.
      * @param endTime
      *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param limit
+     *      Maximum count of measurements returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order of measurements by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime);
+    ResponseWrapper getGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime, List<String> content,
+                                          Integer limit, String order, String cursor);
+
+    /**
+     * Stream group's measurements matching given parameters. Measurements of all devices in the group are read from
+     * single database cursor and written to response one by one. Pagination is not applied.
+     *
+     * @param id
+     *      Device group ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param order
+     *      Order of measurements by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    ResponseWrapper streamGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime,
+                                             List<String> content, String order);
 
     /**
      * Delete group's measurements
@@ -116,7 +150,8 @@ public interface DeviceGroupService {
     ResponseWrapper deleteGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime);
 
     /**
-     * Get group's location updates
+     * Get group's location updates ordered by time. Location updates of all devices in the group are read with single
+     * query.
      *
      * @param id
      *      Device group ID used as filter
@@ -126,10 +161,56 @@ public interface DeviceGroupService {
      *      Start time used as filter. Search location updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param simplify
+     *      Tolerance in meters. Location updates closer than tolerance to simplified trajectory are left out.
+     * @param maxPoints
+     *      Maximum count of location updates of each device. Least significant points are left out. Server side
+     *      maximum page size is used when not defined or larger, and total count of simplified location updates must
+     *      not exceed it.
+     * @param limit
+     *      Maximum count of location updates returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order of location updates by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime);
+    ResponseWrapper getGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                       String near, Double radius, Double simplify, Integer maxPoints, Integer limit,
+                                       String order, String cursor);
+
+    /**
+     * Stream group's location updates matching given parameters. Location updates of all devices in the group are read
+     * from single database cursor and written to response one by one. Pagination is not applied.
+     *
+     * @param id
+     *      Device group ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order of location updates by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    ResponseWrapper streamGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                          String near, Double radius, String order);
 
     /**
      * Delete group's location updates
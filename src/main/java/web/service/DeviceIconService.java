@@ -15,10 +15,12 @@ public interface DeviceIconService {
      *      Device icon ID used as filter
      * @param name
      *      Device icon name used as filter
+     * @param ifNoneMatch
+     *      ETag of client's copy. Not modified is returned when device icons have not changed.
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getDeviceIcons(Integer id, String name);
+    ResponseWrapper getDeviceIcons(Integer id, String name, String ifNoneMatch);
 
     /**
      * Get device icon as {@link Resource}
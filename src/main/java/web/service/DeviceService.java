@@ -5,6 +5,8 @@ import web.domain.entity.*;
 import web.domain.response.ResponseWrapper;
 
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 
 public interface DeviceService {
 
@@ -29,6 +31,16 @@ public interface DeviceService {
     ResponseWrapper getDevices(Integer id, String name, Integer deviceTypeId, Integer deviceGroupId,
                                Integer configurationId, String authenticationKey);
 
+    /**
+     * Get latest measurement and location of each device. Latest values are answered from memory when known.
+     *
+     * @param deviceGroupId
+     *      Device group ID used as filter. All devices are included when null.
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper getLatestValues(Integer deviceGroupId);
+
     /**
      * Add device to the database
      *
@@ -70,6 +82,17 @@ public interface DeviceService {
      */
     ResponseWrapper deleteDevice(Integer id, String name, String authenticationKey);
 
+    /**
+     * Delete device in background job. Job deletes device's measurements and location updates in small chunks before
+     * deleting the device itself.
+     *
+     * @param id
+     *      Device ID
+     * @return
+     *      ResponseWrapper containing started job or errors
+     */
+    ResponseWrapper deleteDeviceAsync(Integer id);
+
     /**
      * Get device's group
      *
@@ -247,10 +270,72 @@ public interface DeviceService {
      *      Start time used as filter. Search measurement updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search measurement updates which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param limit
+     *      Maximum count of measurements returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order of measurements by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper getDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime, List<String> content,
+                                           Integer limit, String order, String cursor);
+
+    /**
+     * Stream device's measurements matching given parameters. Rows are read from database cursor and written to response one by one,
+     * so size of result does not affect memory usage. Pagination is not applied.
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurement updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurement updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurement updates which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param order
+     *      Order of measurement updates by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    ResponseWrapper streamDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime,
+                                              List<String> content, String order);
+
+    /**
+     * Aggregate numeric field of device's measurement content into time buckets
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param startTime
+     *      Start time used as filter. Aggregate measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Aggregate measurements which occurred before this time.
+     * @param field
+     *      Numeric field of measurement content. Nested fields are separated by dots.
+     * @param bucket
+     *      Length of time bucket, number followed by unit s, m, h or d, e.g. 5m
+     * @param functions
+     *      Comma separated aggregate functions: avg, min, max, sum, count. Average when null.
+     * @return
+     *      ResponseWrapper containing series of buckets or errors
+     */
+    ResponseWrapper getDevicesMeasurementAggregates(Integer id, Date startTime, Date endTime, String field,
+                                                    String bucket, String functions);
+
+    /**
+     * Get device's latest measurement
+     *
+     * @param id
+     *      Device ID
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime);
+    ResponseWrapper getDevicesLatestMeasurement(Integer id);
 
     /**
      * Add measurement for device
@@ -264,6 +349,18 @@ public interface DeviceService {
      */
     ResponseWrapper addMeasurementForDevice(Integer id, Measurement measurement);
 
+    /**
+     * Add batch of measurements for device
+     *
+     * @param id
+     *      Device ID set for every measurement
+     * @param measurements
+     *      Measurements to add for given device
+     * @return
+     *      ResponseWrapper containing status of each measurement or errors
+     */
+    ResponseWrapper addMeasurementsForDevice(Integer id, Iterator<Measurement> measurements);
+
     /**
      * Delete device's measurements
      *
@@ -280,6 +377,22 @@ public interface DeviceService {
      */
     ResponseWrapper deleteDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime);
 
+    /**
+     * Delete device's measurements in background job
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Delete measurement updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Delete measurement updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Delete measurement updates which occurred before this time.
+     * @return
+     *      ResponseWrapper containing started job or errors
+     */
+    ResponseWrapper deleteDevicesMeasurementsAsync(Integer id, Date exactTime, Date startTime, Date endTime);
+
     /**
      * Get device's location updates
      *
@@ -291,10 +404,56 @@ public interface DeviceService {
      *      Start time used as filter. Search location updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param simplify
+     *      Tolerance in meters. Location updates closer than tolerance to simplified trajectory are left out.
+     * @param maxPoints
+     *      Maximum count of location updates of each device. Least significant points are left out. Server side
+     *      maximum page size is used when not defined or larger, and total count of simplified location updates must
+     *      not exceed it.
+     * @param limit
+     *      Maximum count of location updates returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order of location updates by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime);
+    ResponseWrapper getDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                        String near, Double radius, Double simplify, Integer maxPoints,
+                                        Integer limit, String order, String cursor);
+
+    /**
+     * Stream device's location updates matching given parameters. Rows are read from database cursor and written to response one by one,
+     * so size of result does not affect memory usage. Pagination is not applied.
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order of location updates by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    ResponseWrapper streamDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                           String near, Double radius, String order);
 
     /**
      * Add location update for device
@@ -308,6 +467,52 @@ public interface DeviceService {
      */
     ResponseWrapper addLocationForDevice(Integer id, Location location);
 
+    /**
+     * Get device's latest location
+     *
+     * @param id
+     *      Device ID
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper getDevicesLatestLocation(Integer id);
+
+    /**
+     * Add measurement for device identified by authentication key
+     *
+     * @param authenticationKey
+     *      Device's authentication key
+     * @param measurement
+     *      Measurement to add for given device
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper addMeasurementForDeviceKey(String authenticationKey, Measurement measurement);
+
+    /**
+     * Add batch of measurements for device identified by authentication key
+     *
+     * @param authenticationKey
+     *      Device's authentication key
+     * @param measurements
+     *      Measurements to add for given device
+     * @return
+     *      ResponseWrapper containing status of each measurement or errors
+     */
+    ResponseWrapper addMeasurementsForDeviceKey(String authenticationKey, Iterator<Measurement> measurements);
+
+    /**
+     * Add location update for device identified by authentication key
+     *
+     * @param authenticationKey
+     *      Device's authentication key
+     * @param location
+     *      Location to add for given device
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper addLocationForDeviceKey(String authenticationKey, Location location);
+
     /**
      * Delete device's locations updates
      *
@@ -325,7 +530,24 @@ public interface DeviceService {
     ResponseWrapper deleteDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime);
 
     /**
-     * Validate a device matching given parameters exists
+     * Delete device's locations in background job
+     *
+     * @param id
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Delete location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Delete location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Delete location updates which occurred before this time.
+     * @return
+     *      ResponseWrapper containing started job or errors
+     */
+    ResponseWrapper deleteDevicesLocationsAsync(Integer id, Date exactTime, Date startTime, Date endTime);
+
+    /**
+     * Validate a device matching given parameters exists. Found devices are cached and checks by ID, optionally with
+     * authentication key, are answered from cache when possible.
      *
      * @param id
      *      Device ID used as filter
@@ -16,10 +16,12 @@ public interface DeviceTypeService {
      *      Device type name used as filter
      * @param deviceIconId
      *      Device icon ID used as filter
+     * @param ifNoneMatch
+     *      ETag of client's copy. Not modified is returned when device types have not changed.
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getDeviceTypes(Integer id, String name, Integer deviceIconId);
+    ResponseWrapper getDeviceTypes(Integer id, String name, Integer deviceIconId, String ifNoneMatch);
 
     /**
      * Add device type to the database
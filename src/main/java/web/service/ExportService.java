@@ -0,0 +1,60 @@
+package web.service;
+
+import web.domain.response.ResponseWrapper;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ExportService {
+    /**
+     * Export measurements matching given parameters. Rows are read from database cursor and written to response one by
+     * one, so size of the export does not affect memory usage. Parameters are optional and ignored when null.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param deviceGroupId
+     *      Device group ID used as filter. Cannot be used together with device ID.
+     * @param exactTime
+     *      Time used as filter. Search measurements which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurements which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param order
+     *      Order of measurements by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed export or errors
+     */
+    ResponseWrapper exportMeasurements(Integer deviceId, Integer deviceGroupId, Date exactTime, Date startTime,
+                                       Date endTime, List<String> content, String order);
+
+    /**
+     * Export location updates matching given parameters. Rows are read from database cursor and written to response
+     * one by one, so size of the export does not affect memory usage. Parameters are optional and ignored when null.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param deviceGroupId
+     *      Device group ID used as filter. Cannot be used together with device ID.
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order of location updates by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed export or errors
+     */
+    ResponseWrapper exportLocations(Integer deviceId, Integer deviceGroupId, Date exactTime, Date startTime,
+                                    Date endTime, String bbox, String near, Double radius, String order);
+}
@@ -0,0 +1,16 @@
+package web.service;
+
+import web.domain.response.ResponseWrapper;
+
+public interface JobService {
+
+    /**
+     * Get status and progress of background job
+     *
+     * @param id
+     *      Job ID
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper getJob(String id);
+}
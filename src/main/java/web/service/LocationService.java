@@ -8,7 +8,8 @@ import java.util.Date;
 public interface LocationService {
 
     /**
-     * Get locations matching given parameters.
+     * Get locations matching given parameters. Simplified location histories are read in single pass and returned
+     * without pagination.
      *
      * @param deviceId
      *      Device ID used as filter
@@ -18,10 +19,81 @@ public interface LocationService {
      *      Start time used as filter. Search location updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param simplify
+     *      Tolerance in meters. Location updates closer than tolerance to simplified trajectory are left out.
+     * @param maxPoints
+     *      Maximum count of location updates of each device. Least significant points are left out. Server side
+     *      maximum page size is used when not defined or larger, and total count of simplified location updates must
+     *      not exceed it.
+     * @param limit
+     *      Maximum count of location updates returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order of location updates by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime);
+    ResponseWrapper getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, String bbox,
+                                 String near, Double radius, Double simplify, Integer maxPoints, Integer limit,
+                                 String order, String cursor);
+
+    /**
+     * Stream locations matching given parameters. Rows are read from database cursor and written to response one by one,
+     * so size of result does not affect memory usage. Pagination is not applied.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search location updates which occurred before this time.
+     * @param bbox
+     *      Bounding box used as filter, minLat,minLon,maxLat,maxLon
+     * @param near
+     *      Point used as filter, lat,lon. Search location updates within radius of the point.
+     * @param radius
+     *      Radius in meters used with near
+     * @param order
+     *      Order of location updates by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    ResponseWrapper streamLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, String bbox,
+                                    String near, Double radius, String order);
+
+    /**
+     * Get latest location of device. Answered from memory when location of device is already known.
+     *
+     * @param deviceId
+     *      Device ID
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper getLatestLocation(Integer deviceId);
+
+    /**
+     * Get latest location of each device matching given filters. Answered from snapshot kept in memory, so size of
+     * location history does not affect the response.
+     *
+     * @param deviceGroupId
+     *      Device group ID used as filter
+     * @param deviceTypeId
+     *      Device type ID used as filter
+     * @param ifNoneMatch
+     *      ETag of client's copy. Not modified is returned when snapshot has not changed.
+     * @return
+     *      ResponseWrapper containing payload and ETag or errors
+     */
+    ResponseWrapper getCurrentLocations(Integer deviceGroupId, Integer deviceTypeId, String ifNoneMatch);
 
     /**
      * Add location to the database
@@ -48,4 +120,21 @@ public interface LocationService {
      *      ResponseWrapper containing payload or errors
      */
     ResponseWrapper deleteLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime);
+
+    /**
+     * Delete locations matching given parameters in background job. Job deletes in small chunks, each committed
+     * separately, so large deletes do not block writers.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Delete location updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Delete location updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Delete location updates which occurred before this time.
+     * @return
+     *      ResponseWrapper containing started job or errors
+     */
+    ResponseWrapper deleteLocationsAsync(Integer deviceId, Date exactTime, Date startTime, Date endTime);
 }
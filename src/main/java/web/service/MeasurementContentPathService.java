@@ -0,0 +1,37 @@
+package web.service;
+
+import web.domain.entity.MeasurementContentPath;
+import web.domain.response.ResponseWrapper;
+
+public interface MeasurementContentPathService {
+    /**
+     * Get registered measurement content paths
+     *
+     * @param name
+     *      Content path name used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper getContentPaths(String name);
+
+    /**
+     * Register measurement content path on background. Filters of registered paths use indexed column instead of
+     * reading content of each measurement once job has completed.
+     *
+     * @param contentPath
+     *      Content path to add
+     * @return
+     *      ResponseWrapper containing job or errors
+     */
+    ResponseWrapper addContentPath(MeasurementContentPath contentPath);
+
+    /**
+     * Delete registered measurement content path. Filters of the path keep working without index.
+     *
+     * @param name
+     *      Content path name used as filter
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper deleteContentPath(String name);
+}
@@ -4,6 +4,8 @@ import web.domain.entity.Measurement;
 import web.domain.response.ResponseWrapper;
 
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 
 public interface MeasurementService {
     /**
@@ -17,10 +19,73 @@ public interface MeasurementService {
      *      Start time used as filter. Search measurement updates which occurred after this time.
      * @param endTime
      *      End time used as filter. Search measurement updates which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param limit
+     *      Maximum count of measurements returned. Server side maximum is used when not defined.
+     * @param order
+     *      Order of measurements by time, asc or desc
+     * @param cursor
+     *      Cursor of next page from previous response's next link
      * @return
      *      ResponseWrapper containing payload or errors
      */
-    ResponseWrapper getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime);
+    ResponseWrapper getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime, List<String> content,
+                                    Integer limit, String order, String cursor);
+
+    /**
+     * Stream measurements matching given parameters. Rows are read from database cursor and written to response one by one,
+     * so size of result does not affect memory usage. Pagination is not applied.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Search measurement updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Search measurement updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Search measurement updates which occurred before this time.
+     * @param content
+     *      Filters of measurement content, e.g. temperature>40. Search measurements whose content matches all filters.
+     * @param order
+     *      Order of measurements by time, asc or desc
+     * @return
+     *      ResponseWrapper containing streamed payload or errors
+     */
+    ResponseWrapper streamMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime, List<String> content,
+                                       String order);
+
+    /**
+     * Aggregate numeric field of measurement content into time buckets, e.g. 5 minute averages of temperature.
+     * Aggregation is done by the database and only aggregated values are returned.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param startTime
+     *      Start time used as filter. Aggregate measurements which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Aggregate measurements which occurred before this time.
+     * @param field
+     *      Numeric field of measurement content. Nested fields are separated by dots.
+     * @param bucket
+     *      Length of time bucket, number followed by unit s, m, h or d, e.g. 5m
+     * @param functions
+     *      Comma separated aggregate functions: avg, min, max, sum, count. Average when null.
+     * @return
+     *      ResponseWrapper containing series of buckets or errors
+     */
+    ResponseWrapper getMeasurementAggregates(Integer deviceId, Date startTime, Date endTime, String field,
+                                             String bucket, String functions);
+
+    /**
+     * Get latest measurement of device. Answered from memory when measurement of device is already known.
+     *
+     * @param deviceId
+     *      Device ID
+     * @return
+     *      ResponseWrapper containing payload or errors
+     */
+    ResponseWrapper getLatestMeasurement(Integer deviceId);
 
     /**
      * Add measurement to the database
@@ -32,6 +97,17 @@ public interface MeasurementService {
      */
     ResponseWrapper addMeasurement(Measurement measurement);
 
+    /**
+     * Add batch of measurements to the database. Items are consumed and inserted in chunks so that streamed request
+     * bodies are not materialized at once. Each chunk is committed separately and failed items are reported by status.
+     *
+     * @param measurements
+     *      Measurements to add
+     * @return
+     *      ResponseWrapper containing status of each item or errors
+     */
+    ResponseWrapper addMeasurements(Iterator<Measurement> measurements);
+
     /**
      * Delete measurements matching given parameters
      *
@@ -48,4 +124,21 @@ public interface MeasurementService {
      */
     ResponseWrapper deleteMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime);
 
+    /**
+     * Delete measurements matching given parameters in background job. Job deletes in small chunks, each committed
+     * separately, so large deletes do not block writers.
+     *
+     * @param deviceId
+     *      Device ID used as filter
+     * @param exactTime
+     *      Time used as filter. Delete measurement updates which match timestamp
+     * @param startTime
+     *      Start time used as filter. Delete measurement updates which occurred after this time.
+     * @param endTime
+     *      End time used as filter. Delete measurement updates which occurred before this time.
+     * @return
+     *      ResponseWrapper containing started job or errors
+     */
+    ResponseWrapper deleteMeasurementsAsync(Integer deviceId, Date exactTime, Date startTime, Date endTime);
+
 }
@@ -0,0 +1,287 @@
+package web.service.cache;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import web.domain.entity.Device;
+import web.domain.entity.Location;
+import web.repository.DeviceRepository;
+import web.repository.LocationRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Snapshot of each device's latest location for map views. Locations are kept in primitive arrays indexed by slot of
+ * the device, so that snapshot of large fleet stays small and is filtered without creating objects per device.
+ * Coordinates are stored as thousandths of a degree, which is the precision of location table.
+ * <p>
+ * Snapshot is updated on every inserted location. Changes to devices, their groups or types and deletes of locations
+ * mark snapshot stale and it is rebuilt from the database with two queries on next read. Rebuild runs outside the lock
+ * used by inserts. Locations inserted during rebuild are collected and replayed on the new snapshot, and changes made
+ * during rebuild leave the new snapshot stale. Each change increments version of the snapshot, which is used as ETag of
+ * current locations.
+ */
+@Component
+@ManagedResource(objectName = "web:type=CurrentLocations", description = "Latest location of each device")
+public class CurrentLocations {
+    private static final int COORDINATE_SCALE = 3;
+    private static final int NO_ID = 0;
+
+    private final DeviceRepository deviceRepository;
+    private final LocationRepository locationRepository;
+    // Distinguishes versions of different server starts
+    private final long generation = System.currentTimeMillis();
+    // Allows one rebuild at a time. Readers wait here, inserts do not.
+    private final Object rebuildLock = new Object();
+
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private int[] deviceIds = new int[0];
+    private int[] deviceGroupIds = new int[0];
+    private int[] deviceTypeIds = new int[0];
+    private int[] latitudes = new int[0];
+    private int[] longitudes = new int[0];
+    // Time of 0 marks device without locations
+    private long[] times = new long[0];
+
+    private boolean stale = true;
+    private long invalidationCount;
+    // Latest location of each device inserted during rebuild, null when rebuild is not running
+    private Map<Integer, Location> insertedDuringRebuild;
+    private long version;
+    private long rebuildCount;
+
+    CurrentLocations(DeviceRepository deviceRepository, LocationRepository locationRepository) {
+        this.deviceRepository = deviceRepository;
+        this.locationRepository = locationRepository;
+    }
+
+    /**
+     * Get ETag of current snapshot. Snapshot is rebuilt first when stale.
+     *
+     * @return
+     *      Weak ETag which changes whenever any location changes
+     */
+    public String getETag() {
+        rebuildIfStale();
+
+        synchronized(this) {
+            return formatETag();
+        }
+    }
+
+    /**
+     * Get latest location of each device matching given filters
+     *
+     * @param deviceGroupId
+     *      Device group ID used as filter. Ignored when null.
+     * @param deviceTypeId
+     *      Device type ID used as filter. Ignored when null.
+     * @return
+     *      Locations ordered by device ID and ETag of the snapshot they were read from
+     */
+    public Snapshot get(Integer deviceGroupId, Integer deviceTypeId) {
+        rebuildIfStale();
+
+        synchronized(this) {
+            List<Location> locations = new ArrayList<>();
+            for(int slot = 0; slot < deviceIds.length; slot++) {
+                if(times[slot] != 0
+                    && (deviceGroupId == null || deviceGroupIds[slot] == deviceGroupId)
+                    && (deviceTypeId == null || deviceTypeIds[slot] == deviceTypeId)) {
+                    locations.add(toLocation(slot));
+                }
+            }
+
+            return new Snapshot(locations, formatETag());
+        }
+    }
+
+    /**
+     * Update snapshot with inserted locations. Older locations are ignored.
+     *
+     * @param insertedLocations
+     *      Inserted locations. Locations without time are treated as inserted now.
+     */
+    public void addLocations(Collection<Location> insertedLocations) {
+        insertedLocations.forEach(this::addLocation);
+    }
+
+    /**
+     * {@link #addLocations(Collection)}
+     */
+    public synchronized void addLocation(Location location) {
+        if(location.getDeviceId() == null) {
+            return;
+        }
+
+        long time = location.getTime() == null ? System.currentTimeMillis() : location.getTime().getTime();
+
+        if(insertedDuringRebuild != null) {
+            Location previous = insertedDuringRebuild.get(location.getDeviceId());
+            if(previous == null || time >= previous.getTime().getTime()) {
+                Location inserted = new Location();
+                inserted.setDeviceId(location.getDeviceId());
+                inserted.setLatitude(location.getLatitude());
+                inserted.setLongitude(location.getLongitude());
+                inserted.setTime(new Date(time));
+                insertedDuringRebuild.put(location.getDeviceId(), inserted);
+            }
+        }
+
+        if(!stale) {
+            updateSlot(location, time);
+        }
+    }
+
+    /**
+     * Mark snapshot stale after devices, their groups or types are changed or locations are deleted
+     */
+    @ManagedOperation(description = "Rebuild snapshot on next read")
+    public synchronized void invalidate() {
+        stale = true;
+        invalidationCount++;
+    }
+
+    @ManagedAttribute(description = "Count of devices in snapshot")
+    public synchronized int getDeviceCount() {
+        return deviceIds.length;
+    }
+
+    @ManagedAttribute(description = "Count of snapshot rebuilds")
+    public synchronized long getRebuildCount() {
+        return rebuildCount;
+    }
+
+    /**
+     * Rebuild without holding the lock used by inserts. Invalidation count is read before the queries, so that changes
+     * made during rebuild are detected, and locations inserted during rebuild are replayed on the new arrays before they
+     * are swapped in.
+     */
+    private void rebuildIfStale() {
+        synchronized(rebuildLock) {
+            long startedInvalidationCount;
+
+            synchronized(this) {
+                if(!stale) {
+                    return;
+                }
+
+                startedInvalidationCount = invalidationCount;
+                insertedDuringRebuild = new HashMap<>();
+            }
+
+            try {
+                Collection<Device> devices = deviceRepository.getDevices(null, null, null, null, null, null);
+                List<Location> locations = locationRepository.getLatestLocations(null, null);
+                int count = devices.size();
+
+                Map<Integer, Integer> newSlots = new HashMap<>();
+                int[] newDeviceIds = new int[count];
+                int[] newDeviceGroupIds = new int[count];
+                int[] newDeviceTypeIds = new int[count];
+                int[] newLatitudes = new int[count];
+                int[] newLongitudes = new int[count];
+                long[] newTimes = new long[count];
+
+                List<Device> sortedDevices = new ArrayList<>(devices);
+                sortedDevices.sort(Comparator.comparing(Device::getId));
+
+                for(int slot = 0; slot < count; slot++) {
+                    Device device = sortedDevices.get(slot);
+                    newSlots.put(device.getId(), slot);
+                    newDeviceIds[slot] = device.getId();
+                    newDeviceGroupIds[slot] = device.getDeviceGroupId() == null ? NO_ID : device.getDeviceGroupId();
+                    newDeviceTypeIds[slot] = device.getDeviceTypeId() == null ? NO_ID : device.getDeviceTypeId();
+                }
+
+                for(Location location : locations) {
+                    Integer slot = newSlots.get(location.getDeviceId());
+                    if(slot != null) {
+                        newLatitudes[slot] = toThousandths(location.getLatitude());
+                        newLongitudes[slot] = toThousandths(location.getLongitude());
+                        newTimes[slot] = location.getTime().getTime();
+                    }
+                }
+
+                synchronized(this) {
+                    slots.clear();
+                    slots.putAll(newSlots);
+                    deviceIds = newDeviceIds;
+                    deviceGroupIds = newDeviceGroupIds;
+                    deviceTypeIds = newDeviceTypeIds;
+                    latitudes = newLatitudes;
+                    longitudes = newLongitudes;
+                    times = newTimes;
+
+                    stale = invalidationCount != startedInvalidationCount;
+                    insertedDuringRebuild.values().forEach(location -> updateSlot(location, location.getTime().getTime()));
+                    version++;
+                    rebuildCount++;
+                }
+            } finally {
+                synchronized(this) {
+                    insertedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    private void updateSlot(Location location, long time) {
+        Integer slot = slots.get(location.getDeviceId());
+        if(slot == null) {
+            // Device added after snapshot was built, its group and type are loaded on rebuild
+            stale = true;
+            return;
+        }
+
+        if(time >= times[slot]) {
+            latitudes[slot] = toThousandths(location.getLatitude());
+            longitudes[slot] = toThousandths(location.getLongitude());
+            times[slot] = time;
+            version++;
+        }
+    }
+
+    private Location toLocation(int slot) {
+        Location location = new Location();
+        location.setDeviceId(deviceIds[slot]);
+        location.setLatitude(BigDecimal.valueOf(latitudes[slot], COORDINATE_SCALE));
+        location.setLongitude(BigDecimal.valueOf(longitudes[slot], COORDINATE_SCALE));
+        location.setTime(new Date(times[slot]));
+
+        return location;
+    }
+
+    private String formatETag() {
+        // Weak ETag, since compressed and uncompressed responses are equivalent. Strong ETag would prevent compression
+        return String.format("W/\"%x-%x\"", generation, version);
+    }
+
+    private static int toThousandths(BigDecimal coordinate) {
+        return coordinate.setScale(COORDINATE_SCALE, RoundingMode.HALF_UP).unscaledValue().intValue();
+    }
+
+    /**
+     * Locations read from snapshot with ETag of the snapshot
+     */
+    public static class Snapshot {
+        private final List<Location> locations;
+        private final String eTag;
+
+        Snapshot(List<Location> locations, String eTag) {
+            this.locations = locations;
+            this.eTag = eTag;
+        }
+
+        public List<Location> getLocations() {
+            return locations;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+}
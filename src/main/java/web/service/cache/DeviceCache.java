@@ -0,0 +1,152 @@
+package web.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of existing device IDs and their authentication keys. Entries expire after TTL and least recently
+ * used entry is evicted when cache is full. Only existing devices are cached, so unknown IDs always reach the database.
+ * Entries must be invalidated when devices are updated or deleted.
+ */
+@Component
+@ManagedResource(objectName = "web:type=DeviceCache", description = "Cache of existing device IDs")
+public class DeviceCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Integer, CachedDevice> devices;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    DeviceCache(@Value("${device.cache.max-size}") Integer maxSize,
+                @Value("${device.cache.ttl-seconds}") Long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+
+        // Access order keeps least recently used entry first
+        this.devices = new LinkedHashMap<Integer, CachedDevice>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedDevice> eldest) {
+                if(size() > DeviceCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Check whether device is known to exist
+     *
+     * @param id
+     *      Device ID
+     * @param authenticationKey
+     *      Authentication key which must match cached key. Ignored when null.
+     * @return
+     *      True when device is cached with matching key, false when database must be consulted
+     */
+    public synchronized boolean contains(Integer id, String authenticationKey) {
+        CachedDevice device = devices.get(id);
+
+        if(device != null && device.isExpired(System.nanoTime())) {
+            devices.remove(id);
+            evictionCount++;
+            device = null;
+        }
+
+        if(device == null || (authenticationKey != null && !authenticationKey.equals(device.authenticationKey))) {
+            missCount++;
+            return false;
+        }
+
+        hitCount++;
+        return true;
+    }
+
+    /**
+     * Cache existing device
+     *
+     * @param id
+     *      Device ID
+     * @param authenticationKey
+     *      Device's authentication key
+     */
+    public synchronized void put(Integer id, String authenticationKey) {
+        if(id != null) {
+            devices.put(id, new CachedDevice(authenticationKey, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Remove device from cache
+     *
+     * @param id
+     *      Device ID
+     */
+    public synchronized void invalidate(Integer id) {
+        if(id != null) {
+            devices.remove(id);
+        }
+    }
+
+    @ManagedOperation(description = "Remove all devices from cache")
+    public synchronized void invalidateAll() {
+        devices.clear();
+    }
+
+    @ManagedAttribute(description = "Count of cached devices")
+    public synchronized int getSize() {
+        return devices.size();
+    }
+
+    @ManagedAttribute(description = "Maximum count of cached devices")
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @ManagedAttribute(description = "Count of lookups answered from cache")
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    @ManagedAttribute(description = "Count of lookups which required database query")
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @ManagedAttribute(description = "Count of entries removed due to size limit or expiration")
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @ManagedAttribute(description = "Ratio of lookups answered from cache")
+    public synchronized double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    private static class CachedDevice {
+        private final String authenticationKey;
+        private final long expiresAt;
+
+        private CachedDevice(String authenticationKey, long expiresAt) {
+            this.authenticationKey = authenticationKey;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package web.service.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import web.domain.entity.Device;
+import web.exception.TooManyRequestsException;
+import web.repository.DeviceRepository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of device IDs by authentication key. Index is loaded when application starts and kept up to date by
+ * device service. Keys missing from the index, e.g. devices added by another instance, are looked up from database.
+ * Keys not found from database are remembered for a while, and lookups exceeding per second limit are rejected as too
+ * many requests, so that unauthenticated requests with random keys cannot cause a query each.
+ */
+@Component
+@ManagedResource(objectName = "web:type=DeviceKeyIndex", description = "Index of device IDs by authentication key")
+public class DeviceKeyIndex {
+    private static final Logger log = LoggerFactory.getLogger(DeviceKeyIndex.class);
+    // Keys are generated as MD5 by device_insert trigger. Anything else is rejected before reaching database.
+    private static final Pattern AUTHENTICATION_KEY_PATTERN = Pattern.compile("^[0-9a-f]{32}$");
+    private static final int LOOKUP_WINDOW_SECONDS = 1;
+
+    private final DeviceRepository deviceRepository;
+    private final Map<String, Integer> deviceIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> authenticationKeys = new ConcurrentHashMap<>();
+    private final AtomicLong missCount = new AtomicLong();
+    private final int maxUnknownKeys;
+    private final long unknownKeyTtlNanos;
+    private final int maxLookupsPerSecond;
+    // Expiry time of each unknown key. Insertion order equals expiry order, since TTL is the same for all keys.
+    private final LinkedHashMap<String, Long> unknownKeys = new LinkedHashMap<>();
+
+    private long lookupWindowStart = System.nanoTime();
+    private int lookupWindowCount;
+    private long rejectedLookupCount;
+
+    DeviceKeyIndex(DeviceRepository deviceRepository,
+                   @Value("${device.key-index.unknown-keys.max-size}") Integer maxUnknownKeys,
+                   @Value("${device.key-index.unknown-keys.ttl-seconds}") Long unknownKeyTtlSeconds,
+                   @Value("${device.key-index.max-lookups-per-second}") Integer maxLookupsPerSecond) {
+        this.deviceRepository = deviceRepository;
+        this.maxUnknownKeys = maxUnknownKeys;
+        this.unknownKeyTtlNanos = TimeUnit.SECONDS.toNanos(unknownKeyTtlSeconds);
+        this.maxLookupsPerSecond = maxLookupsPerSecond;
+    }
+
+    /**
+     * Load keys of all devices
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @ManagedOperation(description = "Reload keys of all devices from database")
+    public void warm() {
+        try {
+            Map<String, Integer> loadedDeviceIds = deviceRepository.getDeviceIdsByAuthenticationKey();
+            loadedDeviceIds.forEach((authenticationKey, id) -> put(id, authenticationKey));
+        } catch(Exception e) {
+            // Index is filled by lookups instead
+            log.warn("Loading device authentication keys failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * Resolve device ID of given authentication key
+     *
+     * @param authenticationKey
+     *      Device's authentication key
+     * @return
+     *      Device ID or null when no device has given key or key was recently unknown
+     * @throws TooManyRequestsException
+     *      Thrown when key must be looked up from database and lookup limit is exceeded
+     */
+    public Integer resolve(String authenticationKey) {
+        if(authenticationKey == null || !AUTHENTICATION_KEY_PATTERN.matcher(authenticationKey).matches()) {
+            return null;
+        }
+
+        Integer id = deviceIds.get(authenticationKey);
+
+        if(id == null && acquireLookup(authenticationKey)) {
+            missCount.incrementAndGet();
+            Collection<Device> devices = deviceRepository.getDevices(null, null, null, null, null, authenticationKey);
+            devices.forEach(device -> put(device.getId(), device.getAuthenticationKey()));
+            id = deviceIds.get(authenticationKey);
+
+            if(id == null) {
+                addUnknownKey(authenticationKey);
+            }
+        }
+
+        return id;
+    }
+
+    /**
+     * Add device to index
+     *
+     * @param id
+     *      Device ID
+     * @param authenticationKey
+     *      Device's authentication key
+     */
+    public void put(Integer id, String authenticationKey) {
+        if(id == null || authenticationKey == null) {
+            return;
+        }
+
+        String previousKey = authenticationKeys.put(id, authenticationKey);
+        if(previousKey != null && !previousKey.equals(authenticationKey)) {
+            deviceIds.remove(previousKey, id);
+        }
+
+        deviceIds.put(authenticationKey, id);
+
+        synchronized(unknownKeys) {
+            unknownKeys.remove(authenticationKey);
+        }
+    }
+
+    /**
+     * Remove device from index
+     *
+     * @param id
+     *      Device ID
+     */
+    public void remove(Integer id) {
+        if(id == null) {
+            return;
+        }
+
+        String authenticationKey = authenticationKeys.remove(id);
+        if(authenticationKey != null) {
+            deviceIds.remove(authenticationKey, id);
+        }
+    }
+
+    @ManagedAttribute(description = "Count of indexed devices")
+    public int getSize() {
+        return deviceIds.size();
+    }
+
+    @ManagedAttribute(description = "Count of keys looked up from database")
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of remembered unknown keys")
+    public int getUnknownKeyCount() {
+        synchronized(unknownKeys) {
+            return unknownKeys.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Count of lookups rejected, since per second limit was exceeded")
+    public long getRejectedLookupCount() {
+        synchronized(unknownKeys) {
+            return rejectedLookupCount;
+        }
+    }
+
+    /**
+     * Check whether key may be looked up from database. Recently unknown keys are not looked up again and lookups are
+     * limited per second.
+     */
+    private boolean acquireLookup(String authenticationKey) {
+        long now = System.nanoTime();
+
+        synchronized(unknownKeys) {
+            removeExpiredUnknownKeys(now);
+
+            if(unknownKeys.containsKey(authenticationKey)) {
+                return false;
+            }
+
+            if(now - lookupWindowStart >= TimeUnit.SECONDS.toNanos(LOOKUP_WINDOW_SECONDS)) {
+                lookupWindowStart = now;
+                lookupWindowCount = 0;
+            }
+
+            if(lookupWindowCount >= maxLookupsPerSecond) {
+                rejectedLookupCount++;
+                // Key may belong to valid device, so it is not reported as invalid
+                throw new TooManyRequestsException("Resolve device authentication key failed",
+                    "Too many authentication key lookups", LOOKUP_WINDOW_SECONDS);
+            }
+
+            lookupWindowCount++;
+            return true;
+        }
+    }
+
+    private void addUnknownKey(String authenticationKey) {
+        synchronized(unknownKeys) {
+            unknownKeys.remove(authenticationKey);
+            unknownKeys.put(authenticationKey, System.nanoTime() + unknownKeyTtlNanos);
+
+            if(unknownKeys.size() > maxUnknownKeys) {
+                unknownKeys.remove(unknownKeys.keySet().iterator().next());
+            }
+        }
+    }
+
+    private void removeExpiredUnknownKeys(long now) {
+        Iterator<Long> expiries = unknownKeys.values().iterator();
+
+        while(expiries.hasNext() && expiries.next() - now <= 0) {
+            expiries.remove();
+        }
+    }
+}
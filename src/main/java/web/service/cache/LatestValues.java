@@ -0,0 +1,296 @@
+package web.service.cache;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import web.domain.entity.Location;
+import web.domain.entity.Measurement;
+import web.domain.entity.TimeSeriesEntity;
+import web.repository.LocationRepository;
+import web.repository.MeasurementRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Latest measurement and location of each device. Values are updated on every committed insert and loaded from the
+ * database when device is not known yet. Devices without measurements or locations are remembered as well, so that
+ * fleet overviews do not query them again. Entries of devices must be invalidated when their rows are deleted.
+ */
+@Component
+@ManagedResource(objectName = "web:type=LatestValues", description = "Latest measurement and location of each device")
+public class LatestValues {
+
+    private final MeasurementRepository measurementRepository;
+    private final LocationRepository locationRepository;
+
+    // Empty value marks device known to have no rows
+    private final Map<Integer, Optional<Measurement>> measurements = new ConcurrentHashMap<>();
+    private final Map<Integer, Optional<Location>> locations = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    LatestValues(MeasurementRepository measurementRepository, LocationRepository locationRepository) {
+        this.measurementRepository = measurementRepository;
+        this.locationRepository = locationRepository;
+    }
+
+    /**
+     * Get latest measurement of device. Loaded from the database when not known.
+     *
+     * @param deviceId
+     *      Device ID
+     * @return
+     *      Latest measurement or null when device has no measurements
+     */
+    public Measurement getMeasurement(Integer deviceId) {
+        return getMeasurements(Collections.singleton(deviceId), null).get(deviceId);
+    }
+
+    /**
+     * Get latest location of device. Loaded from the database when not known.
+     *
+     * @param deviceId
+     *      Device ID
+     * @return
+     *      Latest location or null when device has no locations
+     */
+    public Location getLocation(Integer deviceId) {
+        return getLocations(Collections.singleton(deviceId), null).get(deviceId);
+    }
+
+    /**
+     * Get latest measurements of devices. Unknown devices are loaded from the database with single query.
+     *
+     * @param deviceIds
+     *      Device IDs
+     * @param deviceGroupId
+     *      Group of the devices. Used to load unknown devices of the whole group at once. Ignored when null.
+     * @return
+     *      Latest measurement by device ID. Devices without measurements are left out.
+     */
+    public Map<Integer, Measurement> getMeasurements(Collection<Integer> deviceIds, Integer deviceGroupId) {
+        return getLatest(measurements, deviceIds, deviceGroupId, measurementRepository::getLatestMeasurements);
+    }
+
+    /**
+     * Get latest locations of devices. Unknown devices are loaded from the database with single query.
+     *
+     * @param deviceIds
+     *      Device IDs
+     * @param deviceGroupId
+     *      Group of the devices. Used to load unknown devices of the whole group at once. Ignored when null.
+     * @return
+     *      Latest location by device ID. Devices without locations are left out.
+     */
+    public Map<Integer, Location> getLocations(Collection<Integer> deviceIds, Integer deviceGroupId) {
+        return getLatest(locations, deviceIds, deviceGroupId, locationRepository::getLatestLocations);
+    }
+
+    /**
+     * Update latest measurements with inserted measurements. Older measurements are ignored. Within transaction
+     * measurements are added once transaction commits.
+     *
+     * @param insertedMeasurements
+     *      Inserted measurements. Measurements without time are treated as inserted now.
+     */
+    public void addMeasurements(Collection<Measurement> insertedMeasurements) {
+        afterCommit(insertedMeasurements, measurement -> {
+            if(measurement.getDeviceId() != null) {
+                update(measurements, measurement.getDeviceId(), measurement.getTime() == null
+                    ? copyWithCurrentTime(measurement)
+                    : measurement);
+            }
+        });
+    }
+
+    /**
+     * {@link #addMeasurements(Collection)}
+     */
+    public void addMeasurement(Measurement measurement) {
+        addMeasurements(Collections.singletonList(measurement));
+    }
+
+    /**
+     * Update latest locations with inserted locations. Older locations are ignored. Within transaction locations are
+     * added once transaction commits.
+     *
+     * @param insertedLocations
+     *      Inserted locations. Locations without time are treated as inserted now.
+     */
+    public void addLocations(Collection<Location> insertedLocations) {
+        afterCommit(insertedLocations, location -> {
+            if(location.getDeviceId() != null) {
+                update(locations, location.getDeviceId(), location.getTime() == null
+                    ? copyWithCurrentTime(location)
+                    : location);
+            }
+        });
+    }
+
+    /**
+     * {@link #addLocations(Collection)}
+     */
+    public void addLocation(Location location) {
+        addLocations(Collections.singletonList(location));
+    }
+
+    /**
+     * Forget latest measurement after measurements are deleted
+     *
+     * @param deviceId
+     *      Device ID. Measurements of all devices are forgotten when null.
+     */
+    public void invalidateMeasurements(Integer deviceId) {
+        invalidate(measurements, deviceId);
+    }
+
+    /**
+     * Forget latest location after locations are deleted
+     *
+     * @param deviceId
+     *      Device ID. Locations of all devices are forgotten when null.
+     */
+    public void invalidateLocations(Integer deviceId) {
+        invalidate(locations, deviceId);
+    }
+
+    /**
+     * Forget latest measurement and location of deleted device
+     *
+     * @param deviceId
+     *      Device ID
+     */
+    public void invalidate(Integer deviceId) {
+        if(deviceId != null) {
+            measurements.remove(deviceId);
+            locations.remove(deviceId);
+        }
+    }
+
+    @ManagedOperation(description = "Forget all latest values")
+    public void invalidateAll() {
+        measurements.clear();
+        locations.clear();
+    }
+
+    @ManagedAttribute(description = "Count of devices with known latest measurement")
+    public int getMeasurementCount() {
+        return measurements.size();
+    }
+
+    @ManagedAttribute(description = "Count of devices with known latest location")
+    public int getLocationCount() {
+        return locations.size();
+    }
+
+    @ManagedAttribute(description = "Count of devices answered from memory")
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of devices loaded from the database")
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private <T extends TimeSeriesEntity> Map<Integer, T> getLatest(Map<Integer, Optional<T>> latest,
+                                                                   Collection<Integer> deviceIds,
+                                                                   Integer deviceGroupId,
+                                                                   BiFunction<Integer, Integer, List<T>> loader) {
+        Set<Integer> unknownDeviceIds = new HashSet<>();
+        for(Integer deviceId : deviceIds) {
+            if(!latest.containsKey(deviceId)) {
+                unknownDeviceIds.add(deviceId);
+            }
+        }
+
+        hitCount.addAndGet(deviceIds.size() - unknownDeviceIds.size());
+        missCount.addAndGet(unknownDeviceIds.size());
+
+        if(!unknownDeviceIds.isEmpty()) {
+            // Single unknown device is loaded alone, otherwise whole group is loaded with one query
+            Integer loadedDeviceId = unknownDeviceIds.size() == 1 ? unknownDeviceIds.iterator().next() : null;
+            List<T> loaded = loader.apply(loadedDeviceId, loadedDeviceId == null ? deviceGroupId : null);
+
+            loaded.forEach(value -> update(latest, getDeviceId(value), value));
+            unknownDeviceIds.forEach(deviceId -> latest.putIfAbsent(deviceId, Optional.empty()));
+        }
+
+        Map<Integer, T> values = new HashMap<>();
+        for(Integer deviceId : deviceIds) {
+            latest.getOrDefault(deviceId, Optional.empty()).ifPresent(value -> values.put(deviceId, value));
+        }
+
+        return values;
+    }
+
+    private static <T extends TimeSeriesEntity> void update(Map<Integer, Optional<T>> latest, Integer deviceId, T value) {
+        // Rows loaded from the database may race with inserts, so newer row always wins
+        latest.merge(deviceId, Optional.of(value), (current, candidate) ->
+            current.isPresent() && current.get().getTime().after(candidate.get().getTime()) ? current : candidate);
+    }
+
+    /**
+     * Apply inserted values now, or once transaction commits, so that rolled back rows are never served
+     */
+    private static <T> void afterCommit(Collection<T> inserted, Consumer<T> apply) {
+        if(inserted.isEmpty()) {
+            return;
+        }
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<T> values = new ArrayList<>(inserted);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    values.forEach(apply);
+                }
+            });
+        } else {
+            inserted.forEach(apply);
+        }
+    }
+
+    private static <T> void invalidate(Map<Integer, Optional<T>> latest, Integer deviceId) {
+        if(deviceId == null) {
+            latest.clear();
+        } else {
+            latest.remove(deviceId);
+        }
+    }
+
+    private static Integer getDeviceId(TimeSeriesEntity value) {
+        return value instanceof Measurement
+            ? ((Measurement) value).getDeviceId()
+            : ((Location) value).getDeviceId();
+    }
+
+    private static Measurement copyWithCurrentTime(Measurement measurement) {
+        Measurement copy = new Measurement();
+        copy.setId(measurement.getId());
+        copy.setDeviceId(measurement.getDeviceId());
+        copy.setContent(measurement.getContent());
+        copy.setTime(new Date());
+
+        return copy;
+    }
+
+    private static Location copyWithCurrentTime(Location location) {
+        Location copy = new Location();
+        copy.setId(location.getId());
+        copy.setDeviceId(location.getDeviceId());
+        copy.setLatitude(location.getLatitude());
+        copy.setLongitude(location.getLongitude());
+        copy.setTime(new Date());
+
+        return copy;
+    }
+}
@@ -0,0 +1,111 @@
+package web.service.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of rarely changing resources, used as ETags of their GET responses. Version of resource is incremented
+ * after every add, update and delete of it, so requests with matching If-None-Match are answered with 304 Not Modified
+ * without reading the database. Version is read before the database, so that response is never older than its ETag.
+ * <p>
+ * ETags are weak, since compressed and uncompressed responses are equivalent. Changes made directly to the database
+ * are not noticed, {@link #incrementAll()} can be used after them.
+ */
+@Component
+@ManagedResource(objectName = "web:type=ResourceVersions", description = "Versions of rarely changing resources")
+public class ResourceVersions {
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+
+    // Distinguishes versions of different server starts
+    private final long generation = System.currentTimeMillis();
+    private final Map<Resource, AtomicLong> versions = new EnumMap<>(Resource.class);
+
+    public enum Resource {
+        DEVICE_TYPE, DEVICE_GROUP, DEVICE_ICON, CONFIGURATION
+    }
+
+    ResourceVersions() {
+        for(Resource resource : Resource.values()) {
+            versions.put(resource, new AtomicLong());
+        }
+    }
+
+    /**
+     * Get ETag of current version of given resource
+     *
+     * @param resource
+     *      Resource type
+     * @return
+     *      Weak ETag which changes whenever any resource of the type changes
+     */
+    public String getETag(Resource resource) {
+        return String.format("W/\"%s-%x-%x\"", resource.name().toLowerCase(), generation, versions.get(resource).get());
+    }
+
+    /**
+     * Increment version of given resources. Called after resources have been changed in the database.
+     *
+     * @param resources
+     *      Changed resource types
+     */
+    public void increment(Resource... resources) {
+        for(Resource resource : resources) {
+            versions.get(resource).incrementAndGet();
+        }
+    }
+
+    /**
+     * Increment versions of all resources, e.g. after resources have been changed directly in the database
+     */
+    @ManagedOperation(description = "Increment versions of all resources")
+    public void incrementAll() {
+        increment(Resource.values());
+    }
+
+    /**
+     * Check whether If-None-Match header matches given ETag using weak comparison
+     *
+     * @param ifNoneMatch
+     *      Value of If-None-Match header, list of ETags or *
+     * @param eTag
+     *      Current ETag
+     * @return
+     *      True when client's copy is current
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if(ifNoneMatch == null) {
+            return false;
+        }
+
+        for(String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+
+            if(ANY.equals(candidate) || stripWeakPrefix(candidate).equals(stripWeakPrefix(eTag))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get headers containing given ETag
+     */
+    public static HttpHeaders getETagHeaders(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+
+        return headers;
+    }
+
+    private static String stripWeakPrefix(String eTag) {
+        return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+    }
+}
@@ -0,0 +1,124 @@
+package web.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import web.domain.entity.Location;
+import web.domain.response.ResponseWrapper;
+import web.exception.ExceptionHandlingUtils;
+import web.exception.TooManyRequestsException;
+import web.repository.LocationRepository;
+import web.service.DeviceService;
+import web.service.cache.CurrentLocations;
+import web.service.cache.LatestValues;
+import web.service.ingestion.IngestionBuffer;
+import web.service.ingestion.IngestionBufferFactory;
+import web.service.job.JobRunner;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+
+import static web.mapper.LocationMapper.mapToCollection;
+
+/**
+ * Location service which accepts location updates into in-memory buffer and returns 202 Accepted. Background writers
+ * insert buffered location updates using multi-row inserts. Device existence is checked before buffering, mostly from
+ * device cache, so that location updates of unknown devices are rejected instead of failing multi-row inserts of other
+ * devices. Reads and deletes work as in {@link LocationServiceImpl}.
+ */
+@Service
+@ConditionalOnProperty(name = "ingestion.mode", havingValue = "buffered")
+public class BufferedLocationServiceImpl extends LocationServiceImpl {
+    private static final Logger log = LoggerFactory.getLogger(BufferedLocationServiceImpl.class);
+
+    private final LocationRepository locationRepository;
+    private final DeviceService deviceService;
+    private final LatestValues latestValues;
+    private final CurrentLocations currentLocations;
+    private final IngestionBuffer<Location> buffer;
+    private final Integer retryAfterSeconds;
+
+    BufferedLocationServiceImpl(LocationRepository locationRepository, @Lazy DeviceService deviceService,
+                                LatestValues latestValues, CurrentLocations currentLocations, JobRunner jobRunner,
+                                @Value("${pagination.max-limit}") Integer maxPageSize,
+                                @Value("${ingestion.buffer.retry-after-seconds}") Integer retryAfterSeconds,
+                                IngestionBufferFactory ingestionBufferFactory) {
+        super(locationRepository, deviceService, latestValues, currentLocations, jobRunner, maxPageSize);
+        this.locationRepository = locationRepository;
+        this.deviceService = deviceService;
+        this.latestValues = latestValues;
+        this.currentLocations = currentLocations;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.buffer = ingestionBufferFactory.create("locations", this::flush);
+    }
+
+    @Override
+    public ResponseWrapper addLocation(Location location) {
+        try {
+            // Flush inserts groups with single statement, so invalid location must not be queued
+            if(location.getLatitude() == null || location.getLongitude() == null) {
+                throw new DataIntegrityViolationException("location.latitude and location.longitude cannot be null");
+            }
+
+            deviceService.validateDeviceExists(location.getDeviceId(), null, null);
+
+            // Time of acceptance is used instead of time of insert
+            if(location.getTime() == null) {
+                location.setTime(new Date());
+            }
+
+            if(!buffer.offer(location)) {
+                throw new TooManyRequestsException("Add location failed", "Ingestion buffer is full", retryAfterSeconds);
+            }
+
+            return new ResponseWrapper(mapToCollection(location), HttpStatus.ACCEPTED);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Add location failed");
+        }
+
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        buffer.shutdown();
+    }
+
+    /**
+     * Insert buffered location updates. Single invalid update, e.g. one of device removed after buffering, fails whole
+     * multi-row insert and updates are then inserted one by one.
+     *
+     * @return
+     *      Count of location updates which could not be inserted
+     */
+    private int flush(List<Location> locations) {
+        try {
+            locationRepository.addLocations(locations);
+            latestValues.addLocations(locations);
+            currentLocations.addLocations(locations);
+            return 0;
+        } catch(Exception e) {
+            log.warn("Multi-row insert of {} buffered location updates failed, inserting one by one", locations.size());
+        }
+
+        int failed = 0;
+        for(Location location : locations) {
+            try {
+                Location addedLocation = locationRepository.addLocation(location);
+                latestValues.addLocation(addedLocation);
+                currentLocations.addLocation(addedLocation);
+            } catch(Exception e) {
+                failed++;
+                log.warn("Dropped buffered location update of device {}: {}", location.getDeviceId(), e.toString());
+            }
+        }
+
+        return failed;
+    }
+}
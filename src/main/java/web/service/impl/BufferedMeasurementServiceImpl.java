@@ -0,0 +1,232 @@
+package web.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import web.domain.entity.Measurement;
+import web.domain.response.BatchItemStatus;
+import web.domain.response.ErrorCode;
+import web.domain.response.ResponseWrapper;
+import web.exception.ExceptionHandlingUtils;
+import web.exception.ExceptionWrapper;
+import web.exception.TooManyRequestsException;
+import web.mapper.BatchMapper;
+import web.repository.DeviceRepository;
+import web.repository.MeasurementRepository;
+import web.service.DeviceService;
+import web.service.cache.DeviceCache;
+import web.service.cache.LatestValues;
+import web.service.ingestion.IngestionBuffer;
+import web.service.ingestion.IngestionBufferFactory;
+import web.service.job.JobRunner;
+import web.service.rollup.MeasurementRollups;
+import web.service.scan.ParallelScanner;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+
+import static web.mapper.MeasurementMapper.mapToCollection;
+
+/**
+ * Measurement service which accepts measurements into in-memory buffer and returns 202 Accepted. Background writers
+ * insert buffered measurements using multi-row inserts. Device existence is checked before buffering, mostly from
+ * device cache, so that measurements of unknown devices are rejected instead of failing multi-row inserts of other
+ * devices. Reads and deletes work as in {@link MeasurementServiceImpl}.
+ */
+@Service
+@ConditionalOnProperty(name = "ingestion.mode", havingValue = "buffered")
+public class BufferedMeasurementServiceImpl extends MeasurementServiceImpl {
+    private static final Logger log = LoggerFactory.getLogger(BufferedMeasurementServiceImpl.class);
+    private static final String MEASUREMENTS_URI = "/api/measurements";
+
+    private final MeasurementRepository measurementRepository;
+    private final DeviceService deviceService;
+    private final MeasurementRollups measurementRollups;
+    private final LatestValues latestValues;
+    private final IngestionBuffer<Measurement> buffer;
+    private final Integer batchSize;
+    private final Integer retryAfterSeconds;
+
+    BufferedMeasurementServiceImpl(MeasurementRepository measurementRepository, DeviceRepository deviceRepository,
+                                   @Lazy DeviceService deviceService, DeviceCache deviceCache,
+                                   MeasurementRollups measurementRollups, LatestValues latestValues,
+                                   JobRunner jobRunner, ParallelScanner parallelScanner,
+                                   @Value("${measurement.batch.size}") Integer batchSize,
+                                   @Value("${pagination.max-limit}") Integer maxPageSize,
+                                   @Value("${ingestion.buffer.retry-after-seconds}") Integer retryAfterSeconds,
+                                   IngestionBufferFactory ingestionBufferFactory) {
+        super(measurementRepository, deviceRepository, deviceService, deviceCache, measurementRollups, latestValues,
+            jobRunner, parallelScanner, batchSize, maxPageSize);
+        this.measurementRepository = measurementRepository;
+        this.deviceService = deviceService;
+        this.measurementRollups = measurementRollups;
+        this.latestValues = latestValues;
+        this.batchSize = batchSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.buffer = ingestionBufferFactory.create("measurements", this::flush);
+    }
+
+    @Override
+    public ResponseWrapper addMeasurement(Measurement measurement) {
+        try {
+            // Prevent inserting "null" text into CONTENT caused by json-string conversion
+            if(null == measurement.getContent()) {
+                throw new DataIntegrityViolationException("measurement.content cannot be null");
+            }
+
+            deviceService.validateDeviceExists(measurement.getDeviceId(), null, null);
+
+            // Time of acceptance is used instead of time of insert
+            if(measurement.getTime() == null) {
+                measurement.setTime(new Date());
+            }
+
+            if(!buffer.offer(measurement)) {
+                throw new TooManyRequestsException("Add measurement failed", "Ingestion buffer is full",
+                    retryAfterSeconds);
+            }
+
+            return new ResponseWrapper(mapToCollection(measurement), HttpStatus.ACCEPTED);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Add measurement failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper addMeasurements(Iterator<Measurement> measurements) {
+        try {
+            List<BatchItemStatus> statuses = new ArrayList<>();
+            // Device IDs already checked during this batch. Each ID is queried only once.
+            Map<Integer, Boolean> checkedDeviceIds = new HashMap<>();
+            List<Measurement> chunk = new ArrayList<>(batchSize);
+            Date acceptedTime = new Date();
+
+            while(measurements.hasNext()) {
+                chunk.add(measurements.next());
+
+                if(chunk.size() == batchSize) {
+                    statuses.addAll(offerMeasurementsChunk(chunk, statuses.size(), checkedDeviceIds, acceptedTime));
+                    chunk.clear();
+                }
+            }
+
+            if(!chunk.isEmpty()) {
+                statuses.addAll(offerMeasurementsChunk(chunk, statuses.size(), checkedDeviceIds, acceptedTime));
+            }
+
+            if(statuses.isEmpty()) {
+                throw new ExceptionWrapper("Add measurements failed", "Request body contains no measurements",
+                    ErrorCode.PARAMETER_VALIDATION_ERROR);
+            }
+
+            if(statuses.stream().allMatch(status -> ErrorCode.TOO_MANY_REQUESTS.equals(status.getErrorCode()))) {
+                throw new TooManyRequestsException("Add measurements failed", "Ingestion buffer is full",
+                    retryAfterSeconds);
+            }
+
+            HttpStatus httpStatus = statuses.stream().allMatch(BatchItemStatus::isSuccessful)
+                ? HttpStatus.ACCEPTED
+                : HttpStatus.MULTI_STATUS;
+
+            return new ResponseWrapper(BatchMapper.mapToCollection(statuses, MEASUREMENTS_URI), httpStatus);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Add measurements failed");
+        }
+
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        buffer.shutdown();
+    }
+
+    /**
+     * Validate single chunk of batch and offer its valid measurements to buffer
+     *
+     * @param chunk
+     *      Measurements to add
+     * @param offset
+     *      Index of chunk's first item in the whole batch
+     * @param checkedDeviceIds
+     *      Results of earlier device ID checks. Updated with IDs of this chunk.
+     * @param acceptedTime
+     *      Time of measurements without time
+     * @return
+     *      Status of each item in chunk
+     */
+    private List<BatchItemStatus> offerMeasurementsChunk(List<Measurement> chunk, Integer offset,
+                                                         Map<Integer, Boolean> checkedDeviceIds, Date acceptedTime) {
+        checkDeviceIds(chunk, checkedDeviceIds);
+
+        List<BatchItemStatus> statuses = new ArrayList<>();
+
+        for(int i = 0; i < chunk.size(); i++) {
+            Measurement measurement = chunk.get(i);
+            Integer index = offset + i;
+            Integer deviceId = measurement.getDeviceId();
+
+            if(deviceId == null || measurement.getContent() == null) {
+                statuses.add(BatchItemStatus.failed(index, deviceId, HttpStatus.BAD_REQUEST,
+                    ErrorCode.PARAMETER_VALIDATION_ERROR, "deviceId and content are required"));
+                continue;
+            }
+
+            if(!checkedDeviceIds.get(deviceId)) {
+                statuses.add(BatchItemStatus.failed(index, deviceId, HttpStatus.NOT_FOUND,
+                    ErrorCode.NO_ITEMS_FOUND, String.format("Device %d not found", deviceId)));
+                continue;
+            }
+
+            if(measurement.getTime() == null) {
+                measurement.setTime(acceptedTime);
+            }
+
+            statuses.add(buffer.offer(measurement)
+                ? BatchItemStatus.accepted(index, deviceId)
+                : BatchItemStatus.failed(index, deviceId, HttpStatus.TOO_MANY_REQUESTS,
+                    ErrorCode.TOO_MANY_REQUESTS, "Ingestion buffer is full"));
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Insert buffered measurements. Single invalid measurement, e.g. one of device removed after buffering, fails whole
+     * multi-row insert and measurements are then inserted one by one.
+     *
+     * @return
+     *      Count of measurements which could not be inserted
+     */
+    private int flush(List<Measurement> measurements) {
+        try {
+            measurementRepository.addMeasurements(measurements);
+            measurementRollups.add(measurements);
+            latestValues.addMeasurements(measurements);
+            return 0;
+        } catch(Exception e) {
+            log.warn("Multi-row insert of {} buffered measurements failed, inserting one by one", measurements.size());
+        }
+
+        int failed = 0;
+        for(Measurement measurement : measurements) {
+            try {
+                Measurement addedMeasurement = measurementRepository.addMeasurement(measurement);
+                measurementRollups.add(addedMeasurement);
+                latestValues.addMeasurement(addedMeasurement);
+            } catch(Exception e) {
+                failed++;
+                log.warn("Dropped buffered measurement of device {}: {}", measurement.getDeviceId(), e.toString());
+            }
+        }
+
+        return failed;
+    }
+}
@@ -12,34 +12,46 @@ import web.exception.ExceptionHandlingUtils;
 import web.repository.ConfigurationRepository;
 import web.service.ConfigurationService;
 import web.service.DeviceService;
+import web.service.cache.ResourceVersions;
 import web.validators.FilterValidator;
 
 import java.util.Collection;
 
 import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
 import static web.mapper.ConfigurationMapper.mapToCollection;
+import static web.service.cache.ResourceVersions.Resource.CONFIGURATION;
+import static web.service.cache.ResourceVersions.getETagHeaders;
 
 @Service
 public class ConfigurationServiceImpl implements ConfigurationService {
 
     final ConfigurationRepository configurationRepository;
     final DeviceService deviceService;
+    private final ResourceVersions resourceVersions;
 
-    ConfigurationServiceImpl(ConfigurationRepository configurationRepository, DeviceService deviceService) {
+    ConfigurationServiceImpl(ConfigurationRepository configurationRepository, DeviceService deviceService,
+                             ResourceVersions resourceVersions) {
         this.configurationRepository = configurationRepository;
         this.deviceService = deviceService;
+        this.resourceVersions = resourceVersions;
     }
 
     @Override
-    public ResponseWrapper getConfigurations(Integer id, String name) {
+    public ResponseWrapper getConfigurations(Integer id, String name, String ifNoneMatch) {
         try {
+            // Version is read before the database, so changes made meanwhile are not hidden behind this ETag
+            String eTag = resourceVersions.getETag(CONFIGURATION);
+            if(ResourceVersions.matches(ifNoneMatch, eTag)) {
+                return new ResponseWrapper("", getETagHeaders(eTag), HttpStatus.NOT_MODIFIED);
+            }
+
             Collection<Configuration> configurations = configurationRepository.getConfigurations(id, name);
 
             if(CollectionUtils.isEmpty(configurations)) {
                 throwNotFoundException(String.format("[id: %d, name: %s]", id, name));
             }
 
-            return new ResponseWrapper(mapToCollection(configurations));
+            return new ResponseWrapper(mapToCollection(configurations), getETagHeaders(eTag), HttpStatus.OK);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get configurations failed");
         }
@@ -51,6 +63,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     public ResponseWrapper addConfiguration(Configuration configuration) {
         try {
             Configuration addedConfiguration = configurationRepository.addConfiguration(configuration);
+            resourceVersions.increment(CONFIGURATION);
 
             return new ResponseWrapper(mapToCollection(addedConfiguration), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -67,6 +80,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
             validateConfigurationExists(id, name);
 
             Configuration updatedConfiguration = configurationRepository.updateConfiguration(id, name, configuration);
+            resourceVersions.increment(CONFIGURATION);
 
             // TODO, fix commit calls during single stored procedure. Currently update procedures return old item - not the updated one
             updatedConfiguration.setName(configuration.getName());
@@ -88,6 +102,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
             validateConfigurationExists(id, name);
 
             Boolean deleteSuccessful = configurationRepository.deleteConfiguration(id, name);
+            resourceVersions.increment(CONFIGURATION);
 
             if (!deleteSuccessful) {
                 throw new HibernateError("");
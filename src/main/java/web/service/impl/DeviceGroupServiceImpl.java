@@ -2,6 +2,8 @@ package web.service.impl;
 
 import javassist.NotFoundException;
 import org.hibernate.HibernateError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
@@ -9,8 +11,12 @@ import web.domain.entity.Device;
 import web.domain.entity.DeviceGroup;
 import web.domain.entity.Location;
 import web.domain.entity.Measurement;
+import web.domain.filter.ContentFilter;
+import web.domain.pagination.KeysetPage;
 import web.domain.response.ErrorCode;
 import web.domain.response.ResponseWrapper;
+import web.domain.spatial.GeoArea;
+import web.domain.spatial.TrajectorySimplifier;
 import web.exception.ExceptionHandlingUtils;
 import web.exception.ExceptionWrapper;
 import web.mapper.DeviceMapper;
@@ -21,42 +27,73 @@ import web.repository.DeviceRepository;
 import web.repository.LocationRepository;
 import web.repository.MeasurementRepository;
 import web.service.DeviceGroupService;
+import web.service.cache.CurrentLocations;
+import web.service.cache.LatestValues;
+import web.service.cache.ResourceVersions;
+import web.service.rollup.MeasurementRollups;
 import web.validators.FilterValidator;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
 
 import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
 import static web.mapper.DeviceGroupMapper.mapToCollection;
 import static web.mapper.MapperUtils.formatTime;
+import static web.service.cache.ResourceVersions.Resource.DEVICE_GROUP;
+import static web.service.cache.ResourceVersions.getETagHeaders;
 
 @Service
 public class DeviceGroupServiceImpl implements DeviceGroupService {
+    private static final String DELETED_COUNT_HEADER = "X-Deleted-Count";
 
     final DeviceGroupRepository deviceGroupRepository;
     final DeviceRepository deviceRepository;
     final MeasurementRepository measurementRepository;
     final LocationRepository locationRepository;
+    private final LatestValues latestValues;
+    private final CurrentLocations currentLocations;
+    private final ResourceVersions resourceVersions;
+    private final MeasurementRollups measurementRollups;
+    private final Integer maxPageSize;
+    private final Integer deleteChunkSize;
 
     DeviceGroupServiceImpl(DeviceGroupRepository deviceGroupRepository, DeviceRepository deviceRepository,
-                           MeasurementRepository measurementRepository, LocationRepository locationRepository) {
+                           MeasurementRepository measurementRepository, LocationRepository locationRepository,
+                           LatestValues latestValues, CurrentLocations currentLocations,
+                           ResourceVersions resourceVersions, MeasurementRollups measurementRollups,
+                           @Value("${pagination.max-limit}") Integer maxPageSize,
+                           @Value("${job.delete.chunk-size}") Integer deleteChunkSize) {
         this.deviceGroupRepository = deviceGroupRepository;
         this.deviceRepository = deviceRepository;
         this.measurementRepository = measurementRepository;
         this.locationRepository = locationRepository;
+        this.latestValues = latestValues;
+        this.currentLocations = currentLocations;
+        this.resourceVersions = resourceVersions;
+        this.measurementRollups = measurementRollups;
+        this.maxPageSize = maxPageSize;
+        this.deleteChunkSize = deleteChunkSize;
     }
 
     @Override
-    public ResponseWrapper getDeviceGroups(Integer id, String name) {
+    public ResponseWrapper getDeviceGroups(Integer id, String name, String ifNoneMatch) {
         try {
+            // Version is read before the database, so changes made meanwhile are not hidden behind this ETag
+            String eTag = resourceVersions.getETag(DEVICE_GROUP);
+            if(ResourceVersions.matches(ifNoneMatch, eTag)) {
+                return new ResponseWrapper("", getETagHeaders(eTag), HttpStatus.NOT_MODIFIED);
+            }
+
             Collection<DeviceGroup> deviceGroups = deviceGroupRepository.getDeviceGroups(id, name);
 
             if(CollectionUtils.isEmpty(deviceGroups)) {
                 throwNotFoundException(String.format("[id: %d, name: %s]",id, name));
             }
 
-            return new ResponseWrapper(mapToCollection(deviceGroups));
+            return new ResponseWrapper(mapToCollection(deviceGroups), getETagHeaders(eTag), HttpStatus.OK);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get device groups failed");
         }
@@ -68,6 +105,7 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
     public ResponseWrapper addDeviceGroup(DeviceGroup deviceGroup) {
         try {
             DeviceGroup addedDeviceGroup = deviceGroupRepository.addDeviceGroup(deviceGroup);
+            resourceVersions.increment(DEVICE_GROUP);
 
             return new ResponseWrapper(mapToCollection(addedDeviceGroup), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -84,6 +122,7 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
             validateGroupExists(id, name);
 
             DeviceGroup updatedDeviceGroup = deviceGroupRepository.updateDeviceGroup(id, name, deviceGroup);
+            resourceVersions.increment(DEVICE_GROUP);
 
             // TODO, fix commit calls during single stored procedure. Currently update procedures return old item - not the updated one
             updatedDeviceGroup.setName(deviceGroup.getName());
@@ -104,6 +143,8 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
             validateGroupExists(id, name);
 
             Boolean deleteSuccessful = deviceGroupRepository.deleteDeviceGroup(id, name);
+            resourceVersions.increment(DEVICE_GROUP);
+            currentLocations.invalidate();
 
             if(!deleteSuccessful) {
                 throw new HibernateError("");
@@ -152,35 +193,23 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
     }
 
     @Override
-    public ResponseWrapper getGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime) {
+    public ResponseWrapper getGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime,
+                                                 List<String> content, Integer limit, String order, String cursor) {
         try {
             FilterValidator.checkForMinimumFilters(id, exactTime, startTime, endTime);
+            List<ContentFilter> contentFilters = ContentFilter.of(content);
+            KeysetPage page = KeysetPage.of(limit, order, cursor, maxPageSize);
             validateGroupExists(id, null);
 
-            Collection<Device> devices = deviceRepository.getDevices(null, null, null, id, null, null);
-
-            if(CollectionUtils.isEmpty(devices)) {
-                throw new ExceptionWrapper(
-                    "Get group's measurements failed",
-                    String.format("No devices found for group %d", id),
-                    ErrorCode.NO_ITEMS_FOUND);
-            }
-
-            Collection<Measurement> measurements = new ArrayList<>();
-            for(Device device : devices) {
-                measurements.addAll(measurementRepository.getMeasurements(device.getId(), exactTime, startTime, endTime));
-            }
+            List<Measurement> measurements = measurementRepository.getDeviceGroupMeasurements(
+                id, exactTime, startTime, endTime, contentFilters, page);
 
             if(CollectionUtils.isEmpty(measurements)) {
-                String parameters = String.format("exactTime %s, startTime %s, endTime: %s",
-                    formatTime(exactTime), formatTime(startTime), formatTime(endTime));
-                throw new ExceptionWrapper(
-                    "Get group's measurements failed",
-                    String.format("No measurements found for group %d with parameters: %s", id, parameters),
-                    ErrorCode.NO_ITEMS_FOUND);
+                throwNoMeasurementsFound(id, exactTime, startTime, endTime);
             }
 
-            return new ResponseWrapper(MeasurementMapper.mapToCollection(measurements));
+            return new ResponseWrapper(
+                MeasurementMapper.mapToCollection(page.getPageRows(measurements), page.getNextCursor(measurements)));
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get group's measurements failed");
         }
@@ -189,36 +218,50 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
     }
 
     @Override
-    public ResponseWrapper deleteGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime) {
+    public ResponseWrapper streamGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime,
+                                                    List<String> content, String order) {
         try {
             FilterValidator.checkForMinimumFilters(id, exactTime, startTime, endTime);
+            List<ContentFilter> contentFilters = ContentFilter.of(content);
+            Boolean descending = KeysetPage.of(null, order, null, maxPageSize).getDescending();
             validateGroupExists(id, null);
 
-            Collection<Device> devices = deviceRepository.getDevices(null, null, null, id, null, null);
+            // Status cannot be changed once streaming has started, so empty result is detected beforehand
+            List<Measurement> firstMeasurement = measurementRepository.getDeviceGroupMeasurements(
+                id, exactTime, startTime, endTime, contentFilters, KeysetPage.first());
 
-            if(CollectionUtils.isEmpty(devices)) {
-                throw new ExceptionWrapper(
-                    "Delete group's measurements failed",
-                    String.format("No devices found for group %d", id),
-                    ErrorCode.NO_ITEMS_FOUND);
+            if(CollectionUtils.isEmpty(firstMeasurement)) {
+                throwNoMeasurementsFound(id, exactTime, startTime, endTime);
             }
 
-            // Report success if at least one delete operation was successful
-            Boolean atLeastOneDeleteSuccessful = false;
-            for(Device device : devices) {
-                Boolean deleteSuccessful = measurementRepository.deleteMeasurements(device.getId(), exactTime, startTime, endTime);
+            return new ResponseWrapper(MeasurementMapper.mapToStreamingCollection(consumer ->
+                measurementRepository.streamDeviceGroupMeasurements(
+                    id, exactTime, startTime, endTime, contentFilters, descending, consumer)));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get group's measurements failed");
+        }
 
-                if(deleteSuccessful) {
-                    atLeastOneDeleteSuccessful = true;
-                }
-            }
+        return null;
+    }
 
-            if(!atLeastOneDeleteSuccessful) {
-                throw new HibernateError("");
-            }
+    @Override
+    public ResponseWrapper deleteGroupsMeasurements(Integer id, Date exactTime, Date startTime, Date endTime) {
+        try {
+            FilterValidator.checkForMinimumFilters(id, exactTime, startTime, endTime);
+            validateGroupExists(id, null);
+            List<Integer> deviceIds = deviceRepository.getDevices(null, null, null, id, null, null).stream()
+                .map(Device::getId)
+                .collect(Collectors.toList());
 
-            return new ResponseWrapper("", HttpStatus.NO_CONTENT);
+            long deletedCount = deleteInChunks(limit ->
+                measurementRepository.deleteDeviceGroupMeasurements(id, exactTime, startTime, endTime, limit));
 
+            deviceIds.forEach(latestValues::invalidateMeasurements);
+            measurementRollups.rebuildDeviceGroup(id, deviceIds,
+                exactTime != null ? exactTime : startTime,
+                exactTime != null ? exactTime : endTime);
+
+            return new ResponseWrapper("", getDeletedCountHeaders(deletedCount), HttpStatus.NO_CONTENT);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete group's measurements failed");
         }
@@ -228,35 +271,39 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
 
 
     @Override
-    public ResponseWrapper getGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime) {
+    public ResponseWrapper getGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                              String near, Double radius, Double simplify, Integer maxPoints,
+                                              Integer limit, String order, String cursor) {
         try {
             FilterValidator.checkForMinimumFilters(id, exactTime, startTime, endTime);
+            GeoArea area = GeoArea.of(bbox, near, radius);
+            TrajectorySimplifier simplifier = TrajectorySimplifier.of(simplify, maxPoints, maxPageSize);
+            KeysetPage page = KeysetPage.of(limit, order, cursor, maxPageSize);
             validateGroupExists(id, null);
 
-            Collection<Device> devices = deviceRepository.getDevices(null, null, null, id, null, null);
+            if(simplifier != null) {
+                // Trajectory of each device is simplified separately from single cursor over the group. Result is
+                // limited to maximum page size.
+                locationRepository.streamDeviceGroupLocations(id, exactTime, startTime, endTime, area,
+                    page.getDescending(), simplifier::add);
+                List<Location> locations = simplifier.getLocations();
 
-            if(CollectionUtils.isEmpty(devices)) {
-                throw new ExceptionWrapper(
-                    "Get group's location updates failed",
-                    String.format("No devices found for group %d", id),
-                    ErrorCode.NO_ITEMS_FOUND);
-            }
+                if(CollectionUtils.isEmpty(locations)) {
+                    throwNoLocationsFound(id, exactTime, startTime, endTime);
+                }
 
-            Collection<Location> locations = new ArrayList<>();
-            for(Device device : devices) {
-                locations.addAll(locationRepository.getLocations(device.getId(), exactTime, startTime, endTime));
+                return new ResponseWrapper(LocationMapper.mapToCollection(locations));
             }
 
+            List<Location> locations = locationRepository.getDeviceGroupLocations(
+                id, exactTime, startTime, endTime, area, page);
+
             if(CollectionUtils.isEmpty(locations)) {
-                String parameters = String.format("exactTime %s, startTime %s, endTime: %s",
-                    formatTime(exactTime), formatTime(startTime), formatTime(endTime));
-                throw new ExceptionWrapper(
-                    "Get group's location updates failed",
-                    String.format("No locations found for group %d with parameters: %s", id, parameters),
-                    ErrorCode.NO_ITEMS_FOUND);
+                throwNoLocationsFound(id, exactTime, startTime, endTime);
             }
 
-            return new ResponseWrapper(LocationMapper.mapToCollection(locations));
+            return new ResponseWrapper(
+                LocationMapper.mapToCollection(page.getPageRows(locations), page.getNextCursor(locations)));
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get group's location updates failed");
         }
@@ -265,36 +312,46 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
     }
 
     @Override
-    public ResponseWrapper deleteGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime) {
+    public ResponseWrapper streamGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                                 String near, Double radius, String order) {
         try {
             FilterValidator.checkForMinimumFilters(id, exactTime, startTime, endTime);
+            GeoArea area = GeoArea.of(bbox, near, radius);
+            Boolean descending = KeysetPage.of(null, order, null, maxPageSize).getDescending();
             validateGroupExists(id, null);
 
-            Collection<Device> devices = deviceRepository.getDevices(null, null, null, id, null, null);
+            // Status cannot be changed once streaming has started, so empty result is detected beforehand
+            List<Location> firstLocation = locationRepository.getDeviceGroupLocations(
+                id, exactTime, startTime, endTime, area, KeysetPage.first());
 
-            if(CollectionUtils.isEmpty(devices)) {
-                throw new ExceptionWrapper(
-                    "Delete group's location updates failed",
-                    String.format("No devices found for group %d", id),
-                    ErrorCode.NO_ITEMS_FOUND);
+            if(CollectionUtils.isEmpty(firstLocation)) {
+                throwNoLocationsFound(id, exactTime, startTime, endTime);
             }
 
-            // Report success if at least one delete operation was successful
-            Boolean atLeastOneDeleteSuccessful = false;
-            for(Device device : devices) {
-                Boolean deleteSuccessful = locationRepository.deleteLocations(device.getId(), exactTime, startTime, endTime);
+            return new ResponseWrapper(LocationMapper.mapToStreamingCollection(consumer ->
+                locationRepository.streamDeviceGroupLocations(id, exactTime, startTime, endTime, area, descending,
+                    consumer)));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get group's location updates failed");
+        }
 
-                if(deleteSuccessful) {
-                    atLeastOneDeleteSuccessful = true;
-                }
-            }
+        return null;
+    }
 
-            if(!atLeastOneDeleteSuccessful) {
-                throw new HibernateError("");
-            }
+    @Override
+    public ResponseWrapper deleteGroupsLocations(Integer id, Date exactTime, Date startTime, Date endTime) {
+        try {
+            FilterValidator.checkForMinimumFilters(id, exactTime, startTime, endTime);
+            validateGroupExists(id, null);
 
-            return new ResponseWrapper("", HttpStatus.NO_CONTENT);
+            long deletedCount = deleteInChunks(limit ->
+                locationRepository.deleteDeviceGroupLocations(id, exactTime, startTime, endTime, limit));
 
+            // Devices of the group are not known here, so all latest locations are reloaded when needed
+            latestValues.invalidateLocations(null);
+            currentLocations.invalidate();
+
+            return new ResponseWrapper("", getDeletedCountHeaders(deletedCount), HttpStatus.NO_CONTENT);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete group's location updates failed");
         }
@@ -302,6 +359,34 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
         return null;
     }
 
+    /**
+     * Delete rows in chunks until chunk deletes less than chunk size. Each chunk is committed separately, so locks are
+     * held only for single chunk. Delete stopped by failure is continued by repeating the request.
+     *
+     * @param chunkDelete
+     *      Deletes at most given count of rows and returns count of deleted rows
+     * @return
+     *      Total count of deleted rows
+     */
+    private long deleteInChunks(IntUnaryOperator chunkDelete) {
+        long deletedCount = 0;
+        int deleted;
+
+        do {
+            deleted = chunkDelete.applyAsInt(deleteChunkSize);
+            deletedCount += deleted;
+        } while(deleted == deleteChunkSize);
+
+        return deletedCount;
+    }
+
+    private HttpHeaders getDeletedCountHeaders(long deletedCount) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(DELETED_COUNT_HEADER, String.valueOf(deletedCount));
+
+        return headers;
+    }
+
     /**
      * Validate a group matching given parameters exists
      *
@@ -319,4 +404,22 @@ public class DeviceGroupServiceImpl implements DeviceGroupService {
             throwNotFoundException(String.format("[id: %d, name: %s]", id, name));
         }
     }
+
+    private void throwNoMeasurementsFound(Integer id, Date exactTime, Date startTime, Date endTime) {
+        String parameters = String.format("exactTime %s, startTime %s, endTime: %s",
+            formatTime(exactTime), formatTime(startTime), formatTime(endTime));
+        throw new ExceptionWrapper(
+            "Get group's measurements failed",
+            String.format("No measurements found for group %d with parameters: %s", id, parameters),
+            ErrorCode.NO_ITEMS_FOUND);
+    }
+
+    private void throwNoLocationsFound(Integer id, Date exactTime, Date startTime, Date endTime) {
+        String parameters = String.format("exactTime %s, startTime %s, endTime: %s",
+            formatTime(exactTime), formatTime(startTime), formatTime(endTime));
+        throw new ExceptionWrapper(
+            "Get group's location updates failed",
+            String.format("No locations found for group %d with parameters: %s", id, parameters),
+            ErrorCode.NO_ITEMS_FOUND);
+    }
 }
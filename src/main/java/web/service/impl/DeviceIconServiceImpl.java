@@ -20,6 +20,7 @@ import web.mapper.DeviceTypeMapper;
 import web.repository.DeviceIconRepository;
 import web.repository.DeviceTypeRepository;
 import web.service.DeviceIconService;
+import web.service.cache.ResourceVersions;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -29,6 +30,9 @@ import java.util.regex.Pattern;
 
 import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
 import static web.mapper.DeviceIconMapper.mapToCollection;
+import static web.service.cache.ResourceVersions.Resource.DEVICE_ICON;
+import static web.service.cache.ResourceVersions.Resource.DEVICE_TYPE;
+import static web.service.cache.ResourceVersions.getETagHeaders;
 import static web.validators.FilterValidator.checkForMinimumFilters;
 
 @Service
@@ -36,6 +40,7 @@ public class DeviceIconServiceImpl implements DeviceIconService {
 
     private final DeviceIconRepository deviceIconRepository;
     private final DeviceTypeRepository deviceTypeRepository;
+    private final ResourceVersions resourceVersions;
 
     private final Path path;
     private final String iconsLocation;
@@ -43,25 +48,34 @@ public class DeviceIconServiceImpl implements DeviceIconService {
     private final Pattern filenamePattern = Pattern.compile(filenameRegex);
 
     DeviceIconServiceImpl(DeviceIconRepository deviceIconRepository, DeviceTypeRepository deviceTypeRepository,
+                          ResourceVersions resourceVersions,
                           @Value("${deviceicon.upload.location.root}") String root,
                           @Value("${deviceicon.upload.location.icons}") String iconsLocation) {
         this.deviceIconRepository = deviceIconRepository;
         this.deviceTypeRepository = deviceTypeRepository;
+        this.resourceVersions = resourceVersions;
         this.iconsLocation = iconsLocation;
         this.path = Paths.get(root + iconsLocation);
     }
 
     @Override
-    public ResponseWrapper getDeviceIcons(Integer id, String name) {
+    public ResponseWrapper getDeviceIcons(Integer id, String name, String ifNoneMatch) {
         try {
             validateDeviceIconName(name);
+
+            // Version is read before the database, so changes made meanwhile are not hidden behind this ETag
+            String eTag = resourceVersions.getETag(DEVICE_ICON);
+            if(ResourceVersions.matches(ifNoneMatch, eTag)) {
+                return new ResponseWrapper("", getETagHeaders(eTag), HttpStatus.NOT_MODIFIED);
+            }
+
             Collection<DeviceIcon> deviceIcons = deviceIconRepository.getDeviceIcons(id, name);
 
            if(CollectionUtils.isEmpty(deviceIcons)) {
                 throwNotFoundException(String.format("[id: %d, name: %s]",id, name));
            }
 
-            return new ResponseWrapper(mapToCollection(deviceIcons));
+            return new ResponseWrapper(mapToCollection(deviceIcons), getETagHeaders(eTag), HttpStatus.OK);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get device icons failed");
         }
@@ -77,6 +91,7 @@ public class DeviceIconServiceImpl implements DeviceIconService {
 
             DeviceIcon deviceIcon = new DeviceIcon(null, name);
             DeviceIcon addedDeviceIcon = deviceIconRepository.addDeviceIcon(deviceIcon);
+            resourceVersions.increment(DEVICE_ICON);
             Files.copy(icon.getInputStream(), path.resolve(deviceIcon.getName()));
 
             return new ResponseWrapper(mapToCollection(addedDeviceIcon), HttpStatus.CREATED);
@@ -95,6 +110,7 @@ public class DeviceIconServiceImpl implements DeviceIconService {
 
             DeviceIcon deviceIcon = getDeviceIcon(id, name);
             Boolean deleteSuccessful = deviceIconRepository.deleteDeviceIcon(id, name);
+            resourceVersions.increment(DEVICE_ICON, DEVICE_TYPE);
 
             if (deleteSuccessful) {
                 Files.delete(path.resolve(deviceIcon.getName()));
@@ -134,6 +150,7 @@ public class DeviceIconServiceImpl implements DeviceIconService {
 
             DeviceIcon originalDeviceIcon = getDeviceIcon(id, name);
             DeviceIcon updatedDeviceIcon = deviceIconRepository.updateDeviceIcon(id, name, deviceIcon);
+            resourceVersions.increment(DEVICE_ICON);
             Files.move(path.resolve(originalDeviceIcon.getName()), path.resolve(deviceIcon.getName()));
 
             // TODO, fix commit calls during single stored procedure. Currently update procedures return old item - not the updated one
@@ -175,6 +192,7 @@ public class DeviceIconServiceImpl implements DeviceIconService {
 
             deviceType.setDeviceIconId(id);
             DeviceType addedDeviceType = deviceTypeRepository.addDeviceType(deviceType);
+            resourceVersions.increment(DEVICE_TYPE);
 
             return new ResponseWrapper(DeviceTypeMapper.mapToCollection(addedDeviceType), HttpStatus.CREATED);
         } catch (Exception e) {
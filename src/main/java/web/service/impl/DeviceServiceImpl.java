@@ -6,6 +6,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import web.domain.entity.*;
+import web.domain.job.Job;
 import web.domain.response.ErrorCode;
 import web.domain.response.ResponseWrapper;
 import web.exception.ExceptionHandlingUtils;
@@ -13,21 +14,34 @@ import web.exception.ExceptionWrapper;
 import web.mapper.ConfigurationMapper;
 import web.mapper.DeviceGroupMapper;
 import web.mapper.DeviceTypeMapper;
+import web.mapper.JobMapper;
+import web.mapper.LatestValueMapper;
 import web.repository.ConfigurationRepository;
 import web.repository.DeviceGroupRepository;
 import web.repository.DeviceRepository;
 import web.repository.DeviceTypeRepository;
+import web.repository.LocationRepository;
+import web.repository.MeasurementRepository;
 import web.service.DeviceService;
 import web.service.DeviceTypeService;
 import web.service.LocationService;
 import web.service.MeasurementService;
+import web.service.cache.CurrentLocations;
+import web.service.cache.DeviceCache;
+import web.service.cache.DeviceKeyIndex;
+import web.service.cache.LatestValues;
+import web.service.cache.ResourceVersions;
+import web.service.job.JobRunner;
 import web.validators.FilterValidator;
 
-import java.util.Collection;
-import java.util.Date;
+import java.util.*;
+import java.util.stream.StreamSupport;
 
 import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
 import static web.mapper.DeviceMapper.mapToCollection;
+import static web.service.cache.ResourceVersions.Resource.CONFIGURATION;
+import static web.service.cache.ResourceVersions.Resource.DEVICE_GROUP;
+import static web.service.cache.ResourceVersions.Resource.DEVICE_TYPE;
 
 @Service
 public class DeviceServiceImpl implements DeviceService {
@@ -39,11 +53,22 @@ public class DeviceServiceImpl implements DeviceService {
     private final ConfigurationRepository configurationRepository;
     private final MeasurementService measurementService;
     private final LocationService locationService;
+    private final DeviceCache deviceCache;
+    private final DeviceKeyIndex deviceKeyIndex;
+    private final LatestValues latestValues;
+    private final CurrentLocations currentLocations;
+    private final MeasurementRepository measurementRepository;
+    private final LocationRepository locationRepository;
+    private final JobRunner jobRunner;
+    private final ResourceVersions resourceVersions;
 
     DeviceServiceImpl(DeviceRepository deviceRepository, DeviceGroupRepository deviceGroupRepository,
                       DeviceTypeRepository deviceTypeRepository, DeviceTypeService deviceTypeService,
                       ConfigurationRepository configurationRepository, MeasurementService measurementService,
-                      LocationService locationService) {
+                      LocationService locationService, DeviceCache deviceCache, DeviceKeyIndex deviceKeyIndex,
+                      LatestValues latestValues, CurrentLocations currentLocations,
+                      MeasurementRepository measurementRepository, LocationRepository locationRepository,
+                      JobRunner jobRunner, ResourceVersions resourceVersions) {
         this.deviceRepository = deviceRepository;
         this.deviceGroupRepository = deviceGroupRepository;
         this.deviceTypeRepository = deviceTypeRepository;
@@ -51,6 +76,14 @@ public class DeviceServiceImpl implements DeviceService {
         this.configurationRepository = configurationRepository;
         this.measurementService = measurementService;
         this.locationService = locationService;
+        this.deviceCache = deviceCache;
+        this.deviceKeyIndex = deviceKeyIndex;
+        this.latestValues = latestValues;
+        this.currentLocations = currentLocations;
+        this.measurementRepository = measurementRepository;
+        this.locationRepository = locationRepository;
+        this.jobRunner = jobRunner;
+        this.resourceVersions = resourceVersions;
     }
 
     @Override
@@ -74,10 +107,34 @@ public class DeviceServiceImpl implements DeviceService {
         return null;
     }
 
+    @Override
+    public ResponseWrapper getLatestValues(Integer deviceGroupId) {
+        try {
+            Collection<Device> devices = deviceRepository.getDevices(null, null, null, deviceGroupId, null, null);
+
+            if(CollectionUtils.isEmpty(devices)) {
+                throwNotFoundException(String.format("[deviceGroupId: %s]", deviceGroupId));
+            }
+
+            List<Integer> deviceIds = new ArrayList<>();
+            devices.forEach(device -> deviceIds.add(device.getId()));
+
+            return new ResponseWrapper(LatestValueMapper.mapToCollection(devices,
+                latestValues.getMeasurements(deviceIds, deviceGroupId),
+                latestValues.getLocations(deviceIds, deviceGroupId)));
+        } catch(Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get latest values failed");
+        }
+
+        return null;
+    }
+
     @Override
     public ResponseWrapper addDevice(Device device) {
         try {
             Device addedDevice = deviceRepository.addDevice(device);
+            deviceCache.invalidate(addedDevice.getId());
+            deviceKeyIndex.put(addedDevice.getId(), addedDevice.getAuthenticationKey());
 
             return new ResponseWrapper(mapToCollection(addedDevice), HttpStatus.CREATED);
         } catch(Exception e) {
@@ -94,6 +151,10 @@ public class DeviceServiceImpl implements DeviceService {
             validateDeviceExists(id, name, authenticationKey);
 
             Device updatedDevice = deviceRepository.updateDevice(id, name, authenticationKey, device);
+            deviceCache.invalidate(updatedDevice.getId());
+            // Update does not change authentication key, so device stays resolvable without database lookup
+            deviceKeyIndex.put(updatedDevice.getId(), updatedDevice.getAuthenticationKey());
+            currentLocations.invalidate();
 
             // TODO, fix commit calls during single stored procedure. Currently update procedures return old item - not the updated one
             updatedDevice.setName(device.getName());
@@ -113,9 +174,27 @@ public class DeviceServiceImpl implements DeviceService {
     public ResponseWrapper deleteDevice(Integer id, String name, String authenticationKey) {
         try {
             FilterValidator.checkForMinimumFilters(id, name, authenticationKey);
-            validateDeviceExists(id, name, authenticationKey);
+            Collection<Device> devices = deviceRepository.getDevices(id, name, null, null, null, authenticationKey);
+
+            if(CollectionUtils.isEmpty(devices)) {
+                throwNotFoundException(String.format("[id: %d, name: %s, authenticationKey: %s]", id, name, authenticationKey));
+            }
+
+            // Rows are deleted in chunks first, so device_delete trigger only removes rows written meanwhile
+            devices.forEach(device -> {
+                jobRunner.deleteInChunks(limit ->
+                    measurementRepository.deleteMeasurementsChunk(device.getId(), null, null, null, limit));
+                jobRunner.deleteInChunks(limit ->
+                    locationRepository.deleteLocationsChunk(device.getId(), null, null, null, limit));
+            });
 
             Boolean deleteSuccessful = deviceRepository.deleteDevice(id, name, authenticationKey);
+            devices.forEach(deletedDevice -> {
+                deviceCache.invalidate(deletedDevice.getId());
+                deviceKeyIndex.remove(deletedDevice.getId());
+                latestValues.invalidate(deletedDevice.getId());
+            });
+            currentLocations.invalidate();
 
             if (!deleteSuccessful) {
                 throw new HibernateError("");
@@ -129,6 +208,35 @@ public class DeviceServiceImpl implements DeviceService {
         return null;
     }
 
+    @Override
+    public ResponseWrapper deleteDeviceAsync(Integer id) {
+        try {
+            FilterValidator.checkForMinimumFilters(id);
+            getDevice(id);
+
+            // Device is deleted last, so rows written meanwhile are removed by device_delete trigger
+            Job job = jobRunner.submit("delete-device", runningJob -> {
+                jobRunner.deleteInChunks(runningJob, limit ->
+                    measurementRepository.deleteMeasurementsChunk(id, null, null, null, limit));
+                jobRunner.deleteInChunks(runningJob, limit ->
+                    locationRepository.deleteLocationsChunk(id, null, null, null, limit));
+
+                deviceRepository.deleteDevice(id, null, null);
+                deviceCache.invalidate(id);
+                deviceKeyIndex.remove(id);
+                latestValues.invalidate(id);
+                currentLocations.invalidate();
+            });
+
+            return new ResponseWrapper(JobMapper.mapToCollection(job), JobMapper.getLocationHeaders(job),
+                HttpStatus.ACCEPTED);
+        } catch(Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete device failed");
+        }
+
+        return null;
+    }
+
     @Override
     public ResponseWrapper getDevicesGroup(Integer id) {
         try {
@@ -169,8 +277,10 @@ public class DeviceServiceImpl implements DeviceService {
 
             // Add new group and use its ID for device's groupId
             DeviceGroup addedDeviceGroup = deviceGroupRepository.addDeviceGroup(deviceGroup);
+            resourceVersions.increment(DEVICE_GROUP);
             device.setDeviceGroupId(addedDeviceGroup.getId());
             deviceRepository.updateDevice(id, null, null, device);
+            currentLocations.invalidate();
 
             return new ResponseWrapper(DeviceGroupMapper.mapToCollection(addedDeviceGroup), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -194,6 +304,7 @@ public class DeviceServiceImpl implements DeviceService {
             }
 
             DeviceGroup updatedDeviceGroup = deviceGroupRepository.updateDeviceGroup(device.getDeviceGroupId(), null, deviceGroup);
+            resourceVersions.increment(DEVICE_GROUP);
 
             return new ResponseWrapper(DeviceGroupMapper.mapToCollection(updatedDeviceGroup));
         } catch (Exception e) {
@@ -214,6 +325,8 @@ public class DeviceServiceImpl implements DeviceService {
             }
 
             Boolean deleteSuccessful = deviceGroupRepository.deleteDeviceGroup(device.getDeviceGroupId(), null);
+            resourceVersions.increment(DEVICE_GROUP);
+            currentLocations.invalidate();
 
             if(!deleteSuccessful) {
                 throw new HibernateError("");
@@ -267,8 +380,10 @@ public class DeviceServiceImpl implements DeviceService {
 
             // Add new type and use its ID for device's typeId
             DeviceType addedDeviceType = deviceTypeRepository.addDeviceType(deviceType);
+            resourceVersions.increment(DEVICE_TYPE);
             device.setDeviceTypeId(addedDeviceType.getId());
             deviceRepository.updateDevice(id, null, null, device);
+            currentLocations.invalidate();
 
             return new ResponseWrapper(DeviceTypeMapper.mapToCollection(addedDeviceType), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -292,6 +407,7 @@ public class DeviceServiceImpl implements DeviceService {
             }
 
             DeviceType updatedDeviceType = deviceTypeRepository.updateDeviceType(device.getDeviceTypeId(), null, deviceType);
+            resourceVersions.increment(DEVICE_TYPE);
 
             return new ResponseWrapper(DeviceTypeMapper.mapToCollection(updatedDeviceType));
         } catch (Exception e) {
@@ -312,6 +428,8 @@ public class DeviceServiceImpl implements DeviceService {
             }
 
             Boolean deleteSuccessful = deviceTypeRepository.deleteDeviceType(device.getDeviceTypeId(), null);
+            resourceVersions.increment(DEVICE_TYPE);
+            currentLocations.invalidate();
 
             if(!deleteSuccessful) {
                 throw new HibernateError("");
@@ -419,6 +537,7 @@ public class DeviceServiceImpl implements DeviceService {
 
             // Add new configuration and use its ID for device's configurationId
             Configuration addedConfiguration = configurationRepository.addConfiguration(configuration);
+            resourceVersions.increment(CONFIGURATION);
             device.setConfigurationId(addedConfiguration.getId());
             deviceRepository.updateDevice(id, null, null, device);
 
@@ -444,6 +563,7 @@ public class DeviceServiceImpl implements DeviceService {
             }
 
             Configuration updatedConfiguration = configurationRepository.updateConfiguration(device.getConfigurationId(), null, configuration);
+            resourceVersions.increment(CONFIGURATION);
 
             return new ResponseWrapper(ConfigurationMapper.mapToCollection(updatedConfiguration));
         } catch (Exception e) {
@@ -464,6 +584,7 @@ public class DeviceServiceImpl implements DeviceService {
             }
 
             Boolean deleteSuccessful = configurationRepository.deleteConfiguration(configurationId, null);
+            resourceVersions.increment(CONFIGURATION);
 
             if(!deleteSuccessful) {
                 throw new HibernateError("");
@@ -478,8 +599,26 @@ public class DeviceServiceImpl implements DeviceService {
     }
 
     @Override
-    public ResponseWrapper getDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime) {
-        return measurementService.getMeasurements(id, exactTime, startTime, endTime);
+    public ResponseWrapper getDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime,
+                                                  List<String> content, Integer limit, String order, String cursor) {
+        return measurementService.getMeasurements(id, exactTime, startTime, endTime, content, limit, order, cursor);
+    }
+
+    @Override
+    public ResponseWrapper streamDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime,
+                                                     List<String> content, String order) {
+        return measurementService.streamMeasurements(id, exactTime, startTime, endTime, content, order);
+    }
+
+    @Override
+    public ResponseWrapper getDevicesMeasurementAggregates(Integer id, Date startTime, Date endTime, String field,
+                                                           String bucket, String functions) {
+        return measurementService.getMeasurementAggregates(id, startTime, endTime, field, bucket, functions);
+    }
+
+    @Override
+    public ResponseWrapper getDevicesLatestMeasurement(Integer id) {
+        return measurementService.getLatestMeasurement(id);
     }
 
     @Override
@@ -488,14 +627,39 @@ public class DeviceServiceImpl implements DeviceService {
         return measurementService.addMeasurement(measurement);
     }
 
+    @Override
+    public ResponseWrapper addMeasurementsForDevice(Integer id, Iterator<Measurement> measurements) {
+        // Device ID is set lazily so that streamed body is still consumed one item at a time
+        Iterator<Measurement> deviceMeasurements = StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(measurements, Spliterator.ORDERED), false)
+            .peek(measurement -> measurement.setDeviceId(id))
+            .iterator();
+
+        return measurementService.addMeasurements(deviceMeasurements);
+    }
+
     @Override
     public ResponseWrapper deleteDevicesMeasurements(Integer id, Date exactTime, Date startTime, Date endTime) {
         return measurementService.deleteMeasurements(id, exactTime, startTime, endTime);
     }
 
     @Override
-    public ResponseWrapper getDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime) {
-        return locationService.getLocations(id, exactTime, startTime, endTime);
+    public ResponseWrapper deleteDevicesMeasurementsAsync(Integer id, Date exactTime, Date startTime, Date endTime) {
+        return measurementService.deleteMeasurementsAsync(id, exactTime, startTime, endTime);
+    }
+
+    @Override
+    public ResponseWrapper getDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                               String near, Double radius, Double simplify, Integer maxPoints,
+                                               Integer limit, String order, String cursor) {
+        return locationService.getLocations(id, exactTime, startTime, endTime, bbox, near, radius, simplify, maxPoints,
+            limit, order, cursor);
+    }
+
+    @Override
+    public ResponseWrapper streamDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime, String bbox,
+                                                  String near, Double radius, String order) {
+        return locationService.streamLocations(id, exactTime, startTime, endTime, bbox, near, radius, order);
     }
 
     @Override
@@ -504,18 +668,72 @@ public class DeviceServiceImpl implements DeviceService {
         return locationService.addLocation(location);
     }
 
+    @Override
+    public ResponseWrapper getDevicesLatestLocation(Integer id) {
+        return locationService.getLatestLocation(id);
+    }
+
+    @Override
+    public ResponseWrapper addMeasurementForDeviceKey(String authenticationKey, Measurement measurement) {
+        return addMeasurementForDevice(resolveDeviceKey(authenticationKey, "Add measurement failed"), measurement);
+    }
+
+    @Override
+    public ResponseWrapper addMeasurementsForDeviceKey(String authenticationKey, Iterator<Measurement> measurements) {
+        return addMeasurementsForDevice(resolveDeviceKey(authenticationKey, "Add measurements failed"), measurements);
+    }
+
+    @Override
+    public ResponseWrapper addLocationForDeviceKey(String authenticationKey, Location location) {
+        return addLocationForDevice(resolveDeviceKey(authenticationKey, "Add location failed"), location);
+    }
+
     @Override
     public ResponseWrapper deleteDevicesLocations(Integer id, Date exactTime, Date startTime, Date endTime) {
         return locationService.deleteLocations(id, exactTime, startTime, endTime);
     }
 
+    @Override
+    public ResponseWrapper deleteDevicesLocationsAsync(Integer id, Date exactTime, Date startTime, Date endTime) {
+        return locationService.deleteLocationsAsync(id, exactTime, startTime, endTime);
+    }
+
     @Override
     public void validateDeviceExists(Integer id, String name, String authenticationKey) throws NotFoundException {
+        // Ingestion checks devices by ID only. These checks are answered from cache without querying the database.
+        if(id != null && name == null && deviceCache.contains(id, authenticationKey)) {
+            return;
+        }
+
         Collection<Device> devices = deviceRepository.getDevices(id, name, null, null, null, authenticationKey);
 
         if(CollectionUtils.isEmpty(devices)) {
             throwNotFoundException(String.format("[id: %d, name: %s, authenticationKey: %s]", id, name, authenticationKey));
         }
+
+        devices.forEach(device -> deviceCache.put(device.getId(), device.getAuthenticationKey()));
+    }
+
+    /**
+     * Resolve ID of device with given authentication key. Resolved device is cached so that following existence check
+     * does not query the database.
+     */
+    private Integer resolveDeviceKey(String authenticationKey, String title) {
+        Integer id;
+
+        try {
+            id = deviceKeyIndex.resolve(authenticationKey);
+        } catch(Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, title);
+            return null;
+        }
+
+        if(id == null) {
+            throw new ExceptionWrapper(title, "Invalid device authentication key", ErrorCode.UNAUTHORIZED);
+        }
+
+        deviceCache.put(id, authenticationKey);
+        return id;
     }
 
     /**
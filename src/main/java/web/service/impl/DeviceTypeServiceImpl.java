@@ -19,12 +19,16 @@ import web.repository.DeviceTypeRepository;
 import web.service.DeviceIconService;
 import web.service.DeviceService;
 import web.service.DeviceTypeService;
+import web.service.cache.CurrentLocations;
+import web.service.cache.ResourceVersions;
 import web.validators.FilterValidator;
 
 import java.util.Collection;
 
 import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
 import static web.mapper.DeviceTypeMapper.mapToCollection;
+import static web.service.cache.ResourceVersions.Resource.DEVICE_TYPE;
+import static web.service.cache.ResourceVersions.getETagHeaders;
 
 @Service
 public class DeviceTypeServiceImpl implements DeviceTypeService {
@@ -33,25 +37,36 @@ public class DeviceTypeServiceImpl implements DeviceTypeService {
     private final DeviceIconService deviceIconService;
     private final DeviceService deviceService;
     private final DeviceIconRepository deviceIconRepository;
+    private final CurrentLocations currentLocations;
+    private final ResourceVersions resourceVersions;
 
     DeviceTypeServiceImpl(DeviceTypeRepository deviceTypeRepository, DeviceIconService deviceIconService,
-                          @Lazy DeviceService deviceService, DeviceIconRepository deviceIconRepository) {
+                          @Lazy DeviceService deviceService, DeviceIconRepository deviceIconRepository,
+                          CurrentLocations currentLocations, ResourceVersions resourceVersions) {
         this.deviceTypeRepository = deviceTypeRepository;
         this.deviceIconService = deviceIconService;
         this.deviceService = deviceService;
         this.deviceIconRepository = deviceIconRepository;
+        this.currentLocations = currentLocations;
+        this.resourceVersions = resourceVersions;
     }
 
     @Override
-    public ResponseWrapper getDeviceTypes(Integer id, String name, Integer deviceIconId) {
+    public ResponseWrapper getDeviceTypes(Integer id, String name, Integer deviceIconId, String ifNoneMatch) {
         try {
+            // Version is read before the database, so changes made meanwhile are not hidden behind this ETag
+            String eTag = resourceVersions.getETag(DEVICE_TYPE);
+            if(ResourceVersions.matches(ifNoneMatch, eTag)) {
+                return new ResponseWrapper("", getETagHeaders(eTag), HttpStatus.NOT_MODIFIED);
+            }
+
             Collection <DeviceType> deviceTypes = deviceTypeRepository.getDeviceTypes(id, name, deviceIconId);
 
             if(CollectionUtils.isEmpty(deviceTypes)) {
                 throwNotFoundException(String.format("[id: %d, name: %s, deviceIconId: %d]",id, name, deviceIconId));
             }
 
-            return new ResponseWrapper(mapToCollection(deviceTypes));
+            return new ResponseWrapper(mapToCollection(deviceTypes), getETagHeaders(eTag), HttpStatus.OK);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get device types failed");
         }
@@ -63,6 +78,7 @@ public class DeviceTypeServiceImpl implements DeviceTypeService {
     public ResponseWrapper addDeviceType(DeviceType deviceType) {
         try {
             DeviceType addedDeviceType = deviceTypeRepository.addDeviceType(deviceType);
+            resourceVersions.increment(DEVICE_TYPE);
 
             return new ResponseWrapper(mapToCollection(addedDeviceType), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -79,6 +95,7 @@ public class DeviceTypeServiceImpl implements DeviceTypeService {
             validateTypeExists(id, name);
 
             DeviceType updatedDeviceType = deviceTypeRepository.updateDeviceType(id, name, deviceType);
+            resourceVersions.increment(DEVICE_TYPE);
 
             // TODO, fix commit calls during single stored procedure. Currently update procedures return old item - not the updated one
             updatedDeviceType.setName(deviceType.getName());
@@ -99,6 +116,8 @@ public class DeviceTypeServiceImpl implements DeviceTypeService {
             validateTypeExists(id, name);
 
             Boolean deleteSuccessful = deviceTypeRepository.deleteDeviceType(id, name);
+            resourceVersions.increment(DEVICE_TYPE);
+            currentLocations.invalidate();
 
             if(!deleteSuccessful) {
                 throw new HibernateError("");
@@ -123,7 +142,7 @@ public class DeviceTypeServiceImpl implements DeviceTypeService {
                 throw new ExceptionWrapper("Get device type's icon failed", "DeviceIcon ID is null", ErrorCode.PARAMETER_CONFLICT);
             }
 
-            return deviceIconService.getDeviceIcons(deviceType.getDeviceIconId(), null);
+            return deviceIconService.getDeviceIcons(deviceType.getDeviceIconId(), null, null);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get device type's icon failed");
         }
@@ -155,6 +174,7 @@ public class DeviceTypeServiceImpl implements DeviceTypeService {
             deviceType.setDeviceIconId(addedDeviceIcon.getId());
 
             DeviceType updatedDeviceType = deviceTypeRepository.updateDeviceType(id, null, deviceType);
+            resourceVersions.increment(DEVICE_TYPE);
 
             return new ResponseWrapper(mapToCollection(updatedDeviceType), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -0,0 +1,121 @@
+package web.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import web.domain.entity.Location;
+import web.domain.entity.Measurement;
+import web.domain.filter.ContentFilter;
+import web.domain.pagination.KeysetPage;
+import web.domain.response.ErrorCode;
+import web.domain.response.ResponseWrapper;
+import web.domain.spatial.GeoArea;
+import web.exception.ExceptionHandlingUtils;
+import web.exception.ExceptionWrapper;
+import web.repository.LocationRepository;
+import web.repository.MeasurementRepository;
+import web.service.ExportService;
+import web.service.scan.ParallelScanner;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static web.mapper.ExportMapper.mapLocationsToExport;
+import static web.mapper.ExportMapper.mapMeasurementsToExport;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private final MeasurementRepository measurementRepository;
+    private final LocationRepository locationRepository;
+    private final ParallelScanner parallelScanner;
+    private final Integer maxPageSize;
+
+    ExportServiceImpl(MeasurementRepository measurementRepository, LocationRepository locationRepository,
+                      ParallelScanner parallelScanner, @Value("${pagination.max-limit}") Integer maxPageSize) {
+        this.measurementRepository = measurementRepository;
+        this.locationRepository = locationRepository;
+        this.parallelScanner = parallelScanner;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public ResponseWrapper exportMeasurements(Integer deviceId, Integer deviceGroupId, Date exactTime, Date startTime,
+                                              Date endTime, List<String> content, String order) {
+        try {
+            validateDeviceFilters(deviceId, deviceGroupId);
+            List<ContentFilter> contentFilters = ContentFilter.of(content);
+            Boolean descending = KeysetPage.of(null, order, null, maxPageSize).getDescending();
+
+            ParallelScanner.RangeScan<Measurement> rangeScan = (rangeStart, rangeEnd, consumer) -> {
+                if(deviceGroupId != null) {
+                    measurementRepository.streamDeviceGroupMeasurements(deviceGroupId, exactTime, rangeStart,
+                        rangeEnd, contentFilters, descending, consumer);
+                } else {
+                    measurementRepository.streamMeasurements(deviceId, exactTime, rangeStart, rangeEnd,
+                        contentFilters, descending, consumer);
+                }
+            };
+
+            // Empty export contains only the header, so rows are not checked beforehand
+            return new ResponseWrapper(mapMeasurementsToExport(consumer ->
+                scan(exactTime, startTime, endTime,
+                    () -> measurementRepository.getMeasurementTimeRange(deviceId, deviceGroupId), descending, rangeScan,
+                    consumer)));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Export measurements failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper exportLocations(Integer deviceId, Integer deviceGroupId, Date exactTime, Date startTime,
+                                           Date endTime, String bbox, String near, Double radius, String order) {
+        try {
+            validateDeviceFilters(deviceId, deviceGroupId);
+            GeoArea area = GeoArea.of(bbox, near, radius);
+            Boolean descending = KeysetPage.of(null, order, null, maxPageSize).getDescending();
+
+            ParallelScanner.RangeScan<Location> rangeScan = (rangeStart, rangeEnd, consumer) -> {
+                if(deviceGroupId != null) {
+                    locationRepository.streamDeviceGroupLocations(deviceGroupId, exactTime, rangeStart, rangeEnd, area,
+                        descending, consumer);
+                } else {
+                    locationRepository.streamLocations(deviceId, exactTime, rangeStart, rangeEnd, area, descending,
+                        consumer);
+                }
+            };
+
+            // Empty export contains only the header, so rows are not checked beforehand
+            return new ResponseWrapper(mapLocationsToExport(consumer ->
+                scan(exactTime, startTime, endTime,
+                    () -> locationRepository.getLocationTimeRange(deviceId, deviceGroupId), descending, rangeScan,
+                    consumer)));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Export locations failed");
+        }
+
+        return null;
+    }
+
+    /**
+     * Scan long time ranges in parallel sub-ranges. Exact time matches single timestamp, so it is scanned as is.
+     */
+    private <T> void scan(Date exactTime, Date startTime, Date endTime, Supplier<Date[]> dataRange, Boolean descending,
+                          ParallelScanner.RangeScan<T> rangeScan, Consumer<T> consumer) {
+        if(exactTime != null) {
+            rangeScan.scan(startTime, endTime, consumer);
+        } else {
+            parallelScanner.scan(startTime, endTime, dataRange, descending, rangeScan, consumer);
+        }
+    }
+
+    private void validateDeviceFilters(Integer deviceId, Integer deviceGroupId) {
+        if(deviceId != null && deviceGroupId != null) {
+            throw new ExceptionWrapper("Invalid filters", "Use either deviceId or deviceGroupId",
+                ErrorCode.PARAMETER_VALIDATION_ERROR);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package web.service.impl;
+
+import org.springframework.stereotype.Service;
+import web.domain.job.Job;
+import web.domain.response.ResponseWrapper;
+import web.exception.ExceptionHandlingUtils;
+import web.service.JobService;
+import web.service.job.JobRunner;
+
+import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
+import static web.mapper.JobMapper.mapToCollection;
+
+@Service
+public class JobServiceImpl implements JobService {
+
+    private final JobRunner jobRunner;
+
+    JobServiceImpl(JobRunner jobRunner) {
+        this.jobRunner = jobRunner;
+    }
+
+    @Override
+    public ResponseWrapper getJob(String id) {
+        try {
+            Job job = jobRunner.getJob(id);
+
+            if(job == null) {
+                throwNotFoundException(String.format("[id: %s]", id));
+            }
+
+            return new ResponseWrapper(mapToCollection(job));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get job failed");
+        }
+
+        return null;
+    }
+}
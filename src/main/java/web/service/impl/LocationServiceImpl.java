@@ -2,41 +2,88 @@ package web.service.impl;
 
 import javassist.NotFoundException;
 import org.hibernate.HibernateError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import web.domain.entity.Location;
+import web.domain.job.Job;
+import web.domain.pagination.KeysetPage;
 import web.domain.response.ResponseWrapper;
+import web.domain.spatial.GeoArea;
+import web.domain.spatial.TrajectorySimplifier;
 import web.exception.ExceptionHandlingUtils;
+import web.mapper.JobMapper;
 import web.repository.LocationRepository;
 import web.service.DeviceService;
 import web.service.LocationService;
+import web.service.cache.CurrentLocations;
+import web.service.cache.LatestValues;
+import web.service.cache.ResourceVersions;
+import web.service.job.JobRunner;
 import web.validators.FilterValidator;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
 import static web.mapper.LocationMapper.mapToCollection;
+import static web.mapper.LocationMapper.mapToCurrentCollection;
+import static web.mapper.LocationMapper.mapToStreamingCollection;
 import static web.mapper.MapperUtils.formatTime;
+import static web.service.cache.ResourceVersions.getETagHeaders;
 
 @Service
+@ConditionalOnProperty(name = "ingestion.mode", havingValue = "direct", matchIfMissing = true)
 public class LocationServiceImpl implements LocationService {
 
     private final LocationRepository locationRepository;
     // Uses @Lazy injection due to circular dependency
     private final DeviceService deviceService;
-
-    LocationServiceImpl(LocationRepository locationRepository, @Lazy DeviceService deviceService) {
+    private final LatestValues latestValues;
+    private final CurrentLocations currentLocations;
+    private final JobRunner jobRunner;
+    private final Integer maxPageSize;
+
+    LocationServiceImpl(LocationRepository locationRepository, @Lazy DeviceService deviceService,
+                        LatestValues latestValues, CurrentLocations currentLocations, JobRunner jobRunner,
+                        @Value("${pagination.max-limit}") Integer maxPageSize) {
         this.locationRepository = locationRepository;
         this.deviceService = deviceService;
+        this.latestValues = latestValues;
+        this.currentLocations = currentLocations;
+        this.jobRunner = jobRunner;
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
-    public ResponseWrapper getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+    public ResponseWrapper getLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, String bbox,
+                                        String near, Double radius, Double simplify, Integer maxPoints, Integer limit,
+                                        String order, String cursor) {
         try {
-            Collection<Location> locations = locationRepository.getLocations(deviceId, exactTime, startTime, endTime);
+            GeoArea area = GeoArea.of(bbox, near, radius);
+            TrajectorySimplifier simplifier = TrajectorySimplifier.of(simplify, maxPoints, maxPageSize);
+            KeysetPage page = KeysetPage.of(limit, order, cursor, maxPageSize);
+
+            if(simplifier != null) {
+                // Whole history is simplified, so pagination is not applied. Result is limited to maximum page size.
+                locationRepository.streamLocations(deviceId, exactTime, startTime, endTime, area,
+                    page.getDescending(), simplifier::add);
+                List<Location> locations = simplifier.getLocations();
+
+                if(CollectionUtils.isEmpty(locations)) {
+                    throwNotFoundException(String.format(
+                        "[deviceId: %d, exactTime: %s, startTime: %s, endTime: %s]",
+                        deviceId, formatTime(exactTime), formatTime(startTime), formatTime(endTime)));
+                }
+
+                return new ResponseWrapper(mapToCollection(locations));
+            }
+
+            List<Location> locations = locationRepository.getLocations(deviceId, exactTime, startTime, endTime, area, page);
 
             if(CollectionUtils.isEmpty(locations)) {
                 throwNotFoundException(String.format(
@@ -44,7 +91,26 @@ public class LocationServiceImpl implements LocationService {
                     deviceId, formatTime(exactTime), formatTime(startTime), formatTime(endTime)));
             }
 
-            return new ResponseWrapper(mapToCollection(locations));
+            return new ResponseWrapper(mapToCollection(page.getPageRows(locations), page.getNextCursor(locations)));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get locations failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper streamLocations(Integer deviceId, Date exactTime, Date startTime, Date endTime, String bbox,
+                                           String near, Double radius, String order) {
+        try {
+            GeoArea area = GeoArea.of(bbox, near, radius);
+            Boolean descending = KeysetPage.of(null, order, null, maxPageSize).getDescending();
+
+            // Status cannot be changed once streaming has started, so empty result is detected beforehand
+            validateLocationExists(deviceId, exactTime, startTime, endTime, area);
+
+            return new ResponseWrapper(mapToStreamingCollection(consumer ->
+                locationRepository.streamLocations(deviceId, exactTime, startTime, endTime, area, descending, consumer)));
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get locations failed");
         }
@@ -52,11 +118,55 @@ public class LocationServiceImpl implements LocationService {
         return null;
     }
 
+    @Override
+    public ResponseWrapper getLatestLocation(Integer deviceId) {
+        try {
+            FilterValidator.checkForMinimumFilters(deviceId);
+            Location location = latestValues.getLocation(deviceId);
+
+            if(location == null) {
+                throwNotFoundException(String.format("[deviceId: %d]", deviceId));
+            }
+
+            return new ResponseWrapper(mapToCollection(location));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get latest location failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper getCurrentLocations(Integer deviceGroupId, Integer deviceTypeId, String ifNoneMatch) {
+        try {
+            // Unchanged snapshot is answered without reading its locations
+            String eTag = currentLocations.getETag();
+            if(ResourceVersions.matches(ifNoneMatch, eTag)) {
+                return new ResponseWrapper("", getETagHeaders(eTag), HttpStatus.NOT_MODIFIED);
+            }
+
+            CurrentLocations.Snapshot snapshot = currentLocations.get(deviceGroupId, deviceTypeId);
+
+            if(CollectionUtils.isEmpty(snapshot.getLocations())) {
+                throwNotFoundException(String.format("[deviceGroupId: %d, deviceTypeId: %d]", deviceGroupId, deviceTypeId));
+            }
+
+            return new ResponseWrapper(mapToCurrentCollection(snapshot.getLocations()),
+                getETagHeaders(snapshot.getETag()), HttpStatus.OK);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get current locations failed");
+        }
+
+        return null;
+    }
+
     @Override
     public ResponseWrapper addLocation(Location location) {
         try {
             deviceService.validateDeviceExists(location.getDeviceId(), null, null);
             Location addedLocation = locationRepository.addLocation(location);
+            latestValues.addLocation(addedLocation);
+            currentLocations.addLocation(addedLocation);
 
             return new ResponseWrapper(mapToCollection(addedLocation), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -78,6 +188,9 @@ public class LocationServiceImpl implements LocationService {
                 throw new HibernateError("");
             }
 
+            latestValues.invalidateLocations(deviceId);
+            currentLocations.invalidate();
+
             return new ResponseWrapper("", HttpStatus.NO_CONTENT);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete location failed");
@@ -86,8 +199,38 @@ public class LocationServiceImpl implements LocationService {
         return null;
     }
 
+    @Override
+    public ResponseWrapper deleteLocationsAsync(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+        try {
+            FilterValidator.checkForMinimumFilters(deviceId, exactTime, startTime, endTime);
+            validateLocationExists(deviceId, exactTime, startTime, endTime);
+
+            Job job = jobRunner.submit("delete-locations", runningJob -> {
+                jobRunner.deleteInChunks(runningJob, limit ->
+                    locationRepository.deleteLocationsChunk(deviceId, exactTime, startTime, endTime, limit));
+
+                latestValues.invalidateLocations(deviceId);
+                currentLocations.invalidate();
+            });
+
+            return new ResponseWrapper(JobMapper.mapToCollection(job), JobMapper.getLocationHeaders(job),
+                HttpStatus.ACCEPTED);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete location failed");
+        }
+
+        return null;
+    }
+
     private void validateLocationExists(Integer deviceId, Date exactTime, Date startTime, Date endTime) throws NotFoundException  {
-        Collection<Location> locations = locationRepository.getLocations(deviceId, exactTime, startTime, endTime);
+        validateLocationExists(deviceId, exactTime, startTime, endTime, null);
+    }
+
+    private void validateLocationExists(Integer deviceId, Date exactTime, Date startTime, Date endTime, GeoArea area)
+        throws NotFoundException  {
+        // Single row is enough to prove existence
+        Collection<Location> locations = locationRepository.getLocations(
+            deviceId, exactTime, startTime, endTime, area, KeysetPage.first());
 
         if(CollectionUtils.isEmpty(locations)) {
             throwNotFoundException(String.format(
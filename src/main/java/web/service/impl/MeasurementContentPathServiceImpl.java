@@ -0,0 +1,108 @@
+package web.service.impl;
+
+import org.hibernate.HibernateError;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import web.domain.entity.MeasurementContentPath;
+import web.domain.job.Job;
+import web.domain.response.ErrorCode;
+import web.domain.response.ResponseWrapper;
+import web.exception.ExceptionHandlingUtils;
+import web.exception.ExceptionWrapper;
+import web.mapper.JobMapper;
+import web.repository.MeasurementContentPathRepository;
+import web.service.MeasurementContentPathService;
+import web.service.job.JobRunner;
+import web.validators.FilterValidator;
+
+import java.util.Collection;
+
+import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
+import static web.mapper.MeasurementContentPathMapper.mapToCollection;
+
+@Service
+public class MeasurementContentPathServiceImpl implements MeasurementContentPathService {
+
+    private final MeasurementContentPathRepository measurementContentPathRepository;
+    private final JobRunner jobRunner;
+
+    MeasurementContentPathServiceImpl(MeasurementContentPathRepository measurementContentPathRepository,
+                                      JobRunner jobRunner) {
+        this.measurementContentPathRepository = measurementContentPathRepository;
+        this.jobRunner = jobRunner;
+    }
+
+    @Override
+    public ResponseWrapper getContentPaths(String name) {
+        try {
+            Collection<MeasurementContentPath> contentPaths = measurementContentPathRepository.getContentPaths(name);
+
+            if(CollectionUtils.isEmpty(contentPaths)) {
+                throwNotFoundException(String.format("[name: %s]", name));
+            }
+
+            return new ResponseWrapper(mapToCollection(contentPaths));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get measurement content paths failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper addContentPath(MeasurementContentPath contentPath) {
+        try {
+            Collection<MeasurementContentPath> registered =
+                measurementContentPathRepository.getContentPaths(contentPath.getName());
+
+            if(!CollectionUtils.isEmpty(registered)
+                && registered.stream().anyMatch(path -> !contentPath.getType().equals(path.getType()))) {
+                throwConflict(contentPath);
+            }
+
+            Job job = jobRunner.submit("add-measurement-content-path", runningJob -> {
+                if(!measurementContentPathRepository.addContentPath(contentPath)) {
+                    throwConflict(contentPath);
+                }
+
+                runningJob.addProcessedCount(1);
+            });
+
+            return new ResponseWrapper(JobMapper.mapToCollection(job), JobMapper.getLocationHeaders(job), HttpStatus.ACCEPTED);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Add measurement content path failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper deleteContentPath(String name) {
+        try {
+            FilterValidator.checkForMinimumFilters(name);
+
+            if(CollectionUtils.isEmpty(measurementContentPathRepository.getContentPaths(name))) {
+                throwNotFoundException(String.format("[name: %s]", name));
+            }
+
+            Boolean deleteSuccessful = measurementContentPathRepository.deleteContentPath(name);
+
+            if(!deleteSuccessful) {
+                throw new HibernateError("");
+            }
+
+            return new ResponseWrapper("", HttpStatus.NO_CONTENT);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete measurement content path failed");
+        }
+
+        return null;
+    }
+
+    private static void throwConflict(MeasurementContentPath contentPath) {
+        throw new ExceptionWrapper("Add measurement content path failed",
+            String.format("Content path %s is registered with another type", contentPath.getName()),
+            ErrorCode.PARAMETER_CONFLICT);
+    }
+}
@@ -2,41 +2,91 @@ package web.service.impl;
 
 import javassist.NotFoundException;
 import org.hibernate.HibernateError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import web.domain.aggregation.TimeBucket;
+import web.domain.aggregation.TimeBucketAggregation;
 import web.domain.entity.Measurement;
+import web.domain.filter.ContentFilter;
+import web.domain.job.Job;
+import web.domain.pagination.KeysetPage;
+import web.domain.response.BatchItemStatus;
+import web.domain.response.ErrorCode;
 import web.domain.response.ResponseWrapper;
 import web.exception.ExceptionHandlingUtils;
+import web.exception.ExceptionWrapper;
+import web.mapper.BatchMapper;
+import web.mapper.JobMapper;
+import web.mapper.TimeBucketMapper;
+import web.repository.DeviceRepository;
 import web.repository.MeasurementRepository;
 import web.service.DeviceService;
 import web.service.MeasurementService;
+import web.service.cache.DeviceCache;
+import web.service.cache.LatestValues;
+import web.service.job.JobRunner;
+import web.service.rollup.MeasurementRollups;
+import web.service.scan.ParallelScanner;
 import web.validators.FilterValidator;
 
-import java.util.Collection;
-import java.util.Date;
+import java.util.*;
 
 import static web.exception.ExceptionHandlingUtils.throwNotFoundException;
 import static web.mapper.MapperUtils.formatTime;
 import static web.mapper.MeasurementMapper.mapToCollection;
+import static web.mapper.MeasurementMapper.mapToStreamingCollection;
 
 @Service
+@ConditionalOnProperty(name = "ingestion.mode", havingValue = "direct", matchIfMissing = true)
 public class MeasurementServiceImpl implements MeasurementService {
 
+    private static final Logger log = LoggerFactory.getLogger(MeasurementServiceImpl.class);
+    private static final String MEASUREMENTS_URI = "/api/measurements";
+
     private final MeasurementRepository measurementRepository;
+    private final DeviceRepository deviceRepository;
     // Uses @Lazy injection due to circular dependency
     private final DeviceService deviceService;
+    private final DeviceCache deviceCache;
+    private final MeasurementRollups measurementRollups;
+    private final LatestValues latestValues;
+    private final JobRunner jobRunner;
+    private final ParallelScanner parallelScanner;
+    private final Integer batchSize;
+    private final Integer maxPageSize;
 
-    MeasurementServiceImpl(MeasurementRepository measurementRepository, @Lazy DeviceService deviceService) {
+    MeasurementServiceImpl(MeasurementRepository measurementRepository, DeviceRepository deviceRepository,
+                           @Lazy DeviceService deviceService, DeviceCache deviceCache,
+                           MeasurementRollups measurementRollups, LatestValues latestValues, JobRunner jobRunner,
+                           ParallelScanner parallelScanner, @Value("${measurement.batch.size}") Integer batchSize,
+                           @Value("${pagination.max-limit}") Integer maxPageSize) {
         this.measurementRepository = measurementRepository;
+        this.deviceRepository = deviceRepository;
         this.deviceService = deviceService;
+        this.deviceCache = deviceCache;
+        this.measurementRollups = measurementRollups;
+        this.latestValues = latestValues;
+        this.jobRunner = jobRunner;
+        this.parallelScanner = parallelScanner;
+        this.batchSize = batchSize;
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
-    public ResponseWrapper getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+    public ResponseWrapper getMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime,
+                                           List<String> content, Integer limit, String order, String cursor) {
         try {
-            Collection<Measurement> measurements = measurementRepository.getMeasurements(deviceId, exactTime, startTime, endTime);
+            List<ContentFilter> contentFilters = ContentFilter.of(content);
+            KeysetPage page = KeysetPage.of(limit, order, cursor, maxPageSize);
+            List<Measurement> measurements = measurementRepository.getMeasurements(
+                deviceId, exactTime, startTime, endTime, contentFilters, page);
 
             if(CollectionUtils.isEmpty(measurements)) {
                 throwNotFoundException(String.format(
@@ -44,7 +94,7 @@ public class MeasurementServiceImpl implements MeasurementService {
                     deviceId, formatTime(exactTime), formatTime(startTime), formatTime(endTime)));
             }
 
-            return new ResponseWrapper(mapToCollection(measurements));
+            return new ResponseWrapper(mapToCollection(page.getPageRows(measurements), page.getNextCursor(measurements)));
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get measurements failed");
         }
@@ -52,11 +102,88 @@ public class MeasurementServiceImpl implements MeasurementService {
         return null;
     }
 
+    @Override
+    public ResponseWrapper streamMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime,
+                                              List<String> content, String order) {
+        try {
+            List<ContentFilter> contentFilters = ContentFilter.of(content);
+            Boolean descending = KeysetPage.of(null, order, null, maxPageSize).getDescending();
+
+            // Status cannot be changed once streaming has started, so empty result is detected beforehand
+            validateMeasurementExists(deviceId, exactTime, startTime, endTime, contentFilters);
+
+            return new ResponseWrapper(mapToStreamingCollection(consumer -> measurementRepository.streamMeasurements(
+                deviceId, exactTime, startTime, endTime, contentFilters, descending, consumer)));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get measurements failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper getMeasurementAggregates(Integer deviceId, Date startTime, Date endTime, String field,
+                                                    String bucket, String functions) {
+        try {
+            FilterValidator.checkForMinimumFilters(deviceId);
+            TimeBucketAggregation aggregation = TimeBucketAggregation.of(field, bucket, functions);
+
+            Integer resolutionSeconds = measurementRollups.selectResolution(aggregation);
+            Integer rollupLagSeconds = measurementRollups.getLagSeconds();
+
+            // Long ranges are aggregated in parallel sub-ranges aligned to buckets. One extra bucket is fetched to
+            // detect results exceeding the maximum
+            List<TimeBucket> buckets = TimeBucket.merge(parallelScanner.query(
+                startTime, endTime, () -> measurementRepository.getMeasurementTimeRange(deviceId, null),
+                aggregation.getBucketSeconds(),
+                (rangeStart, rangeEnd) -> measurementRepository.getMeasurementAggregates(deviceId, rangeStart,
+                    rangeEnd, aggregation, resolutionSeconds, rollupLagSeconds, maxPageSize + 1)));
+
+            if(CollectionUtils.isEmpty(buckets)) {
+                throwNotFoundException(String.format(
+                    "[deviceId: %d, startTime: %s, endTime: %s, field: %s]",
+                    deviceId, formatTime(startTime), formatTime(endTime), field));
+            }
+
+            if(buckets.size() > maxPageSize) {
+                throw new ExceptionWrapper("Get measurement aggregates failed",
+                    String.format("Result exceeds %d buckets. Use longer bucket or shorter time range.", maxPageSize),
+                    ErrorCode.PARAMETER_VALIDATION_ERROR);
+            }
+
+            return new ResponseWrapper(TimeBucketMapper.mapToCollection(deviceId, buckets, aggregation));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get measurement aggregates failed");
+        }
+
+        return null;
+    }
+
+    @Override
+    public ResponseWrapper getLatestMeasurement(Integer deviceId) {
+        try {
+            FilterValidator.checkForMinimumFilters(deviceId);
+            Measurement measurement = latestValues.getMeasurement(deviceId);
+
+            if(measurement == null) {
+                throwNotFoundException(String.format("[deviceId: %d]", deviceId));
+            }
+
+            return new ResponseWrapper(mapToCollection(measurement));
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Get latest measurement failed");
+        }
+
+        return null;
+    }
+
     @Override
     public ResponseWrapper addMeasurement(Measurement measurement) {
         try {
             deviceService.validateDeviceExists(measurement.getDeviceId(), null, null);
             Measurement addedMeasurement = measurementRepository.addMeasurement(measurement);
+            measurementRollups.add(addedMeasurement);
+            latestValues.addMeasurement(addedMeasurement);
 
             return new ResponseWrapper(mapToCollection(addedMeasurement), HttpStatus.CREATED);
         } catch (Exception e) {
@@ -66,11 +193,49 @@ public class MeasurementServiceImpl implements MeasurementService {
         return null;
     }
 
+    @Override
+    public ResponseWrapper addMeasurements(Iterator<Measurement> measurements) {
+        try {
+            List<BatchItemStatus> statuses = new ArrayList<>();
+            // Device IDs already checked during this batch. Each ID is queried only once.
+            Map<Integer, Boolean> checkedDeviceIds = new HashMap<>();
+            List<Measurement> chunk = new ArrayList<>(batchSize);
+
+            while(measurements.hasNext()) {
+                chunk.add(measurements.next());
+
+                if(chunk.size() == batchSize) {
+                    statuses.addAll(addMeasurementsChunk(chunk, statuses.size(), checkedDeviceIds));
+                    chunk.clear();
+                }
+            }
+
+            if(!chunk.isEmpty()) {
+                statuses.addAll(addMeasurementsChunk(chunk, statuses.size(), checkedDeviceIds));
+            }
+
+            if(statuses.isEmpty()) {
+                throw new ExceptionWrapper("Add measurements failed", "Request body contains no measurements",
+                    ErrorCode.PARAMETER_VALIDATION_ERROR);
+            }
+
+            HttpStatus httpStatus = statuses.stream().allMatch(BatchItemStatus::isSuccessful)
+                ? HttpStatus.CREATED
+                : HttpStatus.MULTI_STATUS;
+
+            return new ResponseWrapper(BatchMapper.mapToCollection(statuses, MEASUREMENTS_URI), httpStatus);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Add measurements failed");
+        }
+
+        return null;
+    }
+
     @Override
     public ResponseWrapper deleteMeasurements(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
         try {
             FilterValidator.checkForMinimumFilters(deviceId, exactTime, startTime, endTime);
-            validateMeasurementExists(deviceId, exactTime, startTime, endTime);
+            validateMeasurementExists(deviceId, exactTime, startTime, endTime, null);
 
             Boolean deleteSuccessful = measurementRepository.deleteMeasurements(deviceId, exactTime, startTime, endTime);
 
@@ -78,6 +243,11 @@ public class MeasurementServiceImpl implements MeasurementService {
                 throw new HibernateError("");
             }
 
+            latestValues.invalidateMeasurements(deviceId);
+            measurementRollups.rebuild(deviceId,
+                exactTime != null ? exactTime : startTime,
+                exactTime != null ? exactTime : endTime);
+
             return new ResponseWrapper("", HttpStatus.NO_CONTENT);
         } catch (Exception e) {
             ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete measurements failed");
@@ -86,8 +256,176 @@ public class MeasurementServiceImpl implements MeasurementService {
         return null;
     }
 
-    private void validateMeasurementExists(Integer deviceId, Date exactTime, Date startTime, Date endTime) throws NotFoundException  {
-        Collection<Measurement> measurements = measurementRepository.getMeasurements(deviceId, exactTime, startTime, endTime);
+    @Override
+    public ResponseWrapper deleteMeasurementsAsync(Integer deviceId, Date exactTime, Date startTime, Date endTime) {
+        try {
+            FilterValidator.checkForMinimumFilters(deviceId, exactTime, startTime, endTime);
+            validateMeasurementExists(deviceId, exactTime, startTime, endTime, null);
+
+            Job job = jobRunner.submit("delete-measurements", runningJob -> {
+                jobRunner.deleteInChunks(runningJob, limit ->
+                    measurementRepository.deleteMeasurementsChunk(deviceId, exactTime, startTime, endTime, limit));
+
+                latestValues.invalidateMeasurements(deviceId);
+                measurementRollups.rebuild(deviceId,
+                    exactTime != null ? exactTime : startTime,
+                    exactTime != null ? exactTime : endTime);
+            });
+
+            return new ResponseWrapper(JobMapper.mapToCollection(job), JobMapper.getLocationHeaders(job),
+                HttpStatus.ACCEPTED);
+        } catch (Exception e) {
+            ExceptionHandlingUtils.validateRepositoryExceptions(e, "Delete measurements failed");
+        }
+
+        return null;
+    }
+
+    /**
+     * Validate and insert single chunk of batch
+     *
+     * @param chunk
+     *      Measurements to add
+     * @param offset
+     *      Index of chunk's first item in the whole batch
+     * @param checkedDeviceIds
+     *      Results of earlier device ID checks. Updated with IDs of this chunk.
+     * @return
+     *      Status of each item in chunk
+     */
+    private List<BatchItemStatus> addMeasurementsChunk(List<Measurement> chunk, Integer offset,
+                                                       Map<Integer, Boolean> checkedDeviceIds) throws Exception {
+        checkDeviceIds(chunk, checkedDeviceIds);
+
+        List<BatchItemStatus> statuses = new ArrayList<>();
+        List<Measurement> validMeasurements = new ArrayList<>();
+        // Positions of valid measurements in statuses
+        List<Integer> validPositions = new ArrayList<>();
+
+        for(int i = 0; i < chunk.size(); i++) {
+            Measurement measurement = chunk.get(i);
+            Integer index = offset + i;
+            Integer deviceId = measurement.getDeviceId();
+
+            if(deviceId == null || measurement.getContent() == null) {
+                statuses.add(BatchItemStatus.failed(index, deviceId, HttpStatus.BAD_REQUEST,
+                    ErrorCode.PARAMETER_VALIDATION_ERROR, "deviceId and content are required"));
+            } else if(!checkedDeviceIds.get(deviceId)) {
+                statuses.add(BatchItemStatus.failed(index, deviceId, HttpStatus.NOT_FOUND,
+                    ErrorCode.NO_ITEMS_FOUND, String.format("Device %d not found", deviceId)));
+            } else {
+                validPositions.add(statuses.size());
+                statuses.add(BatchItemStatus.created(index, deviceId));
+                validMeasurements.add(measurement);
+            }
+        }
+
+        if(validMeasurements.isEmpty()) {
+            return statuses;
+        }
+
+        Integer insertedCount;
+        try {
+            insertedCount = measurementRepository.addMeasurements(validMeasurements);
+        } catch(Exception e) {
+            log.warn("Multi-row insert of {} batch measurements failed, inserting one by one", validMeasurements.size());
+            addMeasurementsOneByOne(validMeasurements, validPositions, statuses, checkedDeviceIds);
+
+            return statuses;
+        }
+
+        if(!insertedCount.equals(validMeasurements.size())) {
+            // Chunk is committed already, so it is not inserted again
+            log.warn("Multi-row insert of {} batch measurements inserted {} rows", validMeasurements.size(), insertedCount);
+            validPositions.forEach(position -> statuses.set(position, failed(statuses.get(position),
+                HttpStatus.INTERNAL_SERVER_ERROR, ErrorCode.INTERNAL_ERROR, "Database error occurred")));
+
+            return statuses;
+        }
+
+        measurementRollups.add(validMeasurements);
+        latestValues.addMeasurements(validMeasurements);
+
+        return statuses;
+    }
+
+    /**
+     * Insert measurements of failed multi-row insert one at a time, so only failing measurements are reported failed.
+     * Device deleted after it was checked fails with not found.
+     *
+     * @param measurements
+     *      Measurements to add
+     * @param positions
+     *      Positions of measurements in statuses
+     * @param statuses
+     *      Statuses of chunk. Updated with failures.
+     * @param checkedDeviceIds
+     *      Results of earlier device ID checks. Updated with devices found deleted.
+     */
+    private void addMeasurementsOneByOne(List<Measurement> measurements, List<Integer> positions,
+                                         List<BatchItemStatus> statuses, Map<Integer, Boolean> checkedDeviceIds) {
+        for(int i = 0; i < measurements.size(); i++) {
+            Measurement measurement = measurements.get(i);
+            Integer position = positions.get(i);
+
+            try {
+                Measurement addedMeasurement = measurementRepository.addMeasurement(measurement);
+                measurementRollups.add(addedMeasurement);
+                latestValues.addMeasurement(addedMeasurement);
+            } catch(DataIntegrityViolationException e) {
+                deviceCache.invalidate(measurement.getDeviceId());
+                checkedDeviceIds.put(measurement.getDeviceId(), false);
+                statuses.set(position, failed(statuses.get(position), HttpStatus.NOT_FOUND, ErrorCode.NO_ITEMS_FOUND,
+                    String.format("Device %d not found", measurement.getDeviceId())));
+            } catch(Exception e) {
+                log.warn("Batch measurement of device {} failed: {}", measurement.getDeviceId(), e.toString());
+                statuses.set(position, failed(statuses.get(position), HttpStatus.INTERNAL_SERVER_ERROR,
+                    ErrorCode.INTERNAL_ERROR, "Database error occurred"));
+            }
+        }
+    }
+
+    private static BatchItemStatus failed(BatchItemStatus status, HttpStatus httpStatus, ErrorCode errorCode,
+                                          String message) {
+        return BatchItemStatus.failed(status.getIndex(), status.getDeviceId(), httpStatus, errorCode, message);
+    }
+
+    /**
+     * Check existence of devices of measurements. Cached devices are not queried, rest are queried with single query.
+     *
+     * @param measurements
+     *      Measurements whose devices are checked
+     * @param checkedDeviceIds
+     *      Results of earlier device ID checks. Updated with IDs of given measurements.
+     */
+    void checkDeviceIds(Collection<Measurement> measurements, Map<Integer, Boolean> checkedDeviceIds) {
+        Set<Integer> uncheckedDeviceIds = new HashSet<>();
+        for(Measurement measurement : measurements) {
+            Integer deviceId = measurement.getDeviceId();
+
+            if(deviceId == null || checkedDeviceIds.containsKey(deviceId)) {
+                continue;
+            }
+
+            if(deviceCache.contains(deviceId, null)) {
+                checkedDeviceIds.put(deviceId, true);
+            } else {
+                uncheckedDeviceIds.add(deviceId);
+            }
+        }
+
+        if(!uncheckedDeviceIds.isEmpty()) {
+            Set<Integer> existingDeviceIds = deviceRepository.getExistingDeviceIds(uncheckedDeviceIds);
+            uncheckedDeviceIds.forEach(deviceId -> checkedDeviceIds.put(deviceId, existingDeviceIds.contains(deviceId)));
+            existingDeviceIds.forEach(deviceId -> deviceCache.put(deviceId, null));
+        }
+    }
+
+    private void validateMeasurementExists(Integer deviceId, Date exactTime, Date startTime, Date endTime,
+                                           List<ContentFilter> contentFilters) throws NotFoundException  {
+        // Single row is enough to prove existence
+        Collection<Measurement> measurements = measurementRepository.getMeasurements(
+            deviceId, exactTime, startTime, endTime, contentFilters, KeysetPage.first());
 
         if(CollectionUtils.isEmpty(measurements)) {
             throwNotFoundException(String.format(
@@ -0,0 +1,242 @@
+package web.service.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded in-memory queue drained by background writers. Writers flush queued items in groups once either flush size
+ * is reached or flush interval has passed since the first item of the group was taken from the queue.
+ */
+@ManagedResource(description = "Write-behind ingestion buffer")
+public class IngestionBuffer<T> {
+    private static final Logger log = LoggerFactory.getLogger(IngestionBuffer.class);
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int capacity;
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final long shutdownTimeoutMillis;
+    private final ToIntFunction<List<T>> flusher;
+    private final ExecutorService writers;
+    private volatile boolean running = true;
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private volatile int lastFlushSize;
+    private volatile long lastFlushMillis;
+
+    /**
+     * @param name
+     *      Name of the buffer, used for writer thread names
+     * @param capacity
+     *      Maximum count of queued items
+     * @param flushSize
+     *      Maximum count of items written by single flush
+     * @param flushIntervalMillis
+     *      Maximum time to wait for more items before flushing
+     * @param writerCount
+     *      Count of background writers
+     * @param shutdownTimeoutMillis
+     *      Maximum time to wait for queued items to be flushed on shutdown
+     * @param flusher
+     *      Writes given items and returns count of items which could not be written
+     */
+    IngestionBuffer(String name, int capacity, int flushSize, long flushIntervalMillis, int writerCount,
+                    long shutdownTimeoutMillis, ToIntFunction<List<T>> flusher) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.flusher = flusher;
+
+        AtomicInteger writerNumber = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerCount, runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-writer-%d", name, writerNumber.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for(int i = 0; i < writerCount; i++) {
+            writers.execute(this::drain);
+        }
+    }
+
+    /**
+     * Add item to the buffer without blocking
+     *
+     * @param item
+     *      Item to add
+     * @return
+     *      False when buffer is full and item was not added
+     */
+    public boolean offer(T item) {
+        if(running && queue.offer(item)) {
+            acceptedCount.incrementAndGet();
+            return true;
+        }
+
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Stop accepting items and wait until writers have flushed queued items
+     */
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writers.shutdown();
+
+        if(!writers.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            log.warn("{} shut down with {} items not flushed", name, queue.size());
+            writers.shutdownNow();
+        }
+    }
+
+    private void drain() {
+        List<T> group = new ArrayList<>(flushSize);
+
+        while(running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if(first == null) {
+                    continue;
+                }
+
+                group.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+                while(group.size() < flushSize) {
+                    queue.drainTo(group, flushSize - group.size());
+
+                    long remaining = deadline - System.nanoTime();
+                    if(group.size() >= flushSize || remaining <= 0) {
+                        break;
+                    }
+
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if(next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                if(!group.isEmpty()) {
+                    flush(group);
+                    group.clear();
+                }
+            }
+
+            if(Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private void flush(List<T> group) {
+        long start = System.nanoTime();
+        int failed;
+
+        try {
+            failed = flusher.applyAsInt(group);
+        } catch(Exception e) {
+            log.error("{} failed to flush {} items", name, group.size(), e);
+            failed = group.size();
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        flushCount.incrementAndGet();
+        flushedCount.addAndGet(group.size() - failed);
+        failedCount.addAndGet(failed);
+        totalFlushMillis.addAndGet(elapsedMillis);
+        maxFlushMillis.accumulateAndGet(elapsedMillis, Math::max);
+        lastFlushSize = group.size();
+        lastFlushMillis = elapsedMillis;
+    }
+
+    @ManagedAttribute(description = "Count of items waiting to be flushed")
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @ManagedAttribute(description = "Maximum count of queued items")
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @ManagedAttribute(description = "Count of items accepted into the buffer")
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of items rejected due to full buffer")
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of flushes")
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of items written to the database")
+    public long getFlushedCount() {
+        return flushedCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of items which could not be written and were dropped")
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    @ManagedAttribute(description = "Size of the latest flush")
+    public int getLastFlushSize() {
+        return lastFlushSize;
+    }
+
+    @ManagedAttribute(description = "Average size of flushes")
+    public double getAverageFlushSize() {
+        long flushes = flushCount.get();
+        return flushes == 0 ? 0 : (double) (flushedCount.get() + failedCount.get()) / flushes;
+    }
+
+    @ManagedAttribute(description = "Duration of the latest flush in milliseconds")
+    public long getLastFlushLatencyMillis() {
+        return lastFlushMillis;
+    }
+
+    @ManagedAttribute(description = "Longest flush duration in milliseconds")
+    public long getMaxFlushLatencyMillis() {
+        return maxFlushMillis.get();
+    }
+
+    @ManagedAttribute(description = "Average flush duration in milliseconds")
+    public double getAverageFlushLatencyMillis() {
+        long flushes = flushCount.get();
+        return flushes == 0 ? 0 : (double) totalFlushMillis.get() / flushes;
+    }
+}
@@ -0,0 +1,67 @@
+package web.service.ingestion;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.stereotype.Component;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Creates ingestion buffers using configured sizes and exposes their statistics through JMX
+ */
+@Component
+@ConditionalOnProperty(name = "ingestion.mode", havingValue = "buffered")
+public class IngestionBufferFactory {
+
+    private final Integer capacity;
+    private final Integer flushSize;
+    private final Long flushIntervalMillis;
+    private final Integer writerCount;
+    private final Long shutdownTimeoutMillis;
+    private final MBeanExporter mbeanExporter;
+
+    IngestionBufferFactory(@Value("${ingestion.buffer.capacity}") Integer capacity,
+                           @Value("${ingestion.buffer.flush-size}") Integer flushSize,
+                           @Value("${ingestion.buffer.flush-interval-ms}") Long flushIntervalMillis,
+                           @Value("${ingestion.buffer.writers}") Integer writerCount,
+                           @Value("${ingestion.buffer.shutdown-timeout-ms}") Long shutdownTimeoutMillis,
+                           ObjectProvider<MBeanExporter> mbeanExporter) {
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.writerCount = writerCount;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.mbeanExporter = mbeanExporter.getIfAvailable();
+    }
+
+    /**
+     * Create buffer and start its writers. Owner of the buffer is responsible for shutting it down.
+     *
+     * @param name
+     *      Name of the buffer, e.g. measurements
+     * @param flusher
+     *      Writes given items and returns count of items which could not be written
+     * @return
+     *      Started buffer
+     */
+    public <T> IngestionBuffer<T> create(String name, ToIntFunction<List<T>> flusher) {
+        IngestionBuffer<T> buffer = new IngestionBuffer<>(
+            name + "-buffer", capacity, flushSize, flushIntervalMillis, writerCount, shutdownTimeoutMillis, flusher);
+
+        if(mbeanExporter != null) {
+            try {
+                mbeanExporter.registerManagedResource(buffer,
+                    new ObjectName(String.format("web:type=IngestionBuffer,name=%s", name)));
+            } catch(MalformedObjectNameException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        return buffer;
+    }
+}
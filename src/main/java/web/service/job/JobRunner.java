@@ -0,0 +1,168 @@
+package web.service.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import web.domain.job.Job;
+import web.exception.ExceptionWrapper;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Runs jobs on background workers. Jobs are kept in memory and finished jobs are removed once retention has passed,
+ * so jobs do not survive restart. Deletes are run in small chunks, each committed separately.
+ */
+@Component
+@ManagedResource(objectName = "web:type=JobRunner", description = "Background jobs")
+public class JobRunner {
+    private static final Logger log = LoggerFactory.getLogger(JobRunner.class);
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final Long retentionMillis;
+    private final Integer deleteChunkSize;
+    private final Long deleteChunkPauseMillis;
+
+    JobRunner(@Value("${job.workers}") Integer workerCount,
+              @Value("${job.retention-minutes}") Long retentionMinutes,
+              @Value("${job.delete.chunk-size}") Integer deleteChunkSize,
+              @Value("${job.delete.chunk-pause-ms}") Long deleteChunkPauseMillis) {
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.deleteChunkSize = deleteChunkSize;
+        this.deleteChunkPauseMillis = deleteChunkPauseMillis;
+
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, String.format("job-worker-%d", workerNumber.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue job for background workers
+     *
+     * @param type
+     *      Type of the job
+     * @param task
+     *      Work of the job. Reports progress using given job.
+     * @return
+     *      Queued job
+     */
+    public Job submit(String type, JobTask task) {
+        removeExpiredJobs();
+
+        Job job = new Job(type);
+        jobs.put(job.getId(), job);
+
+        workers.execute(() -> {
+            job.start();
+
+            try {
+                task.run(job);
+                job.complete();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.fail("Job was interrupted");
+            } catch(ExceptionWrapper e) {
+                job.fail(e.getMessage());
+            } catch(Exception e) {
+                log.warn("Job {} of type {} failed: {}", job.getId(), type, e.toString());
+                job.fail("Database error occurred");
+            }
+        });
+
+        return job;
+    }
+
+    /**
+     * Get job by ID
+     *
+     * @param id
+     *      Job ID
+     * @return
+     *      Job or null when not found or already removed
+     */
+    public Job getJob(String id) {
+        removeExpiredJobs();
+
+        return id == null ? null : jobs.get(id);
+    }
+
+    /**
+     * Delete rows in chunks until chunk deletes less than chunk size. Each chunk is added to job's processed count.
+     *
+     * @param job
+     *      Job reporting progress
+     * @param chunkDelete
+     *      Deletes at most given count of rows and returns count of deleted rows
+     */
+    public void deleteInChunks(Job job, IntUnaryOperator chunkDelete) throws InterruptedException {
+        int deleted;
+
+        do {
+            deleted = chunkDelete.applyAsInt(deleteChunkSize);
+            job.addProcessedCount(deleted);
+
+            if(deleted == deleteChunkSize && deleteChunkPauseMillis > 0) {
+                Thread.sleep(deleteChunkPauseMillis);
+            }
+        } while(deleted == deleteChunkSize);
+    }
+
+    /**
+     * Delete rows in chunks in calling thread until chunk deletes less than chunk size
+     *
+     * @param chunkDelete
+     *      Deletes at most given count of rows and returns count of deleted rows
+     * @return
+     *      Total count of deleted rows
+     */
+    public long deleteInChunks(IntUnaryOperator chunkDelete) {
+        long deletedCount = 0;
+        int deleted;
+
+        do {
+            deleted = chunkDelete.applyAsInt(deleteChunkSize);
+            deletedCount += deleted;
+        } while(deleted == deleteChunkSize);
+
+        return deletedCount;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void removeExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedTime().getTime() < expiredBefore);
+    }
+
+    @ManagedAttribute(description = "Count of jobs waiting or running")
+    public long getActiveJobCount() {
+        return jobs.values().stream().filter(job -> !job.isFinished()).count();
+    }
+
+    @ManagedAttribute(description = "Count of jobs kept in memory")
+    public int getJobCount() {
+        return jobs.size();
+    }
+
+    @FunctionalInterface
+    public interface JobTask {
+        void run(Job job) throws Exception;
+    }
+}
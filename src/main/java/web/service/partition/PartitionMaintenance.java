@@ -0,0 +1,120 @@
+package web.service.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import web.repository.LocationRepository;
+import web.repository.MeasurementRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates monthly measurement and location partitions ahead of time. Rows after the last monthly partition would end
+ * up in catch-all partition, which must then be copied when it is split into monthly partitions.
+ */
+@Component
+@ManagedResource(objectName = "web:type=PartitionMaintenance", description = "Maintenance of monthly time partitions")
+public class PartitionMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenance.class);
+
+    private final MeasurementRepository measurementRepository;
+    private final LocationRepository locationRepository;
+    private final Boolean enabled;
+    private final Integer monthsAhead;
+    private final Long intervalHours;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong createdPartitionCount = new AtomicLong();
+    private final AtomicLong failedRunCount = new AtomicLong();
+    private volatile Date lastRunTime;
+
+    PartitionMaintenance(MeasurementRepository measurementRepository, LocationRepository locationRepository,
+                         @Value("${partition.maintenance.enabled}") Boolean enabled,
+                         @Value("${partition.maintenance.months-ahead}") Integer monthsAhead,
+                         @Value("${partition.maintenance.interval-hours}") Long intervalHours) {
+        this.measurementRepository = measurementRepository;
+        this.locationRepository = locationRepository;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.intervalHours = intervalHours;
+
+        this.executor = enabled
+            ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "partition-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            })
+            : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(enabled) {
+            executor.scheduleWithFixedDelay(this::createPartitions, 0, intervalHours, TimeUnit.HOURS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Create missing measurement and location partitions up to configured count of months ahead
+     *
+     * @return
+     *      Count of created partitions
+     */
+    @ManagedOperation(description = "Create missing partitions for upcoming months")
+    public int createPartitions() {
+        try {
+            int created = measurementRepository.addMeasurementPartitions(monthsAhead)
+                + locationRepository.addLocationPartitions(monthsAhead);
+
+            createdPartitionCount.addAndGet(created);
+            lastRunTime = new Date();
+
+            if(created > 0) {
+                log.info("Created {} partitions for upcoming months", created);
+            }
+
+            return created;
+        } catch(Exception e) {
+            failedRunCount.incrementAndGet();
+            log.warn("Creating partitions for upcoming months failed: {}", e.toString());
+            return 0;
+        }
+    }
+
+    @ManagedAttribute(description = "Count of months after current month partitions are created for")
+    public int getMonthsAhead() {
+        return monthsAhead;
+    }
+
+    @ManagedAttribute(description = "Count of partitions created")
+    public long getCreatedPartitionCount() {
+        return createdPartitionCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of failed maintenance runs")
+    public long getFailedRunCount() {
+        return failedRunCount.get();
+    }
+
+    @ManagedAttribute(description = "Time of the latest successful maintenance run")
+    public Date getLastRunTime() {
+        return lastRunTime;
+    }
+}
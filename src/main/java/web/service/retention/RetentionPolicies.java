@@ -0,0 +1,120 @@
+package web.service.retention;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import web.domain.entity.Device;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Retention periods of measurements and locations in days. Policy of device's group overrides policy of device's type,
+ * which overrides default policy. Periods are resolved separately, e.g. group may define only measurement retention.
+ * Period of 0 days keeps data forever, also when defined by group or type to override shorter default.
+ */
+@Component
+@ConfigurationProperties(prefix = "retention.policy")
+public class RetentionPolicies {
+    private Integer measurementDays;
+    private Integer locationDays;
+    private Map<Integer, Policy> deviceGroups = new HashMap<>();
+    private Map<Integer, Policy> deviceTypes = new HashMap<>();
+
+    /**
+     * Resolve measurement retention of device
+     *
+     * @param device
+     *      Device with group and type
+     * @return
+     *      Retention in days or null when measurements are kept forever
+     */
+    public Integer resolveMeasurementDays(Device device) {
+        return resolve(device, Policy::getMeasurementDays, measurementDays);
+    }
+
+    /**
+     * Resolve location retention of device
+     *
+     * @param device
+     *      Device with group and type
+     * @return
+     *      Retention in days or null when locations are kept forever
+     */
+    public Integer resolveLocationDays(Device device) {
+        return resolve(device, Policy::getLocationDays, locationDays);
+    }
+
+    private Integer resolve(Device device, Function<Policy, Integer> period, Integer defaultDays) {
+        Integer days = null;
+
+        Policy groupPolicy = device.getDeviceGroupId() == null ? null : deviceGroups.get(device.getDeviceGroupId());
+        if(groupPolicy != null) {
+            days = period.apply(groupPolicy);
+        }
+
+        Policy typePolicy = device.getDeviceTypeId() == null ? null : deviceTypes.get(device.getDeviceTypeId());
+        if(days == null && typePolicy != null) {
+            days = period.apply(typePolicy);
+        }
+
+        if(days == null) {
+            days = defaultDays;
+        }
+
+        return days == null || days <= 0 ? null : days;
+    }
+
+    public Integer getMeasurementDays() {
+        return measurementDays;
+    }
+
+    public void setMeasurementDays(Integer measurementDays) {
+        this.measurementDays = measurementDays;
+    }
+
+    public Integer getLocationDays() {
+        return locationDays;
+    }
+
+    public void setLocationDays(Integer locationDays) {
+        this.locationDays = locationDays;
+    }
+
+    public Map<Integer, Policy> getDeviceGroups() {
+        return deviceGroups;
+    }
+
+    public void setDeviceGroups(Map<Integer, Policy> deviceGroups) {
+        this.deviceGroups = deviceGroups;
+    }
+
+    public Map<Integer, Policy> getDeviceTypes() {
+        return deviceTypes;
+    }
+
+    public void setDeviceTypes(Map<Integer, Policy> deviceTypes) {
+        this.deviceTypes = deviceTypes;
+    }
+
+    public static class Policy {
+        private Integer measurementDays;
+        private Integer locationDays;
+
+        public Integer getMeasurementDays() {
+            return measurementDays;
+        }
+
+        public void setMeasurementDays(Integer measurementDays) {
+            this.measurementDays = measurementDays;
+        }
+
+        public Integer getLocationDays() {
+            return locationDays;
+        }
+
+        public void setLocationDays(Integer locationDays) {
+            this.locationDays = locationDays;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package web.service.retention;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import web.domain.entity.Device;
+import web.repository.DeviceRepository;
+import web.repository.LocationRepository;
+import web.repository.MeasurementRepository;
+import web.service.cache.CurrentLocations;
+import web.service.cache.LatestValues;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Deletes measurements and locations older than their retention period, see {@link RetentionPolicies}. Rows are
+ * deleted device by device in bounded chunks with pauses in between, so ingestion is not blocked by long running
+ * deletes. Months expired for every device are dropped as whole partitions first, their rows are not counted as purged.
+ * Rollups are kept.
+ */
+@Component
+@ManagedResource(objectName = "web:type=RetentionPurger", description = "Purge of expired measurements and locations")
+public class RetentionPurger {
+    private static final Logger log = LoggerFactory.getLogger(RetentionPurger.class);
+
+    private final DeviceRepository deviceRepository;
+    private final MeasurementRepository measurementRepository;
+    private final LocationRepository locationRepository;
+    private final RetentionPolicies retentionPolicies;
+    private final LatestValues latestValues;
+    private final CurrentLocations currentLocations;
+    private final Boolean enabled;
+    private final Long intervalMinutes;
+    private final Integer chunkSize;
+    private final Long chunkPauseMillis;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong failedRunCount = new AtomicLong();
+    private final AtomicLong purgedMeasurementCount = new AtomicLong();
+    private final AtomicLong purgedLocationCount = new AtomicLong();
+    private final AtomicLong droppedPartitionCount = new AtomicLong();
+    private volatile long lastRunPurgedMeasurementCount;
+    private volatile long lastRunPurgedLocationCount;
+    private volatile long lastRunDurationMillis;
+    private volatile Date lastRunTime;
+
+    RetentionPurger(DeviceRepository deviceRepository, MeasurementRepository measurementRepository,
+                    LocationRepository locationRepository, RetentionPolicies retentionPolicies,
+                    LatestValues latestValues, CurrentLocations currentLocations,
+                    @Value("${retention.enabled}") Boolean enabled,
+                    @Value("${retention.interval-minutes}") Long intervalMinutes,
+                    @Value("${retention.chunk-size}") Integer chunkSize,
+                    @Value("${retention.chunk-pause-ms}") Long chunkPauseMillis) {
+        this.deviceRepository = deviceRepository;
+        this.measurementRepository = measurementRepository;
+        this.locationRepository = locationRepository;
+        this.retentionPolicies = retentionPolicies;
+        this.latestValues = latestValues;
+        this.currentLocations = currentLocations;
+        this.enabled = enabled;
+        this.intervalMinutes = intervalMinutes;
+        this.chunkSize = chunkSize;
+        this.chunkPauseMillis = chunkPauseMillis;
+
+        this.executor = enabled
+            ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "retention-purger");
+                thread.setDaemon(true);
+                return thread;
+            })
+            : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(enabled) {
+            executor.scheduleWithFixedDelay(this::purge, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Delete measurements and locations of all devices which are older than their retention period
+     */
+    @ManagedOperation(description = "Purge expired measurements and locations")
+    public synchronized void purge() {
+        long start = System.nanoTime();
+        long measurements = 0;
+        long locations = 0;
+        long droppedPartitionsBefore = droppedPartitionCount.get();
+
+        try {
+            Collection<Device> devices = deviceRepository.getDevices(null, null, null, null, null, null);
+            Date now = new Date();
+
+            dropExpiredPartitions(devices, now);
+
+            for(Device device : devices) {
+                measurements += purgeChunks(device.getId(),
+                    expiryTime(now, retentionPolicies.resolveMeasurementDays(device)),
+                    measurementRepository::purgeMeasurements);
+                locations += purgeChunks(device.getId(),
+                    expiryTime(now, retentionPolicies.resolveLocationDays(device)),
+                    locationRepository::purgeLocations);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedRunCount.incrementAndGet();
+        } catch(Exception e) {
+            failedRunCount.incrementAndGet();
+            log.warn("Purging expired measurements and locations failed: {}", e.toString());
+        } finally {
+            // Latest value may have been purged, e.g. of device which has not reported for a long time
+            if(measurements > 0 || locations > 0 || droppedPartitionCount.get() > droppedPartitionsBefore) {
+                latestValues.invalidateAll();
+                currentLocations.invalidate();
+            }
+
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            runCount.incrementAndGet();
+            purgedMeasurementCount.addAndGet(measurements);
+            purgedLocationCount.addAndGet(locations);
+            lastRunPurgedMeasurementCount = measurements;
+            lastRunPurgedLocationCount = locations;
+            lastRunDurationMillis = durationMillis;
+            lastRunTime = new Date();
+
+            log.info("Purged {} measurements and {} locations in {} ms", measurements, locations, durationMillis);
+        }
+    }
+
+    /**
+     * Drop months which have expired for every device. Skipped when data of any device is kept forever.
+     */
+    private void dropExpiredPartitions(Collection<Device> devices, Date now) {
+        Date measurementsExpiry = earliestExpiryTime(devices, now, retentionPolicies::resolveMeasurementDays);
+        if(measurementsExpiry != null) {
+            droppedPartitionCount.addAndGet(
+                measurementRepository.dropMeasurementPartitions(null, new Date(measurementsExpiry.getTime() - 1000)));
+        }
+
+        Date locationsExpiry = earliestExpiryTime(devices, now, retentionPolicies::resolveLocationDays);
+        if(locationsExpiry != null) {
+            droppedPartitionCount.addAndGet(
+                locationRepository.dropLocationPartitions(null, new Date(locationsExpiry.getTime() - 1000)));
+        }
+    }
+
+    private Date earliestExpiryTime(Collection<Device> devices, Date now, Function<Device, Integer> retentionDays) {
+        if(devices.isEmpty()) {
+            return null;
+        }
+
+        Date earliest = null;
+        for(Device device : devices) {
+            Date expiry = expiryTime(now, retentionDays.apply(device));
+            if(expiry == null) {
+                return null;
+            }
+
+            if(earliest == null || expiry.before(earliest)) {
+                earliest = expiry;
+            }
+        }
+
+        return earliest;
+    }
+
+    private long purgeChunks(Integer deviceId, Date before, ChunkPurge chunkPurge) throws InterruptedException {
+        if(before == null) {
+            return 0;
+        }
+
+        long purged = 0;
+        int deleted;
+
+        do {
+            deleted = chunkPurge.purge(deviceId, before, chunkSize);
+            purged += deleted;
+
+            if(deleted == chunkSize && chunkPauseMillis > 0) {
+                Thread.sleep(chunkPauseMillis);
+            }
+        } while(deleted == chunkSize);
+
+        return purged;
+    }
+
+    private static Date expiryTime(Date now, Integer retentionDays) {
+        return retentionDays == null ? null : new Date(now.getTime() - TimeUnit.DAYS.toMillis(retentionDays));
+    }
+
+    @FunctionalInterface
+    private interface ChunkPurge {
+        Integer purge(Integer deviceId, Date before, Integer limit);
+    }
+
+    @ManagedAttribute(description = "Count of purge runs")
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of purge runs which failed")
+    public long getFailedRunCount() {
+        return failedRunCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of purged measurements")
+    public long getPurgedMeasurementCount() {
+        return purgedMeasurementCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of purged locations")
+    public long getPurgedLocationCount() {
+        return purgedLocationCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of dropped monthly partitions")
+    public long getDroppedPartitionCount() {
+        return droppedPartitionCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of measurements purged by the latest run")
+    public long getLastRunPurgedMeasurementCount() {
+        return lastRunPurgedMeasurementCount;
+    }
+
+    @ManagedAttribute(description = "Count of locations purged by the latest run")
+    public long getLastRunPurgedLocationCount() {
+        return lastRunPurgedLocationCount;
+    }
+
+    @ManagedAttribute(description = "Duration of the latest run in milliseconds")
+    public long getLastRunDurationMillis() {
+        return lastRunDurationMillis;
+    }
+
+    @ManagedAttribute(description = "Time of the latest run")
+    public Date getLastRunTime() {
+        return lastRunTime;
+    }
+}
@@ -0,0 +1,694 @@
+package web.service.rollup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import web.domain.aggregation.MeasurementRollup;
+import web.domain.aggregation.TimeBucketAggregation;
+import web.domain.entity.Measurement;
+import web.repository.MeasurementRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Per-minute and per-hour rollups of numeric top-level measurement content fields. Written measurements are added to
+ * in-memory accumulators which are flushed to the database periodically. Rollups of existing measurements are built by
+ * backfill, and aggregate reads use rollups only after backfill has completed. Time up to which rollups are complete is
+ * stored as watermark, which is advanced by flushes, so backfill on startup continues from it.
+ * <p>
+ * Rebuild replaces rollups of a range with values computed from committed measurements, so accumulated values of the
+ * range are discarded. Measurements committed while rebuild runs may be both counted by rebuild and accumulated. Part of
+ * the range newer than rollup lag, where such measurements are written, is rebuilt again once it is older than the lag.
+ * Rebuilds after deletes run on the rollup thread one window at a time, and aggregate reads use measurements until they
+ * have completed.
+ */
+@Component
+@ManagedResource(objectName = "web:type=MeasurementRollups", description = "Rollups of numeric measurement fields")
+public class MeasurementRollups {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementRollups.class);
+    // Same names as accepted by aggregation and rolled up by rebuild_measurement_rollups
+    private static final Pattern FIELD_PATTERN = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]{0,254}$");
+    private static final int MINUTE_SECONDS = 60;
+    private static final int HOUR_SECONDS = 3600;
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    private final MeasurementRepository measurementRepository;
+    private final Boolean enabled;
+    private final Long flushIntervalMillis;
+    private final Integer backfillWindowHours;
+    private final ScheduledExecutorService executor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Flushes and rebuilds write rollups one at a time
+    private final Lock databaseLock = new ReentrantLock();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedRollupCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private final AtomicLong failedRebuildCount = new AtomicLong();
+    private final AtomicInteger pendingRebuildCount = new AtomicInteger();
+    private volatile boolean complete;
+    // Written on the rollup thread only
+    private volatile Date watermark;
+    // Guarded by this
+    private volatile boolean backfillRunning;
+    // Earliest time requested to be backfilled, Long.MAX_VALUE continues from watermark. Null when not requested.
+    private Long requestedBackfillStart;
+
+    // Replaced on each flush. Adding values holds read lock, replacing holds write lock.
+    private Map<RollupKey, MeasurementRollup> pending = new ConcurrentHashMap<>();
+
+    MeasurementRollups(MeasurementRepository measurementRepository,
+                       @Value("${rollup.enabled}") Boolean enabled,
+                       @Value("${rollup.flush-interval-ms}") Long flushIntervalMillis,
+                       @Value("${rollup.backfill-on-startup}") Boolean backfillOnStartup,
+                       @Value("${rollup.backfill-window-hours}") Integer backfillWindowHours) {
+        this.measurementRepository = measurementRepository;
+        this.enabled = enabled;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.backfillWindowHours = backfillWindowHours;
+        // Without backfill on startup, existing rollups are trusted to be complete
+        this.complete = !backfillOnStartup;
+
+        if(enabled) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "measurement-rollups");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if(enabled && !complete) {
+            requestBackfill(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Add written measurement to rollups
+     */
+    public void add(Measurement measurement) {
+        add(Collections.singletonList(measurement));
+    }
+
+    /**
+     * Add written measurements to rollups. Within transaction measurements are added once transaction commits.
+     */
+    public void add(Collection<Measurement> measurements) {
+        if(!enabled || measurements.isEmpty()) {
+            return;
+        }
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Measurement> written = new ArrayList<>(measurements);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    accumulate(written);
+                }
+            });
+        } else {
+            accumulate(measurements);
+        }
+    }
+
+    /**
+     * Rebuild rollups in background after measurements of given range were deleted. Range is extended to whole minutes.
+     * When rebuild fails, aggregate reads use measurements until backfill has corrected rollups.
+     *
+     * @param deviceId
+     *      Device ID. Rollups of all devices are rebuilt when null.
+     * @param startTime
+     *      Start time of deleted range. Range starts from the first measurement when null.
+     * @param endTime
+     *      End time of deleted range, inclusive. Range ends at the last measurement when null.
+     */
+    public void rebuild(Integer deviceId, Date startTime, Date endTime) {
+        if(!enabled) {
+            return;
+        }
+
+        submitRebuild(new RebuildScope(deviceId, null, null), startTime, endTime);
+    }
+
+    /**
+     * Rebuild rollups in background after measurements of device group were deleted. Range is extended to whole
+     * minutes.
+     *
+     * @param deviceGroupId
+     *      Device group ID
+     * @param deviceIds
+     *      IDs of group's devices, read before measurements were deleted
+     * @param startTime
+     *      Start time of deleted range. Range starts from the first measurement when null.
+     * @param endTime
+     *      End time of deleted range, inclusive. Range ends at the last measurement when null.
+     */
+    public void rebuildDeviceGroup(Integer deviceGroupId, Collection<Integer> deviceIds, Date startTime, Date endTime) {
+        if(!enabled) {
+            return;
+        }
+
+        submitRebuild(new RebuildScope(null, deviceGroupId, new HashSet<>(deviceIds)), startTime, endTime);
+    }
+
+    private void submitRebuild(RebuildScope scope, Date startTime, Date endTime) {
+        Date start = startTime == null ? null : truncateToMinute(startTime);
+        Date end = endTime == null ? null : new Date(truncateToMinute(endTime).getTime() + MINUTE_MILLIS);
+
+        pendingRebuildCount.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                rebuildInWindows(scope, start, end);
+                rebuildRecentLater(scope, start, end);
+            } catch(Exception e) {
+                rebuildFailed(scope, start, e);
+            } finally {
+                pendingRebuildCount.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Select resolution of rollups usable for given aggregation
+     *
+     * @return
+     *      Resolution in seconds or null when aggregation must read measurements only
+     */
+    public Integer selectResolution(TimeBucketAggregation aggregation) {
+        if(!enabled || !complete || pendingRebuildCount.get() > 0 || aggregation.getField().contains(".")) {
+            return null;
+        }
+
+        if(aggregation.getBucketSeconds() % HOUR_SECONDS == 0) {
+            return HOUR_SECONDS;
+        }
+
+        return aggregation.getBucketSeconds() % MINUTE_SECONDS == 0 ? MINUTE_SECONDS : null;
+    }
+
+    /**
+     * Age of the latest measurements which may not be rolled up yet
+     */
+    public Integer getLagSeconds() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(2 * flushIntervalMillis) + 1;
+    }
+
+    /**
+     * Rebuild rollups of all measurements in background, one window at a time
+     */
+    @ManagedOperation(description = "Rebuild rollups of all measurements")
+    public void backfill() {
+        requestBackfill(Long.MIN_VALUE);
+    }
+
+    /**
+     * Request backfill starting from given time or watermark, whichever is earlier. Backfill requested while one is
+     * running is started again once it has finished.
+     */
+    private synchronized void requestBackfill(long start) {
+        if(!enabled) {
+            return;
+        }
+
+        requestedBackfillStart = requestedBackfillStart == null ? start : Math.min(requestedBackfillStart, start);
+
+        if(!backfillRunning) {
+            backfillRunning = true;
+            executor.execute(this::runBackfill);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if(executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            flush();
+        }
+    }
+
+    private void accumulate(Collection<Measurement> measurements) {
+        lock.readLock().lock();
+
+        try {
+            for(Measurement measurement : measurements) {
+                if(measurement.getDeviceId() == null || measurement.getContent() == null) {
+                    continue;
+                }
+
+                Date minute = truncateToMinute(measurement.getTime() == null ? new Date() : measurement.getTime());
+
+                for(Object entry : measurement.getContent().entrySet()) {
+                    Object field = ((Map.Entry) entry).getKey();
+                    Object value = ((Map.Entry) entry).getValue();
+
+                    if(!(value instanceof Number) || !FIELD_PATTERN.matcher(field.toString()).matches()) {
+                        continue;
+                    }
+
+                    double number = ((Number) value).doubleValue();
+                    if(Double.isNaN(number) || Double.isInfinite(number)) {
+                        continue;
+                    }
+
+                    RollupKey key = new RollupKey(measurement.getDeviceId(), field.toString(), minute);
+                    pending.compute(key, (k, rollup) -> {
+                        MeasurementRollup updated = rollup == null
+                            ? new MeasurementRollup(k.deviceId, k.field, k.time)
+                            : rollup;
+                        updated.add(number);
+                        return updated;
+                    });
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void flush() {
+        databaseLock.lock();
+
+        try {
+            Map<RollupKey, MeasurementRollup> flushed;
+            long flushTime = System.currentTimeMillis();
+
+            lock.writeLock().lock();
+            try {
+                flushed = pending;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            List<MeasurementRollup> rollups = new ArrayList<>(flushed.values());
+
+            for(int i = 0; i < rollups.size(); i += FLUSH_CHUNK_SIZE) {
+                List<MeasurementRollup> chunk = rollups.subList(i, Math.min(i + FLUSH_CHUNK_SIZE, rollups.size()));
+
+                try {
+                    measurementRepository.addMeasurementRollups(chunk);
+                    flushedRollupCount.addAndGet(chunk.size());
+                } catch(Exception e) {
+                    // Unwritten rollups are kept for next flush
+                    log.warn("Flushing {} measurement rollups failed: {}", rollups.size() - i, e.toString());
+                    failedFlushCount.incrementAndGet();
+                    restore(rollups.subList(i, rollups.size()));
+                    return;
+                }
+            }
+
+            if(!rollups.isEmpty()) {
+                flushCount.incrementAndGet();
+            }
+
+            advanceWatermark(flushTime);
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    /**
+     * Measurements older than rollup lag at the time of flush are flushed, unless backfill has not completed yet.
+     * Watermark is stored at most once a minute.
+     */
+    private void advanceWatermark(long flushTime) {
+        if(!complete || backfillRunning) {
+            return;
+        }
+
+        Date completeUntil = truncateToMinute(new Date(flushTime - TimeUnit.SECONDS.toMillis(getLagSeconds())));
+
+        if(watermark == null || completeUntil.after(watermark)) {
+            try {
+                measurementRepository.updateMeasurementRollupWatermark(completeUntil);
+                watermark = completeUntil;
+            } catch(Exception e) {
+                // Backfill on startup continues from older watermark
+                log.warn("Storing measurement rollup watermark failed: {}", e.toString());
+            }
+        }
+    }
+
+    private void restore(List<MeasurementRollup> rollups) {
+        lock.readLock().lock();
+
+        try {
+            rollups.forEach(rollup -> pending.merge(
+                new RollupKey(rollup.getDeviceId(), rollup.getField(), rollup.getTime()),
+                rollup,
+                (existing, restored) -> {
+                    existing.merge(restored);
+                    return existing;
+                }));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace rollups of given range with values computed from measurements. Accumulated values of the range belong to
+     * committed measurements which rebuild counts, so they are discarded.
+     */
+    private void rebuildRange(RebuildScope scope, Date start, Date end) {
+        databaseLock.lock();
+
+        try {
+            discardPending(scope, start, end);
+            measurementRepository.rebuildMeasurementRollups(scope.deviceId, scope.deviceGroupId, start, end);
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild rollups of given range one window at a time, flushing accumulated rollups between windows like backfill
+     * does. Range without start or end is bounded by existing rollups and current time. Accumulated values of the whole
+     * range are discarded first, as they may belong to deleted measurements outside existing rollups.
+     */
+    private void rebuildInWindows(RebuildScope scope, Date start, Date end) {
+        discardPending(scope, start, end);
+
+        Date windowStart = start;
+        Date rangeEnd = end;
+
+        if(start == null || end == null) {
+            Date[] rollupRange = measurementRepository.getMeasurementRollupTimeRange(scope.deviceId, scope.deviceGroupId);
+
+            if(rollupRange[0] == null) {
+                return;
+            }
+
+            Date currentMinuteEnd = new Date(truncateToMinute(new Date()).getTime() + MINUTE_MILLIS);
+            windowStart = start == null ? rollupRange[0] : start;
+            rangeEnd = end != null ? end : rollupRange[1].after(currentMinuteEnd) ? rollupRange[1] : currentMinuteEnd;
+        }
+
+        while(windowStart.before(rangeEnd)) {
+            Date windowEnd = new Date(Math.min(rangeEnd.getTime(),
+                windowStart.getTime() + TimeUnit.HOURS.toMillis(backfillWindowHours)));
+
+            flush();
+            rebuildRange(scope, windowStart, windowEnd);
+            windowStart = windowEnd;
+        }
+    }
+
+    private void discardPending(RebuildScope scope, Date start, Date end) {
+        lock.writeLock().lock();
+        try {
+            pending.keySet().removeIf(key -> scope.contains(key.deviceId) && key.isWithin(start, end));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild part of the range newer than rollup lag again once measurements are no longer written to it. Minute of
+     * the current time is included, as range without end covers measurements added after this rebuild as well.
+     */
+    private void rebuildRecentLater(RebuildScope scope, Date start, Date end) {
+        long now = System.currentTimeMillis();
+        Date cutoff = truncateToMinute(new Date(now - TimeUnit.SECONDS.toMillis(getLagSeconds())));
+        Date currentMinuteEnd = new Date(truncateToMinute(new Date(now)).getTime() + MINUTE_MILLIS);
+        Date recentStart = start == null || start.before(cutoff) ? cutoff : start;
+        Date recentEnd = end == null || end.after(currentMinuteEnd) ? currentMinuteEnd : end;
+
+        if(!recentStart.before(recentEnd)) {
+            return;
+        }
+
+        executor.schedule(() -> {
+            try {
+                rebuildRange(scope, recentStart, recentEnd);
+            } catch(Exception e) {
+                rebuildFailed(scope, recentStart, e);
+            }
+        }, TimeUnit.SECONDS.toMillis(getLagSeconds()) + MINUTE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lower watermark to start of failed range and backfill from there
+     */
+    private void rebuildFailed(RebuildScope scope, Date start, Exception e) {
+        log.error("Rebuilding measurement rollups of {} failed, aggregate reads use measurements until "
+            + "backfill has completed", scope, e);
+        failedRebuildCount.incrementAndGet();
+        complete = false;
+        requestBackfill(start == null ? Long.MIN_VALUE : start.getTime());
+    }
+
+    private void runBackfill() {
+        boolean repeat;
+
+        do {
+            long start = System.nanoTime();
+            boolean succeeded = false;
+            long requestedStart = takeBackfillRequest();
+
+            try {
+                Date storedWatermark = measurementRepository.getMeasurementRollupWatermark();
+                Date[] timeRange = measurementRepository.getMeasurementTimeRange(null, null);
+
+                if(timeRange[0] != null) {
+                    long from = storedWatermark == null
+                        ? timeRange[0].getTime()
+                        : Math.max(timeRange[0].getTime(), Math.min(requestedStart, storedWatermark.getTime()));
+                    Date backfillStart = truncateToHour(new Date(from), 0);
+                    Date windowStart = backfillStart;
+                    Date end = truncateToHour(new Date(timeRange[1].getTime() + 1000), 1);
+
+                    // Interrupted backfill continues from here on next startup
+                    storeWatermark(storedWatermark == null ? null : windowStart);
+
+                    while(windowStart.before(end)) {
+                        Date windowEnd = new Date(windowStart.getTime() + TimeUnit.HOURS.toMillis(backfillWindowHours));
+
+                        // Scheduled flushes wait while backfill runs on the same thread
+                        flush();
+                        rebuildRange(RebuildScope.ALL, windowStart, windowEnd);
+                        storeWatermark(earlier(windowEnd, getLagCutoff()));
+                        windowStart = windowEnd;
+                    }
+
+                    rebuildRecentLater(RebuildScope.ALL, backfillStart, end);
+                }
+
+                succeeded = true;
+                log.info("Measurement rollups rebuilt in {} s",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+            } catch(Exception e) {
+                log.error("Rebuilding measurement rollups failed", e);
+                failedRebuildCount.incrementAndGet();
+            }
+
+            repeat = finishBackfill(succeeded);
+        } while(repeat);
+    }
+
+    private synchronized long takeBackfillRequest() {
+        long start = requestedBackfillStart;
+        requestedBackfillStart = null;
+
+        return start;
+    }
+
+    /**
+     * @return
+     *      Whether backfill was requested again while it was running
+     */
+    private synchronized boolean finishBackfill(boolean succeeded) {
+        if(requestedBackfillStart != null) {
+            return true;
+        }
+
+        if(succeeded) {
+            complete = true;
+        }
+
+        backfillRunning = false;
+        return false;
+    }
+
+    private void storeWatermark(Date completeUntil) {
+        measurementRepository.updateMeasurementRollupWatermark(completeUntil);
+        watermark = completeUntil;
+    }
+
+    private Date getLagCutoff() {
+        return truncateToMinute(new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(getLagSeconds())));
+    }
+
+    private static Date earlier(Date first, Date second) {
+        return first.before(second) ? first : second;
+    }
+
+    /**
+     * Round to seconds like DATETIME column does and truncate to minute
+     */
+    private static Date truncateToMinute(Date time) {
+        long seconds = Math.round(time.getTime() / 1000.0);
+        return new Date(seconds / MINUTE_SECONDS * TimeUnit.MINUTES.toMillis(1));
+    }
+
+    /**
+     * Truncate to start of the hour in local time, optionally adding hours to the result when time is not whole hour
+     */
+    private static Date truncateToHour(Date time, int hoursToAddIfPartial) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(time);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MINUTE, 0);
+
+        if(calendar.getTime().before(time)) {
+            calendar.add(Calendar.HOUR_OF_DAY, hoursToAddIfPartial);
+        }
+
+        return calendar.getTime();
+    }
+
+    @ManagedAttribute(description = "Whether rollups are maintained")
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Whether rollups cover all measurements and are used by aggregate reads")
+    public Boolean getComplete() {
+        return complete;
+    }
+
+    @ManagedAttribute(description = "Whether backfill is running")
+    public Boolean getBackfillRunning() {
+        return backfillRunning;
+    }
+
+    @ManagedAttribute(description = "Time up to which rollups are complete")
+    public Date getWatermark() {
+        return watermark;
+    }
+
+    @ManagedAttribute(description = "Count of rebuilds after deletes waiting or running")
+    public int getPendingRebuildCount() {
+        return pendingRebuildCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of accumulated rollups waiting to be flushed")
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @ManagedAttribute(description = "Count of flushes")
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of per-minute rollups written to the database")
+    public long getFlushedRollupCount() {
+        return flushedRollupCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of failed flushes")
+    public long getFailedFlushCount() {
+        return failedFlushCount.get();
+    }
+
+    @ManagedAttribute(description = "Count of failed rebuilds")
+    public long getFailedRebuildCount() {
+        return failedRebuildCount.get();
+    }
+
+    private static class RollupKey {
+        private final Integer deviceId;
+        private final String field;
+        private final Date time;
+
+        private RollupKey(Integer deviceId, String field, Date time) {
+            this.deviceId = deviceId;
+            this.field = field;
+            this.time = time;
+        }
+
+        private boolean isWithin(Date start, Date end) {
+            return (start == null || !time.before(start)) && (end == null || time.before(end));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            }
+
+            if(!(o instanceof RollupKey)) {
+                return false;
+            }
+
+            RollupKey key = (RollupKey) o;
+            return deviceId.equals(key.deviceId) && field.equals(key.field) && time.equals(key.time);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(deviceId, field, time);
+        }
+    }
+
+    /**
+     * Devices whose rollups are rebuilt. All devices when neither device nor device group is given.
+     */
+    private static class RebuildScope {
+        private static final RebuildScope ALL = new RebuildScope(null, null, null);
+
+        private final Integer deviceId;
+        private final Integer deviceGroupId;
+        private final Set<Integer> deviceIds;
+
+        private RebuildScope(Integer deviceId, Integer deviceGroupId, Set<Integer> deviceIds) {
+            this.deviceId = deviceId;
+            this.deviceGroupId = deviceGroupId;
+            this.deviceIds = deviceIds;
+        }
+
+        private boolean contains(Integer id) {
+            if(deviceId != null) {
+                return deviceId.equals(id);
+            }
+
+            return deviceGroupId == null || deviceIds.contains(id);
+        }
+
+        @Override
+        public String toString() {
+            if(deviceId != null) {
+                return "device " + deviceId;
+            }
+
+            return deviceGroupId != null ? "device group " + deviceGroupId : "all devices";
+        }
+    }
+}
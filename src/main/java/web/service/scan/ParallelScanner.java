@@ -0,0 +1,385 @@
+package web.service.scan;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Splits long time ranges into consecutive sub-ranges which are scanned concurrently, each using its own database
+ * connection. Scan workers are shared by all requests, so count of workers caps connections used by scans and leaves
+ * rest of the connection pool to other requests. Queries and ordered scans use separate workers, as ordered scans wait
+ * for their consumer, e.g. client downloading an export, and must not delay aggregations.
+ * <p>
+ * Sub-ranges do not overlap and are ordered by time, so rows ordered by time are merged by reading sub-ranges one after
+ * another. Rows of each running sub-range are buffered up to given count, so memory usage does not depend on length of
+ * the range. Sub-range being read waits for its consumer as long as needed and is cancelled only when consumer fails.
+ * Worker reading ahead whose buffer stays full longer than stall timeout is released and its query cancelled, and the
+ * sub-range is scanned again in the calling thread once reached. Ordered scans are therefore split only when export
+ * parallelism is configured.
+ */
+@Component
+@ManagedResource(objectName = "web:type=ParallelScanner", description = "Parallel range scans")
+public class ParallelScanner {
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final Object END = new Object();
+    // Interval of checking whether worker has ended without adding end marker
+    private static final long STATUS_CHECK_MILLIS = 100;
+
+    private final ExecutorService queryWorkers;
+    private final ExecutorService scanWorkers;
+    private final Integer parallelism;
+    private final Integer exportParallelism;
+    private final Integer scanWorkerCount;
+    private final Long minRangeSeconds;
+    private final Integer bufferSize;
+    private final Long stallTimeoutMillis;
+    private final AtomicInteger runningScans = new AtomicInteger();
+    private final AtomicInteger releasedScans = new AtomicInteger();
+
+    ParallelScanner(@Value("${scan.parallelism}") Integer parallelism,
+                    @Value("${scan.export-parallelism}") Integer exportParallelism,
+                    @Value("${scan.export-workers}") Integer scanWorkerCount,
+                    @Value("${scan.min-range-hours}") Long minRangeHours,
+                    @Value("${scan.buffer-size}") Integer bufferSize,
+                    @Value("${scan.stall-timeout-ms}") Long stallTimeoutMillis) {
+        this.parallelism = parallelism;
+        this.exportParallelism = exportParallelism;
+        this.scanWorkerCount = scanWorkerCount;
+        this.minRangeSeconds = Math.max(1, TimeUnit.HOURS.toSeconds(minRangeHours));
+        this.bufferSize = bufferSize;
+        this.stallTimeoutMillis = stallTimeoutMillis;
+        this.queryWorkers = newWorkers("query-worker", parallelism);
+        this.scanWorkers = newWorkers("scan-worker", scanWorkerCount);
+    }
+
+    private static ExecutorService newWorkers(String name, Integer count) {
+        AtomicInteger workerNumber = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(Math.max(1, count), runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-%d", name, workerNumber.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Scan time range in sub-ranges and pass rows to consumer in time order. Short ranges are scanned in calling
+     * thread. Range scan must not apply exact time filter, as it would match the same rows in every sub-range.
+     *
+     * @param startTime
+     *      Start of time range, inclusive. Range starts from the first row when null.
+     * @param endTime
+     *      End of time range, inclusive. Range ends at the last row when null.
+     * @param dataRange
+     *      Supplier of times of the first and last row, used when start or end is not given
+     * @param descending
+     *      Pass rows in descending time order. Range scan must order its rows the same way.
+     * @param rangeScan
+     *      Scan of single sub-range
+     * @param consumer
+     *      Consumer of rows, called in calling thread. Running sub-range scans are cancelled when consumer fails.
+     */
+    public <T> void scan(Date startTime, Date endTime, Supplier<Date[]> dataRange, Boolean descending,
+                         RangeScan<T> rangeScan, Consumer<T> consumer) {
+        List<Date[]> ranges = split(startTime, endTime, dataRange, 1, exportParallelism);
+
+        if(ranges.size() == 1) {
+            rangeScan.scan(startTime, endTime, consumer);
+            return;
+        }
+
+        if(Boolean.TRUE.equals(descending)) {
+            Collections.reverse(ranges);
+        }
+
+        Iterator<Date[]> pending = ranges.iterator();
+        Deque<SubRangeScan<T>> running = new ArrayDeque<>();
+
+        try {
+            while(running.size() < exportParallelism && pending.hasNext()) {
+                running.add(new SubRangeScan<>(pending.next(), rangeScan));
+            }
+
+            while(!running.isEmpty()) {
+                running.peek().drainTo(consumer);
+                running.poll();
+
+                if(pending.hasNext()) {
+                    running.add(new SubRangeScan<>(pending.next(), rangeScan));
+                }
+            }
+        } finally {
+            // Stops sub-range scans when consumer fails, e.g. client has disconnected
+            running.forEach(SubRangeScan::cancel);
+        }
+    }
+
+    /**
+     * Query time range in sub-ranges aligned to given interval, e.g. length of aggregation buckets. Short ranges are
+     * queried in calling thread.
+     *
+     * @param startTime
+     *      Start of time range, inclusive. Range starts from the first row when null.
+     * @param endTime
+     *      End of time range, inclusive. Range ends at the last row when null.
+     * @param dataRange
+     *      Supplier of times of the first and last row, used when start or end is not given
+     * @param alignSeconds
+     *      Sub-ranges start at multiples of this interval counted from epoch
+     * @param rangeQuery
+     *      Query of single sub-range
+     * @return
+     *      Results of sub-ranges in ascending time order, to be combined by caller
+     */
+    public <R> List<R> query(Date startTime, Date endTime, Supplier<Date[]> dataRange, long alignSeconds,
+                             RangeQuery<R> rangeQuery) {
+        List<Date[]> ranges = split(startTime, endTime, dataRange, alignSeconds, parallelism);
+
+        if(ranges.size() == 1) {
+            return Collections.singletonList(rangeQuery.query(startTime, endTime));
+        }
+
+        List<Future<R>> futures = new ArrayList<>(ranges.size());
+        ranges.forEach(range -> futures.add(queryWorkers.submit(() -> {
+            runningScans.incrementAndGet();
+            try {
+                return rangeQuery.query(range[0], range[1]);
+            } finally {
+                runningScans.decrementAndGet();
+            }
+        })));
+
+        List<R> results = new ArrayList<>(ranges.size());
+        try {
+            for(Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Range query was interrupted");
+        } catch(ExecutionException e) {
+            throw rethrow(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        return results;
+    }
+
+    /**
+     * Split time range into at most given count of consecutive sub-ranges of at least minimum length. Times are handled
+     * in whole seconds like DATETIME columns. First and last sub-range keep given start and end time.
+     */
+    List<Date[]> split(Date startTime, Date endTime, Supplier<Date[]> dataRange, long alignSeconds, int parallelism) {
+        Date rangeStart = startTime;
+        Date rangeEnd = endTime;
+
+        if(parallelism > 1 && (rangeStart == null || rangeEnd == null)) {
+            Date[] times = dataRange.get();
+            rangeStart = rangeStart == null ? times[0] : rangeStart;
+            rangeEnd = rangeEnd == null ? times[1] : rangeEnd;
+        }
+
+        List<Date[]> ranges = new ArrayList<>();
+
+        if(parallelism <= 1 || rangeStart == null || rangeEnd == null) {
+            ranges.add(new Date[] { startTime, endTime });
+            return ranges;
+        }
+
+        long start = Math.floorDiv(rangeStart.getTime(), MILLIS_PER_SECOND);
+        long end = Math.floorDiv(rangeEnd.getTime(), MILLIS_PER_SECOND);
+        long length = end - start + 1;
+        long count = Math.min(parallelism, (length + minRangeSeconds - 1) / minRangeSeconds);
+
+        Date previous = startTime;
+        for(long i = 1; i < count; i++) {
+            long boundary = start + length * i / count;
+            boundary -= Math.floorMod(boundary, alignSeconds);
+
+            if(boundary <= start || boundary > end
+                || (previous != null && boundary * MILLIS_PER_SECOND <= previous.getTime())) {
+                continue;
+            }
+
+            ranges.add(new Date[] { previous, new Date((boundary - 1) * MILLIS_PER_SECOND) });
+            previous = new Date(boundary * MILLIS_PER_SECOND);
+        }
+
+        ranges.add(new Date[] { previous, endTime });
+        return ranges;
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if(cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+
+        if(cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        return new IllegalStateException("Range scan failed", cause);
+    }
+
+    @ManagedAttribute(description = "Maximum count of concurrent sub-range queries")
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    @ManagedAttribute(description = "Maximum count of concurrent sub-range scans of ordered export")
+    public Integer getExportParallelism() {
+        return exportParallelism;
+    }
+
+    @ManagedAttribute(description = "Count of workers shared by ordered scans")
+    public Integer getScanWorkerCount() {
+        return scanWorkerCount;
+    }
+
+    @ManagedAttribute(description = "Count of sub-range scans running now")
+    public Integer getRunningScans() {
+        return runningScans.get();
+    }
+
+    @ManagedAttribute(description = "Count of sub-range scans which were cancelled after reading ahead stalled")
+    public Integer getReleasedScans() {
+        return releasedScans.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        queryWorkers.shutdownNow();
+        scanWorkers.shutdownNow();
+    }
+
+    /**
+     * Scan of rows in time range
+     */
+    @FunctionalInterface
+    public interface RangeScan<T> {
+        void scan(Date startTime, Date endTime, Consumer<T> consumer);
+    }
+
+    /**
+     * Query of time range
+     */
+    @FunctionalInterface
+    public interface RangeQuery<R> {
+        R query(Date startTime, Date endTime);
+    }
+
+    private enum State { QUEUED, AHEAD, DRAINING, RELEASED }
+
+    /**
+     * Sub-range scanned by worker into bounded buffer
+     */
+    private class SubRangeScan<T> {
+        private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+        private final Date[] range;
+        private final RangeScan<T> rangeScan;
+        private final Future<?> future;
+        private volatile Throwable failure;
+
+        SubRangeScan(Date[] range, RangeScan<T> rangeScan) {
+            this.range = range;
+            this.rangeScan = rangeScan;
+            this.future = scanWorkers.submit(this::run);
+        }
+
+        private void run() {
+            if(!state.compareAndSet(State.QUEUED, State.AHEAD)) {
+                // Calling thread reached the sub-range before any worker was free
+                return;
+            }
+
+            runningScans.incrementAndGet();
+            try {
+                rangeScan.scan(range[0], range[1], this::put);
+            } catch(Throwable e) {
+                failure = e;
+            } finally {
+                runningScans.decrementAndGet();
+            }
+
+            if(state.get() == State.RELEASED) {
+                return;
+            }
+
+            // Reader notices the end without marker as well, so worker is not held by full buffer
+            buffer.offer(END);
+        }
+
+        private void put(T row) {
+            try {
+                while(!buffer.offer(row, stallTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    if(state.compareAndSet(State.AHEAD, State.RELEASED)) {
+                        // Nothing has been read, so calling thread scans the whole sub-range once it is reached.
+                        // Throwing from consumer cancels the query instead of reading its remaining rows.
+                        buffer.clear();
+                        releasedScans.incrementAndGet();
+                        throw new CancellationException("Range scan was released");
+                    }
+
+                    if(state.get() == State.DRAINING) {
+                        // Sub-range is being read, wait for consumer. Scan is cancelled when consumer fails.
+                        buffer.put(row);
+                        return;
+                    }
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Range scan was cancelled");
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void drainTo(Consumer<T> consumer) {
+            if(state.compareAndSet(State.QUEUED, State.RELEASED)) {
+                future.cancel(false);
+                rangeScan.scan(range[0], range[1], consumer);
+                return;
+            }
+
+            if(!state.compareAndSet(State.AHEAD, State.DRAINING)) {
+                rangeScan.scan(range[0], range[1], consumer);
+                return;
+            }
+
+            try {
+                while(true) {
+                    Object row = buffer.poll(STATUS_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+
+                    if(row == END || (row == null && future.isDone() && buffer.isEmpty())) {
+                        break;
+                    }
+
+                    if(row != null) {
+                        consumer.accept((T) row);
+                    }
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Range scan was interrupted");
+            }
+
+            if(failure != null) {
+                throw rethrow(failure);
+            }
+        }
+
+        void cancel() {
+            future.cancel(true);
+        }
+    }
+}
@@ -54,6 +54,17 @@ public class FilterValidator {
         if(errors.hasErrors() && errors.getAllErrors().size() == 1 && fieldToSkip.equals(errors.getFieldError().getField())) {
             return;
         }
+
+        // Report the first error of other fields, skipped field may be listed first
+        errors.getFieldErrors().stream()
+            .filter(error -> !fieldToSkip.equals(error.getField()))
+            .findFirst()
+            .ifPresent(error -> {
+                throw new ExceptionWrapper("Request body validation error",
+                    String.format("Invalid value (%s) for parameter %s", error.getRejectedValue(), error.getField()),
+                    ErrorCode.PARAMETER_VALIDATION_ERROR);
+            });
+
         validateErrors(errors);
     }
 }
@@ -15,7 +15,11 @@ import org.springframework.transaction.annotation.Transactional;
 import web.domain.entity.Device;
 import web.repository.DeviceRepository;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasProperty;
@@ -391,6 +395,42 @@ public class DeviceRepositoryTest {
         assertThat(resultsBefore.size(), equalTo(resultsAfter.size()));
     }
 
+    /**
+     * Test get_device_ids returns only existing device IDs
+     */
+    @Transactional
+    @Test
+    public void testGetExistingDeviceIdsReturnsOnlyExistingIds() {
+        log.info("Test get_device_ids returns only existing device IDs");
+
+        // Given
+        Integer existingId = deviceRepository.addDevice(getTestDevice()).getId();
+
+        // When
+        Set<Integer> results = deviceRepository.getExistingDeviceIds(Arrays.asList(existingId, existingId + 1000));
+
+        //Then
+        assertThat(results, equalTo(Collections.singleton(existingId)));
+    }
+
+    /**
+     * Test get_device_authentication_keys returns ID of added device by its authentication key
+     */
+    @Transactional
+    @Test
+    public void testGetDeviceIdsByAuthenticationKeyContainsAddedDevice() {
+        log.info("Test get_device_authentication_keys returns ID of added device by its authentication key");
+
+        // Given
+        Device addedDevice = deviceRepository.addDevice(getTestDevice());
+
+        // When
+        Map<String, Integer> results = deviceRepository.getDeviceIdsByAuthenticationKey();
+
+        //Then
+        assertThat(results.get(addedDevice.getAuthenticationKey()), equalTo(addedDevice.getId()));
+    }
+
     private Device getTestDevice() {
         Device device = new Device();
         device.setName("test-device");
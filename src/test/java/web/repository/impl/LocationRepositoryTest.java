@@ -12,15 +12,22 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 import web.domain.entity.Device;
+import web.domain.entity.DeviceGroup;
 import web.domain.entity.Location;
+import web.domain.pagination.KeysetPage;
+import web.domain.spatial.GeoArea;
+import web.repository.DeviceGroupRepository;
 import web.repository.DeviceRepository;
 import web.repository.LocationRepository;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.equalTo;
@@ -36,6 +43,9 @@ public class LocationRepositoryTest {
     @Autowired
     DeviceRepository deviceRepository;
 
+    @Autowired
+    DeviceGroupRepository deviceGroupRepository;
+
     private Integer deviceId;
 
     private final Logger log = LoggerFactory.getLogger(this.getClass());
@@ -69,6 +79,216 @@ public class LocationRepositoryTest {
         assertThat(result.getDeviceId(), equalTo(expected.getDeviceId()));
     }
 
+    /**
+     * Test add_locations inserts every location update with single call
+     */
+    @Transactional
+    @Test
+    public void testAddLocationsInsertsAllLocations() throws Exception {
+        log.info("Test add_locations inserts every location update with single call");
+
+        // Given
+        Location location = getTestLocation();
+        Location locationWithoutTime = getTestLocation();
+        locationWithoutTime.setTime(null);
+
+        // When
+        Integer result = locationRepository.addLocations(Arrays.asList(location, locationWithoutTime));
+        Collection<Location> results = locationRepository.getLocations(deviceId, null, null, null);
+
+        // Then
+        assertThat(result, equalTo(2));
+        assertThat(results.size(), equalTo(2));
+    }
+
+    /**
+     * Test add_location returns each inserted row when device posts twice with same time
+     */
+    @Transactional
+    @Test
+    public void testAddLocationReturnsInsertedRowWhenTimeDuplicated() {
+        log.info("Test add_location returns each inserted row when device posts twice with same time");
+
+        // Given
+        Location location = getTestLocation();
+
+        // When
+        Location first = locationRepository.addLocation(location);
+        Location second = locationRepository.addLocation(location);
+
+        // Then
+        assertNotEquals(first.getId(), second.getId());
+        assertThat(second.getTime(), equalTo(first.getTime()));
+    }
+
+    /**
+     * Test get_locations with page limits rows and continues from cursor
+     */
+    @Transactional
+    @Test
+    public void testGetLocationsWithPageReturnsOrderedPages() throws Exception {
+        log.info("Test get_locations with page limits rows and continues from cursor");
+
+        // Given
+        Location first = getTestLocation();
+        first.setTime(formatTime("01-01-2000 00:00:01"));
+        Location second = getTestLocation();
+        second.setTime(formatTime("01-01-2000 00:00:02"));
+        locationRepository.addLocation(second);
+        locationRepository.addLocation(first);
+
+        // When
+        KeysetPage firstPage = KeysetPage.of(1, "asc", null, 1000);
+        List<Location> firstResults = locationRepository.getLocations(deviceId, null, null, null, firstPage);
+
+        KeysetPage secondPage = KeysetPage.of(1, "asc", firstPage.getNextCursor(firstResults), 1000);
+        List<Location> secondResults = locationRepository.getLocations(deviceId, null, null, null, secondPage);
+
+        // Then
+        assertThat(firstResults.get(0).getTime(), equalTo(first.getTime()));
+        assertThat(secondResults.size(), equalTo(1));
+        assertThat(secondResults.get(0).getTime(), equalTo(second.getTime()));
+    }
+
+    /**
+     * Test get_device_group_locations returns locations of group's devices ordered by time and continues from cursor
+     */
+    @Transactional
+    @Test
+    public void testGetDeviceGroupLocationsWithPageReturnsOrderedPagesOfGroupsDevices() throws Exception {
+        log.info("Test get_device_group_locations returns locations of group's devices ordered by time and continues from cursor");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        Location oldest = getTestLocation(firstDeviceId, "01-01-2000 00:00:01");
+        Location middle = getTestLocation(secondDeviceId, "01-01-2000 00:00:02");
+        Location newest = getTestLocation(firstDeviceId, "01-01-2000 00:00:03");
+        Location outsideGroup = getTestLocation(deviceId, "01-01-2000 00:00:02");
+        locationRepository.addLocations(Arrays.asList(newest, outsideGroup, middle, oldest));
+
+        // When
+        KeysetPage firstPage = KeysetPage.of(2, "asc", null, 1000);
+        List<Location> firstResults = locationRepository.getDeviceGroupLocations(deviceGroupId, null, null, null, firstPage);
+        String cursor = firstPage.getNextCursor(firstResults);
+
+        KeysetPage secondPage = KeysetPage.of(2, "asc", cursor, 1000);
+        List<Location> secondResults = locationRepository.getDeviceGroupLocations(deviceGroupId, null, null, null, secondPage);
+
+        // Then
+        assertThat(firstPage.getPageRows(firstResults).size(), equalTo(2));
+        assertThat(firstResults.get(0).getDeviceId(), equalTo(firstDeviceId));
+        assertThat(firstResults.get(0).getTime(), equalTo(oldest.getTime()));
+        assertThat(firstResults.get(1).getDeviceId(), equalTo(secondDeviceId));
+        assertThat(firstResults.get(1).getTime(), equalTo(middle.getTime()));
+        assertNotNull(cursor);
+        assertThat(secondResults.size(), equalTo(1));
+        assertThat(secondResults.get(0).getTime(), equalTo(newest.getTime()));
+        assertNull(secondPage.getNextCursor(secondResults));
+    }
+
+    /**
+     * Test get_latest_locations returns only newest location of each group's device which has locations
+     */
+    @Transactional
+    @Test
+    public void testGetLatestLocationsWithDeviceGroupIdReturnsNewestLocationOfEachDevice() throws Exception {
+        log.info("Test get_latest_locations returns only newest location of each group's device which has locations");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        addTestDevice(deviceGroupId);
+        Location firstOlder = getTestLocation(firstDeviceId, "01-01-2000 00:00:01");
+        Location firstNewest = getTestLocation(firstDeviceId, "01-01-2000 00:00:03");
+        Location secondNewest = getTestLocation(secondDeviceId, "01-01-2000 00:00:02");
+        Location outsideGroup = getTestLocation(deviceId, "01-01-2000 00:00:04");
+        locationRepository.addLocations(Arrays.asList(firstNewest, outsideGroup, secondNewest, firstOlder));
+
+        // When
+        List<Location> results = locationRepository.getLatestLocations(null, deviceGroupId);
+        List<Location> deviceResults = locationRepository.getLatestLocations(firstDeviceId, null);
+
+        // Then
+        assertThat(results.size(), equalTo(2));
+        results.forEach(result -> assertThat(result.getTime(), equalTo(
+            result.getDeviceId().equals(firstDeviceId) ? firstNewest.getTime() : secondNewest.getTime())));
+        assertThat(deviceResults.size(), equalTo(1));
+        assertThat(deviceResults.get(0).getTime(), equalTo(firstNewest.getTime()));
+    }
+
+    /**
+     * Test streaming get_locations passes every row to consumer
+     */
+    @Transactional
+    @Test
+    public void testStreamLocationsPassesRows() throws Exception {
+        log.info("Test streaming get_locations passes every row to consumer");
+
+        // Given
+        Location location = getTestLocation();
+        location.setTime(formatTime("01-01-2000 00:00:01"));
+        Location addedLocation = locationRepository.addLocation(location);
+
+        // When
+        List<Location> streamed = new ArrayList<>();
+        locationRepository.streamLocations(deviceId, null, null, null, false, streamed::add);
+
+        // Then
+        assertThat(streamed.size(), equalTo(1));
+        assertThat(streamed.get(0).getId(), equalTo(addedLocation.getId()));
+        assertThat(streamed.get(0).getLatitude().compareTo(location.getLatitude()), equalTo(0));
+        assertThat(streamed.get(0).getLongitude().compareTo(location.getLongitude()), equalTo(0));
+    }
+
+    /**
+     * Test get_location_time_range returns range containing every location update
+     */
+    @Transactional
+    @Test
+    public void testGetLocationTimeRangeContainsLocations() throws Exception {
+        log.info("Test get_location_time_range returns range containing every location update");
+
+        // Given
+        Location older = getTestLocation(deviceId, "01-01-1971 00:00:01");
+        Location newer = getTestLocation(deviceId, "01-01-2100 00:00:01");
+        locationRepository.addLocations(Arrays.asList(older, newer));
+
+        // When
+        Date[] timeRange = locationRepository.getLocationTimeRange(null, null);
+
+        // Then
+        assertThat(timeRange[0].after(older.getTime()), is(false));
+        assertThat(timeRange[1].before(newer.getTime()), is(false));
+    }
+
+    /**
+     * Test get_location_time_range with device group returns range of group's devices only
+     */
+    @Transactional
+    @Test
+    public void testGetLocationTimeRangeOfDeviceGroupContainsOnlyGroupsLocations() throws Exception {
+        log.info("Test get_location_time_range with device group returns range of group's devices only");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        Location first = getTestLocation(firstDeviceId, "01-01-2000 00:00:01");
+        Location last = getTestLocation(secondDeviceId, "01-01-2001 00:00:01");
+        Location outsideGroup = getTestLocation(deviceId, "01-01-1971 00:00:01");
+        locationRepository.addLocations(Arrays.asList(first, last, outsideGroup));
+
+        // When
+        Date[] timeRange = locationRepository.getLocationTimeRange(null, deviceGroupId);
+
+        // Then
+        assertThat(timeRange[0], equalTo(first.getTime()));
+        assertThat(timeRange[1], equalTo(last.getTime()));
+    }
+
     /**
      * Test add_location fails when foreign key device_id conflicts
      */
@@ -444,6 +664,206 @@ public class LocationRepositoryTest {
         assertThat(resultsBefore.size(), equalTo(resultsAfter.size()));
     }
 
+    /**
+     * Test purge_locations deletes at most given count of locations before given time
+     */
+    @Transactional
+    @Test
+    public void testPurgeLocationsDeletesLimitedCountBeforeTime() throws Exception {
+        log.info("Test purge_locations deletes at most given count of locations before given time");
+
+        // Given
+        Date before = formatTime("01-01-2000 00:00:01");
+        Location expired = getTestLocation();
+        expired.setTime(formatTime("01-01-2000 00:00:00"));
+        Location kept = getTestLocation();
+        kept.setTime(before);
+
+        // When
+        locationRepository.addLocation(expired);
+        locationRepository.addLocation(expired);
+        locationRepository.addLocation(kept);
+        Integer firstResult = locationRepository.purgeLocations(deviceId, before, 1);
+        Integer secondResult = locationRepository.purgeLocations(deviceId, before, 10);
+        Collection<Location> resultsAfter = locationRepository.getLocations(deviceId, null, null, null);
+
+        // Then
+        assertThat(firstResult, equalTo(1));
+        assertThat(secondResult, equalTo(1));
+        assertThat(resultsAfter.size(), equalTo(1));
+    }
+
+    /**
+     * Test delete_locations_chunk deletes at most given count of matching locations
+     */
+    @Transactional
+    @Test
+    public void testDeleteLocationsChunkDeletesAtMostLimit() throws Exception {
+        log.info("Test delete_locations_chunk deletes at most given count of matching locations");
+
+        // Given
+        Location location = getTestLocation();
+        location.setTime(formatTime("01-01-2000 00:00:00"));
+
+        // When
+        locationRepository.addLocation(location);
+        locationRepository.addLocation(location);
+        locationRepository.addLocation(location);
+        Integer firstResult = locationRepository.deleteLocationsChunk(deviceId, null, null, null, 2);
+        Integer secondResult = locationRepository.deleteLocationsChunk(deviceId, null, null, null, 2);
+        Integer thirdResult = locationRepository.deleteLocationsChunk(deviceId, null, null, null, 2);
+        Collection<Location> resultsAfter = locationRepository.getLocations(deviceId, null, null, null);
+
+        // Then
+        assertThat(firstResult, equalTo(2));
+        assertThat(secondResult, equalTo(1));
+        assertThat(thirdResult, equalTo(0));
+        assertThat(resultsAfter.size(), equalTo(0));
+    }
+
+    /**
+     * Test delete_device_group_locations deletes at most given count of locations of group's devices
+     */
+    @Transactional
+    @Test
+    public void testDeleteDeviceGroupLocationsDeletesAtMostLimitOfGroupsDevices() throws Exception {
+        log.info("Test delete_device_group_locations deletes at most given count of locations of group's devices");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        locationRepository.addLocations(Arrays.asList(
+            getTestLocation(firstDeviceId, "01-01-2000 00:00:01"),
+            getTestLocation(secondDeviceId, "01-01-2000 00:00:02"),
+            getTestLocation(firstDeviceId, "01-01-2000 00:00:03"),
+            getTestLocation(deviceId, "01-01-2000 00:00:02")));
+
+        // When
+        Integer firstResult = locationRepository.deleteDeviceGroupLocations(deviceGroupId, null, null, null, 2);
+        Integer secondResult = locationRepository.deleteDeviceGroupLocations(deviceGroupId, null, null, null, 2);
+        Collection<Location> groupResultsAfter = locationRepository.getDeviceGroupLocations(deviceGroupId, null, null, null, null);
+        Collection<Location> resultsAfter = locationRepository.getLocations(deviceId, null, null, null);
+
+        // Then
+        assertThat(firstResult, equalTo(2));
+        assertThat(secondResult, equalTo(1));
+        assertThat(groupResultsAfter.size(), equalTo(0));
+        assertThat(resultsAfter.size(), equalTo(1));
+    }
+
+    /**
+     * Test delete_device deletes locations of the device
+     */
+    @Transactional
+    @Test
+    public void testDeleteDeviceDeletesLocationsOfDevice() throws Exception {
+        log.info("Test delete_device deletes locations of the device");
+
+        // Given
+        Location location = getTestLocation();
+
+        // When
+        locationRepository.addLocation(location);
+        Collection<Location> resultsBefore = locationRepository.getLocations(location.getDeviceId(), null, null, null);
+        deviceRepository.deleteDevice(deviceId, null, null);
+        Collection<Location> resultsAfter = locationRepository.getLocations(location.getDeviceId(), null, null, null);
+
+        // Then
+        assertThat(resultsBefore.size(), equalTo(1));
+        assertThat(resultsAfter.size(), equalTo(0));
+    }
+
+    /**
+     * Test get_locations with area returns only location updates inside bounding box
+     */
+    @Transactional
+    @Test
+    public void testGetLocationsWithAreaReturnsOnlyLocationsInsideBoundingBox() throws Exception {
+        log.info("Test get_locations with area returns only location updates inside bounding box");
+
+        // Given
+        Location inside = getTestLocation(deviceId, "01-01-2000 00:00:01");
+        inside.setLatitude(new BigDecimal("61.498"));
+        inside.setLongitude(new BigDecimal("23.761"));
+        Location outside = getTestLocation(deviceId, "01-01-2000 00:00:02");
+        locationRepository.addLocations(Arrays.asList(inside, outside));
+
+        // When
+        GeoArea area = GeoArea.of("61.4,23.7,61.6,23.9", null, null);
+        List<Location> results = locationRepository.getLocations(deviceId, null, null, null, area, null);
+
+        // Then
+        assertThat(results.size(), equalTo(1));
+        assertThat(results.get(0).getLatitude(), equalTo(inside.getLatitude()));
+    }
+
+    /**
+     * Test get_device_group_locations with area returns only location updates within radius
+     */
+    @Transactional
+    @Test
+    public void testGetDeviceGroupLocationsWithAreaReturnsOnlyLocationsWithinRadius() throws Exception {
+        log.info("Test get_device_group_locations with area returns only location updates within radius");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer groupDeviceId = addTestDevice(deviceGroupId);
+        Location near = getTestLocation(groupDeviceId, "01-01-2000 00:00:01");
+        near.setLatitude(new BigDecimal("61.498"));
+        near.setLongitude(new BigDecimal("23.761"));
+        Location far = getTestLocation(groupDeviceId, "01-01-2000 00:00:02");
+        far.setLatitude(new BigDecimal("61.520"));
+        far.setLongitude(new BigDecimal("23.761"));
+        locationRepository.addLocations(Arrays.asList(near, far));
+
+        // When
+        GeoArea area = GeoArea.of(null, "61.497,23.760", 1000.0);
+        List<Location> results = locationRepository.getDeviceGroupLocations(deviceGroupId, null, null, null, area, null);
+
+        // Then
+        assertThat(results.size(), equalTo(1));
+        assertThat(results.get(0).getLatitude(), equalTo(near.getLatitude()));
+    }
+
+    /**
+     * Test add_location_partitions creates no partitions for months already partitioned
+     */
+    @Transactional
+    @Test
+    public void testAddLocationPartitionsCreatesNoPartitionsForExistingMonths() throws Exception {
+        log.info("Test add_location_partitions creates no partitions for months already partitioned");
+
+        // When
+        Integer result = locationRepository.addLocationPartitions(0);
+
+        // Then
+        assertThat(result, equalTo(0));
+    }
+
+    private Integer addTestDeviceGroup() {
+        DeviceGroup deviceGroup = new DeviceGroup();
+        deviceGroup.setName("test-device-group-name");
+
+        return deviceGroupRepository.addDeviceGroup(deviceGroup).getId();
+    }
+
+    private Integer addTestDevice(Integer deviceGroupId) {
+        Device device = new Device();
+        device.setName("test-device-name");
+        device.setDeviceGroupId(deviceGroupId);
+
+        return deviceRepository.addDevice(device).getId();
+    }
+
+    private Location getTestLocation(Integer deviceId, String time) throws Exception {
+        Location location = getTestLocation();
+        location.setDeviceId(deviceId);
+        location.setTime(formatTime(time));
+
+        return location;
+    }
+
     private Location getTestLocation() {
         Location location = new Location();
         location.setDeviceId(deviceId);
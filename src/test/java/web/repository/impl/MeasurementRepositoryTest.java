@@ -11,8 +11,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
+import web.domain.aggregation.MeasurementRollup;
+import web.domain.aggregation.TimeBucket;
+import web.domain.aggregation.TimeBucketAggregation;
 import web.domain.entity.Device;
+import web.domain.entity.DeviceGroup;
 import web.domain.entity.Measurement;
+import web.domain.filter.ContentFilter;
+import web.domain.pagination.KeysetPage;
+import web.repository.DeviceGroupRepository;
 import web.repository.DeviceRepository;
 import web.repository.MeasurementRepository;
 
@@ -34,6 +41,9 @@ public class MeasurementRepositoryTest {
     @Autowired
     DeviceRepository deviceRepository;
 
+    @Autowired
+    DeviceGroupRepository deviceGroupRepository;
+
     private Integer deviceId;
 
     private final Logger log = LoggerFactory.getLogger(this.getClass());
@@ -67,6 +77,26 @@ public class MeasurementRepositoryTest {
         assertThat(result.getDeviceId(), equalTo(expected.getDeviceId()));
     }
 
+    /**
+     * Test add_measurement returns each inserted row when device posts twice with same time
+     */
+    @Transactional
+    @Test
+    public void testAddMeasurementReturnsInsertedRowWhenTimeDuplicated() throws Exception {
+        log.info("Test add_measurement returns each inserted row when device posts twice with same time");
+
+        // Given
+        Measurement measurement = getTestMeasurement();
+
+        // When
+        Measurement first = measurementRepository.addMeasurement(measurement);
+        Measurement second = measurementRepository.addMeasurement(measurement);
+
+        // Then
+        assertNotEquals(first.getId(), second.getId());
+        assertThat(second.getContent(), equalTo(measurement.getContent()));
+    }
+
     /**
      * Test add_measurement fails when foreign key device_id conflicts
      */
@@ -135,6 +165,44 @@ public class MeasurementRepositoryTest {
         assertNotNull(result.getTime());
     }
 
+    /**
+     * Test add_measurements inserts every measurement of batch
+     */
+    @Transactional
+    @Test
+    public void testAddMeasurementsInsertsAllMeasurements() throws Exception {
+        log.info("Test add_measurements inserts every measurement of batch");
+
+        // Given
+        Measurement measurement = getTestMeasurement();
+        Measurement measurementWithoutTime = getTestMeasurement();
+        measurementWithoutTime.setTime(null);
+
+        // When
+        Integer result = measurementRepository.addMeasurements(Arrays.asList(measurement, measurementWithoutTime));
+        Collection<Measurement> results = measurementRepository.getMeasurements(deviceId, null, null, null);
+
+        // Then
+        assertThat(result, equalTo(2));
+        assertThat(results.size(), equalTo(2));
+    }
+
+    /**
+     * Test add_measurements fails when foreign key device_id conflicts
+     */
+    @Transactional
+    @Test(expected = DataIntegrityViolationException.class)
+    public void testAddMeasurementsThrowsWhenForeignKeyConflicts() throws Exception {
+        log.info("Test add_measurements fails when foreign key device_id conflicts");
+
+        // Given
+        Measurement measurement = getTestMeasurement();
+        measurement.setDeviceId(999);
+
+        // When
+        measurementRepository.addMeasurements(Collections.singletonList(measurement));
+    }
+
     /**
      * Test get_measurements without parameters finds inserted measurement
      */
@@ -153,6 +221,402 @@ public class MeasurementRepositoryTest {
         assertThat(results, IsCollectionContaining.hasItem(expected));
     }
 
+    /**
+     * Test get_measurements with page returns newest measurements first and continues from cursor
+     */
+    @Transactional
+    @Test
+    public void testGetMeasurementsWithPageReturnsOrderedPages() throws Exception {
+        log.info("Test get_measurements with page returns newest measurements first and continues from cursor");
+
+        // Given
+        Measurement oldest = getTestMeasurement();
+        oldest.setTime(formatTime("01-01-2000 00:00:01"));
+        Measurement middle = getTestMeasurement();
+        middle.setTime(formatTime("01-01-2000 00:00:02"));
+        Measurement newest = getTestMeasurement();
+        newest.setTime(formatTime("01-01-2000 00:00:03"));
+        measurementRepository.addMeasurements(Arrays.asList(oldest, middle, newest));
+
+        // When
+        KeysetPage firstPage = KeysetPage.of(2, "desc", null, 1000);
+        List<Measurement> firstResults = measurementRepository.getMeasurements(deviceId, null, null, null, firstPage);
+        String cursor = firstPage.getNextCursor(firstResults);
+
+        KeysetPage secondPage = KeysetPage.of(2, "desc", cursor, 1000);
+        List<Measurement> secondResults = measurementRepository.getMeasurements(deviceId, null, null, null, secondPage);
+
+        // Then
+        assertThat(firstPage.getPageRows(firstResults).size(), equalTo(2));
+        assertThat(firstResults.get(0).getTime(), equalTo(newest.getTime()));
+        assertThat(firstResults.get(1).getTime(), equalTo(middle.getTime()));
+        assertNotNull(cursor);
+        assertThat(secondResults.size(), equalTo(1));
+        assertThat(secondResults.get(0).getTime(), equalTo(oldest.getTime()));
+        assertNull(secondPage.getNextCursor(secondResults));
+    }
+
+    /**
+     * Test get_measurements with content filters returns measurements whose content matches all filters
+     */
+    @Transactional
+    @Test
+    public void testGetMeasurementsWithContentFiltersReturnsMatchingMeasurements() throws Exception {
+        log.info("Test get_measurements with content filters returns measurements whose content matches all filters");
+
+        // Given
+        Measurement cold = getTestMeasurement();
+        cold.getContent().put("temperature", 20);
+        cold.getContent().put("status", "ok");
+        Measurement hot = getTestMeasurement();
+        hot.getContent().put("temperature", 45);
+        hot.getContent().put("status", "ok");
+        Measurement failed = getTestMeasurement();
+        failed.getContent().put("temperature", 50);
+        failed.getContent().put("status", "failed");
+        measurementRepository.addMeasurements(Arrays.asList(cold, hot, failed));
+
+        // When
+        List<Measurement> results = measurementRepository.getMeasurements(deviceId, null, null, null,
+            ContentFilter.of(Arrays.asList("temperature>40", "status=ok")), null);
+
+        // Then
+        assertThat(results.size(), equalTo(1));
+        assertThat(results.get(0).getContent().get("temperature"), equalTo(45));
+    }
+
+    /**
+     * Test get_device_group_measurements returns measurements of group's devices ordered by time and continues from cursor
+     */
+    @Transactional
+    @Test
+    public void testGetDeviceGroupMeasurementsWithPageReturnsOrderedPagesOfGroupsDevices() throws Exception {
+        log.info("Test get_device_group_measurements returns measurements of group's devices ordered by time and continues from cursor");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        Measurement oldest = getTestMeasurement(firstDeviceId, "01-01-2000 00:00:01");
+        Measurement middle = getTestMeasurement(secondDeviceId, "01-01-2000 00:00:02");
+        Measurement newest = getTestMeasurement(firstDeviceId, "01-01-2000 00:00:03");
+        Measurement outsideGroup = getTestMeasurement(deviceId, "01-01-2000 00:00:02");
+        measurementRepository.addMeasurements(Arrays.asList(newest, outsideGroup, middle, oldest));
+
+        // When
+        KeysetPage firstPage = KeysetPage.of(2, "asc", null, 1000);
+        List<Measurement> firstResults = measurementRepository.getDeviceGroupMeasurements(deviceGroupId, null, null, null, firstPage);
+        String cursor = firstPage.getNextCursor(firstResults);
+
+        KeysetPage secondPage = KeysetPage.of(2, "asc", cursor, 1000);
+        List<Measurement> secondResults = measurementRepository.getDeviceGroupMeasurements(deviceGroupId, null, null, null, secondPage);
+
+        // Then
+        assertThat(firstPage.getPageRows(firstResults).size(), equalTo(2));
+        assertThat(firstResults.get(0).getDeviceId(), equalTo(firstDeviceId));
+        assertThat(firstResults.get(0).getTime(), equalTo(oldest.getTime()));
+        assertThat(firstResults.get(1).getDeviceId(), equalTo(secondDeviceId));
+        assertThat(firstResults.get(1).getTime(), equalTo(middle.getTime()));
+        assertNotNull(cursor);
+        assertThat(secondResults.size(), equalTo(1));
+        assertThat(secondResults.get(0).getTime(), equalTo(newest.getTime()));
+        assertNull(secondPage.getNextCursor(secondResults));
+    }
+
+    /**
+     * Test streaming get_device_group_measurements passes measurements of group's devices to consumer in requested order
+     */
+    @Transactional
+    @Test
+    public void testStreamDeviceGroupMeasurementsPassesRowsOfGroupsDevicesInOrder() throws Exception {
+        log.info("Test streaming get_device_group_measurements passes measurements of group's devices to consumer in requested order");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        Measurement older = getTestMeasurement(firstDeviceId, "01-01-2000 00:00:01");
+        Measurement newer = getTestMeasurement(secondDeviceId, "01-01-2000 00:00:02");
+        measurementRepository.addMeasurements(Arrays.asList(older, newer, getTestMeasurement(deviceId, "01-01-2000 00:00:03")));
+
+        // When
+        List<Measurement> streamed = new ArrayList<>();
+        measurementRepository.streamDeviceGroupMeasurements(deviceGroupId, null, null, null, true, streamed::add);
+
+        // Then
+        assertThat(streamed.size(), equalTo(2));
+        assertThat(streamed.get(0).getDeviceId(), equalTo(secondDeviceId));
+        assertThat(streamed.get(1).getDeviceId(), equalTo(firstDeviceId));
+    }
+
+    /**
+     * Test get_latest_measurements returns only newest measurement of each group's device which has measurements
+     */
+    @Transactional
+    @Test
+    public void testGetLatestMeasurementsWithDeviceGroupIdReturnsNewestMeasurementOfEachDevice() throws Exception {
+        log.info("Test get_latest_measurements returns only newest measurement of each group's device which has measurements");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        addTestDevice(deviceGroupId);
+        Measurement firstOlder = getTestMeasurement(firstDeviceId, "01-01-2000 00:00:01");
+        Measurement firstNewest = getTestMeasurement(firstDeviceId, "01-01-2000 00:00:03");
+        Measurement secondNewest = getTestMeasurement(secondDeviceId, "01-01-2000 00:00:02");
+        Measurement outsideGroup = getTestMeasurement(deviceId, "01-01-2000 00:00:04");
+        measurementRepository.addMeasurements(Arrays.asList(firstNewest, outsideGroup, secondNewest, firstOlder));
+
+        // When
+        List<Measurement> results = measurementRepository.getLatestMeasurements(null, deviceGroupId);
+        List<Measurement> deviceResults = measurementRepository.getLatestMeasurements(firstDeviceId, null);
+
+        // Then
+        assertThat(results.size(), equalTo(2));
+        results.forEach(result -> assertThat(result.getTime(), equalTo(
+            result.getDeviceId().equals(firstDeviceId) ? firstNewest.getTime() : secondNewest.getTime())));
+        assertThat(deviceResults.size(), equalTo(1));
+        assertThat(deviceResults.get(0).getTime(), equalTo(firstNewest.getTime()));
+    }
+
+    /**
+     * Test get_measurement_aggregates aggregates numeric field into buckets and skips non-numeric values
+     */
+    @Transactional
+    @Test
+    public void testGetMeasurementAggregatesReturnsBucketsOfNumericValues() throws Exception {
+        log.info("Test get_measurement_aggregates aggregates numeric field into buckets and skips non-numeric values");
+
+        // Given
+        Measurement first = getTestMeasurement();
+        first.getContent().put("temperature", 10);
+        first.setTime(formatTime("01-01-2000 00:00:10"));
+        Measurement second = getTestMeasurement();
+        second.getContent().put("temperature", 20.5);
+        second.setTime(formatTime("01-01-2000 00:04:59"));
+        Measurement nonNumeric = getTestMeasurement();
+        nonNumeric.getContent().put("temperature", "warm");
+        nonNumeric.setTime(formatTime("01-01-2000 00:03:00"));
+        Measurement nextBucket = getTestMeasurement();
+        nextBucket.getContent().put("temperature", -5);
+        nextBucket.setTime(formatTime("01-01-2000 00:05:00"));
+        measurementRepository.addMeasurements(Arrays.asList(first, second, nonNumeric, nextBucket));
+
+        // When
+        TimeBucketAggregation aggregation = TimeBucketAggregation.of("temperature", "5m", "avg,min,max,count,sum");
+        List<TimeBucket> results = measurementRepository.getMeasurementAggregates(
+            deviceId, null, null, aggregation, null, 0, 10);
+
+        // Then
+        assertThat(results.size(), equalTo(2));
+        assertThat(results.get(0).getTime(), equalTo(formatTime("01-01-2000 00:00:00")));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.COUNT), equalTo(2L));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.AVG), equalTo(15.25));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.MIN), equalTo(10.0));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.MAX), equalTo(20.5));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.SUM), equalTo(30.5));
+        assertThat(results.get(1).getTime(), equalTo(formatTime("01-01-2000 00:05:00")));
+        assertThat(results.get(1).getValue(TimeBucketAggregation.Function.COUNT), equalTo(1L));
+    }
+
+    /**
+     * Test rebuild_measurement_rollups builds hour rollups which are used instead of measurements
+     */
+    @Transactional
+    @Test
+    public void testRebuildMeasurementRollupsBuildsRollupsUsedByAggregates() throws Exception {
+        log.info("Test rebuild_measurement_rollups builds hour rollups which are used instead of measurements");
+
+        // Given
+        Measurement first = getTestMeasurement();
+        first.getContent().put("temperature", 10);
+        first.setTime(formatTime("01-01-2000 00:00:10"));
+        Measurement second = getTestMeasurement();
+        second.getContent().put("temperature", 30);
+        second.setTime(formatTime("01-01-2000 00:59:59"));
+        measurementRepository.addMeasurements(Arrays.asList(first, second));
+        TimeBucketAggregation aggregation = TimeBucketAggregation.of("temperature", "1h", "count,avg");
+
+        // When
+        List<TimeBucket> withoutRollups = measurementRepository.getMeasurementAggregates(
+            deviceId, null, null, aggregation, 3600, 0, 10);
+        measurementRepository.rebuildMeasurementRollups(deviceId, null, null, null);
+        List<TimeBucket> withRollups = measurementRepository.getMeasurementAggregates(
+            deviceId, null, null, aggregation, 3600, 0, 10);
+
+        // Then
+        assertTrue(withoutRollups.isEmpty());
+        assertThat(withRollups.size(), equalTo(1));
+        assertThat(withRollups.get(0).getTime(), equalTo(formatTime("01-01-2000 00:00:00")));
+        assertThat(withRollups.get(0).getValue(TimeBucketAggregation.Function.COUNT), equalTo(2L));
+        assertThat(withRollups.get(0).getValue(TimeBucketAggregation.Function.AVG), equalTo(20.0));
+    }
+
+    /**
+     * Test rebuild_measurement_rollups of minutes recomputes hour rollups from the remaining minutes of the hour
+     */
+    @Transactional
+    @Test
+    public void testRebuildMeasurementRollupsOfMinutesRecomputesHour() throws Exception {
+        log.info("Test rebuild_measurement_rollups of minutes recomputes hour rollups from the remaining minutes of the hour");
+
+        // Given
+        Measurement first = getTestMeasurement();
+        first.getContent().put("temperature", 10);
+        first.setTime(formatTime("01-01-2000 00:00:10"));
+        Measurement second = getTestMeasurement();
+        second.getContent().put("temperature", 30);
+        second.setTime(formatTime("01-01-2000 00:59:59"));
+        measurementRepository.addMeasurements(Arrays.asList(first, second));
+        measurementRepository.rebuildMeasurementRollups(deviceId, null, null, null);
+        TimeBucketAggregation aggregation = TimeBucketAggregation.of("temperature", "1h", "count,avg");
+
+        // When
+        measurementRepository.deleteMeasurements(deviceId, second.getTime(), null, null);
+        measurementRepository.rebuildMeasurementRollups(deviceId, null,
+            formatTime("01-01-2000 00:59:00"), formatTime("01-01-2000 01:00:00"));
+        List<TimeBucket> results = measurementRepository.getMeasurementAggregates(
+            deviceId, null, null, aggregation, 3600, 0, 10);
+
+        // Then
+        assertThat(results.size(), equalTo(1));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.COUNT), equalTo(1L));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.AVG), equalTo(10.0));
+    }
+
+    /**
+     * Test rebuild_measurement_rollups of device group rebuilds rollups of group's devices only
+     */
+    @Transactional
+    @Test
+    public void testRebuildMeasurementRollupsOfDeviceGroupRebuildsGroupsDevices() throws Exception {
+        log.info("Test rebuild_measurement_rollups of device group rebuilds rollups of group's devices only");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer groupDeviceId = addTestDevice(deviceGroupId);
+        Measurement groupMeasurement = getTestMeasurement(groupDeviceId, "01-01-2000 00:00:10");
+        groupMeasurement.getContent().put("temperature", 10);
+        Measurement otherMeasurement = getTestMeasurement(deviceId, "01-01-2000 00:00:10");
+        otherMeasurement.getContent().put("temperature", 20);
+        measurementRepository.addMeasurements(Arrays.asList(groupMeasurement, otherMeasurement));
+        measurementRepository.rebuildMeasurementRollups(null, null, null, null);
+        TimeBucketAggregation aggregation = TimeBucketAggregation.of("temperature", "1h", "count");
+
+        // When
+        measurementRepository.deleteDeviceGroupMeasurements(deviceGroupId, null, null, null, 10);
+        measurementRepository.deleteMeasurements(deviceId, otherMeasurement.getTime(), null, null);
+        measurementRepository.rebuildMeasurementRollups(null, deviceGroupId, null, null);
+        List<TimeBucket> groupResults = measurementRepository.getMeasurementAggregates(
+            groupDeviceId, null, null, aggregation, 3600, 0, 10);
+        List<TimeBucket> otherResults = measurementRepository.getMeasurementAggregates(
+            deviceId, null, null, aggregation, 3600, 0, 10);
+
+        // Then
+        assertTrue(groupResults.isEmpty());
+        assertThat(otherResults.size(), equalTo(1));
+        assertThat(otherResults.get(0).getValue(TimeBucketAggregation.Function.COUNT), equalTo(1L));
+    }
+
+    /**
+     * Test get_measurement_rollup_time_range returns whole hours covering rollups of the device
+     */
+    @Transactional
+    @Test
+    public void testGetMeasurementRollupTimeRangeCoversDevicesRollups() throws Exception {
+        log.info("Test get_measurement_rollup_time_range returns whole hours covering rollups of the device");
+
+        // Given
+        Measurement first = getTestMeasurement(deviceId, "01-01-2000 00:10:10");
+        first.getContent().put("temperature", 10);
+        Measurement last = getTestMeasurement(deviceId, "01-01-2000 02:20:20");
+        last.getContent().put("temperature", 30);
+        measurementRepository.addMeasurements(Arrays.asList(first, last));
+        measurementRepository.rebuildMeasurementRollups(deviceId, null, null, null);
+
+        // When
+        Date[] timeRange = measurementRepository.getMeasurementRollupTimeRange(deviceId, null);
+
+        // Then
+        assertThat(timeRange[0], equalTo(formatTime("01-01-2000 00:00:00")));
+        assertThat(timeRange[1], equalTo(formatTime("01-01-2000 03:00:00")));
+    }
+
+    /**
+     * Test update_measurement_rollup_watermark stores watermark returned by get_measurement_rollup_watermark
+     */
+    @Transactional
+    @Test
+    public void testUpdateMeasurementRollupWatermarkIsReturned() throws Exception {
+        log.info("Test update_measurement_rollup_watermark stores watermark returned by get_measurement_rollup_watermark");
+
+        // Given
+        Date watermark = formatTime("01-01-2000 00:10:00");
+
+        // When
+        measurementRepository.updateMeasurementRollupWatermark(watermark);
+        Date result = measurementRepository.getMeasurementRollupWatermark();
+
+        // Then
+        assertThat(result, equalTo(watermark));
+    }
+
+    /**
+     * Test add_measurement_rollups combines added values with existing minute rollups
+     */
+    @Transactional
+    @Test
+    public void testAddMeasurementRollupsCombinesWithExistingRollups() throws Exception {
+        log.info("Test add_measurement_rollups combines added values with existing minute rollups");
+
+        // Given
+        MeasurementRollup first = new MeasurementRollup(deviceId, "temperature", formatTime("01-01-2000 00:01:00"));
+        first.add(10);
+        first.add(20);
+        MeasurementRollup second = new MeasurementRollup(deviceId, "temperature", formatTime("01-01-2000 00:01:00"));
+        second.add(-6);
+
+        // When
+        measurementRepository.addMeasurementRollups(Collections.singletonList(first));
+        measurementRepository.addMeasurementRollups(Collections.singletonList(second));
+        List<TimeBucket> results = measurementRepository.getMeasurementAggregates(deviceId, null, null,
+            TimeBucketAggregation.of("temperature", "1m", "count,sum,min,max"), 60, 0, 10);
+
+        // Then
+        assertThat(results.size(), equalTo(1));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.COUNT), equalTo(3L));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.SUM), equalTo(24.0));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.MIN), equalTo(-6.0));
+        assertThat(results.get(0).getValue(TimeBucketAggregation.Function.MAX), equalTo(20.0));
+    }
+
+    /**
+     * Test streaming get_measurements passes every row to consumer in requested order
+     */
+    @Transactional
+    @Test
+    public void testStreamMeasurementsPassesRowsInOrder() throws Exception {
+        log.info("Test streaming get_measurements passes every row to consumer in requested order");
+
+        // Given
+        Measurement older = getTestMeasurement();
+        older.setTime(formatTime("01-01-2000 00:00:01"));
+        Measurement newer = getTestMeasurement();
+        newer.setTime(formatTime("01-01-2000 00:00:02"));
+        measurementRepository.addMeasurements(Arrays.asList(older, newer));
+
+        // When
+        List<Measurement> streamed = new ArrayList<>();
+        measurementRepository.streamMeasurements(deviceId, null, null, null, true, streamed::add);
+
+        // Then
+        assertThat(streamed.size(), equalTo(2));
+        assertThat(streamed.get(0).getTime(), equalTo(newer.getTime()));
+        assertThat(streamed.get(0).getContent(), equalTo(newer.getContent()));
+        assertThat(streamed.get(1).getTime(), equalTo(older.getTime()));
+    }
+
     /**
      * Test get_measurements with device_id and exact_time finds inserted measurement
      */
@@ -420,6 +884,172 @@ public class MeasurementRepositoryTest {
         assertThat(resultsBefore.size(), equalTo(resultsAfter.size()));
     }
 
+    /**
+     * Test purge_measurements deletes at most given count of measurements before given time
+     */
+    @Transactional
+    @Test
+    public void testPurgeMeasurementsDeletesLimitedCountBeforeTime() throws Exception {
+        log.info("Test purge_measurements deletes at most given count of measurements before given time");
+
+        // Given
+        Date before = formatTime("01-01-2000 00:00:01");
+        Measurement expired = getTestMeasurement();
+        expired.setTime(formatTime("01-01-2000 00:00:00"));
+        Measurement kept = getTestMeasurement();
+        kept.setTime(before);
+
+        // When
+        measurementRepository.addMeasurement(expired);
+        measurementRepository.addMeasurement(expired);
+        measurementRepository.addMeasurement(kept);
+        Integer firstResult = measurementRepository.purgeMeasurements(deviceId, before, 1);
+        Integer secondResult = measurementRepository.purgeMeasurements(deviceId, before, 10);
+        Collection<Measurement> resultsAfter = measurementRepository.getMeasurements(deviceId, null, null, null);
+
+        // Then
+        assertThat(firstResult, equalTo(1));
+        assertThat(secondResult, equalTo(1));
+        assertThat(resultsAfter.size(), equalTo(1));
+    }
+
+    /**
+     * Test delete_measurements_chunk deletes at most given count of matching measurements
+     */
+    @Transactional
+    @Test
+    public void testDeleteMeasurementsChunkDeletesAtMostLimit() throws Exception {
+        log.info("Test delete_measurements_chunk deletes at most given count of matching measurements");
+
+        // Given
+        Measurement measurement = getTestMeasurement();
+        measurement.setTime(formatTime("01-01-2000 00:00:00"));
+
+        // When
+        measurementRepository.addMeasurement(measurement);
+        measurementRepository.addMeasurement(measurement);
+        measurementRepository.addMeasurement(measurement);
+        Integer firstResult = measurementRepository.deleteMeasurementsChunk(deviceId, null, null, null, 2);
+        Integer secondResult = measurementRepository.deleteMeasurementsChunk(deviceId, null, null, null, 2);
+        Integer thirdResult = measurementRepository.deleteMeasurementsChunk(deviceId, null, null, null, 2);
+        Collection<Measurement> resultsAfter = measurementRepository.getMeasurements(deviceId, null, null, null);
+
+        // Then
+        assertThat(firstResult, equalTo(2));
+        assertThat(secondResult, equalTo(1));
+        assertThat(thirdResult, equalTo(0));
+        assertThat(resultsAfter.size(), equalTo(0));
+    }
+
+    /**
+     * Test delete_device_group_measurements deletes at most given count of measurements of group's devices
+     */
+    @Transactional
+    @Test
+    public void testDeleteDeviceGroupMeasurementsDeletesAtMostLimitOfGroupsDevices() throws Exception {
+        log.info("Test delete_device_group_measurements deletes at most given count of measurements of group's devices");
+
+        // Given
+        Integer deviceGroupId = addTestDeviceGroup();
+        Integer firstDeviceId = addTestDevice(deviceGroupId);
+        Integer secondDeviceId = addTestDevice(deviceGroupId);
+        measurementRepository.addMeasurements(Arrays.asList(
+            getTestMeasurement(firstDeviceId, "01-01-2000 00:00:01"),
+            getTestMeasurement(secondDeviceId, "01-01-2000 00:00:02"),
+            getTestMeasurement(firstDeviceId, "01-01-2000 00:00:03"),
+            getTestMeasurement(deviceId, "01-01-2000 00:00:02")));
+
+        // When
+        Integer firstResult = measurementRepository.deleteDeviceGroupMeasurements(deviceGroupId, null, null, null, 2);
+        Integer secondResult = measurementRepository.deleteDeviceGroupMeasurements(deviceGroupId, null, null, null, 2);
+        Collection<Measurement> groupResultsAfter = measurementRepository.getDeviceGroupMeasurements(deviceGroupId, null, null, null, null);
+        Collection<Measurement> resultsAfter = measurementRepository.getMeasurements(deviceId, null, null, null);
+
+        // Then
+        assertThat(firstResult, equalTo(2));
+        assertThat(secondResult, equalTo(1));
+        assertThat(groupResultsAfter.size(), equalTo(0));
+        assertThat(resultsAfter.size(), equalTo(1));
+    }
+
+    /**
+     * Test delete_device deletes measurements of the device
+     */
+    @Transactional
+    @Test
+    public void testDeleteDeviceDeletesMeasurementsOfDevice() throws Exception {
+        log.info("Test delete_device deletes measurements of the device");
+
+        // Given
+        Measurement measurement = getTestMeasurement();
+
+        // When
+        measurementRepository.addMeasurement(measurement);
+        Collection<Measurement> resultsBefore = measurementRepository.getMeasurements(measurement.getDeviceId(), null, null, null);
+        deviceRepository.deleteDevice(deviceId, null, null);
+        Collection<Measurement> resultsAfter = measurementRepository.getMeasurements(measurement.getDeviceId(), null, null, null);
+
+        // Then
+        assertThat(resultsBefore.size(), equalTo(1));
+        assertThat(resultsAfter.size(), equalTo(0));
+    }
+
+    /**
+     * Test add_measurement_partitions creates no partitions for months already partitioned
+     */
+    @Transactional
+    @Test
+    public void testAddMeasurementPartitionsCreatesNoPartitionsForExistingMonths() throws Exception {
+        log.info("Test add_measurement_partitions creates no partitions for months already partitioned");
+
+        // When
+        Integer result = measurementRepository.addMeasurementPartitions(0);
+
+        // Then
+        assertThat(result, equalTo(0));
+    }
+
+    /**
+     * Test drop_measurement_partitions without end_time drops no partitions
+     */
+    @Transactional
+    @Test
+    public void testDropMeasurementPartitionsWithoutEndTimeDropsNothing() throws Exception {
+        log.info("Test drop_measurement_partitions without end_time drops no partitions");
+
+        // Given
+        Date startTime = formatTime("01-01-2000 00:00:00");
+
+        // When
+        Integer result = measurementRepository.dropMeasurementPartitions(startTime, null);
+
+        // Then
+        assertThat(result, equalTo(0));
+    }
+
+    private Integer addTestDeviceGroup() {
+        DeviceGroup deviceGroup = new DeviceGroup();
+        deviceGroup.setName("test-device-group-name");
+
+        return deviceGroupRepository.addDeviceGroup(deviceGroup).getId();
+    }
+
+    private Integer addTestDevice(Integer deviceGroupId) {
+        Device device = new Device();
+        device.setName("test-device-name");
+        device.setDeviceGroupId(deviceGroupId);
+
+        return deviceRepository.addDevice(device).getId();
+    }
+
+    private Measurement getTestMeasurement(Integer deviceId, String time) throws Exception {
+        Measurement measurement = getTestMeasurement();
+        measurement.setDeviceId(deviceId);
+        measurement.setTime(formatTime(time));
+
+        return measurement;
+    }
+
     private Measurement getTestMeasurement() {
         Measurement measurement = new Measurement();
         measurement.setDeviceId(deviceId);
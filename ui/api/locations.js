@@ -9,6 +9,33 @@ export function fetchLocations(filters) {
         .then(response => response.json())
 }
 
+// Latest current locations response. Server answers unchanged locations with 304 Not Modified.
+let currentLocationsCache = {};
+
+// Fetch latest location of each device using given filters
+export function fetchCurrentLocations(filters) {
+    const url = '/api/locations/current' + queryParameters(filters);
+    const headers = { ...fetchOptions.headers };
+
+    if(currentLocationsCache.url === url) {
+        headers["If-None-Match"] = currentLocationsCache.eTag;
+    }
+
+    return fetch(url, { ...fetchOptions, headers })
+        .then(response => {
+            if(response.status === 304) {
+                return currentLocationsCache.json;
+            }
+
+            return Promise.resolve(handleErrors(response))
+                .then(() => response.json())
+                .then(json => {
+                    currentLocationsCache = { url, json, eTag: response.headers.get("ETag") };
+                    return json;
+                });
+        })
+}
+
 // Delete location by id
 export function deleteLocation(data) {
     const request = generateDeleteRequestFromData(data);
@@ -1,9 +1,12 @@
-import { fetchLocations } from "../../api/locations";
+import { fetchLocations, fetchCurrentLocations } from "../../api/locations";
 
 export const LOCATIONS_LOAD_START = 'LOCATIONS_LOAD_START';
 export const LOCATIONS_LOAD_SUCCESS = 'LOCATIONS_LOAD_SUCCESS';
 export const LOCATIONS_LOAD_FAILED = 'LOCATIONS_LOAD_FAILED';
 
+export const CURRENT_LOCATIONS_LOAD_SUCCESS = 'CURRENT_LOCATIONS_LOAD_SUCCESS';
+export const CURRENT_LOCATIONS_LOAD_FAILED = 'CURRENT_LOCATIONS_LOAD_FAILED';
+
 export const LOCATIONS_DELETE_START = "LOCATIONS_DELETE_START";
 export const LOCATIONS_DELETE_SUCCESS = "LOCATIONS_DELETE_SUCCESS";
 export const LOCATIONS_DELETE_FAILED =  "LOCATIONS_DELETE_FAILED";
@@ -29,6 +32,20 @@ function locationsLoadFailed(error) {
     }
 }
 
+function currentLocationsLoadSuccess(json) {
+    return {
+        type: CURRENT_LOCATIONS_LOAD_SUCCESS,
+        json
+    }
+}
+
+function currentLocationsLoadFailed(error) {
+    return {
+        type: CURRENT_LOCATIONS_LOAD_FAILED,
+        error
+    }
+}
+
 function locationsDeleteStart(data) {
     return {
         type: LOCATIONS_DELETE_START,
@@ -59,6 +76,14 @@ export function generateGetLocations(dispatch) {
     }
 }
 
+export function generateGetCurrentLocations(dispatch) {
+    return filters => {
+        return fetchCurrentLocations(filters)
+            .then(json => dispatch(currentLocationsLoadSuccess(json)))
+            .catch(error => dispatch(currentLocationsLoadFailed(error)))
+    }
+}
+
 export function generateDeleteLocation(dispatch) {
     return data => {
         dispatch(locationsDeleteStart(data));
@@ -4,12 +4,19 @@ import {
     LOCATIONS_LOAD_START,
     LOCATIONS_LOAD_SUCCESS,
     LOCATIONS_LOAD_FAILED,
+    CURRENT_LOCATIONS_LOAD_SUCCESS,
+    CURRENT_LOCATIONS_LOAD_FAILED,
     LOCATIONS_DELETE_START,
     LOCATIONS_DELETE_SUCCESS,
     LOCATIONS_DELETE_FAILED,
 } from './actions';
 
-const { initialState } = stateUtils;
+const initialState = {
+    ...stateUtils.initialState,
+
+    // Latest location of each device, drawn on map
+    currentLocations: [],
+};
 
 export default function reducer(state = initialState, action) {
     const { type, json } = action;
@@ -22,6 +29,11 @@ export default function reducer(state = initialState, action) {
         case LOCATIONS_LOAD_FAILED:
             return stateUtils.setLoadFailed(state, action);
 
+        case CURRENT_LOCATIONS_LOAD_SUCCESS:
+            return { ...state, currentLocations: json.collection.items };
+        case CURRENT_LOCATIONS_LOAD_FAILED:
+            return stateUtils.setLoadFailed(state, action);
+
         case LOCATIONS_DELETE_START:
             return stateUtils.setDeleteStart(state);
         case LOCATIONS_DELETE_SUCCESS:
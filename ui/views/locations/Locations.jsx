@@ -53,11 +53,11 @@ export default class Locations extends React.Component {
     }
 
     renderMap() {
-        const { selectedRow, items } = this.props;
+        const { selectedRow, currentLocations } = this.props;
 
         return (
             <Maps { ...{
-                items,
+                items: currentLocations,
                 selectedRow
             }} />
         );
@@ -4,7 +4,10 @@ import Locations from './Locations';
 
 // State
 import { connect } from 'react-redux'
-import { generateGetLocations, generateDeleteLocation } from '../../reducers/locations/actions';
+import { generateGetLocations, generateGetCurrentLocations, generateDeleteLocation } from '../../reducers/locations/actions';
+
+// Map is refreshed periodically. Unchanged locations cost only 304 Not Modified response.
+const MAP_REFRESH_INTERVAL_MS = 30000;
 
 export class LocationsContainer extends React.Component {
     state = {
@@ -19,11 +22,18 @@ export class LocationsContainer extends React.Component {
         const { dispatch } = props;
 
         this.getLocations = generateGetLocations(dispatch);
+        this.getCurrentLocations = generateGetCurrentLocations(dispatch);
         this.deleteLocation = generateDeleteLocation(dispatch);
     }
 
     componentDidMount() {
         this.getLocations();
+        this.getCurrentLocations();
+        this.mapRefresh = setInterval(() => this.getCurrentLocations(), MAP_REFRESH_INTERVAL_MS);
+    }
+
+    componentWillUnmount() {
+        clearInterval(this.mapRefresh);
     }
 
     onRowSelect(selectedRow, selectedRowId) {
@@ -44,7 +54,8 @@ export class LocationsContainer extends React.Component {
     }
 
     render() {
-        const { items, links, queries, template, isFetching, hasFetched, fetchingError, fetchingErrorMessage } = this.props;
+        const { items, links, queries, template, currentLocations,
+            isFetching, hasFetched, fetchingError, fetchingErrorMessage } = this.props;
         const { selectedRow, selectedRowId, showMap } = this.state;
         const { getLocations, onDeleteButtonClick, onRowSelect } = this;
 
@@ -54,6 +65,7 @@ export class LocationsContainer extends React.Component {
                 links,
                 queries,
                 template,
+                currentLocations,
                 isFetching,
                 hasFetched,
                 fetchingError,